@@ -1,5 +1,7 @@
 package com.example.portfolio.config;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -13,12 +15,24 @@ public class ApplicationProperties {
 
     private final Liquibase liquibase = new Liquibase();
 
+    private final MarketData marketData = new MarketData();
+
+    private final Valuation valuation = new Valuation();
+
     // jhipster-needle-application-properties-property
 
     public Liquibase getLiquibase() {
         return liquibase;
     }
 
+    public MarketData getMarketData() {
+        return marketData;
+    }
+
+    public Valuation getValuation() {
+        return valuation;
+    }
+
     // jhipster-needle-application-properties-property-getter
 
     public static class Liquibase {
@@ -33,5 +47,984 @@ public class ApplicationProperties {
             this.asyncStart = asyncStart;
         }
     }
+
+    public static class MarketData {
+
+        /**
+         * Name of the {@code QuoteProvider} used for market data, {@code alpha-vantage} or {@code mock}.
+         */
+        private String provider = "alpha-vantage";
+
+        /**
+         * Names of the providers asked, in order, when the previous one fails or is slow to answer a quote.
+         */
+        private List<String> failoverProviders = new ArrayList<>();
+
+        /**
+         * Maximum number of quotes fetched concurrently for a batch when the provider has no multi-symbol request.
+         */
+        private int batchConcurrency = 4;
+
+        /**
+         * Maximum time a batch of quotes, such as the valuation of a portfolio, waits for the provider. Quotes arriving
+         * later are replaced by their last known value, flagged as stale.
+         */
+        private long batchDeadlineMillis = 3000;
+
+        /**
+         * Whether a ticker with neither a provider quote nor a cached one gets a mock price, flagged as stale, rather
+         * than an error.
+         */
+        private boolean mockFallback = true;
+
+        private final Hedging hedging = new Hedging();
+
+        private final Recording recording = new Recording();
+
+        private final Stream stream = new Stream();
+
+        private final QuoteCache quoteCache = new QuoteCache();
+
+        private final History history = new History();
+
+        private final Refresh refresh = new Refresh();
+
+        private final Calendar calendar = new Calendar();
+
+        private final AlphaVantage alphaVantage = new AlphaVantage();
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public void setProvider(String provider) {
+            this.provider = provider;
+        }
+
+        public List<String> getFailoverProviders() {
+            return failoverProviders;
+        }
+
+        public void setFailoverProviders(List<String> failoverProviders) {
+            this.failoverProviders = failoverProviders;
+        }
+
+        public int getBatchConcurrency() {
+            return batchConcurrency;
+        }
+
+        public void setBatchConcurrency(int batchConcurrency) {
+            this.batchConcurrency = batchConcurrency;
+        }
+
+        public long getBatchDeadlineMillis() {
+            return batchDeadlineMillis;
+        }
+
+        public void setBatchDeadlineMillis(long batchDeadlineMillis) {
+            this.batchDeadlineMillis = batchDeadlineMillis;
+        }
+
+        public boolean isMockFallback() {
+            return mockFallback;
+        }
+
+        public void setMockFallback(boolean mockFallback) {
+            this.mockFallback = mockFallback;
+        }
+
+        public Hedging getHedging() {
+            return hedging;
+        }
+
+        public Recording getRecording() {
+            return recording;
+        }
+
+        public Stream getStream() {
+            return stream;
+        }
+
+        public QuoteCache getQuoteCache() {
+            return quoteCache;
+        }
+
+        public History getHistory() {
+            return history;
+        }
+
+        public Refresh getRefresh() {
+            return refresh;
+        }
+
+        public Calendar getCalendar() {
+            return calendar;
+        }
+
+        public AlphaVantage getAlphaVantage() {
+            return alphaVantage;
+        }
+
+        public static class QuoteCache {
+
+            /**
+             * Maximum number of tickers kept in the quote cache region.
+             */
+            private long maxEntries = 10000;
+
+            /**
+             * Age, in seconds, under which a cached quote is served without contacting the provider.
+             */
+            private long timeToLiveSeconds = 60;
+
+            /**
+             * Window, in seconds, after the time to live during which a cached quote is still served immediately while a
+             * refresh runs in the background.
+             */
+            private long staleWhileRevalidateSeconds = 600;
+
+            /**
+             * Age, in seconds, after which a cached quote is evicted and can no longer be used as a fallback.
+             */
+            private long maxStaleSeconds = 86400;
+
+            /**
+             * Number of tickers the off-heap quote table has a slot for; the quotes of further tickers are only read from
+             * the cache region.
+             */
+            private int tableCapacity = 16384;
+
+            public long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public long getStaleWhileRevalidateSeconds() {
+                return staleWhileRevalidateSeconds;
+            }
+
+            public void setStaleWhileRevalidateSeconds(long staleWhileRevalidateSeconds) {
+                this.staleWhileRevalidateSeconds = staleWhileRevalidateSeconds;
+            }
+
+            public long getMaxStaleSeconds() {
+                return maxStaleSeconds;
+            }
+
+            public void setMaxStaleSeconds(long maxStaleSeconds) {
+                this.maxStaleSeconds = maxStaleSeconds;
+            }
+
+            public int getTableCapacity() {
+                return tableCapacity;
+            }
+
+            public void setTableCapacity(int tableCapacity) {
+                this.tableCapacity = tableCapacity;
+            }
+        }
+
+        public static class Calendar {
+
+            public enum HolidayRules {
+                /**
+                 * Only the listed holidays.
+                 */
+                NONE,
+                /**
+                 * The regular NYSE holidays of every year, as well as the listed ones.
+                 */
+                NYSE,
+            }
+
+            /**
+             * Time zone of the exchange, which sessions, trade dates and the history sync schedule are in.
+             */
+            private String zone = "America/New_York";
+
+            /**
+             * Local time of the open of the regular session, ISO format.
+             */
+            private String sessionOpen = "09:30";
+
+            /**
+             * Local time of the close of the regular session, ISO format.
+             */
+            private String sessionClose = "16:00";
+
+            /**
+             * Regular holidays generated for every year.
+             */
+            private HolidayRules holidayRules = HolidayRules.NYSE;
+
+            /**
+             * Weekdays the exchange is closed besides the regular holidays, ISO dates.
+             */
+            private List<String> holidays = new ArrayList<>();
+
+            public String getZone() {
+                return zone;
+            }
+
+            public void setZone(String zone) {
+                this.zone = zone;
+            }
+
+            public String getSessionOpen() {
+                return sessionOpen;
+            }
+
+            public void setSessionOpen(String sessionOpen) {
+                this.sessionOpen = sessionOpen;
+            }
+
+            public String getSessionClose() {
+                return sessionClose;
+            }
+
+            public void setSessionClose(String sessionClose) {
+                this.sessionClose = sessionClose;
+            }
+
+            public HolidayRules getHolidayRules() {
+                return holidayRules;
+            }
+
+            public void setHolidayRules(HolidayRules holidayRules) {
+                this.holidayRules = holidayRules;
+            }
+
+            public List<String> getHolidays() {
+                return holidays;
+            }
+
+            public void setHolidays(List<String> holidays) {
+                this.holidays = holidays;
+            }
+        }
+
+        /**
+         * Hedged quote requests across the provider and its failover providers: a quote request the current provider
+         * has not answered within its usual latency is sent to the next provider too, the first answer winning.
+         */
+        public static class Hedging {
+
+            private boolean enabled = true;
+
+            /**
+             * Percentile of a provider's recent quote latencies after which the next provider is asked too.
+             */
+            private double latencyPercentile = 0.95;
+
+            private long minDelayMillis = 50;
+
+            /**
+             * Longest wait before asking the next provider, also used until a provider's latencies are known.
+             */
+            private long maxDelayMillis = 2000;
+
+            /**
+             * Maximum number of hedged requests, as a percentage of quote requests, bounding the extra upstream calls.
+             */
+            private int budgetPercent = 10;
+
+            /**
+             * Maximum number of provider calls running at once for hedged requests.
+             */
+            private int maxConcurrentCalls = 16;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public double getLatencyPercentile() {
+                return latencyPercentile;
+            }
+
+            public void setLatencyPercentile(double latencyPercentile) {
+                this.latencyPercentile = latencyPercentile;
+            }
+
+            public long getMinDelayMillis() {
+                return minDelayMillis;
+            }
+
+            public void setMinDelayMillis(long minDelayMillis) {
+                this.minDelayMillis = minDelayMillis;
+            }
+
+            public long getMaxDelayMillis() {
+                return maxDelayMillis;
+            }
+
+            public void setMaxDelayMillis(long maxDelayMillis) {
+                this.maxDelayMillis = maxDelayMillis;
+            }
+
+            public int getBudgetPercent() {
+                return budgetPercent;
+            }
+
+            public void setBudgetPercent(int budgetPercent) {
+                this.budgetPercent = budgetPercent;
+            }
+
+            public int getMaxConcurrentCalls() {
+                return maxConcurrentCalls;
+            }
+
+            public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+                this.maxConcurrentCalls = maxConcurrentCalls;
+            }
+        }
+
+        /**
+         * Record-and-replay of the provider calls, to run the application against the same upstream answers twice.
+         */
+        public static class Recording {
+
+            public enum Mode {
+                /**
+                 * Call the providers.
+                 */
+                OFF,
+                /**
+                 * Call the providers and append every call, with its answer and latency, to the file.
+                 */
+                RECORD,
+                /**
+                 * Answer the calls from the file instead of the providers.
+                 */
+                REPLAY,
+            }
+
+            private Mode mode = Mode.OFF;
+
+            private String file = "data/market-data-recording.jsonl";
+
+            /**
+             * How many times faster than recorded replayed calls are answered; 0 answers them without waiting.
+             */
+            private double speed = 1;
+
+            public Mode getMode() {
+                return mode;
+            }
+
+            public void setMode(Mode mode) {
+                this.mode = mode;
+            }
+
+            public String getFile() {
+                return file;
+            }
+
+            public void setFile(String file) {
+                this.file = file;
+            }
+
+            public double getSpeed() {
+                return speed;
+            }
+
+            public void setSpeed(double speed) {
+                this.speed = speed;
+            }
+        }
+
+        /**
+         * Server-sent event streams of price changes.
+         */
+        public static class Stream {
+
+            /**
+             * Events a connection may have waiting to be sent; a client falling further behind is disconnected.
+             */
+            private int bufferSize = 64;
+
+            /**
+             * Maximum number of connections being written to at once.
+             */
+            private int senderThreads = 4;
+
+            /**
+             * How long, in milliseconds, a connection may take to accept an event before it is closed, so that clients
+             * that stopped reading do not hold the sender threads.
+             */
+            private long sendTimeoutMillis = 10000;
+
+            /**
+             * How long a connection stays open before the client has to reconnect.
+             */
+            private long timeoutMinutes = 30;
+
+            /**
+             * Delay, in milliseconds, during which the price changes of a portfolio's tickers are gathered into one
+             * valuation update.
+             */
+            private long valuationCoalesceMillis = 500;
+
+            public int getBufferSize() {
+                return bufferSize;
+            }
+
+            public void setBufferSize(int bufferSize) {
+                this.bufferSize = bufferSize;
+            }
+
+            public int getSenderThreads() {
+                return senderThreads;
+            }
+
+            public void setSenderThreads(int senderThreads) {
+                this.senderThreads = senderThreads;
+            }
+
+            public long getSendTimeoutMillis() {
+                return sendTimeoutMillis;
+            }
+
+            public void setSendTimeoutMillis(long sendTimeoutMillis) {
+                this.sendTimeoutMillis = sendTimeoutMillis;
+            }
+
+            public long getTimeoutMinutes() {
+                return timeoutMinutes;
+            }
+
+            public void setTimeoutMinutes(long timeoutMinutes) {
+                this.timeoutMinutes = timeoutMinutes;
+            }
+
+            public long getValuationCoalesceMillis() {
+                return valuationCoalesceMillis;
+            }
+
+            public void setValuationCoalesceMillis(long valuationCoalesceMillis) {
+                this.valuationCoalesceMillis = valuationCoalesceMillis;
+            }
+        }
+
+        public static class Refresh {
+
+            /**
+             * Whether the quotes of the held tickers are refreshed in the background before they go stale.
+             */
+            private boolean enabled = true;
+
+            /**
+             * Delay, in seconds, between two runs over the tickers due.
+             */
+            private long tickSeconds = 15;
+
+            /**
+             * Shortest refresh interval, in seconds, given to the most read and most volatile tickers.
+             */
+            private long minIntervalSeconds = 60;
+
+            /**
+             * Longest refresh interval, in seconds, given to the tickers nobody reads or whose price does not move.
+             */
+            private long maxIntervalSeconds = 3600;
+
+            /**
+             * Price move, in percent, a quote is expected to lag behind by when its ticker comes due again.
+             */
+            private double driftTolerancePercent = 0.25;
+
+            /**
+             * Maximum number of tickers refreshed by one run, the most overdue first. Keep it within the provider's
+             * per-minute budget, or a run waits for its own calls.
+             */
+            private int maxTickersPerRun = 5;
+
+            /**
+             * Period, in minutes, after which the read counts that order the tickers are halved.
+             */
+            private long readCountHalfLifeMinutes = 60;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getTickSeconds() {
+                return tickSeconds;
+            }
+
+            public void setTickSeconds(long tickSeconds) {
+                this.tickSeconds = tickSeconds;
+            }
+
+            public long getMinIntervalSeconds() {
+                return minIntervalSeconds;
+            }
+
+            public void setMinIntervalSeconds(long minIntervalSeconds) {
+                this.minIntervalSeconds = minIntervalSeconds;
+            }
+
+            public long getMaxIntervalSeconds() {
+                return maxIntervalSeconds;
+            }
+
+            public void setMaxIntervalSeconds(long maxIntervalSeconds) {
+                this.maxIntervalSeconds = maxIntervalSeconds;
+            }
+
+            public double getDriftTolerancePercent() {
+                return driftTolerancePercent;
+            }
+
+            public void setDriftTolerancePercent(double driftTolerancePercent) {
+                this.driftTolerancePercent = driftTolerancePercent;
+            }
+
+            public int getMaxTickersPerRun() {
+                return maxTickersPerRun;
+            }
+
+            public void setMaxTickersPerRun(int maxTickersPerRun) {
+                this.maxTickersPerRun = maxTickersPerRun;
+            }
+
+            public long getReadCountHalfLifeMinutes() {
+                return readCountHalfLifeMinutes;
+            }
+
+            public void setReadCountHalfLifeMinutes(long readCountHalfLifeMinutes) {
+                this.readCountHalfLifeMinutes = readCountHalfLifeMinutes;
+            }
+        }
+
+        public static class History {
+
+            /**
+             * Number of calendar days of daily bars served by the historical endpoint.
+             */
+            private int windowDays = 140;
+
+            /**
+             * Cron expression of the daily sync of the held tickers' bars, once the provider has the day's close.
+             */
+            private String syncCron = "0 30 17 * * MON-FRI";
+
+            /**
+             * Number of tickers whose on-demand sync of the day is tracked; reads of further tickers behind wait for the
+             * scheduled sync.
+             */
+            private int onDemandMaxTickers = 1000;
+
+            private final FileStore fileStore = new FileStore();
+
+            public int getWindowDays() {
+                return windowDays;
+            }
+
+            public void setWindowDays(int windowDays) {
+                this.windowDays = windowDays;
+            }
+
+            public String getSyncCron() {
+                return syncCron;
+            }
+
+            public void setSyncCron(String syncCron) {
+                this.syncCron = syncCron;
+            }
+
+            public int getOnDemandMaxTickers() {
+                return onDemandMaxTickers;
+            }
+
+            public void setOnDemandMaxTickers(int onDemandMaxTickers) {
+                this.onDemandMaxTickers = onDemandMaxTickers;
+            }
+
+            public FileStore getFileStore() {
+                return fileStore;
+            }
+
+            public static class FileStore {
+
+                /**
+                 * Whether the synced bars are also appended to memory-mapped column files, one per ticker, for scans.
+                 */
+                private boolean enabled = false;
+
+                /**
+                 * Directory of the column files.
+                 */
+                private String directory = "data/price-store";
+
+                /**
+                 * Number of most recent bars of a ticker kept in its column file; older bars are sealed into a compressed
+                 * file, about a fifth of the size, by blocks of 128. 0 keeps every bar in the column file.
+                 */
+                private int hotBars = 512;
+
+                public boolean isEnabled() {
+                    return enabled;
+                }
+
+                public void setEnabled(boolean enabled) {
+                    this.enabled = enabled;
+                }
+
+                public String getDirectory() {
+                    return directory;
+                }
+
+                public void setDirectory(String directory) {
+                    this.directory = directory;
+                }
+
+                public int getHotBars() {
+                    return hotBars;
+                }
+
+                public void setHotBars(int hotBars) {
+                    this.hotBars = hotBars;
+                }
+            }
+        }
+
+        public static class AlphaVantage {
+
+            private String baseUrl = "https://www.alphavantage.co/query";
+
+            private String apiKey = "demo";
+
+            /**
+             * Whether to use the multi-symbol REALTIME_BULK_QUOTES function, which requires a premium key.
+             */
+            private boolean bulkQuotes = false;
+
+            private final Http http = new Http();
+
+            private final RateLimit rateLimit = new RateLimit();
+
+            private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+            private final Bulkhead bulkhead = new Bulkhead();
+
+            public String getBaseUrl() {
+                return baseUrl;
+            }
+
+            public void setBaseUrl(String baseUrl) {
+                this.baseUrl = baseUrl;
+            }
+
+            public String getApiKey() {
+                return apiKey;
+            }
+
+            public void setApiKey(String apiKey) {
+                this.apiKey = apiKey;
+            }
+
+            public boolean isBulkQuotes() {
+                return bulkQuotes;
+            }
+
+            public void setBulkQuotes(boolean bulkQuotes) {
+                this.bulkQuotes = bulkQuotes;
+            }
+
+            public Http getHttp() {
+                return http;
+            }
+
+            public RateLimit getRateLimit() {
+                return rateLimit;
+            }
+
+            public CircuitBreaker getCircuitBreaker() {
+                return circuitBreaker;
+            }
+
+            public Bulkhead getBulkhead() {
+                return bulkhead;
+            }
+        }
+
+        /**
+         * Call budget of a provider, enforced by a token bucket. A value of 0 disables the corresponding limit.
+         */
+        public static class RateLimit {
+
+            private long requestsPerMinute = 5;
+
+            private long requestsPerDay = 25;
+
+            /**
+             * Share of the daily budget background refreshes may not use, so that interactive requests are still served.
+             */
+            private int interactiveReservePercent = 20;
+
+            private long interactiveMaxWaitMillis = 1000;
+
+            private long backgroundMaxWaitMillis = 30000;
+
+            public long getRequestsPerMinute() {
+                return requestsPerMinute;
+            }
+
+            public void setRequestsPerMinute(long requestsPerMinute) {
+                this.requestsPerMinute = requestsPerMinute;
+            }
+
+            public long getRequestsPerDay() {
+                return requestsPerDay;
+            }
+
+            public void setRequestsPerDay(long requestsPerDay) {
+                this.requestsPerDay = requestsPerDay;
+            }
+
+            public int getInteractiveReservePercent() {
+                return interactiveReservePercent;
+            }
+
+            public void setInteractiveReservePercent(int interactiveReservePercent) {
+                this.interactiveReservePercent = interactiveReservePercent;
+            }
+
+            public long getInteractiveMaxWaitMillis() {
+                return interactiveMaxWaitMillis;
+            }
+
+            public void setInteractiveMaxWaitMillis(long interactiveMaxWaitMillis) {
+                this.interactiveMaxWaitMillis = interactiveMaxWaitMillis;
+            }
+
+            public long getBackgroundMaxWaitMillis() {
+                return backgroundMaxWaitMillis;
+            }
+
+            public void setBackgroundMaxWaitMillis(long backgroundMaxWaitMillis) {
+                this.backgroundMaxWaitMillis = backgroundMaxWaitMillis;
+            }
+        }
+
+        /**
+         * Circuit breaker of a provider: it opens when too many of the last calls failed or were slow, refusing calls
+         * for a while, then lets a few trial calls through to decide whether to close again.
+         */
+        public static class CircuitBreaker {
+
+            /**
+             * Number of the last calls the failure and slow call rates are computed over.
+             */
+            private int slidingWindowSize = 20;
+
+            /**
+             * Number of calls to record before the rates are considered.
+             */
+            private int minimumCalls = 5;
+
+            private int failureRateThresholdPercent = 50;
+
+            /**
+             * Duration from which a call counts as slow.
+             */
+            private long slowCallDurationMillis = 3000;
+
+            private int slowCallRateThresholdPercent = 80;
+
+            /**
+             * How long the circuit stays open before trial calls are let through.
+             */
+            private long openDurationSeconds = 30;
+
+            /**
+             * Number of trial calls let through while half-open.
+             */
+            private int halfOpenCalls = 2;
+
+            public int getSlidingWindowSize() {
+                return slidingWindowSize;
+            }
+
+            public void setSlidingWindowSize(int slidingWindowSize) {
+                this.slidingWindowSize = slidingWindowSize;
+            }
+
+            public int getMinimumCalls() {
+                return minimumCalls;
+            }
+
+            public void setMinimumCalls(int minimumCalls) {
+                this.minimumCalls = minimumCalls;
+            }
+
+            public int getFailureRateThresholdPercent() {
+                return failureRateThresholdPercent;
+            }
+
+            public void setFailureRateThresholdPercent(int failureRateThresholdPercent) {
+                this.failureRateThresholdPercent = failureRateThresholdPercent;
+            }
+
+            public long getSlowCallDurationMillis() {
+                return slowCallDurationMillis;
+            }
+
+            public void setSlowCallDurationMillis(long slowCallDurationMillis) {
+                this.slowCallDurationMillis = slowCallDurationMillis;
+            }
+
+            public int getSlowCallRateThresholdPercent() {
+                return slowCallRateThresholdPercent;
+            }
+
+            public void setSlowCallRateThresholdPercent(int slowCallRateThresholdPercent) {
+                this.slowCallRateThresholdPercent = slowCallRateThresholdPercent;
+            }
+
+            public long getOpenDurationSeconds() {
+                return openDurationSeconds;
+            }
+
+            public void setOpenDurationSeconds(long openDurationSeconds) {
+                this.openDurationSeconds = openDurationSeconds;
+            }
+
+            public int getHalfOpenCalls() {
+                return halfOpenCalls;
+            }
+
+            public void setHalfOpenCalls(int halfOpenCalls) {
+                this.halfOpenCalls = halfOpenCalls;
+            }
+        }
+
+        /**
+         * Bound on the concurrent calls to a provider's upstream, so that a slow upstream cannot hold every request
+         * thread.
+         */
+        public static class Bulkhead {
+
+            private int maxConcurrentCalls = 4;
+
+            /**
+             * Maximum time a call waits for one of the others to finish.
+             */
+            private long maxWaitMillis = 500;
+
+            public int getMaxConcurrentCalls() {
+                return maxConcurrentCalls;
+            }
+
+            public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+                this.maxConcurrentCalls = maxConcurrentCalls;
+            }
+
+            public long getMaxWaitMillis() {
+                return maxWaitMillis;
+            }
+
+            public void setMaxWaitMillis(long maxWaitMillis) {
+                this.maxWaitMillis = maxWaitMillis;
+            }
+        }
+
+        /**
+         * Settings of the pooled HTTP client an HTTP-backed provider talks to its upstream with.
+         */
+        public static class Http {
+
+            private int connectTimeoutMillis = 2000;
+
+            private int readTimeoutMillis = 5000;
+
+            /**
+             * Maximum time to wait for a pooled connection when all of them are busy.
+             */
+            private int connectionRequestTimeoutMillis = 1000;
+
+            private int maxConnections = 20;
+
+            /**
+             * How long an idle pooled connection is kept open for reuse.
+             */
+            private int keepAliveSeconds = 30;
+
+            public int getConnectTimeoutMillis() {
+                return connectTimeoutMillis;
+            }
+
+            public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+                this.connectTimeoutMillis = connectTimeoutMillis;
+            }
+
+            public int getReadTimeoutMillis() {
+                return readTimeoutMillis;
+            }
+
+            public void setReadTimeoutMillis(int readTimeoutMillis) {
+                this.readTimeoutMillis = readTimeoutMillis;
+            }
+
+            public int getConnectionRequestTimeoutMillis() {
+                return connectionRequestTimeoutMillis;
+            }
+
+            public void setConnectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+                this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+            }
+
+            public int getMaxConnections() {
+                return maxConnections;
+            }
+
+            public void setMaxConnections(int maxConnections) {
+                this.maxConnections = maxConnections;
+            }
+
+            public int getKeepAliveSeconds() {
+                return keepAliveSeconds;
+            }
+
+            public void setKeepAliveSeconds(int keepAliveSeconds) {
+                this.keepAliveSeconds = keepAliveSeconds;
+            }
+        }
+    }
+
+    public static class Valuation {
+
+        /**
+         * How often the running portfolio totals are rebuilt from the database, correcting any drift.
+         */
+        private long reconcileIntervalMinutes = 60;
+
+        public long getReconcileIntervalMinutes() {
+            return reconcileIntervalMinutes;
+        }
+
+        public void setReconcileIntervalMinutes(long reconcileIntervalMinutes) {
+            this.reconcileIntervalMinutes = reconcileIntervalMinutes;
+        }
+    }
     // jhipster-needle-application-properties-property-class
 }
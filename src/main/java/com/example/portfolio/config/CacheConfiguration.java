@@ -22,9 +22,11 @@ public class CacheConfiguration {
     private GitProperties gitProperties;
     private BuildProperties buildProperties;
     private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    private final javax.cache.configuration.Configuration<Object, Object> quoteCacheConfiguration;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         JHipsterProperties.Cache.Ehcache ehcache = jHipsterProperties.getCache().getEhcache();
+        ApplicationProperties.MarketData.QuoteCache quoteCache = applicationProperties.getMarketData().getQuoteCache();
 
         jcacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
             CacheConfigurationBuilder.newCacheConfigurationBuilder(
@@ -35,6 +37,17 @@ public class CacheConfiguration {
                 .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ehcache.getTimeToLiveSeconds())))
                 .build()
         );
+
+        // Quotes outlive their freshness TTL so they can still be served while revalidating or as a fallback
+        quoteCacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                Object.class,
+                Object.class,
+                ResourcePoolsBuilder.heap(quoteCache.getMaxEntries())
+            )
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(quoteCache.getMaxStaleSeconds())))
+                .build()
+        );
     }
 
     @Bean
@@ -55,16 +68,25 @@ public class CacheConfiguration {
             createCache(cm, com.example.portfolio.domain.Portfolio.class.getName());
             createCache(cm, com.example.portfolio.domain.Portfolio.class.getName() + ".assets");
             createCache(cm, com.example.portfolio.domain.Asset.class.getName());
+            createCache(cm, com.example.portfolio.service.marketdata.QuoteCache.QUOTES_CACHE, quoteCacheConfiguration);
             // jhipster-needle-ehcache-add-entry
         };
     }
 
     private void createCache(javax.cache.CacheManager cm, String cacheName) {
+        createCache(cm, cacheName, jcacheConfiguration);
+    }
+
+    private void createCache(
+        javax.cache.CacheManager cm,
+        String cacheName,
+        javax.cache.configuration.Configuration<Object, Object> configuration
+    ) {
         javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
         if (cache != null) {
             cache.clear();
         } else {
-            cm.createCache(cacheName, jcacheConfiguration);
+            cm.createCache(cacheName, configuration);
         }
     }
 
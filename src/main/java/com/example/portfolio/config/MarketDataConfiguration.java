@@ -0,0 +1,45 @@
+package com.example.portfolio.config;
+
+import com.example.portfolio.service.marketdata.HedgedQuoteProvider;
+import com.example.portfolio.service.marketdata.QuoteProvider;
+import com.example.portfolio.service.marketdata.RecordingQuoteProvider;
+import com.example.portfolio.service.marketdata.ReplayQuoteProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class MarketDataConfiguration {
+
+    /**
+     * The provider every quote and daily series is fetched from: the configured provider and its failover providers,
+     * recorded when recording, or the recording itself when replaying. Closed with the context.
+     *
+     * @param quoteProviders the provider components, looked up by name.
+     */
+    @Bean
+    @Primary
+    public QuoteProvider quoteProvider(
+        List<QuoteProvider> quoteProviders,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.MarketData marketData = applicationProperties.getMarketData();
+        ApplicationProperties.MarketData.Recording recording = marketData.getRecording();
+        if (recording.getMode() == ApplicationProperties.MarketData.Recording.Mode.REPLAY) {
+            return new ReplayQuoteProvider(marketData.getProvider(), Path.of(recording.getFile()), recording.getSpeed());
+        }
+        List<QuoteProvider> providers = new ArrayList<>();
+        providers.add(QuoteProvider.named(quoteProviders, marketData.getProvider()));
+        marketData.getFailoverProviders().forEach(name -> providers.add(QuoteProvider.named(quoteProviders, name)));
+        QuoteProvider provider = new HedgedQuoteProvider(providers, marketData.getHedging(), meterRegistry);
+        if (recording.getMode() == ApplicationProperties.MarketData.Recording.Mode.RECORD) {
+            return new RecordingQuoteProvider(provider, Path.of(recording.getFile()));
+        }
+        return provider;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.portfolio.config;
+
+import com.example.portfolio.service.QuoteRefreshService;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import com.example.portfolio.service.marketdata.RefreshSchedule;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint, at {@code /management/quoterefresh}, showing how well the background refresh keeps the quote cache
+ * fresh: the cache hit rate, the age histogram of the quotes served and the interval chosen for each held ticker.
+ */
+@Component
+@Endpoint(id = "quoterefresh")
+public class QuoteRefreshEndpoint {
+
+    private final QuoteCache quoteCache;
+    private final QuoteRefreshService quoteRefreshService;
+
+    public QuoteRefreshEndpoint(QuoteCache quoteCache, QuoteRefreshService quoteRefreshService) {
+        this.quoteCache = quoteCache;
+        this.quoteRefreshService = quoteRefreshService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> quoteRefresh() {
+        QuoteCache.Statistics statistics = quoteCache.statistics();
+        Map<String, Long> ageHistogram = new LinkedHashMap<>();
+        statistics.ageHistogram().forEach((bucket, count) -> ageHistogram.put(String.valueOf(bucket.toSeconds()), count));
+
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("hits", statistics.hits());
+        cache.put("stale", statistics.stale());
+        cache.put("misses", statistics.misses());
+        cache.put("hitRate", statistics.hitRate());
+        cache.put("ageHistogramSeconds", ageHistogram);
+
+        Map<String, Object> tickers = new LinkedHashMap<>();
+        for (RefreshSchedule.TickerRefresh refresh : quoteRefreshService.tickerRefreshes()) {
+            Map<String, Object> ticker = new LinkedHashMap<>();
+            ticker.put("reads", refresh.reads());
+            ticker.put("volatility", Double.isNaN(refresh.volatility()) ? null : refresh.volatility());
+            ticker.put("intervalSeconds", refresh.interval() != null ? refresh.interval().toSeconds() : null);
+            ticker.put("nextRefresh", refresh.nextRefresh() != null ? refresh.nextRefresh().toString() : null);
+            ticker.put("lastQuoteAt", refresh.lastQuoteAt() != null ? refresh.lastQuoteAt().toString() : null);
+            tickers.put(refresh.ticker(), ticker);
+        }
+
+        return Map.of("cache", cache, "tickers", tickers);
+    }
+}
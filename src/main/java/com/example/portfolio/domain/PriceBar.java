@@ -0,0 +1,244 @@
+package com.example.portfolio.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * The daily prices and volume of a ticker, as stored by the price history sync.
+ * <p>
+ * Bars are identified by their ticker and trade date and are only ever inserted, hence {@link Persistable}: saving a
+ * new bar does not select it first.
+ */
+@Entity
+@Table(name = "price_bar")
+@IdClass(PriceBar.PriceBarId.class)
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class PriceBar implements Persistable<PriceBar.PriceBarId>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @NotNull
+    @Size(min = 1, max = 16)
+    @Column(name = "ticker", length = 16, nullable = false)
+    private String ticker;
+
+    @Id
+    @NotNull
+    @Column(name = "trade_date", nullable = false)
+    private LocalDate tradeDate;
+
+    @NotNull
+    @Column(name = "open", precision = 21, scale = 4, nullable = false)
+    private BigDecimal open;
+
+    @NotNull
+    @Column(name = "high", precision = 21, scale = 4, nullable = false)
+    private BigDecimal high;
+
+    @NotNull
+    @Column(name = "low", precision = 21, scale = 4, nullable = false)
+    private BigDecimal low;
+
+    @NotNull
+    @Column(name = "close", precision = 21, scale = 4, nullable = false)
+    private BigDecimal close;
+
+    @NotNull
+    @Column(name = "volume", nullable = false)
+    private Long volume;
+
+    @org.springframework.data.annotation.Transient
+    @Transient
+    private boolean isPersisted;
+
+    public String getTicker() {
+        return this.ticker;
+    }
+
+    public PriceBar ticker(String ticker) {
+        this.setTicker(ticker);
+        return this;
+    }
+
+    public void setTicker(String ticker) {
+        this.ticker = ticker;
+    }
+
+    public LocalDate getTradeDate() {
+        return this.tradeDate;
+    }
+
+    public PriceBar tradeDate(LocalDate tradeDate) {
+        this.setTradeDate(tradeDate);
+        return this;
+    }
+
+    public void setTradeDate(LocalDate tradeDate) {
+        this.tradeDate = tradeDate;
+    }
+
+    public BigDecimal getOpen() {
+        return this.open;
+    }
+
+    public PriceBar open(BigDecimal open) {
+        this.setOpen(open);
+        return this;
+    }
+
+    public void setOpen(BigDecimal open) {
+        this.open = open;
+    }
+
+    public BigDecimal getHigh() {
+        return this.high;
+    }
+
+    public PriceBar high(BigDecimal high) {
+        this.setHigh(high);
+        return this;
+    }
+
+    public void setHigh(BigDecimal high) {
+        this.high = high;
+    }
+
+    public BigDecimal getLow() {
+        return this.low;
+    }
+
+    public PriceBar low(BigDecimal low) {
+        this.setLow(low);
+        return this;
+    }
+
+    public void setLow(BigDecimal low) {
+        this.low = low;
+    }
+
+    public BigDecimal getClose() {
+        return this.close;
+    }
+
+    public PriceBar close(BigDecimal close) {
+        this.setClose(close);
+        return this;
+    }
+
+    public void setClose(BigDecimal close) {
+        this.close = close;
+    }
+
+    public Long getVolume() {
+        return this.volume;
+    }
+
+    public PriceBar volume(Long volume) {
+        this.setVolume(volume);
+        return this;
+    }
+
+    public void setVolume(Long volume) {
+        this.volume = volume;
+    }
+
+    @Transient
+    @Override
+    public PriceBarId getId() {
+        return new PriceBarId(ticker, tradeDate);
+    }
+
+    @org.springframework.data.annotation.Transient
+    @Transient
+    @Override
+    public boolean isNew() {
+        return !this.isPersisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    public void updateEntityState() {
+        this.isPersisted = true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PriceBar)) {
+            return false;
+        }
+        return getTicker() != null && getTradeDate() != null && getId().equals(((PriceBar) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PriceBar{" +
+            "ticker='" + getTicker() + "'" +
+            ", tradeDate='" + getTradeDate() + "'" +
+            ", open=" + getOpen() +
+            ", high=" + getHigh() +
+            ", low=" + getLow() +
+            ", close=" + getClose() +
+            ", volume=" + getVolume() +
+            "}";
+    }
+
+    /**
+     * The identifier of a {@link PriceBar}.
+     */
+    public static class PriceBarId implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String ticker;
+
+        private LocalDate tradeDate;
+
+        public PriceBarId() {}
+
+        public PriceBarId(String ticker, LocalDate tradeDate) {
+            this.ticker = ticker;
+            this.tradeDate = tradeDate;
+        }
+
+        public String getTicker() {
+            return ticker;
+        }
+
+        public LocalDate getTradeDate() {
+            return tradeDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PriceBarId)) {
+                return false;
+            }
+            PriceBarId other = (PriceBarId) o;
+            return Objects.equals(ticker, other.ticker) && Objects.equals(tradeDate, other.tradeDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ticker, tradeDate);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.portfolio.repository;
 
 import com.example.portfolio.domain.Asset;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
@@ -34,4 +37,26 @@ public interface AssetRepository extends JpaRepository<Asset, Long> {
 
     @Query("select asset from Asset asset left join fetch asset.portfolio where asset.id =:id")
     Optional<Asset> findOneWithToOneRelationships(@Param("id") Long id);
+
+    /**
+     * Get the holdings of one portfolio, served by the {@code asset.portfolio_id} index.
+     */
+    @Query("select asset from Asset asset where asset.portfolio.id = :portfolioId")
+    List<Asset> findAllByPortfolioId(@Param("portfolioId") Long portfolioId);
+
+    /**
+     * Stream every holding without loading the entities; the stream must be consumed in a transaction and closed.
+     */
+    @Query(
+        "select new com.example.portfolio.repository.HoldingRow(asset.portfolio.id, asset.ticker, asset.quantity, asset.avgPrice)" +
+        " from Asset asset where asset.portfolio is not null"
+    )
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<HoldingRow> streamAllHoldings();
+
+    /**
+     * Get every ticker held in a portfolio.
+     */
+    @Query("select distinct asset.ticker from Asset asset where asset.portfolio is not null")
+    List<String> findDistinctTickers();
 }
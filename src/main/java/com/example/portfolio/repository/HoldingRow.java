@@ -0,0 +1,8 @@
+package com.example.portfolio.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection of an {@link com.example.portfolio.domain.Asset} on the columns that value it.
+ */
+public record HoldingRow(Long portfolioId, String ticker, Integer quantity, BigDecimal avgPrice) {}
@@ -0,0 +1,23 @@
+package com.example.portfolio.repository;
+
+import com.example.portfolio.domain.PriceBar;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the PriceBar entity.
+ */
+@Repository
+public interface PriceBarRepository extends JpaRepository<PriceBar, PriceBar.PriceBarId> {
+    /**
+     * Get the date of the last bar stored for a ticker, served by the primary key.
+     */
+    @Query("select max(priceBar.tradeDate) from PriceBar priceBar where priceBar.ticker = :ticker")
+    Optional<LocalDate> findLastTradeDate(@Param("ticker") String ticker);
+
+    List<PriceBar> findAllByTickerAndTradeDateBetweenOrderByTradeDateDesc(String ticker, LocalDate from, LocalDate to);
+}
@@ -4,9 +4,12 @@ import com.example.portfolio.domain.Asset;
 import com.example.portfolio.repository.AssetRepository;
 import com.example.portfolio.service.dto.AssetDTO;
 import com.example.portfolio.service.mapper.AssetMapper;
+import com.example.portfolio.service.valuation.Holding;
+import com.example.portfolio.service.valuation.HoldingChangedEvent;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -25,9 +28,12 @@ public class AssetService {
 
     private final AssetMapper assetMapper;
 
-    public AssetService(AssetRepository assetRepository, AssetMapper assetMapper) {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public AssetService(AssetRepository assetRepository, AssetMapper assetMapper, ApplicationEventPublisher eventPublisher) {
         this.assetRepository = assetRepository;
         this.assetMapper = assetMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -40,6 +46,7 @@ public class AssetService {
         LOG.debug("Request to save Asset : {}", assetDTO);
         Asset asset = assetMapper.toEntity(assetDTO);
         asset = assetRepository.save(asset);
+        publishHoldingChanged(null, asset);
         return assetMapper.toDto(asset);
     }
 
@@ -51,8 +58,10 @@ public class AssetService {
      */
     public AssetDTO update(AssetDTO assetDTO) {
         LOG.debug("Request to update Asset : {}", assetDTO);
+        Holding before = assetRepository.findById(assetDTO.getId()).map(Holding::of).orElse(null);
         Asset asset = assetMapper.toEntity(assetDTO);
         asset = assetRepository.save(asset);
+        publishHoldingChanged(before, asset);
         return assetMapper.toDto(asset);
     }
 
@@ -68,11 +77,12 @@ public class AssetService {
         return assetRepository
             .findById(assetDTO.getId())
             .map(existingAsset -> {
+                Holding before = Holding.of(existingAsset);
                 assetMapper.partialUpdate(existingAsset, assetDTO);
-
-                return existingAsset;
+                Asset asset = assetRepository.save(existingAsset);
+                publishHoldingChanged(before, asset);
+                return asset;
             })
-            .map(assetRepository::save)
             .map(assetMapper::toDto);
     }
 
@@ -116,6 +126,17 @@ public class AssetService {
      */
     public void delete(Long id) {
         LOG.debug("Request to delete Asset : {}", id);
+        assetRepository.findById(id).ifPresent(asset -> publishHoldingChanged(Holding.of(asset), null));
         assetRepository.deleteById(id);
     }
+
+    /**
+     * Let the valuation apply the write once the transaction commits.
+     */
+    private void publishHoldingChanged(Holding before, Asset after) {
+        Holding holdingAfter = after != null ? Holding.of(after) : null;
+        if (before != null || holdingAfter != null) {
+            eventPublisher.publishEvent(new HoldingChangedEvent(before, holdingAfter));
+        }
+    }
 }
@@ -1,10 +1,15 @@
 package com.example.portfolio.service;
 
 import com.example.portfolio.domain.Asset;
-import com.example.portfolio.domain.Portfolio;
 import com.example.portfolio.repository.AssetRepository;
 import com.example.portfolio.repository.PortfolioRepository;
+import com.example.portfolio.service.dto.PortfolioMetrics;
+import com.example.portfolio.service.dto.PortfolioValuation;
+import com.example.portfolio.service.marketdata.QuotePrices;
+import com.example.portfolio.service.valuation.HoldingsCalculator;
+import com.example.portfolio.service.valuation.PortfolioValuationEngine;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -16,66 +21,50 @@ public class PortfolioAnalyticsService {
     private final AssetRepository assetRepository;
     private final PortfolioRepository portfolioRepository;
     private final StockDataService stockDataService;
+    private final PortfolioValuationEngine valuationEngine;
     
     public PortfolioAnalyticsService(AssetRepository assetRepository, 
                                    PortfolioRepository portfolioRepository,
-                                   StockDataService stockDataService) {
+                                   StockDataService stockDataService,
+                                   PortfolioValuationEngine valuationEngine) {
         this.assetRepository = assetRepository;
         this.portfolioRepository = portfolioRepository;
         this.stockDataService = stockDataService;
+        this.valuationEngine = valuationEngine;
     }
     
-    public Map<String, Object> calculatePortfolioMetrics(Long portfolioId) {
-        Portfolio portfolio = portfolioRepository.findById(portfolioId)
-            .orElseThrow(() -> new RuntimeException("Portfolio not found"));
-        
-        List<Asset> assets = assetRepository.findAll().stream()
-            .filter(asset -> asset.getPortfolio() != null && asset.getPortfolio().getId().equals(portfolioId))
-            .toList();
-        
-        Map<String, Object> metrics = new HashMap<>();
-        
-        // Calculate total portfolio value
-        BigDecimal totalValue = BigDecimal.ZERO;
-        BigDecimal totalCost = BigDecimal.ZERO;
-        
-        List<Map<String, Object>> assetDetails = new ArrayList<>();
-        
-        for (Asset asset : assets) {
-            BigDecimal currentPrice = stockDataService.getCurrentPrice(asset.getTicker());
-            BigDecimal assetValue = currentPrice.multiply(BigDecimal.valueOf(asset.getQuantity()));
-            BigDecimal assetCost = asset.getAvgPrice().multiply(BigDecimal.valueOf(asset.getQuantity()));
-            
-            totalValue = totalValue.add(assetValue);
-            totalCost = totalCost.add(assetCost);
-            
-            Map<String, Object> assetDetail = new HashMap<>();
-            assetDetail.put("ticker", asset.getTicker());
-            assetDetail.put("quantity", asset.getQuantity());
-            assetDetail.put("avgPrice", asset.getAvgPrice());
-            assetDetail.put("currentPrice", currentPrice);
-            assetDetail.put("currentValue", assetValue);
-            assetDetail.put("gainLoss", assetValue.subtract(assetCost));
-            assetDetail.put("gainLossPercent", 
-                assetCost.compareTo(BigDecimal.ZERO) > 0 ? 
-                    assetValue.subtract(assetCost).divide(assetCost, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)) : 
-                    BigDecimal.ZERO);
-            
-            assetDetails.add(assetDetail);
+    @Transactional(readOnly = true)
+    public PortfolioMetrics calculatePortfolioMetrics(Long portfolioId) {
+        if (!portfolioRepository.existsById(portfolioId)) {
+            throw new RuntimeException("Portfolio not found");
         }
         
-        metrics.put("totalValue", totalValue);
-        metrics.put("totalCost", totalCost);
-        metrics.put("totalGainLoss", totalValue.subtract(totalCost));
-        metrics.put("totalGainLossPercent", 
-            totalCost.compareTo(BigDecimal.ZERO) > 0 ? 
-                totalValue.subtract(totalCost).divide(totalCost, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)) : 
-                BigDecimal.ZERO);
-        metrics.put("assets", assetDetails);
-        metrics.put("diversificationScore", calculateDiversificationScore(assets));
-        metrics.put("recommendedAsset", getRecommendedAsset(assets));
+        List<Asset> assets = assetRepository.findAllByPortfolioId(portfolioId);
+        
+        QuotePrices prices = stockDataService.getValuationPrices(assets.stream().map(Asset::getTicker).toList());
+        HoldingsCalculator.Result valued = HoldingsCalculator.calculate(assets, prices);
+        // The totals add up the holdings of the response, valued at the same quotes
+        BigDecimal totalValue = valued.totalValue();
+        BigDecimal totalCost = valued.totalCost();
         
-        return metrics;
+        return new PortfolioMetrics(
+            totalValue,
+            totalCost,
+            totalValue.subtract(totalCost),
+            HoldingsCalculator.percentOf(totalValue.subtract(totalCost), totalCost),
+            valued.holdings(),
+            calculateDiversificationScore(assets),
+            getRecommendedAsset(assets)
+        );
+    }
+    
+    /**
+     * Get the running totals of a portfolio, without reading its holdings or their quotes.
+     *
+     * @return the totals, empty until the valuation engine is loaded or if the portfolio has no holdings.
+     */
+    public Optional<PortfolioValuation> getPortfolioValuation(Long portfolioId) {
+        return valuationEngine.getValuation(portfolioId);
     }
     
     private BigDecimal calculateDiversificationScore(List<Asset> assets) {
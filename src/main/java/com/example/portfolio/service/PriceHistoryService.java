@@ -0,0 +1,338 @@
+package com.example.portfolio.service;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.domain.PriceBar;
+import com.example.portfolio.repository.AssetRepository;
+import com.example.portfolio.repository.PriceBarRepository;
+import com.example.portfolio.service.history.PriceFileStore;
+import com.example.portfolio.service.marketdata.CallNotPermittedException;
+import com.example.portfolio.service.marketdata.DailyBar;
+import com.example.portfolio.service.marketdata.DailySeries;
+import com.example.portfolio.service.marketdata.MarketCalendar;
+import com.example.portfolio.service.marketdata.MarketDataException;
+import com.example.portfolio.service.marketdata.MockQuoteProvider;
+import com.example.portfolio.service.marketdata.PriceSeries;
+import com.example.portfolio.service.marketdata.QuotaExceededException;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteProvider;
+import com.example.portfolio.service.marketdata.RequestPriority;
+import com.example.portfolio.service.marketdata.SingleFlight;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Daily price history, served from the {@code price_bar} table, or from the {@link PriceFileStore} when enabled.
+ * <p>
+ * The store is kept current by fetching, for each held ticker, only the bars dated after the last stored one: a
+ * scheduled sync does so after the close, and a read finding a ticker behind does so on demand, at most once a day per
+ * ticker. Either way the provider is asked for one small time series per ticker per day.
+ * <p>
+ * Syncs of the same ticker are serialized, a sync started while another one is in flight waits for it and shares its
+ * result, so the scheduled and on-demand syncs never insert the same bar twice.
+ */
+@Service
+public class PriceHistoryService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PriceHistoryService.class);
+
+    private final QuoteProvider quoteProvider;
+    private final MockQuoteProvider mockQuoteProvider;
+    private final PriceBarRepository priceBarRepository;
+    private final AssetRepository assetRepository;
+    private final PriceFileStore priceFileStore;
+    private final MarketCalendar marketCalendar;
+    private final Clock clock;
+    private final int windowDays;
+    private final int onDemandMaxTickers;
+
+    private final SingleFlight<String, Integer> syncs = new SingleFlight<>(symbol -> {});
+
+    /**
+     * Day of the last on-demand sync of each ticker, for at most {@link #onDemandMaxTickers} tickers.
+     */
+    private final Map<String, LocalDate> onDemandSyncDays = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PriceHistoryService(
+        QuoteProvider quoteProvider,
+        MockQuoteProvider mockQuoteProvider,
+        PriceBarRepository priceBarRepository,
+        AssetRepository assetRepository,
+        PriceFileStore priceFileStore,
+        MarketCalendar marketCalendar,
+        ApplicationProperties applicationProperties
+    ) {
+        this(
+            quoteProvider,
+            mockQuoteProvider,
+            priceBarRepository,
+            assetRepository,
+            priceFileStore,
+            marketCalendar,
+            applicationProperties,
+            Clock.systemUTC()
+        );
+    }
+
+    PriceHistoryService(
+        QuoteProvider quoteProvider,
+        MockQuoteProvider mockQuoteProvider,
+        PriceBarRepository priceBarRepository,
+        AssetRepository assetRepository,
+        PriceFileStore priceFileStore,
+        MarketCalendar marketCalendar,
+        ApplicationProperties applicationProperties,
+        Clock clock
+    ) {
+        ApplicationProperties.MarketData.History history = applicationProperties.getMarketData().getHistory();
+        this.quoteProvider = quoteProvider;
+        this.mockQuoteProvider = mockQuoteProvider;
+        this.priceBarRepository = priceBarRepository;
+        this.assetRepository = assetRepository;
+        this.priceFileStore = priceFileStore;
+        this.marketCalendar = marketCalendar;
+        this.clock = clock;
+        this.windowDays = history.getWindowDays();
+        this.onDemandMaxTickers = history.getOnDemandMaxTickers();
+    }
+
+    /**
+     * Get the daily bars of a ticker over the configured window, newest first, in the Alpha Vantage time series shape.
+     *
+     * @return a map with the {@code ticker} and its {@code data}, bars keyed by ISO date.
+     */
+    public Map<String, Object> getHistoricalData(String ticker) {
+        PriceSeries series = getPriceSeries(ticker);
+        int from = series.indexOf(lastFinalTradeDate().minusDays(windowDays).toEpochDay());
+
+        Map<String, Map<String, String>> data = new LinkedHashMap<>();
+        for (int i = series.size() - 1; i >= from; i--) {
+            DailyBar bar = series.bar(i);
+            Map<String, String> day = new LinkedHashMap<>();
+            day.put("1. open", bar.open().toPlainString());
+            day.put("2. high", bar.high().toPlainString());
+            day.put("3. low", bar.low().toPlainString());
+            day.put("4. close", bar.close().toPlainString());
+            day.put("5. volume", String.valueOf(bar.volume()));
+            data.put(bar.date().toString(), day);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ticker", ticker);
+        result.put("data", data);
+        return result;
+    }
+
+    /**
+     * Get the daily bars of a ticker over the configured window, from the file store when enabled, from the database
+     * otherwise. A ticker found behind is synced first, at most once a day.
+     *
+     * @param ticker the ticker, normalized or not.
+     * @return the bars, mock ones if none could be stored.
+     */
+    public PriceSeries getPriceSeries(String ticker) {
+        String symbol = Quote.normalizeTicker(ticker);
+        if (isMock()) {
+            // Mock bars are made up on each call, there is nothing worth storing
+            return mockQuoteProvider.fetchDailySeries(symbol, RequestPriority.INTERACTIVE);
+        }
+        LocalDate lastFinal = lastFinalTradeDate();
+        Optional<PriceSeries> stored = readStored(symbol, lastFinal);
+        if (isBehind(stored, lastFinal) && claimOnDemandSync(symbol, lastFinal)) {
+            try {
+                sync(symbol, RequestPriority.INTERACTIVE);
+            } catch (MarketDataException e) {
+                LOG.warn("Unable to sync the price history of {} from {}: {}", symbol, quoteProvider.getName(), e.getMessage());
+            } catch (DataIntegrityViolationException e) {
+                LOG.warn("Price history of {} synced concurrently elsewhere: {}", symbol, e.getMessage());
+            }
+            stored = readStored(symbol, lastFinal);
+        }
+        // Nothing stored and nothing fetched: mock bars as before the store existed
+        return stored.orElseGet(() -> mockQuoteProvider.fetchDailySeries(symbol, RequestPriority.INTERACTIVE));
+    }
+
+    /**
+     * Store the final bars of a ticker missing since its last stored one, in the database and the file store. A sync
+     * of the ticker already in flight is joined rather than repeated.
+     *
+     * @param ticker the ticker, normalized or not.
+     * @param priority the priority of the request against the provider's call budget.
+     * @return the number of bars stored.
+     * @throws QuotaExceededException if the provider's call budget is spent.
+     * @throws MarketDataException if the provider could not be queried.
+     * @throws DataIntegrityViolationException if another instance stored some of the bars meanwhile.
+     */
+    public int sync(String ticker, RequestPriority priority) {
+        String symbol = Quote.normalizeTicker(ticker);
+        return syncs.execute(symbol, () -> syncNow(symbol, priority));
+    }
+
+    private int syncNow(String symbol, RequestPriority priority) {
+        LocalDate lastFinal = lastFinalTradeDate();
+        Optional<LocalDate> lastStored = priceBarRepository.findLastTradeDate(symbol);
+        if (!isBehind(symbol, lastStored, lastFinal)) {
+            return 0;
+        }
+
+        // Fetched outside of any transaction, the provider may take seconds to answer
+        DailySeries series = quoteProvider.fetchDailySeries(symbol, priority);
+        long from = lastStored.map(date -> date.toEpochDay() + 1).orElse(Long.MIN_VALUE);
+        // Today's bar is still moving until the close; it is stored by the next sync
+        long to = lastFinal.toEpochDay();
+        List<PriceBar> missing = new ArrayList<>();
+        DailySeries.Builder closed = DailySeries.builder(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            long epochDay = series.epochDay(i);
+            if (epochDay <= to) {
+                closed.add(epochDay, series.open(i), series.high(i), series.low(i), series.close(i), series.volume(i));
+                if (epochDay >= from) {
+                    missing.add(toPriceBar(symbol, series, i));
+                }
+            }
+        }
+        priceBarRepository.saveAll(missing);
+        int appended = priceFileStore.append(symbol, closed.build());
+        LOG.debug("Stored {} daily bars for {}, {} in the file store", missing.size(), symbol, appended);
+        return missing.size();
+    }
+
+    /**
+     * Sync every held ticker after the close, in the background share of the provider's call budget.
+     */
+    @Scheduled(
+        cron = "${application.market-data.history.sync-cron:0 30 17 * * MON-FRI}",
+        zone = "${application.market-data.calendar.zone:America/New_York}"
+    )
+    public void syncHeldTickers() {
+        if (isMock()) {
+            return;
+        }
+        Set<String> tickers = new TreeSet<>();
+        assetRepository.findDistinctTickers().forEach(ticker -> tickers.add(Quote.normalizeTicker(ticker)));
+        int stored = 0;
+        for (String ticker : tickers) {
+            try {
+                stored += sync(ticker, RequestPriority.BACKGROUND);
+            } catch (QuotaExceededException e) {
+                LOG.warn("Price history sync stopped, the {} call budget is spent: {}", quoteProvider.getName(), e.getMessage());
+                break;
+            } catch (CallNotPermittedException e) {
+                LOG.warn("Price history sync stopped, {} refuses calls: {}", quoteProvider.getName(), e.getMessage());
+                break;
+            } catch (MarketDataException e) {
+                LOG.warn("Unable to sync the price history of {} from {}: {}", ticker, quoteProvider.getName(), e.getMessage());
+            } catch (DataIntegrityViolationException e) {
+                LOG.warn("Price history of {} synced concurrently elsewhere: {}", ticker, e.getMessage());
+            }
+        }
+        LOG.info("Price history sync stored {} daily bars for {} tickers", stored, tickers.size());
+    }
+
+    /**
+     * Read the stored bars of a ticker over the window with a single scan: of the file store when it has the ticker, of
+     * the database otherwise.
+     *
+     * @return the bars, empty if none are stored.
+     */
+    private Optional<PriceSeries> readStored(String symbol, LocalDate lastFinal) {
+        Optional<PriceSeries> mapped = readFileStore(symbol, lastFinal);
+        if (mapped.isPresent()) {
+            return mapped;
+        }
+        List<PriceBar> priceBars = priceBarRepository.findAllByTickerAndTradeDateBetweenOrderByTradeDateDesc(
+            symbol,
+            lastFinal.minusDays(windowDays),
+            lastFinal
+        );
+        if (priceBars.isEmpty()) {
+            return Optional.empty();
+        }
+        DailySeries.Builder series = DailySeries.builder(priceBars.size());
+        priceBars.forEach(priceBar ->
+            series.add(
+                priceBar.getTradeDate().toEpochDay(),
+                PriceSeries.toUnits(priceBar.getOpen()),
+                PriceSeries.toUnits(priceBar.getHigh()),
+                PriceSeries.toUnits(priceBar.getLow()),
+                PriceSeries.toUnits(priceBar.getClose()),
+                priceBar.getVolume()
+            )
+        );
+        return Optional.of(series.build());
+    }
+
+    /**
+     * @return whether the bars read lack the last final one.
+     */
+    private static boolean isBehind(Optional<PriceSeries> stored, LocalDate lastFinal) {
+        return stored.isEmpty() || stored.orElseThrow().epochDay(stored.orElseThrow().size() - 1) < lastFinal.toEpochDay();
+    }
+
+    /**
+     * @return whether the database, or the file store when enabled, lacks the last final bar of the ticker.
+     */
+    private boolean isBehind(String symbol, Optional<LocalDate> lastStored, LocalDate lastFinal) {
+        if (lastStored.isEmpty() || lastStored.orElseThrow().isBefore(lastFinal)) {
+            return true;
+        }
+        return priceFileStore.isEnabled() && isBehind(readFileStore(symbol, lastFinal), lastFinal);
+    }
+
+    private Optional<PriceSeries> readFileStore(String symbol, LocalDate lastFinal) {
+        // Bounded to the window, which the column file holds, so that no sealed bar is decoded
+        return priceFileStore.read(symbol, lastFinal.minusDays(windowDays).toEpochDay(), lastFinal.toEpochDay());
+    }
+
+    /**
+     * Claim today's on-demand sync of a ticker. Days before the last final one are forgotten once the configured number
+     * of tickers is tracked; tickers beyond it wait for the scheduled sync.
+     *
+     * @return whether the ticker was not synced on demand yet today.
+     */
+    private boolean claimOnDemandSync(String symbol, LocalDate lastFinal) {
+        if (onDemandSyncDays.size() >= onDemandMaxTickers && !onDemandSyncDays.containsKey(symbol)) {
+            onDemandSyncDays.values().removeIf(day -> day.isBefore(lastFinal));
+            if (onDemandSyncDays.size() >= onDemandMaxTickers) {
+                return false;
+            }
+        }
+        return !lastFinal.equals(onDemandSyncDays.put(symbol, lastFinal));
+    }
+
+    /**
+     * @return the date of the last session closed, whose bar is final.
+     */
+    LocalDate lastFinalTradeDate() {
+        return marketCalendar.lastSession(Instant.now(clock));
+    }
+
+    private boolean isMock() {
+        return MockQuoteProvider.NAME.equals(quoteProvider.getName());
+    }
+
+    private static PriceBar toPriceBar(String ticker, DailySeries series, int index) {
+        return new PriceBar()
+            .ticker(ticker)
+            .tradeDate(series.date(index))
+            .open(PriceSeries.toPrice(series.open(index)))
+            .high(PriceSeries.toPrice(series.high(index)))
+            .low(PriceSeries.toPrice(series.low(index)))
+            .close(PriceSeries.toPrice(series.close(index)))
+            .volume(series.volume(index));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.portfolio.service;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.repository.AssetRepository;
+import com.example.portfolio.service.marketdata.MarketCalendar;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import com.example.portfolio.service.marketdata.RefreshSchedule;
+import com.example.portfolio.service.stream.QuoteStreamService;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the quotes of the held and streamed tickers warm in the quote cache, so that user requests seldom wait for the
+ * provider and streams see the price changes.
+ * <p>
+ * Each ticker is refreshed at its own interval, chosen by a {@link RefreshSchedule} from how often it is read and how
+ * fast its price moves, between the configured bounds. Every tick takes the tickers due, the most overdue first, up to
+ * the configured number of tickers, and refreshes those whose quote would go stale before the next tick within the
+ * background share of the provider's call budget; interactive requests keep their reserved share and go first when
+ * both wait for a call. Ticks are skipped while the market is closed, as the quote cache then keeps quotes fresh until
+ * the next open.
+ */
+@Service
+public class QuoteRefreshService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuoteRefreshService.class);
+
+    private final StockDataService stockDataService;
+    private final QuoteCache quoteCache;
+    private final AssetRepository assetRepository;
+    private final QuoteStreamService quoteStreamService;
+    private final MarketCalendar marketCalendar;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration tick;
+    private final int maxTickersPerRun;
+    private final Duration readCountHalfLife;
+    private final RefreshSchedule schedule;
+
+    private Instant nextDecay;
+
+    @Autowired
+    public QuoteRefreshService(
+        StockDataService stockDataService,
+        QuoteCache quoteCache,
+        AssetRepository assetRepository,
+        QuoteStreamService quoteStreamService,
+        MarketCalendar marketCalendar,
+        ApplicationProperties applicationProperties
+    ) {
+        this(stockDataService, quoteCache, assetRepository, quoteStreamService, marketCalendar, applicationProperties, Clock.systemUTC());
+    }
+
+    QuoteRefreshService(
+        StockDataService stockDataService,
+        QuoteCache quoteCache,
+        AssetRepository assetRepository,
+        QuoteStreamService quoteStreamService,
+        MarketCalendar marketCalendar,
+        ApplicationProperties applicationProperties,
+        Clock clock
+    ) {
+        ApplicationProperties.MarketData.Refresh refresh = applicationProperties.getMarketData().getRefresh();
+        this.stockDataService = stockDataService;
+        this.quoteCache = quoteCache;
+        this.assetRepository = assetRepository;
+        this.quoteStreamService = quoteStreamService;
+        this.marketCalendar = marketCalendar;
+        this.clock = clock;
+        this.enabled = refresh.isEnabled();
+        this.tick = Duration.ofSeconds(refresh.getTickSeconds());
+        this.maxTickersPerRun = refresh.getMaxTickersPerRun();
+        this.readCountHalfLife = Duration.ofMinutes(refresh.getReadCountHalfLifeMinutes());
+        this.schedule = new RefreshSchedule(
+            Duration.ofSeconds(refresh.getMinIntervalSeconds()),
+            Duration.ofSeconds(refresh.getMaxIntervalSeconds()),
+            refresh.getDriftTolerancePercent() / 100
+        );
+        this.nextDecay = Instant.now(clock).plus(readCountHalfLife);
+    }
+
+    /**
+     * Refresh the quotes of the held tickers due.
+     * <p>
+     * This is scheduled to run every {@code application.market-data.refresh.tick-seconds}, a run starting once the
+     * previous one is over.
+     */
+    @Scheduled(
+        initialDelayString = "${application.market-data.refresh.tick-seconds:15}",
+        fixedDelayString = "${application.market-data.refresh.tick-seconds:15}",
+        timeUnit = TimeUnit.SECONDS
+    )
+    public void refreshHeldTickers() {
+        Instant now = Instant.now(clock);
+        if (!enabled || !marketCalendar.isOpen(now)) {
+            return;
+        }
+        Set<String> held = new TreeSet<>();
+        assetRepository.findDistinctTickers().forEach(ticker -> held.add(Quote.normalizeTicker(ticker)));
+        // Streamed tickers only change for their subscribers if they are refreshed
+        held.addAll(quoteStreamService.tickersToRefresh());
+        schedule.track(held, quoteCache::readCount, now);
+
+        List<String> due = schedule.pollDue(now, maxTickersPerRun);
+        List<String> stale = due.stream().filter(ticker -> !quoteCache.isFreshFor(ticker, tick)).toList();
+        if (!stale.isEmpty()) {
+            int refreshed = stockDataService.refreshQuotes(stale);
+            LOG.debug("Refreshed {} of {} held tickers due", refreshed, stale.size());
+        }
+        for (String ticker : due) {
+            Optional<Quote> quote = quoteCache.getIfPresent(ticker).filter(cached -> !cached.stale());
+            if (quote.isPresent()) {
+                schedule.observe(ticker, quote.get().price(), quote.get().asOf());
+                // A quote fetched by a user request is as good as a refresh
+                schedule.reschedule(ticker, quoteCache.readCount(ticker), stale.contains(ticker) ? now : quote.get().asOf());
+            } else {
+                schedule.retry(ticker, now);
+            }
+        }
+
+        if (!now.isBefore(nextDecay)) {
+            quoteCache.decayReadCounts();
+            nextDecay = now.plus(readCountHalfLife);
+        }
+    }
+
+    /**
+     * @return the refresh state of the held tickers.
+     */
+    public List<RefreshSchedule.TickerRefresh> tickerRefreshes() {
+        return schedule.snapshot();
+    }
+}
@@ -1,122 +1,412 @@
 package com.example.portfolio.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.service.marketdata.CallNotPermittedException;
+import com.example.portfolio.service.marketdata.MarketDataException;
+import com.example.portfolio.service.marketdata.MockQuoteProvider;
+import com.example.portfolio.service.marketdata.QuotaExceededException;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import com.example.portfolio.service.marketdata.QuoteFetchExecutors;
+import com.example.portfolio.service.marketdata.QuotePrices;
+import com.example.portfolio.service.marketdata.QuoteProvider;
+import com.example.portfolio.service.marketdata.QuoteTable;
+import com.example.portfolio.service.marketdata.RequestPriority;
+import com.example.portfolio.service.marketdata.SingleFlight;
+import com.example.portfolio.service.marketdata.SymbolDictionary;
+import com.example.portfolio.service.valuation.HoldingsIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
-public class StockDataService {
+public class StockDataService implements DisposableBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(StockDataService.class);
     
-    @Value("${app.alpha-vantage.api-key:demo}")
-    private String apiKey;
+    public static final String COALESCED_METER_NAME = "market-data.quote.coalesced";
+    public static final String COALESCED_METER_DESCRIPTION = "Quote requests that joined an in-flight fetch for the same ticker.";
+    public static final String COALESCED_METER_TICKER_DIMENSION = "ticker";
+    /**
+     * Ticker tag of the coalesced requests for tickers neither quoted before nor held.
+     */
+    public static final String COALESCED_METER_OTHER_TICKER = "other";
+    public static final String DEADLINE_EXCEEDED_METER_NAME = "market-data.quote.deadline-exceeded";
+    public static final String FALLBACK_METER_NAME = "market-data.quote.fallback";
+    public static final String FALLBACK_METER_SOURCE_DIMENSION = "source";
     
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    private final QuoteProvider quoteProvider;
+    private final MockQuoteProvider mockQuoteProvider;
+    private final QuoteCache quoteCache;
+    private final HoldingsIndex holdingsIndex;
+    private final MeterRegistry meterRegistry;
+    private final Executor taskExecutor;
+    private final SingleFlight<String, Quote> quoteFetches;
+    // Apart from quoteFetches: a background fetch may wait for the background share of the call budget, and a user
+    // waiting on a quote must not wait with it
+    private final SingleFlight<String, Quote> backgroundFetches;
+    private final ExecutorService batchExecutor;
+    private final Duration batchDeadline;
+    private final Counter deadlineExceededCounter;
+    private final boolean mockFallback;
+    private final Counter cacheFallbackCounter;
+    private final Counter mockFallbackCounter;
     
-    public StockDataService() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    public StockDataService(
+        QuoteProvider quoteProvider,
+        MockQuoteProvider mockQuoteProvider,
+        ApplicationProperties applicationProperties,
+        QuoteCache quoteCache,
+        HoldingsIndex holdingsIndex,
+        @Qualifier("taskExecutor") Executor taskExecutor,
+        MeterRegistry meterRegistry
+    ) {
+        this.quoteProvider = quoteProvider;
+        this.mockQuoteProvider = mockQuoteProvider;
+        this.quoteCache = quoteCache;
+        this.holdingsIndex = holdingsIndex;
+        this.meterRegistry = meterRegistry;
+        this.taskExecutor = taskExecutor;
+        this.quoteFetches = new SingleFlight<>(this::countCoalesced);
+        this.backgroundFetches = new SingleFlight<>(this::countCoalesced);
+        this.batchExecutor = QuoteFetchExecutors.create(applicationProperties.getMarketData().getBatchConcurrency(), "quote-fetch-");
+        this.batchDeadline = Duration.ofMillis(applicationProperties.getMarketData().getBatchDeadlineMillis());
+        this.deadlineExceededCounter = Counter.builder(DEADLINE_EXCEEDED_METER_NAME)
+            .description("Quotes of a batch that did not arrive before its deadline.")
+            .register(meterRegistry);
+        this.mockFallback = applicationProperties.getMarketData().isMockFallback();
+        this.cacheFallbackCounter = fallbackCounter(meterRegistry, "cache");
+        this.mockFallbackCounter = fallbackCounter(meterRegistry, "mock");
+        LOG.info("Using market data provider: {}", quoteProvider.getName());
+    }
+    
+    private static Counter fallbackCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder(FALLBACK_METER_NAME)
+            .description("Quotes served, flagged as stale, in place of a provider quote that could not be fetched.")
+            .tag(FALLBACK_METER_SOURCE_DIMENSION, source)
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Count a request that joined an in-flight fetch, tagged with its ticker if the ticker was quoted before or is held.
+     * Tickers come from requests: the others share one tag, so that made-up ones do not each register a meter.
+     */
+    private void countCoalesced(String symbol) {
+        boolean known = quoteCache.symbolId(symbol) != SymbolDictionary.NO_ID || holdingsIndex.isHeld(symbol);
+        Counter.builder(COALESCED_METER_NAME)
+            .description(COALESCED_METER_DESCRIPTION)
+            .tag(COALESCED_METER_TICKER_DIMENSION, known ? symbol : COALESCED_METER_OTHER_TICKER)
+            .register(meterRegistry)
+            .increment();
     }
     
     public BigDecimal getCurrentPrice(String ticker) {
-        try {
-            String url = String.format(
-                "https://www.alphavantage.co/query?function=GLOBAL_QUOTE&symbol=%s&apikey=%s",
-                ticker, apiKey
-            );
-            
-            String response = restTemplate.getForObject(url, String.class);
-            JsonNode jsonNode = objectMapper.readTree(response);
-            
-            // Check for API limit or error
-            if (jsonNode.has("Note") || jsonNode.has("Error Message")) {
-                LOG.warn("API limit reached or error for ticker: {}", ticker);
-                return getMockPrice(ticker);
+        return getQuote(ticker).price();
+    }
+    
+    /**
+     * Get the quote for a ticker, served from the quote cache when possible.
+     * <p>
+     * Quotes past their time to live but within the stale-while-revalidate window are returned right away while a
+     * refresh runs in the background. Concurrent callers missing the cache for the same ticker share a single
+     * provider fetch, never a background one, which turns to the failover providers when the provider fails or is slower than usual. When no
+     * provider can answer, for instance because their call budget is spent or their circuit breaker is open, the last
+     * cached quote is returned flagged as stale.
+     *
+     * @throws MarketDataException if there is no quote at all for the ticker and the mock fallback is disabled.
+     */
+    public Quote getQuote(String ticker) {
+        String symbol = Quote.normalizeTicker(ticker);
+        QuoteCache.Lookup lookup = quoteCache.lookup(symbol);
+        switch (lookup.state()) {
+            case FRESH:
+                return lookup.quote();
+            case REVALIDATE:
+                revalidate(symbol);
+                return lookup.quote();
+            default:
+                return orFallback(quoteFetches.execute(symbol, () -> fetchQuote(symbol, RequestPriority.INTERACTIVE)), lookup);
+        }
+    }
+    
+    /**
+     * Get the quotes for several tickers at once, waiting for the provider at most the configured batch deadline.
+     *
+     * @see #getCurrentPrices(Collection, Duration)
+     */
+    public Map<String, Quote> getCurrentPrices(Collection<String> tickers) {
+        return getCurrentPrices(tickers, batchDeadline);
+    }
+    
+    /**
+     * Get the quotes for several tickers at once.
+     * <p>
+     * Tickers are de-duplicated and served from the quote cache when possible. The remaining ones are fetched in a
+     * single request when the provider supports it, or concurrently with a bounded parallelism otherwise. Tickers whose
+     * quote did not arrive before the deadline get their fallback quote, flagged as stale; their fetch keeps running and
+     * refreshes the cache when it completes.
+     *
+     * @param tickers the tickers, in any case.
+     * @param deadline how long to wait for the provider.
+     * @return the quotes keyed by ticker as given, in iteration order of {@code tickers}.
+     * @throws MarketDataException if there is no quote at all for a ticker and the mock fallback is disabled.
+     */
+    public Map<String, Quote> getCurrentPrices(Collection<String> tickers, Duration deadline) {
+        Map<String, String> symbols = new LinkedHashMap<>();
+        tickers.forEach(ticker -> symbols.computeIfAbsent(ticker, Quote::normalizeTicker));
+        
+        Map<String, Quote> quotes = new HashMap<>();
+        Map<String, QuoteCache.Lookup> misses = new LinkedHashMap<>();
+        for (String symbol : new LinkedHashSet<>(symbols.values())) {
+            QuoteCache.Lookup lookup = quoteCache.lookup(symbol);
+            switch (lookup.state()) {
+                case FRESH:
+                    quotes.put(symbol, lookup.quote());
+                    break;
+                case REVALIDATE:
+                    revalidate(symbol);
+                    quotes.put(symbol, lookup.quote());
+                    break;
+                default:
+                    misses.put(symbol, lookup);
             }
-            
-            JsonNode globalQuote = jsonNode.get("Global Quote");
-            if (globalQuote != null && globalQuote.has("05. price")) {
-                return new BigDecimal(globalQuote.get("05. price").asText());
+        }
+        if (!misses.isEmpty()) {
+            Map<String, Quote> fetched = fetchQuotes(misses.keySet(), System.nanoTime() + deadline.toNanos());
+            misses.forEach((symbol, lookup) -> quotes.put(symbol, orFallback(fetched.get(symbol), lookup)));
+        }
+        
+        Map<String, Quote> result = new LinkedHashMap<>();
+        symbols.forEach((ticker, symbol) -> result.put(ticker, quotes.get(symbol)));
+        return result;
+    }
+    
+    /**
+     * Get the prices of several tickers to value holdings with.
+     * <p>
+     * Fresh prices are read by symbol id from the off-heap quote table, without a map lookup or a {@code BigDecimal} per
+     * ticker; only the other tickers go through {@link #getCurrentPrices(Collection)}, with its deadline and fallbacks.
+     *
+     * @param tickers the tickers, in any case.
+     * @return the prices, by index in {@code tickers}.
+     * @throws MarketDataException if there is no quote at all for a ticker and the mock fallback is disabled.
+     */
+    public QuotePrices getValuationPrices(List<String> tickers) {
+        QuotePrices prices = new QuotePrices(tickers);
+        QuoteTable.Entry freshPrice = new QuoteTable.Entry();
+        BitSet missing = new BitSet(tickers.size());
+        List<String> missingTickers = new ArrayList<>();
+        for (int index = 0; index < tickers.size(); index++) {
+            if (quoteCache.readFresh(quoteCache.symbolId(Quote.normalizeTicker(tickers.get(index))), freshPrice)) {
+                prices.set(index, freshPrice);
+            } else {
+                missing.set(index);
+                missingTickers.add(tickers.get(index));
             }
-            
-            return getMockPrice(ticker);
-        } catch (Exception e) {
-            LOG.error("Error fetching price for ticker: {}", ticker, e);
-            return getMockPrice(ticker);
         }
+        if (!missingTickers.isEmpty()) {
+            Map<String, Quote> quotes = getCurrentPrices(missingTickers);
+            missing.stream().forEach(index -> prices.set(index, quotes.get(tickers.get(index))));
+        }
+        return prices;
     }
     
-    public Map<String, Object> getHistoricalData(String ticker) {
-        try {
-            String url = String.format(
-                "https://www.alphavantage.co/query?function=TIME_SERIES_DAILY&symbol=%s&apikey=%s",
-                ticker, apiKey
-            );
-            
-            String response = restTemplate.getForObject(url, String.class);
-            JsonNode jsonNode = objectMapper.readTree(response);
-            
-            if (jsonNode.has("Note") || jsonNode.has("Error Message")) {
-                return getMockHistoricalData(ticker);
+    /**
+     * Fetch the quotes of tickers into the quote cache, in the background share of the provider's call budget.
+     * <p>
+     * Tickers are fetched in the order given, in one request when the provider supports it, and sharing any background
+     * fetch already in flight for the same ticker; tickers an interactive fetch is in flight for are skipped. Fetching
+     * stops as soon as the call budget is spent.
+     *
+     * @param symbols the normalized tickers, the most wanted first.
+     * @return the number of quotes fetched.
+     */
+    public int refreshQuotes(List<String> symbols) {
+        if (symbols.size() > 1 && quoteProvider.supportsBatch()) {
+            try {
+                Map<String, Quote> quotes = quoteProvider.fetchQuotes(symbols, RequestPriority.BACKGROUND);
+                quotes.values().forEach(quoteCache::put);
+                return quotes.size();
+            } catch (QuotaExceededException | CallNotPermittedException e) {
+                LOG.debug("Not refreshing prices for {} tickers: {}", symbols.size(), e.getMessage());
+            } catch (MarketDataException e) {
+                LOG.warn("Unable to refresh prices for {} tickers from {}: {}", symbols.size(), quoteProvider.getName(), e.getMessage());
+            }
+            return 0;
+        }
+        
+        int refreshed = 0;
+        for (String symbol : symbols) {
+            if (quoteFetches.isInFlight(symbol)) {
+                // Refreshes the cache all the same
+                continue;
             }
-            
-            JsonNode timeSeries = jsonNode.get("Time Series (Daily)");
-            if (timeSeries != null) {
-                Map<String, Object> result = new HashMap<>();
-                result.put("ticker", ticker);
-                result.put("data", timeSeries);
-                return result;
+            try {
+                if (backgroundFetches.execute(symbol, () -> loadQuote(symbol, RequestPriority.BACKGROUND)) != null) {
+                    refreshed++;
+                }
+            } catch (QuotaExceededException | CallNotPermittedException e) {
+                LOG.debug("Price refresh stopped after {} of {} tickers: {}", refreshed, symbols.size(), e.getMessage());
+                break;
+            } catch (MarketDataException e) {
+                LOG.warn("Unable to refresh price for ticker {} from {}: {}", symbol, quoteProvider.getName(), e.getMessage());
+            }
+        }
+        return refreshed;
+    }
+    
+    private Map<String, Quote> fetchQuotes(Set<String> symbols, long deadlineNanos) {
+        if (symbols.size() > 1 && quoteProvider.supportsBatch()) {
+            CompletableFuture<Map<String, Quote>> call = CompletableFuture.supplyAsync(() -> fetchBatch(symbols), batchExecutor);
+            Map<String, Quote> quotes = await(call, deadlineNanos);
+            if (quotes == null) {
+                deadlineExceededCounter.increment(symbols.size());
+                return Map.of();
             }
-            
-            return getMockHistoricalData(ticker);
+            return quotes;
+        }
+        
+        Map<String, CompletableFuture<Quote>> calls = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            calls.put(
+                symbol,
+                CompletableFuture.supplyAsync(
+                    () -> quoteFetches.execute(symbol, () -> fetchQuote(symbol, RequestPriority.INTERACTIVE)),
+                    batchExecutor
+                )
+            );
+        }
+        Map<String, Quote> quotes = new HashMap<>();
+        calls.forEach((symbol, call) -> {
+            Quote quote = await(call, deadlineNanos);
+            if (quote != null) {
+                quotes.put(symbol, quote);
+            } else if (!call.isDone()) {
+                deadlineExceededCounter.increment();
+            }
+        });
+        return quotes;
+    }
+    
+    private Map<String, Quote> fetchBatch(Set<String> symbols) {
+        try {
+            Map<String, Quote> quotes = quoteProvider.fetchQuotes(symbols, RequestPriority.INTERACTIVE);
+            quotes.values().forEach(quoteCache::put);
+            return quotes;
+        } catch (QuotaExceededException | CallNotPermittedException e) {
+            LOG.debug("Not fetching prices for {} tickers: {}", symbols.size(), e.getMessage());
+        } catch (MarketDataException e) {
+            LOG.warn("Unable to fetch prices for {} tickers from {}: {}", symbols.size(), quoteProvider.getName(), e.getMessage());
         } catch (Exception e) {
-            LOG.error("Error fetching historical data for ticker: {}", ticker, e);
-            return getMockHistoricalData(ticker);
+            LOG.error("Error fetching prices for tickers: {}", symbols, e);
         }
+        return Map.of();
     }
     
-    private BigDecimal getMockPrice(String ticker) {
-        // Generate mock prices based on ticker hash for consistency
-        int hash = Math.abs(ticker.hashCode());
-        double basePrice = 50 + (hash % 500);
-        double variation = (hash % 100) / 100.0 * 10 - 5; // ±5% variation
-        return BigDecimal.valueOf(basePrice + variation).setScale(2, BigDecimal.ROUND_HALF_UP);
+    /**
+     * Wait for a fetch until the deadline.
+     *
+     * @return the fetch result, or {@code null} if it failed or did not complete in time.
+     */
+    private static <T> T await(CompletableFuture<T> call, long deadlineNanos) {
+        try {
+            return call.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (ExecutionException e) {
+            LOG.error("Error fetching price", e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
     }
     
-    private Map<String, Object> getMockHistoricalData(String ticker) {
-        Map<String, Object> result = new HashMap<>();
-        result.put("ticker", ticker);
-        
-        // Generate 30 days of mock data
-        Map<String, Map<String, String>> mockData = new HashMap<>();
-        BigDecimal basePrice = getMockPrice(ticker);
-        
-        for (int i = 0; i < 30; i++) {
-            String date = java.time.LocalDate.now().minusDays(i).toString();
-            double variation = (Math.random() - 0.5) * 0.1; // ±5% daily variation
-            BigDecimal dayPrice = basePrice.multiply(BigDecimal.valueOf(1 + variation));
-            
-            Map<String, String> dayData = new HashMap<>();
-            dayData.put("1. open", dayPrice.toString());
-            dayData.put("2. high", dayPrice.multiply(BigDecimal.valueOf(1.02)).toString());
-            dayData.put("3. low", dayPrice.multiply(BigDecimal.valueOf(0.98)).toString());
-            dayData.put("4. close", dayPrice.toString());
-            dayData.put("5. volume", String.valueOf(1000000 + (int)(Math.random() * 5000000)));
-            
-            mockData.put(date, dayData);
+    private void revalidate(String symbol) {
+        if (quoteFetches.isInFlight(symbol)) {
+            // Refreshes the cache all the same
+            return;
         }
-        
-        result.put("data", mockData);
-        return result;
+        backgroundFetches
+            .executeAsync(symbol, () -> fetchQuote(symbol, RequestPriority.BACKGROUND), taskExecutor)
+            .exceptionally(e -> {
+                LOG.warn("Unable to refresh quote for ticker: {}", symbol, e);
+                return null;
+            });
+    }
+    
+    /**
+     * Fetch a quote from the provider and store it in the quote cache.
+     *
+     * @return the fetched quote, or {@code null} when the provider could not supply one.
+     */
+    private Quote fetchQuote(String ticker, RequestPriority priority) {
+        try {
+            return loadQuote(ticker, priority);
+        } catch (QuotaExceededException | CallNotPermittedException e) {
+            LOG.debug("Not fetching price for ticker {}: {}", ticker, e.getMessage());
+            return null;
+        } catch (MarketDataException e) {
+            LOG.warn("Unable to fetch price for ticker {} from {}: {}", ticker, quoteProvider.getName(), e.getMessage());
+            return null;
+        } catch (Exception e) {
+            LOG.error("Error fetching price for ticker: {}", ticker, e);
+            return null;
+        }
+    }
+    
+    private Quote loadQuote(String ticker, RequestPriority priority) {
+        Optional<Quote> quote = quoteProvider.fetchQuote(ticker, priority);
+        quote.ifPresent(quoteCache::put);
+        return quote.orElse(null);
+    }
+    
+    private Quote orFallback(Quote fetched, QuoteCache.Lookup lookup) {
+        if (fetched != null) {
+            return fetched;
+        }
+        if (lookup.quote() != null) {
+            cacheFallbackCounter.increment();
+            return lookup.quote();
+        }
+        return mockQuote(lookup.ticker());
+    }
+    
+    private Quote mockQuote(String ticker) {
+        if (!mockFallback) {
+            throw new MarketDataException("No quote available for ticker " + ticker);
+        }
+        // Mock prices are never cached so that the next request retries the provider
+        LOG.warn("No quote available for ticker {}, falling back to a mock price", ticker);
+        mockFallbackCounter.increment();
+        return mockQuoteProvider.fetchQuote(ticker, RequestPriority.INTERACTIVE).map(Quote::asStale).orElseThrow();
+    }
+    
+    @Override
+    public void destroy() {
+        batchExecutor.shutdownNow();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package com.example.portfolio.service.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * The valuation of one {@link com.example.portfolio.domain.Asset} of a portfolio at its current price.
+ *
+ * @param priceStale whether {@code currentPrice} is the last known price rather than a fresh quote.
+ */
+public record HoldingMetrics(
+    String ticker,
+    Integer quantity,
+    BigDecimal avgPrice,
+    BigDecimal currentPrice,
+    boolean priceStale,
+    BigDecimal currentValue,
+    BigDecimal gainLoss,
+    BigDecimal gainLossPercent
+)
+    implements Serializable {}
@@ -0,0 +1,23 @@
+package com.example.portfolio.service.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The valuation and analytics of a {@link com.example.portfolio.domain.Portfolio} at current prices.
+ */
+public record PortfolioMetrics(
+    BigDecimal totalValue,
+    BigDecimal totalCost,
+    BigDecimal totalGainLoss,
+    BigDecimal totalGainLossPercent,
+    List<HoldingMetrics> assets,
+    BigDecimal diversificationScore,
+    String recommendedAsset
+)
+    implements Serializable {
+    public PortfolioMetrics {
+        assets = List.copyOf(assets);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.portfolio.service.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * The running totals of a {@link com.example.portfolio.domain.Portfolio}.
+ *
+ * @param totalValue the value of the holdings whose ticker has a known price.
+ * @param totalCost the cost of all the holdings.
+ * @param unpricedTickers how many of the held tickers have no known price yet, and are left out of {@code totalValue}.
+ */
+public record PortfolioValuation(Long portfolioId, BigDecimal totalValue, BigDecimal totalCost, int unpricedTickers)
+    implements Serializable {
+    /**
+     * @return whether every holding is included in {@code totalValue}.
+     */
+    public boolean isComplete() {
+        return unpricedTickers == 0;
+    }
+}
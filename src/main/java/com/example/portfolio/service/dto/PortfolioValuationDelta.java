@@ -0,0 +1,31 @@
+package com.example.portfolio.service.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * What changed in the valuation of a {@link com.example.portfolio.domain.Portfolio}: the holdings whose price or
+ * position moved, and the new totals.
+ *
+ * @param holdings the holdings that changed, valued at their current price; every holding in the first delta of a stream.
+ * @param removedTickers the tickers the portfolio no longer holds.
+ * @param unpricedTickers how many of the held tickers have no known price yet, and are left out of the holdings and
+ *     totals.
+ */
+public record PortfolioValuationDelta(
+    Long portfolioId,
+    List<HoldingMetrics> holdings,
+    List<String> removedTickers,
+    BigDecimal totalValue,
+    BigDecimal totalCost,
+    BigDecimal totalGainLoss,
+    BigDecimal totalGainLossPercent,
+    int unpricedTickers
+)
+    implements Serializable {
+    public PortfolioValuationDelta {
+        holdings = List.copyOf(holdings);
+        removedTickers = List.copyOf(removedTickers);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.portfolio.service.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads what a {@link BitWriter} wrote, from a big-endian buffer padded with at least 8 bytes past the data, so that
+ * every read is a single unaligned {@code long} load.
+ */
+final class BitReader {
+
+    private final ByteBuffer buffer;
+    private long bitPosition;
+
+    BitReader(ByteBuffer buffer, int byteOffset) {
+        this.buffer = buffer;
+        this.bitPosition = (long) byteOffset << 3;
+    }
+
+    /**
+     * @return the next {@code width} bits, 0 to 64, as an unsigned value.
+     */
+    long read(int width) {
+        int shift = (int) (bitPosition & 7);
+        if (width + shift > 64) {
+            return readSpanning(width);
+        }
+        long word = buffer.getLong((int) (bitPosition >>> 3));
+        bitPosition += width;
+        return width == 0 ? 0 : (word << shift) >>> (64 - width);
+    }
+
+    /**
+     * Read a value spanning 9 bytes, high part first; kept apart so that {@link #read(int)} stays small enough to
+     * inline.
+     */
+    private long readSpanning(int width) {
+        long high = read(width - 32);
+        return (high << 32) | read(32);
+    }
+
+    void skip(long bits) {
+        bitPosition += bits;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.portfolio.service.history;
+
+import java.util.Arrays;
+
+/**
+ * Appends values of any width from 0 to 64 bits to a growing byte array, most significant bit first.
+ */
+final class BitWriter {
+
+    private byte[] bytes = new byte[256];
+    private long bitPosition;
+
+    /**
+     * Write the {@code width} low bits of {@code value}.
+     */
+    void write(long value, int width) {
+        for (int remaining = width; remaining > 0;) {
+            int byteIndex = (int) (bitPosition >>> 3);
+            if (byteIndex == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            int free = 8 - (int) (bitPosition & 7);
+            int chunk = Math.min(free, remaining);
+            int bits = (int) (value >>> (remaining - chunk)) & ((1 << chunk) - 1);
+            bytes[byteIndex] |= (byte) (bits << (free - chunk));
+            remaining -= chunk;
+            bitPosition += chunk;
+        }
+    }
+
+    /**
+     * Skip to the next byte boundary.
+     */
+    void align() {
+        bitPosition = (bitPosition + 7) & ~7L;
+    }
+
+    /**
+     * @return the number of whole bytes written, counting a partly written last byte.
+     */
+    int byteLength() {
+        return (int) ((bitPosition + 7) >>> 3);
+    }
+
+    /**
+     * Copy the bytes written into {@code target}.
+     */
+    void copyTo(byte[] target, int offset) {
+        System.arraycopy(bytes, 0, target, offset, byteLength());
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.portfolio.service.history;
+
+import com.example.portfolio.service.marketdata.DailySeries;
+import com.example.portfolio.service.marketdata.PriceSeries;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Daily bars compressed in the manner of Gorilla time series: dates as deltas of deltas, prices as deltas from the
+ * previous close, volumes as deltas from the previous volume, each column bit-packed to a width fitting most of its
+ * values, with a flag bit for the outliers.
+ * <p>
+ * Bars are cut into blocks of {@value #BLOCK_SIZE}, indexed by their first and last dates, so that a date range is
+ * decoded without touching the blocks around it. Prices quoted in cents, like most of them, are stored as cents. Ten
+ * years of a typical stock take about 8 bytes a bar, against 44 in a {@link PriceFile} and 48 in a {@link DailySeries}.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * header  magic int, version int, bar count int, block count int
+ * index   per block: first epoch day int, last epoch day int, byte offset of the block int
+ * blocks  per block, byte-aligned:
+ *           3 bits: k, such that every price of the block is a multiple of 10^k units
+ *           first close / 10^k and first volume, each as a 7-bit width and that many bits, zigzag-encoded
+ *           6 columns, each as a 7-bit full width, a 7-bit base width, and one value per bar, zigzag-encoded:
+ *             in the full width if both widths are equal, else a 0 bit and the base width or a 1 bit and the full width
+ *           the columns being:
+ *             date delta of delta, close delta, open - previous close,
+ *             high - max(open, close), min(open, close) - low, volume delta
+ * padding 8 bytes, so that {@link BitReader} may load a long at any byte of the blocks
+ * </pre>
+ * Deltas wrap around on overflow, as they are added back the same way, so any series round-trips exactly.
+ */
+public final class CompressedPriceSeries {
+
+    static final int BLOCK_SIZE = 128;
+
+    private static final int MAGIC = 0x5241425a;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int INDEX_ENTRY_BYTES = 12;
+    private static final int PADDING_BYTES = 8;
+    private static final int WIDTH_BITS = 7;
+    private static final int SCALE_BITS = 3;
+
+    private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1_000, 10_000 };
+
+    private static final int DATE = 0;
+    private static final int CLOSE = 1;
+    private static final int OPEN = 2;
+    private static final int HIGH = 3;
+    private static final int LOW = 4;
+    private static final int VOLUME = 5;
+    private static final int COLUMNS = 6;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int blockCount;
+
+    private CompressedPriceSeries(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        this.blockCount = buffer.getInt(12);
+    }
+
+    /**
+     * Compress a series.
+     *
+     * @throws ArithmeticException if a date is too far from 1970 for an {@code int} epoch day.
+     */
+    public static CompressedPriceSeries encode(PriceSeries series) {
+        int size = series.size();
+        int blockCount = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int dataOffset = HEADER_BYTES + blockCount * INDEX_ENTRY_BYTES;
+        ByteBuffer index = ByteBuffer.allocate(dataOffset);
+        index.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(blockCount);
+
+        BitWriter writer = new BitWriter();
+        long[][] columns = new long[COLUMNS][BLOCK_SIZE];
+        for (int block = 0; block < blockCount; block++) {
+            int from = block * BLOCK_SIZE;
+            int to = Math.min(from + BLOCK_SIZE, size);
+            index.putInt(Math.toIntExact(series.epochDay(from)));
+            index.putInt(Math.toIntExact(series.epochDay(to - 1)));
+            index.putInt(dataOffset + writer.byteLength());
+            encodeBlock(series, from, to, columns, writer);
+            writer.align();
+        }
+
+        byte[] bytes = new byte[dataOffset + writer.byteLength() + PADDING_BYTES];
+        System.arraycopy(index.array(), 0, bytes, 0, dataOffset);
+        writer.copyTo(bytes, dataOffset);
+        return new CompressedPriceSeries(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Read a series from the bytes of {@link #toByteBuffer()}, without copying them.
+     *
+     * @throws IllegalArgumentException if the bytes are not a compressed series.
+     */
+    public static CompressedPriceSeries wrap(ByteBuffer bytes) {
+        ByteBuffer buffer = bytes.slice().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a compressed price series");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported compressed price series version " + buffer.getInt(4));
+        }
+        CompressedPriceSeries series = new CompressedPriceSeries(buffer);
+        if (series.size < 0 || series.blockCount != (series.size + BLOCK_SIZE - 1) / BLOCK_SIZE) {
+            throw new IllegalArgumentException("Corrupted compressed price series header");
+        }
+        return series;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int blockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return the size of the compressed series in bytes, header and index included.
+     */
+    public int byteSize() {
+        return buffer.limit();
+    }
+
+    /**
+     * @return a read-only view of the compressed bytes, to be stored as is.
+     */
+    public ByteBuffer toByteBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return every bar.
+     */
+    public DailySeries decode() {
+        return decode(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decode the bars dated within a range; only the blocks overlapping the range are read.
+     *
+     * @param fromEpochDay the first epoch day, inclusive.
+     * @param toEpochDay the last epoch day, inclusive.
+     * @return the bars in the range.
+     */
+    public DailySeries decode(long fromEpochDay, long toEpochDay) {
+        int first = firstBlockEndingOnOrAfter(fromEpochDay);
+        int last = first;
+        while (last < blockCount && firstEpochDay(last) <= toEpochDay) {
+            last++;
+        }
+        if (first == last) {
+            return DailySeries.empty();
+        }
+        DailySeries.Builder bars = DailySeries.builder(Math.min(size - first * BLOCK_SIZE, (last - first) * BLOCK_SIZE));
+        long[][] columns = new long[COLUMNS][BLOCK_SIZE];
+        for (int block = first; block < last; block++) {
+            decodeBlock(block, columns, bars, fromEpochDay, toEpochDay);
+        }
+        return bars.build();
+    }
+
+    private int firstBlockEndingOnOrAfter(long epochDay) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lastEpochDay(middle) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int firstEpochDay(int block) {
+        return buffer.getInt(HEADER_BYTES + block * INDEX_ENTRY_BYTES);
+    }
+
+    private int lastEpochDay(int block) {
+        return buffer.getInt(HEADER_BYTES + block * INDEX_ENTRY_BYTES + 4);
+    }
+
+    private int blockOffset(int block) {
+        return buffer.getInt(HEADER_BYTES + block * INDEX_ENTRY_BYTES + 8);
+    }
+
+    private static void encodeBlock(PriceSeries series, int from, int to, long[][] columns, BitWriter writer) {
+        int count = to - from;
+        int scale = commonScale(series, from, to);
+        long divisor = POWERS_OF_TEN[scale];
+
+        long previousDay = series.epochDay(from);
+        long previousDelta = 1;
+        long previousClose = series.close(from) / divisor;
+        long previousVolume = series.volume(from);
+        for (int i = 0; i < count; i++) {
+            int bar = from + i;
+            long day = series.epochDay(bar);
+            long open = series.open(bar) / divisor;
+            long close = series.close(bar) / divisor;
+            long volume = series.volume(bar);
+            long delta = i == 0 ? previousDelta : day - previousDay;
+            columns[DATE][i] = zigzag(delta - previousDelta);
+            columns[CLOSE][i] = zigzag(close - previousClose);
+            columns[OPEN][i] = zigzag(open - previousClose);
+            columns[HIGH][i] = zigzag(series.high(bar) / divisor - Math.max(open, close));
+            columns[LOW][i] = zigzag(Math.min(open, close) - series.low(bar) / divisor);
+            columns[VOLUME][i] = zigzag(volume - previousVolume);
+            previousDelta = delta;
+            previousDay = day;
+            previousClose = close;
+            previousVolume = volume;
+        }
+
+        writer.write(scale, SCALE_BITS);
+        writeValue(writer, zigzag(series.close(from) / divisor));
+        writeValue(writer, zigzag(series.volume(from)));
+        for (long[] column : columns) {
+            writeColumn(writer, column, count);
+        }
+    }
+
+    /**
+     * Write a column as its full width, the base width fitting most of its values, and its values: each in the full
+     * width if both are the same, otherwise as a 0 bit and the base width, or a 1 bit and the full width. A few
+     * outliers, like the Monday gaps of the dates, then cost their bits alone.
+     */
+    private static void writeColumn(BitWriter writer, long[] column, int count) {
+        int[] widthCounts = new int[Long.SIZE + 1];
+        int fullWidth = 0;
+        for (int i = 0; i < count; i++) {
+            int width = bitWidth(column[i]);
+            widthCounts[width]++;
+            fullWidth = Math.max(fullWidth, width);
+        }
+        int baseWidth = fullWidth;
+        long smallest = (long) count * fullWidth;
+        int fitting = 0;
+        for (int width = 0; width < fullWidth; width++) {
+            fitting += widthCounts[width];
+            long bits = count + (long) fitting * width + (long) (count - fitting) * fullWidth;
+            if (bits < smallest) {
+                smallest = bits;
+                baseWidth = width;
+            }
+        }
+
+        writer.write(fullWidth, WIDTH_BITS);
+        writer.write(baseWidth, WIDTH_BITS);
+        for (int i = 0; i < count; i++) {
+            if (baseWidth == fullWidth) {
+                writer.write(column[i], fullWidth);
+            } else if (bitWidth(column[i]) <= baseWidth) {
+                writer.write(column[i], baseWidth + 1);
+            } else {
+                writer.write(1, 1);
+                writer.write(column[i], fullWidth);
+            }
+        }
+    }
+
+    private void decodeBlock(int block, long[][] columns, DailySeries.Builder bars, long fromEpochDay, long toEpochDay) {
+        int count = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+        BitReader reader = new BitReader(buffer, blockOffset(block));
+        long multiplier = POWERS_OF_TEN[(int) reader.read(SCALE_BITS)];
+        long close = unzigzag(readValue(reader));
+        long volume = unzigzag(readValue(reader));
+        for (long[] column : columns) {
+            readColumn(reader, column, count);
+        }
+
+        long day = firstEpochDay(block);
+        long delta = 1;
+        long[] dates = columns[DATE];
+        long[] closes = columns[CLOSE];
+        long[] opens = columns[OPEN];
+        long[] highs = columns[HIGH];
+        long[] lows = columns[LOW];
+        long[] volumes = columns[VOLUME];
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                delta += dates[i];
+                day += delta;
+            }
+            long open = close + opens[i];
+            close += closes[i];
+            volume += volumes[i];
+            if (day >= fromEpochDay && day <= toEpochDay) {
+                long high = Math.max(open, close) + highs[i];
+                long low = Math.min(open, close) - lows[i];
+                bars.add(day, open * multiplier, high * multiplier, low * multiplier, close * multiplier, volume);
+            }
+        }
+    }
+
+    private static void readColumn(BitReader reader, long[] column, int count) {
+        int fullWidth = (int) reader.read(WIDTH_BITS);
+        int baseWidth = (int) reader.read(WIDTH_BITS);
+        if (baseWidth == fullWidth) {
+            for (int i = 0; i < count; i++) {
+                column[i] = unzigzag(reader.read(fullWidth));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                // Flag and base width in one read, most values fit
+                long bits = reader.read(baseWidth + 1);
+                if (bits >>> baseWidth == 0) {
+                    column[i] = unzigzag(bits);
+                } else {
+                    reader.skip(-baseWidth);
+                    column[i] = unzigzag(reader.read(fullWidth));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the largest k up to {@value PriceSeries#PRICE_SCALE} such that every price of the bars is a multiple of
+     * 10^k units.
+     */
+    private static int commonScale(PriceSeries series, int from, int to) {
+        int scale = PriceSeries.PRICE_SCALE;
+        for (int i = from; i < to && scale > 0; i++) {
+            while (
+                scale > 0 &&
+                (series.open(i) % POWERS_OF_TEN[scale] != 0 ||
+                    series.high(i) % POWERS_OF_TEN[scale] != 0 ||
+                    series.low(i) % POWERS_OF_TEN[scale] != 0 ||
+                    series.close(i) % POWERS_OF_TEN[scale] != 0)
+            ) {
+                scale--;
+            }
+        }
+        return scale;
+    }
+
+    private static void writeValue(BitWriter writer, long value) {
+        int width = bitWidth(value);
+        writer.write(width, WIDTH_BITS);
+        writer.write(value, width);
+    }
+
+    private static long readValue(BitReader reader) {
+        return reader.read((int) reader.read(WIDTH_BITS));
+    }
+
+    private static int bitWidth(long value) {
+        return Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * @return the value with its sign in the lowest bit, so that small negative values have few significant bits.
+     */
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.portfolio.service.history;
+
+import com.example.portfolio.service.marketdata.PriceSeries;
+import java.util.Objects;
+
+/**
+ * {@link PriceSeries} reading a range of the bars of a {@link PriceFile} in place.
+ * <p>
+ * The view is a snapshot of the bars published when it was taken; later appends, and the file being replaced as it
+ * grows, do not affect it.
+ */
+final class MappedPriceSeries implements PriceSeries {
+
+    private final PriceFile file;
+    private final int from;
+    private final int size;
+
+    /**
+     * @param from the index of the first bar in the file.
+     * @param to the index after the last bar in the file, at most the published count.
+     */
+    MappedPriceSeries(PriceFile file, int from, int to) {
+        this.file = file;
+        this.from = from;
+        this.size = to - from;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long epochDay(int index) {
+        return file.epochDay(from + Objects.checkIndex(index, size));
+    }
+
+    @Override
+    public long open(int index) {
+        return file.open(from + Objects.checkIndex(index, size));
+    }
+
+    @Override
+    public long high(int index) {
+        return file.high(from + Objects.checkIndex(index, size));
+    }
+
+    @Override
+    public long low(int index) {
+        return file.low(from + Objects.checkIndex(index, size));
+    }
+
+    @Override
+    public long close(int index) {
+        return file.close(from + Objects.checkIndex(index, size));
+    }
+
+    @Override
+    public long volume(int index) {
+        return file.volume(from + Objects.checkIndex(index, size));
+    }
+}
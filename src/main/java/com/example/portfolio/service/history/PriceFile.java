@@ -0,0 +1,173 @@
+package com.example.portfolio.service.history;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The column file of one ticker, mapped in memory.
+ * <p>
+ * Layout, little endian:
+ * <pre>
+ * header   64 bytes: magic, version, capacity, count, then reserved
+ * dates    capacity x int   epoch days, increasing
+ * opens    capacity x long  price units
+ * highs    capacity x long
+ * lows     capacity x long
+ * closes   capacity x long
+ * volumes  capacity x long
+ * </pre>
+ * Bars are only ever appended: a bar is written in full before the count is published with release semantics, so a
+ * reader acquiring the count sees complete bars up to it. A full file is replaced by a copy of twice the capacity,
+ * while readers of the previous mapping keep reading it.
+ */
+final class PriceFile {
+
+    static final int MAGIC = 0x52414250; // "PBAR" in little endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int BYTES_PER_BAR = Integer.BYTES + 5 * Long.BYTES;
+
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 12;
+
+    /**
+     * Capacities are multiples of this, which keeps the long columns 8-byte aligned.
+     */
+    private static final int CAPACITY_ALIGNMENT = 64;
+
+    private static final VarHandle INT_HANDLE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    final MappedByteBuffer buffer;
+    final int capacity;
+    final int opensOffset;
+    final int highsOffset;
+    final int lowsOffset;
+    final int closesOffset;
+    final int volumesOffset;
+
+    private PriceFile(MappedByteBuffer buffer, int capacity) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.opensOffset = HEADER_BYTES + capacity * Integer.BYTES;
+        this.highsOffset = opensOffset + capacity * Long.BYTES;
+        this.lowsOffset = highsOffset + capacity * Long.BYTES;
+        this.closesOffset = lowsOffset + capacity * Long.BYTES;
+        this.volumesOffset = closesOffset + capacity * Long.BYTES;
+    }
+
+    /**
+     * Map an existing file.
+     *
+     * @throws IOException if the file cannot be read or is not a price file.
+     */
+    static PriceFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a price file: " + path);
+            }
+            int capacity = buffer.getInt(CAPACITY_OFFSET);
+            if ((long) buffer.capacity() != fileSize(capacity)) {
+                throw new IOException("Truncated price file: " + path);
+            }
+            return new PriceFile(buffer, capacity);
+        }
+    }
+
+    /**
+     * Create a file, replacing any existing one, and copy the bars of another file from {@code copyFromIndex} on into it.
+     */
+    static PriceFile create(Path path, int minCapacity, PriceFile copyFrom, int copyFromIndex) throws IOException {
+        int capacity = (Math.max(minCapacity, 1) + CAPACITY_ALIGNMENT - 1) / CAPACITY_ALIGNMENT * CAPACITY_ALIGNMENT;
+        try (
+            FileChannel channel = FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+            )
+        ) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            PriceFile file = new PriceFile(buffer, capacity);
+            int count = copyFrom == null ? 0 : copyFrom.count() - copyFromIndex;
+            for (int i = 0; i < count; i++) {
+                int from = copyFromIndex + i;
+                file.write(
+                    i,
+                    copyFrom.epochDay(from),
+                    copyFrom.open(from),
+                    copyFrom.high(from),
+                    copyFrom.low(from),
+                    copyFrom.close(from),
+                    copyFrom.volume(from)
+                );
+            }
+            file.publish(count);
+            buffer.force();
+            return file;
+        }
+    }
+
+    static long fileSize(int capacity) {
+        return HEADER_BYTES + (long) capacity * BYTES_PER_BAR;
+    }
+
+    /**
+     * @return the number of complete bars.
+     */
+    int count() {
+        return (int) INT_HANDLE.getAcquire(buffer, COUNT_OFFSET);
+    }
+
+    /**
+     * Make the bars below {@code count} visible to readers.
+     */
+    void publish(int count) {
+        INT_HANDLE.setRelease(buffer, COUNT_OFFSET, count);
+    }
+
+    void write(int index, long epochDay, long open, long high, long low, long close, long volume) {
+        buffer.putInt(HEADER_BYTES + index * Integer.BYTES, Math.toIntExact(epochDay));
+        buffer.putLong(opensOffset + index * Long.BYTES, open);
+        buffer.putLong(highsOffset + index * Long.BYTES, high);
+        buffer.putLong(lowsOffset + index * Long.BYTES, low);
+        buffer.putLong(closesOffset + index * Long.BYTES, close);
+        buffer.putLong(volumesOffset + index * Long.BYTES, volume);
+    }
+
+    long epochDay(int index) {
+        return buffer.getInt(HEADER_BYTES + index * Integer.BYTES);
+    }
+
+    long open(int index) {
+        return buffer.getLong(opensOffset + index * Long.BYTES);
+    }
+
+    long high(int index) {
+        return buffer.getLong(highsOffset + index * Long.BYTES);
+    }
+
+    long low(int index) {
+        return buffer.getLong(lowsOffset + index * Long.BYTES);
+    }
+
+    long close(int index) {
+        return buffer.getLong(closesOffset + index * Long.BYTES);
+    }
+
+    long volume(int index) {
+        return buffer.getLong(volumesOffset + index * Long.BYTES);
+    }
+}
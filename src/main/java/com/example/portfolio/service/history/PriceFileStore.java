@@ -0,0 +1,304 @@
+package com.example.portfolio.service.history;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.service.marketdata.DailySeries;
+import com.example.portfolio.service.marketdata.PriceSeries;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Columnar store of daily bars: one memory-mapped {@link PriceFile} per ticker, under
+ * {@code application.market-data.history.file-store.directory}.
+ * <p>
+ * The price history sync appends to it; readers get a {@link PriceSeries} reading the mapped columns in place, so
+ * scanning years of bars of thousands of tickers runs at memory speed, with no query and no copy.
+ * <p>
+ * Only the most recent {@code hot-bars} bars of a ticker stay in its column file: older ones are sealed, by whole
+ * blocks, into a {@link CompressedPriceSeries} file next to it, and a read reaching back into them decodes only the
+ * blocks of the dates read. Sealed bars are written before they are removed from the column file, so a reader, or a
+ * restart between the two, may see a bar in both; the column file then wins.
+ */
+@Component
+public class PriceFileStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PriceFileStore.class);
+
+    static final String FILE_EXTENSION = ".bars";
+    static final String SEALED_FILE_EXTENSION = ".sealed";
+
+    /**
+     * Capacity of a new file, about a year of bars.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int hotBars;
+
+    /**
+     * Current file of each ticker opened so far; replaced, never removed, when a file grows.
+     */
+    private final ConcurrentMap<String, PriceFile> files = new ConcurrentHashMap<>();
+
+    /**
+     * Sealed bars of each ticker read so far, empty for tickers having none; replaced when more bars are sealed.
+     */
+    private final ConcurrentMap<String, Optional<CompressedPriceSeries>> sealedFiles = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    public PriceFileStore(ApplicationProperties applicationProperties) {
+        ApplicationProperties.MarketData.History.FileStore fileStore = applicationProperties.getMarketData().getHistory().getFileStore();
+        this.enabled = fileStore.isEnabled();
+        this.directory = Paths.get(fileStore.getDirectory());
+        this.hotBars = fileStore.getHotBars();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param ticker the normalized ticker.
+     * @return every bar stored for the ticker, empty if there are none or the store is disabled.
+     * @throws UncheckedIOException if the ticker's files cannot be read.
+     * @see #read(String, long, long)
+     */
+    public Optional<PriceSeries> read(String ticker) {
+        return read(ticker, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Read the bars of a ticker dated within a range: a view of the column file in place when they are all in it,
+     * otherwise a copy of the sealed bars decoded and of the column file bars in the range.
+     *
+     * @param ticker the normalized ticker.
+     * @param fromEpochDay the first epoch day, inclusive.
+     * @param toEpochDay the last epoch day, inclusive.
+     * @return the bars in the range, empty if there are none or the store is disabled.
+     * @throws UncheckedIOException if the ticker's files cannot be read.
+     */
+    public Optional<PriceSeries> read(String ticker, long fromEpochDay, long toEpochDay) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        PriceFile file = file(ticker, false);
+        if (file == null) {
+            return Optional.empty();
+        }
+        // The column file is read first: the sealed bars are then at least as recent as its first bar
+        MappedPriceSeries mapped = new MappedPriceSeries(file, 0, file.count());
+        long firstMapped = mapped.isEmpty() ? Long.MAX_VALUE : mapped.epochDay(0);
+        int from = mapped.indexOf(fromEpochDay);
+        int to = mapped.indexOf(toEpochDay);
+        if (to < mapped.size() && mapped.epochDay(to) == toEpochDay) {
+            to++;
+        }
+        Optional<CompressedPriceSeries> sealed = fromEpochDay < firstMapped ? sealed(ticker) : Optional.empty();
+        if (sealed.isEmpty()) {
+            return from == to ? Optional.empty() : Optional.of(new MappedPriceSeries(file, from, to));
+        }
+        DailySeries older = sealed.orElseThrow().decode(fromEpochDay, Math.min(toEpochDay, firstMapped - 1));
+        DailySeries.Builder bars = DailySeries.builder(older.size() + to - from);
+        addAll(bars, older, 0, older.size());
+        addAll(bars, mapped, from, to);
+        DailySeries series = bars.build();
+        return series.isEmpty() ? Optional.empty() : Optional.of(series);
+    }
+
+    /**
+     * Append the bars dated after the last stored one; does nothing if the store is disabled.
+     *
+     * @param ticker the normalized ticker.
+     * @param bars the bars, some of which may be stored already.
+     * @return the number of bars appended.
+     * @throws UncheckedIOException if the ticker's file cannot be written.
+     */
+    public int append(String ticker, PriceSeries bars) {
+        if (!enabled || bars.isEmpty()) {
+            return 0;
+        }
+        // One writer per ticker; readers are never blocked
+        synchronized (lock(ticker)) {
+            PriceFile file = file(ticker, true);
+            int count = file.count();
+            int from = count == 0 ? 0 : bars.indexOf(file.epochDay(count - 1) + 1);
+            int appended = bars.size() - from;
+            if (appended == 0) {
+                return 0;
+            }
+            if (count + appended > file.capacity) {
+                file = grow(ticker, file, count + appended);
+            }
+            for (int i = from; i < bars.size(); i++) {
+                file.write(count + i - from, bars.epochDay(i), bars.open(i), bars.high(i), bars.low(i), bars.close(i), bars.volume(i));
+            }
+            file.publish(count + appended);
+            file.buffer.force();
+            if (hotBars > 0 && count + appended >= hotBars + CompressedPriceSeries.BLOCK_SIZE) {
+                seal(ticker, file);
+            }
+            return appended;
+        }
+    }
+
+    /**
+     * @return the tickers having a file, in no particular order.
+     * @throws UncheckedIOException if the directory cannot be listed.
+     */
+    public List<String> getTickers() {
+        List<String> tickers = new ArrayList<>();
+        if (!enabled || !Files.isDirectory(directory)) {
+            return tickers;
+        }
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                tickers.add(URLDecoder.decode(name.substring(0, name.length() - FILE_EXTENSION.length()), StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tickers;
+    }
+
+    private PriceFile file(String ticker, boolean create) {
+        PriceFile file = files.get(ticker);
+        if (file != null) {
+            return file;
+        }
+        Path path = path(ticker);
+        try {
+            if (Files.exists(path)) {
+                file = PriceFile.open(path);
+            } else if (create) {
+                Files.createDirectories(directory);
+                file = PriceFile.create(path, INITIAL_CAPACITY, null, 0);
+            } else {
+                return null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        PriceFile opened = files.putIfAbsent(ticker, file);
+        return opened != null ? opened : file;
+    }
+
+    private Optional<CompressedPriceSeries> sealed(String ticker) {
+        return sealedFiles.computeIfAbsent(ticker, this::openSealed);
+    }
+
+    private Optional<CompressedPriceSeries> openSealed(String ticker) {
+        Path path = sealedPath(ticker);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return Optional.of(CompressedPriceSeries.wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+        } catch (IllegalArgumentException e) {
+            throw new UncheckedIOException(new IOException("Not a sealed price file: " + path, e));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Move the oldest bars of a column file, by whole blocks, to the sealed file of the ticker, then replace the column
+     * file by a copy of the bars left.
+     */
+    private void seal(String ticker, PriceFile file) {
+        int count = file.count();
+        int sealing = (count - hotBars) / CompressedPriceSeries.BLOCK_SIZE * CompressedPriceSeries.BLOCK_SIZE;
+        Optional<CompressedPriceSeries> previous = sealed(ticker);
+        DailySeries older = previous.map(sealedBars -> sealedBars.decode(Long.MIN_VALUE, file.epochDay(0) - 1)).orElse(DailySeries.empty());
+        DailySeries.Builder bars = DailySeries.builder(older.size() + sealing);
+        addAll(bars, older, 0, older.size());
+        addAll(bars, new MappedPriceSeries(file, 0, count), 0, sealing);
+        CompressedPriceSeries sealed = CompressedPriceSeries.encode(bars.build());
+
+        Path path = sealedPath(ticker);
+        Path copy = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (
+                FileChannel channel = FileChannel.open(
+                    copy,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE
+                )
+            ) {
+                ByteBuffer bytes = sealed.toByteBuffer();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(true);
+            }
+            Files.move(copy, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sealedFiles.put(ticker, Optional.of(sealed));
+        replace(ticker, file, Math.max(INITIAL_CAPACITY, hotBars + CompressedPriceSeries.BLOCK_SIZE), sealing);
+        LOG.debug("Sealed {} daily bars of {}, {} bytes for {} bars", sealing, ticker, sealed.byteSize(), sealed.size());
+    }
+
+    private PriceFile grow(String ticker, PriceFile file, int minCapacity) {
+        PriceFile grown = replace(ticker, file, Math.max(minCapacity, file.capacity * 2), 0);
+        LOG.debug("Grew the price file of {} to {} bars", ticker, grown.capacity);
+        return grown;
+    }
+
+    /**
+     * Replace the column file of a ticker by a copy of its bars from {@code fromIndex} on.
+     */
+    private PriceFile replace(String ticker, PriceFile file, int capacity, int fromIndex) {
+        Path path = path(ticker);
+        Path copy = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            PriceFile replacement = PriceFile.create(copy, capacity, file, fromIndex);
+            Files.move(copy, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            files.put(ticker, replacement);
+            return replacement;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Object lock(String ticker) {
+        return locks.computeIfAbsent(ticker, t -> new Object());
+    }
+
+    private Path path(String ticker) {
+        // Tickers such as BRK/B or ^GSPC are not all valid file names
+        return directory.resolve(URLEncoder.encode(ticker, StandardCharsets.UTF_8) + FILE_EXTENSION);
+    }
+
+    private Path sealedPath(String ticker) {
+        return directory.resolve(URLEncoder.encode(ticker, StandardCharsets.UTF_8) + SEALED_FILE_EXTENSION);
+    }
+
+    private static void addAll(DailySeries.Builder bars, PriceSeries series, int from, int to) {
+        for (int i = from; i < to; i++) {
+            bars.add(series.epochDay(i), series.open(i), series.high(i), series.low(i), series.close(i), series.volume(i));
+        }
+    }
+}
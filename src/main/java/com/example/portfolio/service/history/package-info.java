@@ -0,0 +1,5 @@
+/**
+ * Price history storage: memory-mapped column files of the recent daily bars, for scans over years of history, and a
+ * compressed block encoding of the older ones, sealed at a fraction of their size.
+ */
+package com.example.portfolio.service.history;
@@ -0,0 +1,197 @@
+package com.example.portfolio.service.marketdata;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * {@link QuoteProvider} backed by the Alpha Vantage REST API, within the call budget configured under
+ * {@code application.market-data.alpha-vantage.rate-limit}.
+ * <p>
+ * Upstream calls go through a {@link CircuitBreaker} and a {@link Bulkhead}: while Alpha Vantage is failing or slow,
+ * calls are refused at once with a {@link CallNotPermittedException} rather than each waiting for a timeout. Calls
+ * refused by the call budget or the bulkhead never reached the upstream and count neither way.
+ */
+@Component
+public class AlphaVantageQuoteProvider implements QuoteProvider, DisposableBean {
+
+    public static final String NAME = "alpha-vantage";
+
+    /**
+     * Maximum number of symbols in a REALTIME_BULK_QUOTES request.
+     */
+    static final int BULK_QUOTES_MAX_SYMBOLS = 100;
+
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final String apiKey;
+    private final boolean bulkQuotes;
+
+    public AlphaVantageQuoteProvider(ApplicationProperties applicationProperties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        ApplicationProperties.MarketData.AlphaVantage alphaVantage = applicationProperties.getMarketData().getAlphaVantage();
+        this.httpClient = PooledHttpClients.create(alphaVantage.getHttp());
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        this.rateLimiter = new TokenBucketRateLimiter(NAME, alphaVantage.getRateLimit(), meterRegistry);
+        this.circuitBreaker = new CircuitBreaker(NAME, alphaVantage.getCircuitBreaker(), meterRegistry);
+        this.bulkhead = new Bulkhead(NAME, alphaVantage.getBulkhead(), meterRegistry);
+        this.objectMapper = objectMapper;
+        this.baseUrl = alphaVantage.getBaseUrl();
+        this.apiKey = alphaVantage.getApiKey();
+        this.bulkQuotes = alphaVantage.isBulkQuotes();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Optional<Quote> fetchQuote(String ticker, RequestPriority priority) {
+        JsonNode price = query("GLOBAL_QUOTE", ticker, priority).path("Global Quote").path("05. price");
+        if (!price.isValueNode() || price.asText().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Quote(ticker, new BigDecimal(price.asText()), Instant.now(), false));
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return bulkQuotes;
+    }
+
+    @Override
+    public Map<String, Quote> fetchQuotes(Collection<String> tickers, RequestPriority priority) {
+        if (!bulkQuotes) {
+            return QuoteProvider.super.fetchQuotes(tickers, priority);
+        }
+        Map<String, Quote> quotes = new LinkedHashMap<>();
+        List<String> symbols = new ArrayList<>(tickers);
+        for (int from = 0; from < symbols.size(); from += BULK_QUOTES_MAX_SYMBOLS) {
+            String chunk = String.join(",", symbols.subList(from, Math.min(symbols.size(), from + BULK_QUOTES_MAX_SYMBOLS)));
+            Instant now = Instant.now();
+            for (JsonNode row : query("REALTIME_BULK_QUOTES", chunk, priority).path("data")) {
+                String symbol = row.path("symbol").asText();
+                JsonNode price = row.path("close");
+                if (!symbol.isEmpty() && price.isValueNode() && !price.asText().isEmpty()) {
+                    quotes.put(symbol, new Quote(symbol, new BigDecimal(price.asText()), now, false));
+                }
+            }
+        }
+        return quotes;
+    }
+
+    @Override
+    public DailySeries fetchDailySeries(String ticker, RequestPriority priority) {
+        // The compact output size: the last 100 bars, plenty for a daily incremental sync
+        TimeSeriesDailyParser.Result result = exchange("TIME_SERIES_DAILY", ticker, priority, body ->
+            TimeSeriesDailyParser.parse(objectMapper.getFactory(), body)
+        );
+        if (result.limitReached()) {
+            rateLimiter.drain();
+            throw new MarketDataException("TIME_SERIES_DAILY request was rejected for " + ticker + ", API limit reached");
+        }
+        // An error message stands for an unknown ticker
+        return result.series();
+    }
+
+    private JsonNode query(String function, String ticker, RequestPriority priority) {
+        JsonNode root = exchange(function, ticker, priority, objectMapper::readTree);
+        if (root == null || root.isMissingNode()) {
+            throw new MarketDataException(function + " response was empty for " + ticker);
+        }
+        if (root.has("Note") || root.has("Information")) {
+            rateLimiter.drain();
+            throw new MarketDataException(function + " request was rejected for " + ticker + ", API limit reached");
+        }
+        return root;
+    }
+
+    /**
+     * Send a request within the call budget, if the circuit breaker and the bulkhead let it through, and read the
+     * response body as it streams in.
+     * <p>
+     * The call is taken from the budget first, since that may mean waiting, and given back if the bulkhead or the
+     * circuit breaker refuses it then. A half-open circuit only hands out its trial permissions once the wait is over;
+     * an open one refuses the call before it waits.
+     */
+    private <T> T exchange(String function, String ticker, RequestPriority priority, BodyReader<T> reader) {
+        circuitBreaker.checkNotOpen();
+        rateLimiter.acquire(priority);
+        try {
+            bulkhead.acquire();
+        } catch (MarketDataException e) {
+            rateLimiter.refund();
+            throw e;
+        }
+        try {
+            circuitBreaker.acquirePermission();
+        } catch (MarketDataException e) {
+            bulkhead.release();
+            rateLimiter.refund();
+            throw e;
+        }
+        try {
+            return circuitBreaker.record(() -> send(function, ticker, reader));
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private <T> T send(String function, String ticker, BodyReader<T> reader) {
+        URI uri = UriComponentsBuilder.fromUriString(baseUrl)
+            .queryParam("function", function)
+            .queryParam("symbol", ticker)
+            .queryParam("apikey", apiKey)
+            .encode()
+            .build()
+            .toUri();
+        try {
+            return restTemplate.execute(uri, HttpMethod.GET, null, response -> {
+                try {
+                    return reader.read(response.getBody());
+                } catch (JsonProcessingException | ArithmeticException e) {
+                    throw new MarketDataException(function + " response could not be parsed for " + ticker, e);
+                }
+            });
+        } catch (RestClientException e) {
+            // The exception message contains the request URL, hence the API key: do not propagate it
+            throw new MarketDataException(function + " request failed for " + ticker + ": " + e.getClass().getSimpleName());
+        }
+    }
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        httpClient.close();
+    }
+}
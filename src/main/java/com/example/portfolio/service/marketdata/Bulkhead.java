@@ -0,0 +1,58 @@
+package com.example.portfolio.service.marketdata;
+
+import com.example.portfolio.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the number of concurrent calls to a provider's upstream. A call finding every slot taken waits up to the
+ * configured time for one to free up, then is refused.
+ */
+public class Bulkhead {
+
+    public static final String AVAILABLE_METER_NAME = "market-data.bulkhead.available";
+    public static final String REJECTED_METER_NAME = "market-data.bulkhead.rejected";
+
+    private final String providerName;
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+    private final Counter rejectedCounter;
+
+    public Bulkhead(String providerName, ApplicationProperties.MarketData.Bulkhead bulkhead, MeterRegistry meterRegistry) {
+        this.providerName = providerName;
+        this.permits = new Semaphore(bulkhead.getMaxConcurrentCalls(), true);
+        this.maxWaitMillis = bulkhead.getMaxWaitMillis();
+        Gauge.builder(AVAILABLE_METER_NAME, permits, Semaphore::availablePermits)
+            .description("Concurrent provider calls that may still start.")
+            .tag("provider", providerName)
+            .register(meterRegistry);
+        this.rejectedCounter = Counter.builder(REJECTED_METER_NAME)
+            .description("Provider calls refused because too many were already running.")
+            .tag("provider", providerName)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Take a slot, to be given back with {@link #release()} once the call is over.
+     *
+     * @throws CallNotPermittedException if no slot freed up in time.
+     */
+    public void acquire() {
+        try {
+            if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectedCounter.increment();
+        throw new CallNotPermittedException("Bulkhead of " + providerName + " is full");
+    }
+
+    public void release() {
+        permits.release();
+    }
+}
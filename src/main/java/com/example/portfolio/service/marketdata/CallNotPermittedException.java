@@ -0,0 +1,14 @@
+package com.example.portfolio.service.marketdata;
+
+/**
+ * Thrown when a provider call is refused without reaching the upstream, because its circuit breaker is open or its
+ * bulkhead is full.
+ */
+public class CallNotPermittedException extends MarketDataException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CallNotPermittedException(String message) {
+        super(message);
+    }
+}
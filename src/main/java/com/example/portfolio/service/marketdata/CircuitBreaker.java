@@ -0,0 +1,237 @@
+package com.example.portfolio.service.marketdata;
+
+import com.example.portfolio.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker guarding the calls to a provider's upstream.
+ * <p>
+ * While closed, the outcomes of the last calls are kept in a count-based sliding window; once it holds the minimum
+ * number of calls, the circuit opens when the rate of failed or of slow calls reaches its threshold. An open circuit
+ * refuses calls until the open duration has elapsed, then turns half-open and lets a few trial calls through: if their
+ * rates stay below the thresholds it closes again, otherwise it opens for another period.
+ * <p>
+ * Callers {@linkplain #acquirePermission() acquire a permission}, then either {@linkplain #record(Supplier) record}
+ * the upstream call or {@linkplain #releasePermission() release} the permission when the upstream was not called.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public static final String STATE_METER_NAME = "market-data.circuit-breaker.state";
+    public static final String TRANSITIONS_METER_NAME = "market-data.circuit-breaker.transitions";
+    public static final String CALLS_METER_NAME = "market-data.circuit-breaker.calls";
+    public static final String SLOW_CALLS_METER_NAME = "market-data.circuit-breaker.slow-calls";
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN,
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String providerName;
+    private final int minimumCalls;
+    private final int failureRateThresholdPercent;
+    private final Duration slowCallDuration;
+    private final int slowCallRateThresholdPercent;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private final byte[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    private long openedAtMillis;
+    private int halfOpenPermits;
+
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Counter notPermittedCounter;
+    private final Counter slowCallCounter;
+
+    public CircuitBreaker(String providerName, ApplicationProperties.MarketData.CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this(providerName, circuitBreaker, meterRegistry, Clock.systemUTC());
+    }
+
+    CircuitBreaker(
+        String providerName,
+        ApplicationProperties.MarketData.CircuitBreaker circuitBreaker,
+        MeterRegistry meterRegistry,
+        Clock clock
+    ) {
+        this.providerName = providerName;
+        this.window = new byte[Math.max(1, circuitBreaker.getSlidingWindowSize())];
+        this.minimumCalls = Math.max(1, Math.min(window.length, circuitBreaker.getMinimumCalls()));
+        this.failureRateThresholdPercent = circuitBreaker.getFailureRateThresholdPercent();
+        this.slowCallDuration = Duration.ofMillis(circuitBreaker.getSlowCallDurationMillis());
+        this.slowCallRateThresholdPercent = circuitBreaker.getSlowCallRateThresholdPercent();
+        this.openDuration = Duration.ofSeconds(circuitBreaker.getOpenDurationSeconds());
+        this.halfOpenCalls = Math.max(1, circuitBreaker.getHalfOpenCalls());
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+
+        for (State value : State.values()) {
+            Gauge.builder(STATE_METER_NAME, this, breaker -> breaker.getState() == value ? 1 : 0)
+                .description("Whether the circuit breaker of a provider is in the state.")
+                .tags("provider", providerName, "state", tagValue(value))
+                .register(meterRegistry);
+        }
+        this.successCounter = callCounter("success");
+        this.failureCounter = callCounter("failure");
+        this.notPermittedCounter = callCounter("not-permitted");
+        this.slowCallCounter = Counter.builder(SLOW_CALLS_METER_NAME)
+            .description("Provider calls that took longer than the slow call duration, successful or not.")
+            .tag("provider", providerName)
+            .register(meterRegistry);
+    }
+
+    private Counter callCounter(String outcome) {
+        return Counter.builder(CALLS_METER_NAME)
+            .description("Provider calls by outcome, as seen by the circuit breaker.")
+            .tags("provider", providerName, "outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.millis() - openedAtMillis >= openDuration.toMillis()) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return state;
+    }
+
+    /**
+     * Take a permission to call the upstream.
+     *
+     * @throws CallNotPermittedException if the circuit is open, or half-open with all its trial calls in flight.
+     */
+    public void acquirePermission() {
+        synchronized (this) {
+            State current = getState();
+            if (current == State.CLOSED) {
+                return;
+            }
+            if (current == State.HALF_OPEN && halfOpenPermits > 0) {
+                halfOpenPermits--;
+                return;
+            }
+        }
+        notPermittedCounter.increment();
+        throw new CallNotPermittedException("Circuit breaker of " + providerName + " is open");
+    }
+
+    /**
+     * Refuse a call right away while the circuit is open, without taking a permission.
+     *
+     * @throws CallNotPermittedException if the circuit is open.
+     */
+    public void checkNotOpen() {
+        if (getState() == State.OPEN) {
+            notPermittedCounter.increment();
+            throw new CallNotPermittedException("Circuit breaker of " + providerName + " is open");
+        }
+    }
+
+    /**
+     * Give back a permission whose call did not reach the upstream, so that it counts neither way.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    /**
+     * Make the upstream call of an acquired permission and record its outcome: any exception is a failure.
+     */
+    public <T> T record(Supplier<T> call) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            onResult(Duration.ofNanos(System.nanoTime() - start), true);
+            throw e;
+        }
+        onResult(Duration.ofNanos(System.nanoTime() - start), false);
+        return result;
+    }
+
+    synchronized void onResult(Duration duration, boolean failed) {
+        boolean slow = duration.compareTo(slowCallDuration) >= 0;
+        (failed ? failureCounter : successCounter).increment();
+        if (slow) {
+            slowCallCounter.increment();
+        }
+        if (state == State.OPEN) {
+            // A call permitted before the circuit opened
+            return;
+        }
+        if (recorded == window.length) {
+            forget(window[next]);
+        }
+        byte outcome = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+        window[next] = outcome;
+        next = (next + 1) % window.length;
+        recorded = Math.min(window.length, recorded + 1);
+        failures += failed ? 1 : 0;
+        slowCalls += slow ? 1 : 0;
+
+        int required = state == State.HALF_OPEN ? Math.min(halfOpenCalls, window.length) : minimumCalls;
+        if (recorded < required) {
+            return;
+        }
+        if (failures * 100 >= failureRateThresholdPercent * recorded || slowCalls * 100 >= slowCallRateThresholdPercent * recorded) {
+            transitionTo(State.OPEN);
+        } else if (state == State.HALF_OPEN) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    private void forget(byte outcome) {
+        failures -= outcome & FAILED;
+        slowCalls -= (outcome & SLOW) >> 1;
+    }
+
+    private void transitionTo(State target) {
+        State previous = state;
+        state = target;
+        // Each state judges its own calls
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+        if (target == State.OPEN) {
+            openedAtMillis = clock.millis();
+            LOG.warn("Circuit breaker of {} opened, refusing calls for {}", providerName, openDuration);
+        } else if (target == State.HALF_OPEN) {
+            halfOpenPermits = halfOpenCalls;
+        } else {
+            LOG.info("Circuit breaker of {} closed", providerName);
+        }
+        Counter.builder(TRANSITIONS_METER_NAME)
+            .description("Circuit breaker state transitions.")
+            .tags("provider", providerName, "from", tagValue(previous), "to", tagValue(target))
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static String tagValue(State state) {
+        return state.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
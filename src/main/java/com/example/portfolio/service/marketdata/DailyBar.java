@@ -0,0 +1,9 @@
+package com.example.portfolio.service.marketdata;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The prices and volume of a ticker over one trading day.
+ */
+public record DailyBar(LocalDate date, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close, long volume) {}
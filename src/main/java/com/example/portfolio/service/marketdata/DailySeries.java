@@ -0,0 +1,217 @@
+package com.example.portfolio.service.marketdata;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * {@link PriceSeries} held column by column in primitive arrays: a bar takes 48 bytes, against about a kilobyte as a
+ * tree of {@code JsonNode}s or a few hundred bytes as a {@link DailyBar}.
+ */
+public final class DailySeries implements PriceSeries {
+
+    private static final DailySeries EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final long[] epochDays;
+    private final long[] opens;
+    private final long[] highs;
+    private final long[] lows;
+    private final long[] closes;
+    private final long[] volumes;
+
+    private DailySeries(int size, long[] epochDays, long[] opens, long[] highs, long[] lows, long[] closes, long[] volumes) {
+        this.size = size;
+        this.epochDays = epochDays;
+        this.opens = opens;
+        this.highs = highs;
+        this.lows = lows;
+        this.closes = closes;
+        this.volumes = volumes;
+    }
+
+    public static DailySeries empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param expectedSize the expected number of bars; the builder grows past it if needed.
+     */
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long epochDay(int index) {
+        return epochDays[checkIndex(index)];
+    }
+
+    @Override
+    public long open(int index) {
+        return opens[checkIndex(index)];
+    }
+
+    @Override
+    public long high(int index) {
+        return highs[checkIndex(index)];
+    }
+
+    @Override
+    public long low(int index) {
+        return lows[checkIndex(index)];
+    }
+
+    @Override
+    public long close(int index) {
+        return closes[checkIndex(index)];
+    }
+
+    @Override
+    public long volume(int index) {
+        return volumes[checkIndex(index)];
+    }
+
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+
+    /**
+     * Collects bars in any date order; providers commonly list them newest first.
+     */
+    public static final class Builder {
+
+        private int size;
+        private long[] epochDays;
+        private long[] opens;
+        private long[] highs;
+        private long[] lows;
+        private long[] closes;
+        private long[] volumes;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 0);
+            epochDays = new long[capacity];
+            opens = new long[capacity];
+            highs = new long[capacity];
+            lows = new long[capacity];
+            closes = new long[capacity];
+            volumes = new long[capacity];
+        }
+
+        /**
+         * Add a bar, prices in units of {@value PriceSeries#PRICE_SCALE} decimal places.
+         */
+        public Builder add(long epochDay, long open, long high, long low, long close, long volume) {
+            if (size == epochDays.length) {
+                grow();
+            }
+            epochDays[size] = epochDay;
+            opens[size] = open;
+            highs[size] = high;
+            lows[size] = low;
+            closes[size] = close;
+            volumes[size] = volume;
+            size++;
+            return this;
+        }
+
+        public Builder add(DailyBar bar) {
+            return add(
+                bar.date().toEpochDay(),
+                PriceSeries.toUnits(bar.open()),
+                PriceSeries.toUnits(bar.high()),
+                PriceSeries.toUnits(bar.low()),
+                PriceSeries.toUnits(bar.close()),
+                bar.volume()
+            );
+        }
+
+        /**
+         * @return the bars in increasing date order; the builder must not be used afterwards.
+         */
+        public DailySeries build() {
+            if (isDecreasing()) {
+                reverse();
+            } else if (!isIncreasing()) {
+                sort();
+            }
+            return new DailySeries(size, epochDays, opens, highs, lows, closes, volumes);
+        }
+
+        private boolean isIncreasing() {
+            for (int i = 1; i < size; i++) {
+                if (epochDays[i - 1] >= epochDays[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isDecreasing() {
+            if (size < 2) {
+                return false;
+            }
+            for (int i = 1; i < size; i++) {
+                if (epochDays[i - 1] <= epochDays[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void reverse() {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                swap(epochDays, i, j);
+                swap(opens, i, j);
+                swap(highs, i, j);
+                swap(lows, i, j);
+                swap(closes, i, j);
+                swap(volumes, i, j);
+            }
+        }
+
+        private void sort() {
+            int[] order = IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.comparingLong(i -> epochDays[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+            epochDays = permute(epochDays, order);
+            opens = permute(opens, order);
+            highs = permute(highs, order);
+            lows = permute(lows, order);
+            closes = permute(closes, order);
+            volumes = permute(volumes, order);
+        }
+
+        private void grow() {
+            int capacity = Math.max(16, size + (size >> 1));
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            opens = Arrays.copyOf(opens, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+            lows = Arrays.copyOf(lows, capacity);
+            closes = Arrays.copyOf(closes, capacity);
+            volumes = Arrays.copyOf(volumes, capacity);
+        }
+
+        private static long[] permute(long[] column, int[] order) {
+            long[] permuted = new long[column.length];
+            for (int i = 0; i < order.length; i++) {
+                permuted[i] = column[order[i]];
+            }
+            return permuted;
+        }
+
+        private static void swap(long[] column, int i, int j) {
+            long value = column[i];
+            column[i] = column[j];
+            column[j] = value;
+        }
+    }
+}
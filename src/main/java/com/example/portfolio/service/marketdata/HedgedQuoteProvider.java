@@ -0,0 +1,248 @@
+package com.example.portfolio.service.marketdata;
+
+import com.example.portfolio.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link QuoteProvider} asking an ordered list of providers, the first one unless it fails or is slow.
+ * <p>
+ * A call failing on a provider, whether its upstream failed, its call budget is spent or its circuit is open, is
+ * passed on to the next provider. A quote request a provider has not answered within the configured percentile of its
+ * recent latencies is also sent to the next provider, without cancelling the first, and the first answer wins. Such
+ * hedged requests are bounded to a share of the quote requests, so that a slow upstream does not double the call
+ * volume. Batch and daily series requests are only failed over: their latencies vary too much with their size.
+ * <p>
+ * The latency of each provider's successful calls is recorded in a histogram, along with how often each provider
+ * answered first and how often the request was hedged or failed over to it.
+ */
+public class HedgedQuoteProvider implements QuoteProvider, AutoCloseable {
+
+    public static final String LATENCY_METER_NAME = "market-data.provider.latency";
+    public static final String WINS_METER_NAME = "market-data.provider.wins";
+    public static final String HEDGES_METER_NAME = "market-data.provider.hedges";
+    public static final String FAILOVERS_METER_NAME = "market-data.provider.failovers";
+
+    /**
+     * Number of latencies a provider needs before its percentile is trusted.
+     */
+    private static final long MIN_SAMPLES = 20;
+
+    /**
+     * How long a computed hedge delay is reused.
+     */
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Hedges that may be saved up while requests are fast.
+     */
+    private static final double MAX_HEDGE_CREDITS = 10;
+
+    private final class Member {
+
+        final QuoteProvider provider;
+        final Timer latency;
+        final Counter wins;
+        final Counter hedges;
+        final Counter failovers;
+        volatile long hedgeDelayNanos;
+        volatile long hedgeDelayComputedAt;
+
+        Member(QuoteProvider provider, MeterRegistry meterRegistry) {
+            this.provider = provider;
+            this.latency = Timer.builder(LATENCY_METER_NAME)
+                .description("Latency of the successful calls to a market data provider.")
+                .tag("provider", provider.getName())
+                .publishPercentiles(latencyPercentile)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+            this.wins = counter(meterRegistry, WINS_METER_NAME, "Requests a market data provider answered first.");
+            this.hedges = counter(meterRegistry, HEDGES_METER_NAME, "Requests sent to a market data provider because the previous one was slow.");
+            this.failovers = counter(meterRegistry, FAILOVERS_METER_NAME, "Requests sent to a market data provider because the previous one failed.");
+            this.hedgeDelayNanos = maxDelayNanos;
+            this.hedgeDelayComputedAt = System.nanoTime() - DELAY_REFRESH_NANOS;
+        }
+
+        private Counter counter(MeterRegistry meterRegistry, String name, String description) {
+            return Counter.builder(name).description(description).tag("provider", provider.getName()).register(meterRegistry);
+        }
+
+        long hedgeDelayNanos() {
+            long now = System.nanoTime();
+            if (now - hedgeDelayComputedAt < DELAY_REFRESH_NANOS) {
+                return hedgeDelayNanos;
+            }
+            if (latency.count() < MIN_SAMPLES) {
+                return maxDelayNanos;
+            }
+            long delay = maxDelayNanos;
+            for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+                if (value.percentile() == latencyPercentile) {
+                    delay = Math.max(minDelayNanos, Math.min(maxDelayNanos, (long) value.value(TimeUnit.NANOSECONDS)));
+                }
+            }
+            hedgeDelayNanos = delay;
+            hedgeDelayComputedAt = now;
+            return delay;
+        }
+    }
+
+    private record Outcome<T>(Member member, T value, RuntimeException failure) {}
+
+    private final List<Member> members = new ArrayList<>();
+    private final String name;
+    private final boolean hedging;
+    private final double latencyPercentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final double hedgeCreditPerRequest;
+    private final ExecutorService executor;
+
+    // Guarded by this
+    private double hedgeCredits;
+
+    /**
+     * @param providers the providers, in the order they are asked.
+     */
+    public HedgedQuoteProvider(List<QuoteProvider> providers, ApplicationProperties.MarketData.Hedging hedging, MeterRegistry meterRegistry) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("No market data provider to hedge");
+        }
+        this.name = providers.stream().map(QuoteProvider::getName).collect(Collectors.joining(","));
+        this.hedging = hedging.isEnabled();
+        this.latencyPercentile = hedging.getLatencyPercentile();
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedging.getMinDelayMillis());
+        this.maxDelayNanos = Math.max(minDelayNanos, TimeUnit.MILLISECONDS.toNanos(hedging.getMaxDelayMillis()));
+        this.hedgeCreditPerRequest = hedging.getBudgetPercent() / 100d;
+        providers.forEach(provider -> members.add(new Member(provider, meterRegistry)));
+        this.executor = providers.size() > 1 ? QuoteFetchExecutors.create(hedging.getMaxConcurrentCalls(), "quote-hedge-") : null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Optional<Quote> fetchQuote(String ticker, RequestPriority priority) {
+        return execute(provider -> provider.fetchQuote(ticker, priority), hedging);
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return members.get(0).provider.supportsBatch();
+    }
+
+    @Override
+    public Map<String, Quote> fetchQuotes(Collection<String> tickers, RequestPriority priority) {
+        return execute(provider -> provider.fetchQuotes(tickers, priority), false);
+    }
+
+    @Override
+    public DailySeries fetchDailySeries(String ticker, RequestPriority priority) {
+        return execute(provider -> provider.fetchDailySeries(ticker, priority), false);
+    }
+
+    private <T> T execute(Function<QuoteProvider, T> call, boolean hedge) {
+        if (members.size() == 1) {
+            Member member = members.get(0);
+            T value = timed(member, call);
+            member.wins.increment();
+            return value;
+        }
+        boolean mayHedge = hedge && earnHedgeCredit();
+        BlockingQueue<Outcome<T>> outcomes = new LinkedBlockingQueue<>();
+        int started = 0;
+        int running = 0;
+        RuntimeException failure = null;
+        start(members.get(started++), call, outcomes);
+        running++;
+        try {
+            while (running > 0) {
+                Outcome<T> outcome;
+                if (mayHedge && started < members.size()) {
+                    outcome = outcomes.poll(members.get(started - 1).hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+                    if (outcome == null) {
+                        if (spendHedgeCredit()) {
+                            Member next = members.get(started++);
+                            next.hedges.increment();
+                            start(next, call, outcomes);
+                            running++;
+                        } else {
+                            mayHedge = false;
+                        }
+                        continue;
+                    }
+                } else {
+                    outcome = outcomes.take();
+                }
+                running--;
+                if (outcome.failure() == null) {
+                    outcome.member().wins.increment();
+                    return outcome.value();
+                }
+                failure = outcome.failure();
+                if (running == 0 && started < members.size()) {
+                    Member next = members.get(started++);
+                    next.failovers.increment();
+                    start(next, call, outcomes);
+                    running++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MarketDataException("Interrupted while waiting for " + name);
+        }
+        throw failure;
+    }
+
+    private <T> void start(Member member, Function<QuoteProvider, T> call, BlockingQueue<Outcome<T>> outcomes) {
+        executor.execute(() -> {
+            try {
+                outcomes.add(new Outcome<>(member, timed(member, call), null));
+            } catch (RuntimeException e) {
+                outcomes.add(new Outcome<>(member, null, e));
+            }
+        });
+    }
+
+    private static <T> T timed(Member member, Function<QuoteProvider, T> call) {
+        long start = System.nanoTime();
+        T value = call.apply(member.provider);
+        member.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return value;
+    }
+
+    private synchronized boolean earnHedgeCredit() {
+        hedgeCredits = Math.min(MAX_HEDGE_CREDITS, hedgeCredits + hedgeCreditPerRequest);
+        return hedgeCredits >= 1;
+    }
+
+    private synchronized boolean spendHedgeCredit() {
+        if (hedgeCredits < 1) {
+            return false;
+        }
+        hedgeCredits -= 1;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.portfolio.service.marketdata;
+
+import com.example.portfolio.config.ApplicationProperties;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Trading calendar of the exchange configured under {@code application.market-data.calendar}: a regular session on
+ * weekdays, but for the regular NYSE holidays of each year, generated from their rules, and the listed closures.
+ * <p>
+ * Prices do not move outside of sessions, so the quote cache keeps quotes valid from a close until the next open and
+ * background refreshes are suspended meanwhile.
+ */
+@Component
+public class MarketCalendar {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MarketCalendar.class);
+
+    /**
+     * Years the regular holidays are generated for.
+     */
+    static final int FIRST_RULE_YEAR = 1998;
+    static final int LAST_RULE_YEAR = 2100;
+
+    private final ZoneId zone;
+    private final LocalTime sessionOpen;
+    private final LocalTime sessionClose;
+    private final Set<LocalDate> holidays = new HashSet<>();
+
+    public MarketCalendar(ApplicationProperties applicationProperties) {
+        ApplicationProperties.MarketData.Calendar calendar = applicationProperties.getMarketData().getCalendar();
+        this.zone = ZoneId.of(calendar.getZone());
+        this.sessionOpen = LocalTime.parse(calendar.getSessionOpen());
+        this.sessionClose = LocalTime.parse(calendar.getSessionClose());
+        calendar.getHolidays().forEach(holiday -> holidays.add(LocalDate.parse(holiday)));
+        if (!sessionOpen.isBefore(sessionClose)) {
+            throw new IllegalArgumentException("Session open " + sessionOpen + " is not before session close " + sessionClose);
+        }
+        if (calendar.getHolidayRules() == ApplicationProperties.MarketData.Calendar.HolidayRules.NYSE) {
+            for (int year = FIRST_RULE_YEAR; year <= LAST_RULE_YEAR; year++) {
+                holidays.addAll(nyseHolidays(year));
+            }
+        } else {
+            int year = LocalDate.now(zone).getYear();
+            if (holidays.stream().noneMatch(holiday -> holiday.getYear() == year)) {
+                LOG.warn("No market holiday configured in {}: every weekday is taken for a trading day", year);
+            }
+        }
+    }
+
+    /**
+     * @return the regular NYSE holidays of a year, on the weekday they are observed: a holiday falling on a Saturday is
+     * observed the Friday before, and one falling on a Sunday the Monday after, but New Year's Day is not observed in
+     * the previous year.
+     */
+    static List<LocalDate> nyseHolidays(int year) {
+        List<LocalDate> holidays = new ArrayList<>();
+        LocalDate newYear = LocalDate.of(year, 1, 1);
+        if (newYear.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            holidays.add(newYear.plusDays(1));
+        } else if (newYear.getDayOfWeek() != DayOfWeek.SATURDAY) {
+            holidays.add(newYear);
+        }
+        // Martin Luther King Jr. Day and Washington's Birthday: third Mondays
+        holidays.add(LocalDate.of(year, 1, 1).with(TemporalAdjusters.dayOfWeekInMonth(3, DayOfWeek.MONDAY)));
+        holidays.add(LocalDate.of(year, 2, 1).with(TemporalAdjusters.dayOfWeekInMonth(3, DayOfWeek.MONDAY)));
+        holidays.add(easterSunday(year).minusDays(2));
+        holidays.add(LocalDate.of(year, 5, 1).with(TemporalAdjusters.lastInMonth(DayOfWeek.MONDAY)));
+        if (year >= 2022) {
+            holidays.add(observed(LocalDate.of(year, 6, 19)));
+        }
+        holidays.add(observed(LocalDate.of(year, 7, 4)));
+        holidays.add(LocalDate.of(year, 9, 1).with(TemporalAdjusters.firstInMonth(DayOfWeek.MONDAY)));
+        holidays.add(LocalDate.of(year, 11, 1).with(TemporalAdjusters.dayOfWeekInMonth(4, DayOfWeek.THURSDAY)));
+        holidays.add(observed(LocalDate.of(year, 12, 25)));
+        return holidays;
+    }
+
+    private static LocalDate observed(LocalDate holiday) {
+        return switch (holiday.getDayOfWeek()) {
+            case SATURDAY -> holiday.minusDays(1);
+            case SUNDAY -> holiday.plusDays(1);
+            default -> holiday;
+        };
+    }
+
+    /**
+     * @return Easter Sunday of the Gregorian calendar, by the anonymous algorithm of Meeus, Jones and Butcher.
+     */
+    static LocalDate easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(year, month, day);
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * @return whether the exchange holds a session on the date.
+     */
+    public boolean isTradingDay(LocalDate date) {
+        return date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY && !holidays.contains(date);
+    }
+
+    /**
+     * @return whether a session is open at the instant.
+     */
+    public boolean isOpen(Instant instant) {
+        ZonedDateTime time = instant.atZone(zone);
+        LocalTime localTime = time.toLocalTime();
+        return isTradingDay(time.toLocalDate()) && !localTime.isBefore(sessionOpen) && localTime.isBefore(sessionClose);
+    }
+
+    /**
+     * @return the open of the first session starting after the instant.
+     */
+    public Instant nextOpen(Instant instant) {
+        ZonedDateTime time = instant.atZone(zone);
+        LocalDate date = time.toLocalDate();
+        if (!time.toLocalTime().isBefore(sessionOpen)) {
+            date = date.plusDays(1);
+        }
+        while (!isTradingDay(date)) {
+            date = date.plusDays(1);
+        }
+        return date.atTime(sessionOpen).atZone(zone).toInstant();
+    }
+
+    /**
+     * @return the close of the last session ended at or before the instant.
+     */
+    public Instant lastClose(Instant instant) {
+        return lastSession(instant).atTime(sessionClose).atZone(zone).toInstant();
+    }
+
+    /**
+     * @return the date of the last session ended at or before the instant, whose daily bar is final.
+     */
+    public LocalDate lastSession(Instant instant) {
+        ZonedDateTime time = instant.atZone(zone);
+        LocalDate date = time.toLocalTime().isBefore(sessionClose) ? time.toLocalDate().minusDays(1) : time.toLocalDate();
+        while (!isTradingDay(date)) {
+            date = date.minusDays(1);
+        }
+        return date;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.portfolio.service.marketdata;
+
+/**
+ * Thrown when a {@link QuoteProvider} cannot answer a request, for example because its upstream is unreachable or
+ * rejected the call.
+ */
+public class MarketDataException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MarketDataException(String message) {
+        super(message);
+    }
+
+    public MarketDataException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
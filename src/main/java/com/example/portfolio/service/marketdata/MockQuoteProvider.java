@@ -0,0 +1,83 @@
+package com.example.portfolio.service.marketdata;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link QuoteProvider} generating mock prices derived from the ticker, used when no real provider is available.
+ */
+@Component
+public class MockQuoteProvider implements QuoteProvider {
+
+    public static final String NAME = "mock";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Optional<Quote> fetchQuote(String ticker, RequestPriority priority) {
+        return Optional.of(new Quote(ticker, getMockPrice(ticker), Instant.now(), false));
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return true;
+    }
+
+    @Override
+    public Map<String, Quote> fetchQuotes(Collection<String> tickers, RequestPriority priority) {
+        Instant now = Instant.now();
+        Map<String, Quote> quotes = new LinkedHashMap<>();
+        for (String ticker : tickers) {
+            quotes.put(ticker, new Quote(ticker, getMockPrice(ticker), now, false));
+        }
+        return quotes;
+    }
+
+    @Override
+    public DailySeries fetchDailySeries(String ticker, RequestPriority priority) {
+        // Generate 30 days of mock data
+        DailySeries.Builder series = DailySeries.builder(30);
+        BigDecimal basePrice = getMockPrice(ticker);
+
+        LocalDate today = LocalDate.now();
+        for (int i = 29; i >= 0; i--) {
+            LocalDate date = today.minusDays(i);
+            // Seeded from the ticker and the day, so that a day keeps its price from one call to the next
+            Random random = new Random(ticker.hashCode() * 31L + date.toEpochDay());
+            double variation = (random.nextDouble() - 0.5) * 0.1; // ±5% daily variation
+            BigDecimal dayPrice = basePrice.multiply(BigDecimal.valueOf(1 + variation)).setScale(4, RoundingMode.HALF_UP);
+
+            series.add(
+                new DailyBar(
+                    date,
+                    dayPrice,
+                    dayPrice.multiply(BigDecimal.valueOf(1.02)).setScale(4, RoundingMode.HALF_UP),
+                    dayPrice.multiply(BigDecimal.valueOf(0.98)).setScale(4, RoundingMode.HALF_UP),
+                    dayPrice,
+                    1000000 + random.nextInt(5000000)
+                )
+            );
+        }
+
+        return series.build();
+    }
+
+    private BigDecimal getMockPrice(String ticker) {
+        // Generate mock prices based on ticker hash for consistency
+        int hash = Math.abs(ticker.hashCode());
+        double basePrice = 50 + (hash % 500);
+        double variation = (hash % 100) / 100.0 * 10 - 5; // ±5% variation
+        return BigDecimal.valueOf(basePrice + variation).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.portfolio.service.marketdata;
+
+import com.example.portfolio.config.ApplicationProperties;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * Builds the pooled HTTP clients used by HTTP-backed {@link QuoteProvider}s.
+ */
+public final class PooledHttpClients {
+
+    private PooledHttpClients() {}
+
+    /**
+     * Create a keep-alive HTTP client with a bounded connection pool and explicit timeouts, so that a slow upstream can
+     * neither hold a request thread indefinitely nor open an unbounded number of connections.
+     * <p>
+     * A request failing on I/O, such as a pooled connection the upstream closed, is retried once at once. A 429 or 503
+     * answer is not retried: the client would otherwise wait for a second and send it again, hidden from the circuit
+     * breaker and doubling the calls to a failing upstream.
+     */
+    public static CloseableHttpClient create(ApplicationProperties.MarketData.Http http) {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+            .setConnectTimeout(Timeout.ofMilliseconds(http.getConnectTimeoutMillis()))
+            .setSocketTimeout(Timeout.ofMilliseconds(http.getReadTimeoutMillis()))
+            .setTimeToLive(TimeValue.ofSeconds(http.getKeepAliveSeconds()))
+            .build();
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(http.getMaxConnections())
+            .setMaxConnPerRoute(http.getMaxConnections())
+            .setDefaultConnectionConfig(connectionConfig)
+            .build();
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.ofMilliseconds(http.getConnectionRequestTimeoutMillis()))
+            .setResponseTimeout(Timeout.ofMilliseconds(http.getReadTimeoutMillis()))
+            .setConnectionKeepAlive(TimeValue.ofSeconds(http.getKeepAliveSeconds()))
+            .build();
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setRetryStrategy(
+                new DefaultHttpRequestRetryStrategy(1, TimeValue.ZERO_MILLISECONDS) {
+                    @Override
+                    public boolean retryRequest(HttpResponse response, int execCount, HttpContext context) {
+                        return false;
+                    }
+                }
+            )
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.of(http.getKeepAliveSeconds(), TimeUnit.SECONDS))
+            .build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.portfolio.service.marketdata;
+
+import java.math.BigDecimal;
+
+/**
+ * Published when a quote with a different price than the one cached for its ticker enters the {@link QuoteCache}.
+ *
+ * @param previousPrice the price cached before, {@code null} if the ticker had none.
+ * @param quote the new quote.
+ */
+public record PriceChangedEvent(BigDecimal previousPrice, Quote quote) {
+    public String ticker() {
+        return quote.ticker();
+    }
+}
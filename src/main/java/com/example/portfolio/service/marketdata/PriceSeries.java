@@ -0,0 +1,86 @@
+package com.example.portfolio.service.marketdata;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Read-only view of the daily bars of a ticker in increasing date order.
+ * <p>
+ * Dates are epoch days and prices are {@code long} units of {@value #PRICE_SCALE} decimal places, so that
+ * {@code 150.5} is {@code 1_505_000}. Implementations read the bars where they are, in arrays or in a mapped file,
+ * without copying them: scans should go through the primitive accessors rather than {@link #bar(int)}.
+ */
+public interface PriceSeries {
+    /**
+     * Number of decimal places of the price units.
+     */
+    int PRICE_SCALE = 4;
+
+    int size();
+
+    long epochDay(int index);
+
+    long open(int index);
+
+    long high(int index);
+
+    long low(int index);
+
+    long close(int index);
+
+    long volume(int index);
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    default LocalDate date(int index) {
+        return LocalDate.ofEpochDay(epochDay(index));
+    }
+
+    /**
+     * @return the bar at the index, with {@code BigDecimal} prices of scale {@value #PRICE_SCALE}.
+     */
+    default DailyBar bar(int index) {
+        return new DailyBar(
+            date(index),
+            toPrice(open(index)),
+            toPrice(high(index)),
+            toPrice(low(index)),
+            toPrice(close(index)),
+            volume(index)
+        );
+    }
+
+    /**
+     * @return the index of the first bar dated {@code epochDay} or later, {@link #size()} if none.
+     */
+    default int indexOf(long epochDay) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochDay(middle) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the price of {@code units}, with {@value #PRICE_SCALE} decimal places.
+     */
+    static BigDecimal toPrice(long units) {
+        return BigDecimal.valueOf(units, PRICE_SCALE);
+    }
+
+    /**
+     * @return the units of a price.
+     * @throws ArithmeticException if the price has more than {@value #PRICE_SCALE} decimal places or does not fit.
+     */
+    static long toUnits(BigDecimal price) {
+        return price.setScale(PRICE_SCALE).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.portfolio.service.marketdata;
+
+/**
+ * Thrown when a provider call is refused because its call budget is spent.
+ */
+public class QuotaExceededException extends MarketDataException {
+
+    private static final long serialVersionUID = 1L;
+
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
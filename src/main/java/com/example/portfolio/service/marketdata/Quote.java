@@ -0,0 +1,27 @@
+package com.example.portfolio.service.marketdata;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * A price for a ticker as of a point in time.
+ *
+ * @param ticker the normalized ticker symbol.
+ * @param price the last traded price.
+ * @param asOf when the price was obtained from the provider.
+ * @param stale whether the price is known to be older than the configured freshness window.
+ */
+public record Quote(String ticker, BigDecimal price, Instant asOf, boolean stale) implements Serializable {
+    /**
+     * @return the ticker as quotes and caches key it: trimmed and upper case.
+     */
+    public static String normalizeTicker(String ticker) {
+        return ticker.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public Quote asStale() {
+        return stale ? this : new Quote(ticker, price, asOf, true);
+    }
+}
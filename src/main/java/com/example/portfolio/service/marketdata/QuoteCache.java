@@ -0,0 +1,389 @@
+package com.example.portfolio.service.marketdata;
+
+import com.example.portfolio.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ehcache.event.EventFiring;
+import org.ehcache.event.EventOrdering;
+import org.ehcache.event.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Quote cache keyed by ticker, backed by the {@value #QUOTES_CACHE} cache region.
+ * <p>
+ * Entries are judged on their {@link Quote#asOf()} timestamp: younger than the time to live they are served as is,
+ * within the stale-while-revalidate window they are served but should be refreshed in the background, and beyond
+ * that they are only kept as a fallback until the region evicts them. While the market is closed, per the
+ * {@link MarketCalendar}, a quote that was within its time to live at the close stays so until the next open.
+ * <p>
+ * A {@link PriceChangedEvent} is published whenever a quote changes the cached price of its ticker.
+ * <p>
+ * Lookups are counted per ticker, so that background refreshes can favour the most read tickers; the counts are halved
+ * by {@link #decayReadCounts()} to follow changes in demand. At most as many tickers as the region holds are counted;
+ * tickers first looked up while that many are counted are not, until a decay forgets some. The age of the quotes served is recorded in a histogram.
+ * <p>
+ * Every quote put is also written to a {@link QuoteTable} keyed by {@link SymbolDictionary} id, from which
+ * {@link #readFresh(int, QuoteTable.Entry)} serves fresh prices without allocating. When the region is backed by
+ * Ehcache, the slot of a ticker is emptied as soon as the region drops its quote, whether removed, cleared, evicted or
+ * expired; the table never serves a quote older than the region keeps them either way.
+ */
+@Component
+public class QuoteCache {
+
+    public static final String QUOTES_CACHE = "quotes";
+
+    public static final String REQUESTS_METER_NAME = "market-data.quote-cache.requests";
+    public static final String REQUESTS_METER_DESCRIPTION = "Quote cache lookups by result.";
+    public static final String REQUESTS_METER_RESULT_DIMENSION = "result";
+
+    public static final String AGE_METER_NAME = "market-data.quote-cache.age";
+    public static final String AGE_METER_DESCRIPTION = "Age of the quotes served by the quote cache.";
+
+    /**
+     * Upper bounds of the buckets of the age histogram.
+     */
+    private static final Duration[] AGE_BUCKETS = {
+        Duration.ofSeconds(1),
+        Duration.ofSeconds(10),
+        Duration.ofMinutes(1),
+        Duration.ofMinutes(5),
+        Duration.ofMinutes(15),
+        Duration.ofHours(1),
+        Duration.ofDays(1),
+    };
+
+    public enum State {
+        /** No quote cached for the ticker. */
+        MISS,
+        /** The quote is within its time to live. */
+        FRESH,
+        /** The quote is past its time to live but may still be served while it is refreshed. */
+        REVALIDATE,
+        /** The quote is past the stale-while-revalidate window and must be refreshed before use. */
+        EXPIRED,
+    }
+
+    /**
+     * Result of a cache lookup.
+     *
+     * @param ticker the ticker looked up.
+     * @param quote the cached quote, {@code null} on a miss.
+     * @param state the freshness of the cached quote.
+     */
+    public record Lookup(String ticker, Quote quote, State state) {}
+
+    /**
+     * Lookup counts since startup.
+     *
+     * @param hits the lookups served a fresh quote.
+     * @param stale the lookups served a quote past its time to live.
+     * @param misses the lookups without a cached quote.
+     * @param ageHistogram the number of quotes served no older than each bucket's upper bound, cumulative.
+     */
+    public record Statistics(long hits, long stale, long misses, Map<Duration, Long> ageHistogram) {
+        public double hitRate() {
+            long lookups = hits + stale + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MarketCalendar marketCalendar;
+    private final Clock clock;
+    private final Duration timeToLive;
+    private final Duration staleWhileRevalidate;
+    private final long timeToLiveMillis;
+    private final long maxStaleMillis;
+
+    private final ConcurrentMap<String, AtomicLong> readCounts = new ConcurrentHashMap<>();
+    private final long maxReadCounts;
+
+    private final SymbolDictionary symbols;
+    private final QuoteTable quoteTable;
+
+    /**
+     * The market session or closed period the last {@link #readFresh(int, QuoteTable.Entry)} fell in, so that reads
+     * within it do not go through the calendar.
+     *
+     * @param open whether the market is open over the period.
+     * @param fromMillis the start of the period: the open of the session, or the close of the last one.
+     * @param untilMillis the end of the period, excluded.
+     */
+    private record MarketPeriod(boolean open, long fromMillis, long untilMillis) {
+        boolean contains(long millis) {
+            return millis >= fromMillis && millis < untilMillis;
+        }
+    }
+
+    private volatile MarketPeriod marketPeriod = new MarketPeriod(false, 0, 0);
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter staleCounter;
+    private final Timer ageTimer;
+
+    @Autowired
+    public QuoteCache(
+        CacheManager cacheManager,
+        ApplicationEventPublisher eventPublisher,
+        MarketCalendar marketCalendar,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this(cacheManager, eventPublisher, marketCalendar, applicationProperties, meterRegistry, Clock.systemUTC());
+    }
+
+    QuoteCache(
+        CacheManager cacheManager,
+        ApplicationEventPublisher eventPublisher,
+        MarketCalendar marketCalendar,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry,
+        Clock clock
+    ) {
+        ApplicationProperties.MarketData.QuoteCache properties = applicationProperties.getMarketData().getQuoteCache();
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
+        this.marketCalendar = marketCalendar;
+        this.clock = clock;
+        this.timeToLive = Duration.ofSeconds(properties.getTimeToLiveSeconds());
+        this.staleWhileRevalidate = Duration.ofSeconds(properties.getStaleWhileRevalidateSeconds());
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.maxStaleMillis = Duration.ofSeconds(properties.getMaxStaleSeconds()).toMillis();
+        this.maxReadCounts = properties.getMaxEntries();
+        this.symbols = new SymbolDictionary(properties.getTableCapacity());
+        this.quoteTable = new QuoteTable(properties.getTableCapacity());
+        this.hitCounter = requestsCounterForResultBuilder("hit").register(meterRegistry);
+        this.missCounter = requestsCounterForResultBuilder("miss").register(meterRegistry);
+        this.staleCounter = requestsCounterForResultBuilder("stale").register(meterRegistry);
+        this.ageTimer = Timer.builder(AGE_METER_NAME)
+            .description(AGE_METER_DESCRIPTION)
+            .serviceLevelObjectives(AGE_BUCKETS)
+            .register(meterRegistry);
+        if (cache().getNativeCache() instanceof javax.cache.Cache<?, ?> region) {
+            // Ehcache events rather than JCache ones, which leave evictions out
+            region
+                .unwrap(org.ehcache.Cache.class)
+                .getRuntimeConfiguration()
+                .registerCacheEventListener(
+                    event -> clearSlot(event.getKey()),
+                    EventOrdering.UNORDERED,
+                    EventFiring.SYNCHRONOUS,
+                    EnumSet.of(EventType.REMOVED, EventType.EVICTED, EventType.EXPIRED)
+                );
+        }
+    }
+
+    private Counter.Builder requestsCounterForResultBuilder(String result) {
+        return Counter.builder(REQUESTS_METER_NAME).description(REQUESTS_METER_DESCRIPTION).tag(REQUESTS_METER_RESULT_DIMENSION, result);
+    }
+
+    /**
+     * Look up the quote for a ticker and record the outcome.
+     *
+     * @param ticker the normalized ticker.
+     * @return the cached quote, if any, with its freshness.
+     */
+    public Lookup lookup(String ticker) {
+        countRead(ticker);
+        Quote quote = read(ticker);
+        if (quote == null) {
+            missCounter.increment();
+            return new Lookup(ticker, null, State.MISS);
+        }
+        Instant now = Instant.now(clock);
+        Duration age = Duration.between(quote.asOf(), now);
+        ageTimer.record(age.isNegative() ? Duration.ZERO : age);
+        State state = stateAt(quote, now);
+        if (state == State.FRESH) {
+            hitCounter.increment();
+            return new Lookup(ticker, quote, state);
+        }
+        staleCounter.increment();
+        return new Lookup(ticker, quote.asStale(), state);
+    }
+
+    /**
+     * @param ticker the normalized ticker.
+     * @return the id of the ticker in the quote table, {@link SymbolDictionary#NO_ID} if it never had a quote.
+     */
+    public int symbolId(String ticker) {
+        return symbols.idOf(ticker);
+    }
+
+    /**
+     * Read the price of a ticker if it is fresh, as {@link #lookup(String)} would judge it, recording the lookup the
+     * same way, without allocating.
+     *
+     * @param symbolId the id of the ticker, from {@link #symbolId(String)}.
+     * @param into where to read the price to.
+     * @return whether a fresh price was read; if not, {@link #lookup(String)} tells what else is cached.
+     */
+    public boolean readFresh(int symbolId, QuoteTable.Entry into) {
+        if (!quoteTable.read(symbolId, into)) {
+            return false;
+        }
+        long now = clock.millis();
+        long age = now - into.asOfMillis();
+        // The region has dropped the quote by then, possibly without telling
+        if (age >= maxStaleMillis) {
+            return false;
+        }
+        if (age >= timeToLiveMillis) {
+            MarketPeriod period = marketPeriodAt(now);
+            if (period.open() || into.asOfMillis() + timeToLiveMillis <= period.fromMillis()) {
+                return false;
+            }
+        }
+        countRead(symbols.symbol(symbolId));
+        hitCounter.increment();
+        ageTimer.record(Math.max(age, 0), TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Get whatever quote is still retained for a ticker, regardless of its age, without recording a lookup.
+     *
+     * @param ticker the normalized ticker.
+     * @return the retained quote, flagged stale when past its time to live.
+     */
+    public Optional<Quote> getIfPresent(String ticker) {
+        return Optional.ofNullable(read(ticker)).map(quote -> stateAt(quote, Instant.now(clock)) == State.FRESH ? quote : quote.asStale());
+    }
+
+    /**
+     * @param ticker the normalized ticker.
+     * @param duration how long from now.
+     * @return whether a quote is cached for the ticker and stays fresh for that long.
+     */
+    public boolean isFreshFor(String ticker, Duration duration) {
+        Quote quote = read(ticker);
+        return quote != null && stateAt(quote, Instant.now(clock).plus(duration)) == State.FRESH;
+    }
+
+    /**
+     * @param ticker the normalized ticker.
+     * @return the number of lookups of the ticker, halved at each {@link #decayReadCounts()}.
+     */
+    public long readCount(String ticker) {
+        AtomicLong count = readCounts.get(ticker);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Halve the lookup count of every ticker, forgetting the tickers no longer looked up.
+     */
+    public void decayReadCounts() {
+        readCounts.values().forEach(count -> count.updateAndGet(value -> value >> 1));
+        readCounts.values().removeIf(count -> count.get() == 0);
+    }
+
+    /**
+     * @return the lookup counts and the age histogram of the quotes served.
+     */
+    public Statistics statistics() {
+        Map<Duration, Long> ageHistogram = new LinkedHashMap<>();
+        for (CountAtBucket bucket : ageTimer.takeSnapshot().histogramCounts()) {
+            ageHistogram.put(Duration.ofNanos((long) bucket.bucket(TimeUnit.NANOSECONDS)), (long) bucket.count());
+        }
+        return new Statistics((long) hitCounter.count(), (long) staleCounter.count(), (long) missCounter.count(), ageHistogram);
+    }
+
+    public void put(Quote quote) {
+        Objects.requireNonNull(quote.ticker(), "ticker");
+        Quote previous = read(quote.ticker());
+        // The table before the region, so that a quote the region drops meanwhile is not left in the table
+        int symbolId = symbols.intern(quote.ticker());
+        if (symbolId != SymbolDictionary.NO_ID) {
+            quoteTable.write(symbolId, quote.price(), quote.asOf().toEpochMilli());
+        }
+        cache().put(quote.ticker(), quote.stale() ? new Quote(quote.ticker(), quote.price(), quote.asOf(), false) : quote);
+        if (previous == null || previous.price().compareTo(quote.price()) != 0) {
+            eventPublisher.publishEvent(new PriceChangedEvent(previous != null ? previous.price() : null, quote));
+        }
+    }
+
+    public void evict(String ticker) {
+        cache().evict(ticker);
+        clearSlot(ticker);
+    }
+
+    private void clearSlot(Object ticker) {
+        int symbolId = ticker instanceof String symbol ? symbols.idOf(symbol) : SymbolDictionary.NO_ID;
+        if (symbolId != SymbolDictionary.NO_ID) {
+            quoteTable.clear(symbolId);
+        }
+    }
+
+    private void countRead(String ticker) {
+        AtomicLong count = readCounts.get(ticker);
+        if (count == null) {
+            // Tickers come from requests: bounded, so that made-up ones cannot grow the map without end
+            if (readCounts.size() >= maxReadCounts) {
+                return;
+            }
+            count = readCounts.computeIfAbsent(ticker, t -> new AtomicLong());
+        }
+        count.incrementAndGet();
+    }
+
+    private Quote read(String ticker) {
+        return cache().get(ticker, Quote.class);
+    }
+
+    private State stateAt(Quote quote, Instant instant) {
+        Duration age = Duration.between(quote.asOf(), instant);
+        if (age.compareTo(timeToLive) < 0) {
+            return State.FRESH;
+        }
+        if (!marketCalendar.isOpen(instant) && quote.asOf().plus(timeToLive).isAfter(marketCalendar.lastClose(instant))) {
+            // The price cannot have moved since the quote was last fresh
+            return State.FRESH;
+        }
+        if (age.compareTo(timeToLive.plus(staleWhileRevalidate)) < 0) {
+            return State.REVALIDATE;
+        }
+        return State.EXPIRED;
+    }
+
+    private MarketPeriod marketPeriodAt(long millis) {
+        MarketPeriod period = marketPeriod;
+        if (period.contains(millis)) {
+            return period;
+        }
+        Instant instant = Instant.ofEpochMilli(millis);
+        if (marketCalendar.isOpen(instant)) {
+            Instant open = marketCalendar.nextOpen(marketCalendar.lastClose(instant));
+            Instant close = marketCalendar.lastClose(marketCalendar.nextOpen(instant));
+            period = new MarketPeriod(true, open.toEpochMilli(), close.toEpochMilli());
+        } else {
+            Instant close = marketCalendar.lastClose(instant);
+            period = new MarketPeriod(false, close.toEpochMilli(), marketCalendar.nextOpen(instant).toEpochMilli());
+        }
+        marketPeriod = period;
+        return period;
+    }
+
+    private Cache cache() {
+        return Objects.requireNonNull(cacheManager.getCache(QUOTES_CACHE), "Unable to find cache: " + QUOTES_CACHE);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.portfolio.service.marketdata;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Creates the executors quote fetches run on.
+ * <p>
+ * Quote fetches spend their time waiting on the network, so on Java 21 and later each one runs on its own virtual
+ * thread, with a semaphore bounding how many run at once. On older runtimes they run on a bounded pool of platform
+ * threads.
+ */
+public final class QuoteFetchExecutors {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuoteFetchExecutors.class);
+
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    private QuoteFetchExecutors() {}
+
+    /**
+     * @param maxConcurrency the maximum number of fetches running at the same time.
+     * @param threadNamePrefix the name prefix of platform threads.
+     */
+    public static ExecutorService create(int maxConcurrency, String threadNamePrefix) {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                ExecutorService virtualThreads = (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke();
+                LOG.debug("Running quote fetches on virtual threads, {} at most at once", maxConcurrency);
+                return new ConcurrencyLimitedExecutorService(virtualThreads, maxConcurrency);
+            } catch (Throwable e) {
+                LOG.warn("Unable to create a virtual thread executor, falling back to platform threads", e);
+            }
+        }
+        LOG.debug("Running quote fetches on {} platform threads", maxConcurrency);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            maxConcurrency,
+            maxConcurrency,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new CustomizableThreadFactory(threadNamePrefix)
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static MethodHandle findVirtualThreadPerTaskExecutor() {
+        try {
+            return MethodHandles.publicLookup()
+                .findStatic(java.util.concurrent.Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs every task on the delegate right away but lets only {@code maxConcurrency} of them proceed at once.
+     */
+    static final class ConcurrencyLimitedExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        ConcurrencyLimitedExecutorService(ExecutorService delegate, int maxConcurrency) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(maxConcurrency);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.portfolio.service.marketdata;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The prices of a list of tickers, by index in the list, held as the unscaled value and scale of each so that they can
+ * be read out of the {@link QuoteTable} and valued without a {@code BigDecimal} per price.
+ * <p>
+ * Prices whose unscaled value does not fit in a {@code long} are held as they are; {@link #unscaledPrice(int)} throws
+ * for them.
+ */
+public final class QuotePrices {
+
+    private final List<String> tickers;
+    private final long[] unscaledPrices;
+    private final int[] priceScales;
+    private final long[] asOfMillis;
+    private final boolean[] stale;
+
+    // Allocated on the first price that does not fit
+    private BigDecimal[] largePrices;
+
+    /**
+     * @param tickers the tickers, whose prices are all to be set.
+     */
+    public QuotePrices(List<String> tickers) {
+        this.tickers = tickers;
+        this.unscaledPrices = new long[tickers.size()];
+        this.priceScales = new int[tickers.size()];
+        this.asOfMillis = new long[tickers.size()];
+        this.stale = new boolean[tickers.size()];
+    }
+
+    /**
+     * @param tickers the tickers.
+     * @param quotes the quote of every ticker.
+     * @return the prices of the quotes.
+     */
+    public static QuotePrices of(List<String> tickers, Map<String, Quote> quotes) {
+        QuotePrices prices = new QuotePrices(tickers);
+        for (int index = 0; index < tickers.size(); index++) {
+            prices.set(index, quotes.get(tickers.get(index)));
+        }
+        return prices;
+    }
+
+    /**
+     * Set a fresh price read from the quote table.
+     */
+    public void set(int index, QuoteTable.Entry entry) {
+        unscaledPrices[index] = entry.unscaledPrice();
+        priceScales[index] = entry.priceScale();
+        asOfMillis[index] = entry.asOfMillis();
+        stale[index] = false;
+    }
+
+    public void set(int index, Quote quote) {
+        BigDecimal price = quote.price();
+        if (price.unscaledValue().bitLength() < Long.SIZE) {
+            unscaledPrices[index] = price.unscaledValue().longValue();
+        } else {
+            if (largePrices == null) {
+                largePrices = new BigDecimal[tickers.size()];
+            }
+            largePrices[index] = price;
+        }
+        priceScales[index] = price.scale();
+        asOfMillis[index] = quote.asOf().toEpochMilli();
+        stale[index] = quote.stale();
+    }
+
+    public int size() {
+        return tickers.size();
+    }
+
+    public String ticker(int index) {
+        return tickers.get(index);
+    }
+
+    /**
+     * @throws ArithmeticException if the unscaled value of the price does not fit in a {@code long}.
+     */
+    public long unscaledPrice(int index) {
+        if (isLarge(index)) {
+            throw new ArithmeticException("Price does not fit in a long: " + largePrices[index]);
+        }
+        return unscaledPrices[index];
+    }
+
+    public int priceScale(int index) {
+        return priceScales[index];
+    }
+
+    /**
+     * @return whether the price is past its time to live.
+     */
+    public boolean isStale(int index) {
+        return stale[index];
+    }
+
+    /**
+     * @return the price, allocated on each call.
+     */
+    public BigDecimal price(int index) {
+        return isLarge(index) ? largePrices[index] : BigDecimal.valueOf(unscaledPrices[index], priceScales[index]);
+    }
+
+    /**
+     * @return the quote of the price, allocated on each call.
+     */
+    public Quote quote(int index) {
+        return new Quote(tickers.get(index), price(index), Instant.ofEpochMilli(asOfMillis[index]), stale[index]);
+    }
+
+    private boolean isLarge(int index) {
+        return largePrices != null && largePrices[index] != null;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.portfolio.service.marketdata;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A source of market data.
+ * <p>
+ * Implementations are Spring beans; the one used by {@link com.example.portfolio.service.StockDataService} is selected
+ * by name through {@code application.market-data.provider}.
+ */
+public interface QuoteProvider {
+    /**
+     * @return the name the provider is selected by in the configuration.
+     */
+    String getName();
+
+    /**
+     * Fetch the latest quote for a ticker.
+     *
+     * @param ticker the normalized ticker.
+     * @param priority the priority of the request against the provider's call budget.
+     * @return the quote, or empty if the provider does not know the ticker.
+     * @throws QuotaExceededException if the provider's call budget is spent.
+     * @throws MarketDataException if the provider could not be queried.
+     */
+    Optional<Quote> fetchQuote(String ticker, RequestPriority priority);
+
+    /**
+     * @return whether {@link #fetchQuotes(Collection, RequestPriority)} fetches several tickers per upstream request.
+     */
+    default boolean supportsBatch() {
+        return false;
+    }
+
+    /**
+     * Fetch the latest quotes for several tickers.
+     * <p>
+     * The default implementation fetches the tickers one by one; providers able to answer for several tickers in one
+     * upstream request override it along with {@link #supportsBatch()}.
+     *
+     * @param tickers the distinct normalized tickers.
+     * @param priority the priority of the request against the provider's call budget.
+     * @return the quotes found, keyed by ticker.
+     * @throws QuotaExceededException if the provider's call budget is spent.
+     * @throws MarketDataException if the provider could not be queried.
+     */
+    default Map<String, Quote> fetchQuotes(Collection<String> tickers, RequestPriority priority) {
+        Map<String, Quote> quotes = new LinkedHashMap<>();
+        for (String ticker : tickers) {
+            fetchQuote(ticker, priority).ifPresent(quote -> quotes.put(ticker, quote));
+        }
+        return quotes;
+    }
+
+    /**
+     * Fetch the recent daily bars of a ticker.
+     *
+     * @param ticker the normalized ticker.
+     * @param priority the priority of the request against the provider's call budget.
+     * @return the bars, empty if the provider does not know the ticker.
+     * @throws QuotaExceededException if the provider's call budget is spent.
+     * @throws MarketDataException if the provider could not be queried.
+     */
+    DailySeries fetchDailySeries(String ticker, RequestPriority priority);
+
+    /**
+     * @return the provider configured under {@code name}.
+     * @throws IllegalStateException if there is none.
+     */
+    static QuoteProvider named(Collection<QuoteProvider> providers, String name) {
+        return providers
+            .stream()
+            .filter(provider -> provider.getName().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("Unknown market data provider: " + name));
+    }
+}
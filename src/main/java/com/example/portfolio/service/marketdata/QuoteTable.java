@@ -0,0 +1,174 @@
+package com.example.portfolio.service.marketdata;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The last price of each ticker, in fixed-size slots of a direct {@link ByteBuffer} indexed by {@link SymbolDictionary}
+ * id, so that reading a price neither allocates nor chases pointers.
+ * <p>
+ * A slot holds a version, the unscaled value and scale of the price, and its timestamp. Writes follow a seqlock: the
+ * writer makes the version odd, writes the fields, then makes the version even again, and concurrent writers of the
+ * same slot take turns on the version. Readers take no lock: they read the version, the fields and the version again,
+ * and only read the slot again if a write was in progress or happened meanwhile. Readers of a slot never hold up its
+ * writers.
+ * <p>
+ * Prices whose unscaled value does not fit in a {@code long} are not held: their slot is emptied, and readers should
+ * turn to the quote cache.
+ */
+public final class QuoteTable {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    static final int SLOT_SIZE = 32;
+
+    private static final int VERSION = 0;
+    private static final int UNSCALED_PRICE = 8;
+    private static final int AS_OF_MILLIS = 16;
+    private static final int SCALE = 24;
+    private static final int PRESENT = 28;
+
+    /**
+     * A slot read out of the table, meant to be reused from one read to the next.
+     */
+    public static final class Entry {
+
+        private long unscaledPrice;
+        private int priceScale;
+        private long asOfMillis;
+
+        public long unscaledPrice() {
+            return unscaledPrice;
+        }
+
+        public int priceScale() {
+            return priceScale;
+        }
+
+        /**
+         * @return when the price was obtained from the provider, in milliseconds since the epoch.
+         */
+        public long asOfMillis() {
+            return asOfMillis;
+        }
+
+        /**
+         * @return the price, allocated on each call.
+         */
+        public BigDecimal price() {
+            return BigDecimal.valueOf(unscaledPrice, priceScale);
+        }
+    }
+
+    private final int capacity;
+    private final ByteBuffer buffer;
+
+    /**
+     * @param capacity the number of slots, ids from 0 to {@code capacity - 1}.
+     */
+    public QuoteTable(int capacity) {
+        this.capacity = capacity;
+        // Aligned, so that the version can be compared and set atomically
+        this.buffer = ByteBuffer.allocateDirect(capacity * SLOT_SIZE + Long.BYTES - 1).alignedSlice(Long.BYTES);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @param id the id of the ticker.
+     * @param price the price, emptying the slot if its unscaled value does not fit in a {@code long}.
+     * @param asOfMillis when the price was obtained, in milliseconds since the epoch.
+     */
+    public void write(int id, BigDecimal price, long asOfMillis) {
+        if (price.unscaledValue().bitLength() < Long.SIZE) {
+            write(id, price.unscaledValue().longValue(), price.scale(), asOfMillis);
+        } else {
+            clear(id);
+        }
+    }
+
+    public void write(int id, long unscaledPrice, int priceScale, long asOfMillis) {
+        int offset = offset(id);
+        long version = lock(offset);
+        LONGS.setOpaque(buffer, offset + UNSCALED_PRICE, unscaledPrice);
+        LONGS.setOpaque(buffer, offset + AS_OF_MILLIS, asOfMillis);
+        INTS.setOpaque(buffer, offset + SCALE, priceScale);
+        INTS.setOpaque(buffer, offset + PRESENT, 1);
+        LONGS.setRelease(buffer, offset + VERSION, version + 2);
+    }
+
+    /**
+     * Empty the slot of a ticker.
+     */
+    public void clear(int id) {
+        int offset = offset(id);
+        long version = lock(offset);
+        INTS.setOpaque(buffer, offset + PRESENT, 0);
+        LONGS.setRelease(buffer, offset + VERSION, version + 2);
+    }
+
+    /**
+     * Read the slot of a ticker, without allocating.
+     *
+     * @param id the id of the ticker, possibly {@link SymbolDictionary#NO_ID}.
+     * @param into where to read the slot to.
+     * @return whether the slot holds a price; {@code into} is left as is otherwise.
+     */
+    public boolean read(int id, Entry into) {
+        if (id < 0 || id >= capacity) {
+            return false;
+        }
+        int offset = id * SLOT_SIZE;
+        while (true) {
+            long before = (long) LONGS.getAcquire(buffer, offset + VERSION);
+            if ((before & 1) == 0) {
+                long unscaledPrice = (long) LONGS.getOpaque(buffer, offset + UNSCALED_PRICE);
+                long asOfMillis = (long) LONGS.getOpaque(buffer, offset + AS_OF_MILLIS);
+                int priceScale = (int) INTS.getOpaque(buffer, offset + SCALE);
+                int present = (int) INTS.getOpaque(buffer, offset + PRESENT);
+                // The fields are read before the version is read again
+                VarHandle.acquireFence();
+                if ((long) LONGS.getOpaque(buffer, offset + VERSION) == before) {
+                    if (present == 0) {
+                        return false;
+                    }
+                    into.unscaledPrice = unscaledPrice;
+                    into.priceScale = priceScale;
+                    into.asOfMillis = asOfMillis;
+                    return true;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private int offset(int id) {
+        if (id < 0 || id >= capacity) {
+            throw new IndexOutOfBoundsException("No slot " + id + " in a table of " + capacity);
+        }
+        return id * SLOT_SIZE;
+    }
+
+    /**
+     * Take the slot from the other writers by making its version odd.
+     *
+     * @return the even version the slot had.
+     */
+    private long lock(int offset) {
+        while (true) {
+            long version = (long) LONGS.getVolatile(buffer, offset + VERSION);
+            if ((version & 1) == 0 && LONGS.compareAndSet(buffer, offset + VERSION, version, version + 1)) {
+                // The fields are written after the version is made odd
+                VarHandle.storeStoreFence();
+                return version;
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
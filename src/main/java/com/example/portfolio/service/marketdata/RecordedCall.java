@@ -0,0 +1,47 @@
+package com.example.portfolio.service.marketdata;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A provider call as written by {@link RecordingQuoteProvider}, one JSON object per line, and served back by
+ * {@link ReplayQuoteProvider}.
+ *
+ * @param at when the call started, in epoch milliseconds.
+ * @param latencyNanos how long the provider took to answer or fail.
+ * @param call the provider method: {@value #QUOTE}, {@value #QUOTES} or {@value #DAILY_SERIES}.
+ * @param tickers the tickers asked for.
+ * @param prices the quoted prices by ticker, for quote calls that did not fail.
+ * @param bars the daily bars, each as epoch day, open, high, low, close and volume with prices in units of
+ *     {@value PriceSeries#PRICE_SCALE} decimal places, for daily series calls that did not fail.
+ * @param failure the simple class name of the exception the call failed with.
+ * @param message the message of that exception.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record RecordedCall(
+    long at,
+    long latencyNanos,
+    String call,
+    List<String> tickers,
+    Map<String, BigDecimal> prices,
+    List<long[]> bars,
+    String failure,
+    String message
+) {
+    static final String QUOTE = "quote";
+    static final String QUOTES = "quotes";
+    static final String DAILY_SERIES = "daily-series";
+
+    /**
+     * @return the key replayed calls are matched on: the method and the tickers, in any order.
+     */
+    static String key(String call, List<String> tickers) {
+        return call + ":" + String.join(",", tickers.stream().sorted().toList());
+    }
+
+    String key() {
+        return key(call, tickers);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.portfolio.service.marketdata;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link QuoteProvider} passing the calls on to another and appending each of them, with its answer or failure and its
+ * latency, to a recording file that {@link ReplayQuoteProvider} serves back.
+ * <p>
+ * The file is only ever appended to, one JSON line per call, so that several sessions can be recorded into it. A
+ * recording that cannot be written is logged and the call is answered anyway.
+ */
+public class RecordingQuoteProvider implements QuoteProvider, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecordingQuoteProvider.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final QuoteProvider delegate;
+    private final Path file;
+    private final Clock clock;
+
+    // Guarded by this
+    private final Writer writer;
+
+    /**
+     * @throws UncheckedIOException if the file cannot be opened for appending.
+     */
+    public RecordingQuoteProvider(QuoteProvider delegate, Path file) {
+        this(delegate, file, Clock.systemUTC());
+    }
+
+    RecordingQuoteProvider(QuoteProvider delegate, Path file, Clock clock) {
+        this.delegate = delegate;
+        this.file = file;
+        this.clock = clock;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LOG.info("Recording the calls to {} into {}", delegate.getName(), file);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Optional<Quote> fetchQuote(String ticker, RequestPriority priority) {
+        return record(RecordedCall.QUOTE, List.of(ticker), () -> delegate.fetchQuote(ticker, priority), quote -> prices(quote.stream().toList()), null);
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return delegate.supportsBatch();
+    }
+
+    @Override
+    public Map<String, Quote> fetchQuotes(Collection<String> tickers, RequestPriority priority) {
+        return record(
+            RecordedCall.QUOTES,
+            List.copyOf(tickers),
+            () -> delegate.fetchQuotes(tickers, priority),
+            quotes -> prices(quotes.values()),
+            null
+        );
+    }
+
+    @Override
+    public DailySeries fetchDailySeries(String ticker, RequestPriority priority) {
+        return record(RecordedCall.DAILY_SERIES, List.of(ticker), () -> delegate.fetchDailySeries(ticker, priority), null, RecordingQuoteProvider::bars);
+    }
+
+    private <T> T record(
+        String call,
+        List<String> tickers,
+        Supplier<T> fetch,
+        Function<T, Map<String, BigDecimal>> prices,
+        Function<T, List<long[]>> bars
+    ) {
+        long at = clock.millis();
+        long start = System.nanoTime();
+        T answer;
+        try {
+            answer = fetch.get();
+        } catch (RuntimeException e) {
+            append(new RecordedCall(at, System.nanoTime() - start, call, tickers, null, null, e.getClass().getSimpleName(), e.getMessage()));
+            throw e;
+        }
+        long latency = System.nanoTime() - start;
+        append(
+            new RecordedCall(
+                at,
+                latency,
+                call,
+                tickers,
+                prices == null ? null : prices.apply(answer),
+                bars == null ? null : bars.apply(answer),
+                null,
+                null
+            )
+        );
+        return answer;
+    }
+
+    private static Map<String, BigDecimal> prices(Collection<Quote> quotes) {
+        Map<String, BigDecimal> prices = new LinkedHashMap<>();
+        quotes.forEach(quote -> prices.put(quote.ticker(), quote.price()));
+        return prices;
+    }
+
+    private static List<long[]> bars(DailySeries series) {
+        List<long[]> bars = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            bars.add(new long[] { series.epochDay(i), series.open(i), series.high(i), series.low(i), series.close(i), series.volume(i) });
+        }
+        return bars;
+    }
+
+    private synchronized void append(RecordedCall recordedCall) {
+        try {
+            writer.write(OBJECT_MAPPER.writeValueAsString(recordedCall));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            LOG.warn("Unable to record a {} call into {}: {}", recordedCall.call(), file, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to close the recording {}: {}", file, e.getMessage());
+            }
+        }
+        if (delegate instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                LOG.warn("Unable to close {}: {}", delegate.getName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.portfolio.service.marketdata;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Per-ticker refresh intervals, chosen from how often each ticker is read and how fast its price moves, and a queue of
+ * the tickers ordered by when they are due.
+ * <p>
+ * A ticker's price is modelled as a random walk: from the moves between successive quotes, an exponentially weighted
+ * average of the absolute log-return per square root of a minute gives how long the price takes to drift by the
+ * tolerated amount, {@code (tolerance / volatility)²} minutes. That time is divided by {@code log2(2 + reads)}, so
+ * the most read tickers are refreshed sooner, and bounded by the configured intervals. Tickers nobody reads get the
+ * longest interval, tickers without a known volatility the shortest, until their moves are seen.
+ * <p>
+ * Tickers are taken off the queue when due and must be put back with {@link #reschedule} or {@link #retry}. The
+ * methods are synchronized: the refresher and the status endpoint may call them concurrently.
+ */
+public class RefreshSchedule {
+
+    /**
+     * Weight of the latest move in the volatility average.
+     */
+    private static final double VOLATILITY_SMOOTHING = 0.2;
+
+    /**
+     * Refresh state of a ticker.
+     *
+     * @param ticker the normalized ticker.
+     * @param reads the read count the interval was chosen with.
+     * @param volatility the average absolute log-return per square root of a minute, {@code NaN} until two quotes are
+     * seen.
+     * @param interval the chosen interval.
+     * @param nextRefresh when the ticker is due, {@code null} while it is being refreshed.
+     * @param lastQuoteAt the time of the last quote seen.
+     */
+    public record TickerRefresh(String ticker, long reads, double volatility, Duration interval, Instant nextRefresh, Instant lastQuoteAt) {}
+
+    private static final class Entry {
+
+        final String ticker;
+        long reads;
+        double volatility = Double.NaN;
+        Duration interval;
+        Instant nextRefresh;
+        BigDecimal lastPrice;
+        Instant lastQuoteAt;
+        boolean queued;
+        boolean removed;
+
+        Entry(String ticker) {
+            this.ticker = ticker;
+        }
+    }
+
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final double driftTolerance;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    // Due time first, then the most read; an entry's keys only change while it is off the queue
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(
+        Comparator.comparing((Entry entry) -> entry.nextRefresh)
+            .thenComparing(Comparator.comparingLong((Entry entry) -> entry.reads).reversed())
+            .thenComparing(entry -> entry.ticker)
+    );
+
+    /**
+     * @param minInterval the shortest interval.
+     * @param maxInterval the longest interval.
+     * @param driftTolerance the price move, as a fraction, a quote may lag behind by.
+     */
+    public RefreshSchedule(Duration minInterval, Duration maxInterval, double driftTolerance) {
+        if (minInterval.compareTo(maxInterval) > 0) {
+            throw new IllegalArgumentException("Minimum interval " + minInterval + " is longer than maximum interval " + maxInterval);
+        }
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.driftTolerance = driftTolerance;
+    }
+
+    /**
+     * Make the schedule follow a set of tickers: new tickers, and tracked ones missing from the queue, are due at once;
+     * tickers no longer in the set are dropped.
+     *
+     * @param tickers the normalized tickers to refresh.
+     * @param readCounts the read count of a ticker.
+     * @param now the current time.
+     */
+    public synchronized void track(Collection<String> tickers, ToLongFunction<String> readCounts, Instant now) {
+        Set<String> tracked = new HashSet<>(tickers);
+        entries
+            .values()
+            .removeIf(entry -> {
+                entry.removed = !tracked.contains(entry.ticker);
+                return entry.removed;
+            });
+        for (String ticker : tracked) {
+            Entry entry = entries.computeIfAbsent(ticker, Entry::new);
+            if (!entry.queued) {
+                entry.reads = readCounts.applyAsLong(ticker);
+                entry.nextRefresh = now;
+                enqueue(entry);
+            }
+        }
+    }
+
+    /**
+     * Take the tickers due, the most overdue first.
+     *
+     * @param now the current time.
+     * @param max the maximum number of tickers to take.
+     * @return the tickers due, off the queue until rescheduled.
+     */
+    public synchronized List<String> pollDue(Instant now, int max) {
+        List<String> due = new ArrayList<>();
+        while (due.size() < max && !queue.isEmpty() && !queue.peek().nextRefresh.isAfter(now)) {
+            Entry entry = queue.poll();
+            entry.queued = false;
+            if (!entry.removed) {
+                entry.nextRefresh = null;
+                due.add(entry.ticker);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Record a quote of a tracked ticker, updating its volatility if the quote is newer than the last one seen.
+     */
+    public synchronized void observe(String ticker, BigDecimal price, Instant asOf) {
+        Entry entry = entries.get(ticker);
+        if (entry == null || price.signum() <= 0 || (entry.lastQuoteAt != null && !asOf.isAfter(entry.lastQuoteAt))) {
+            return;
+        }
+        if (entry.lastPrice != null) {
+            double minutes = Math.max(1, Duration.between(entry.lastQuoteAt, asOf).toMillis() / 60_000d);
+            double move = Math.abs(Math.log(price.doubleValue() / entry.lastPrice.doubleValue())) / Math.sqrt(minutes);
+            entry.volatility = Double.isNaN(entry.volatility)
+                ? move
+                : VOLATILITY_SMOOTHING * move + (1 - VOLATILITY_SMOOTHING) * entry.volatility;
+        }
+        entry.lastPrice = price;
+        entry.lastQuoteAt = asOf;
+    }
+
+    /**
+     * Put a ticker taken off the queue back, due after its interval chosen anew.
+     *
+     * @param ticker the ticker.
+     * @param reads its current read count.
+     * @param from when the interval starts, usually the time of its last quote.
+     * @return the chosen interval.
+     */
+    public synchronized Duration reschedule(String ticker, long reads, Instant from) {
+        Entry entry = entries.get(ticker);
+        if (entry == null) {
+            return maxInterval;
+        }
+        entry.reads = reads;
+        entry.interval = interval(reads, entry.volatility);
+        entry.nextRefresh = from.plus(entry.interval);
+        enqueue(entry);
+        return entry.interval;
+    }
+
+    /**
+     * Put a ticker that could not be refreshed back, due after the shortest interval.
+     */
+    public synchronized void retry(String ticker, Instant now) {
+        Entry entry = entries.get(ticker);
+        if (entry != null) {
+            entry.nextRefresh = now.plus(minInterval);
+            enqueue(entry);
+        }
+    }
+
+    /**
+     * @return the state of every tracked ticker, the soonest due first.
+     */
+    public synchronized List<TickerRefresh> snapshot() {
+        List<TickerRefresh> tickers = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            tickers.add(new TickerRefresh(entry.ticker, entry.reads, entry.volatility, entry.interval, entry.nextRefresh, entry.lastQuoteAt));
+        }
+        tickers.sort(Comparator.comparing(TickerRefresh::nextRefresh, Comparator.nullsFirst(Comparator.<Instant>naturalOrder())));
+        return tickers;
+    }
+
+    Duration interval(long reads, double volatility) {
+        if (reads <= 0) {
+            return maxInterval;
+        }
+        if (Double.isNaN(volatility)) {
+            return minInterval;
+        }
+        double driftMinutes = volatility == 0 ? Double.POSITIVE_INFINITY : Math.pow(driftTolerance / volatility, 2);
+        double minutes = driftMinutes / (Math.log(2 + reads) / Math.log(2));
+        if (!(minutes * 60_000 < maxInterval.toMillis())) {
+            return maxInterval;
+        }
+        Duration interval = Duration.ofMillis((long) (minutes * 60_000));
+        return interval.compareTo(minInterval) < 0 ? minInterval : interval;
+    }
+
+    private void enqueue(Entry entry) {
+        entry.queued = true;
+        queue.add(entry);
+    }
+}
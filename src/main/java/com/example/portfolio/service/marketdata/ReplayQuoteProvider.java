@@ -0,0 +1,145 @@
+package com.example.portfolio.service.marketdata;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link QuoteProvider} serving back the calls recorded by {@link RecordingQuoteProvider}, without any network access.
+ * <p>
+ * A call is answered by the next recording of the same method for the same tickers, starting over once they have all
+ * been served, and takes the recorded latency divided by the replay speed: 1 replays at the original speed, 10 ten
+ * times faster and 0 without waiting. A batch of quotes never recorded as such is answered ticker by ticker. A call
+ * with no recording fails like a provider that could not be queried.
+ */
+public class ReplayQuoteProvider implements QuoteProvider {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplayQuoteProvider.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String name;
+    private final double speed;
+    private final Map<String, List<RecordedCall>> recordings = new HashMap<>();
+    private final Map<String, AtomicInteger> cursors = new HashMap<>();
+    private final boolean batches;
+
+    /**
+     * @param name the name of the recorded provider.
+     * @param speed how many times faster than recorded the calls are answered, 0 for no delay at all.
+     * @throws UncheckedIOException if the recording cannot be read.
+     */
+    public ReplayQuoteProvider(String name, Path file, double speed) {
+        this.name = name;
+        this.speed = speed;
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    RecordedCall recordedCall = OBJECT_MAPPER.readValue(line, RecordedCall.class);
+                    recordings.computeIfAbsent(recordedCall.key(), key -> new ArrayList<>()).add(recordedCall);
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recordings.keySet().forEach(key -> cursors.put(key, new AtomicInteger()));
+        this.batches = recordings.keySet().stream().anyMatch(key -> key.startsWith(RecordedCall.QUOTES + ":"));
+        LOG.info("Replaying {} recorded calls to {} from {} at speed {}", count, name, file, speed);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Optional<Quote> fetchQuote(String ticker, RequestPriority priority) {
+        RecordedCall recordedCall = replay(RecordedCall.QUOTE, List.of(ticker));
+        return Optional.ofNullable(recordedCall.prices().get(ticker)).map(price -> new Quote(ticker, price, Instant.now(), false));
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return batches;
+    }
+
+    @Override
+    public Map<String, Quote> fetchQuotes(Collection<String> tickers, RequestPriority priority) {
+        List<String> symbols = List.copyOf(tickers);
+        if (!recordings.containsKey(RecordedCall.key(RecordedCall.QUOTES, symbols))) {
+            return QuoteProvider.super.fetchQuotes(tickers, priority);
+        }
+        RecordedCall recordedCall = replay(RecordedCall.QUOTES, symbols);
+        Instant now = Instant.now();
+        Map<String, Quote> quotes = new LinkedHashMap<>();
+        for (Map.Entry<String, BigDecimal> price : recordedCall.prices().entrySet()) {
+            quotes.put(price.getKey(), new Quote(price.getKey(), price.getValue(), now, false));
+        }
+        return quotes;
+    }
+
+    @Override
+    public DailySeries fetchDailySeries(String ticker, RequestPriority priority) {
+        RecordedCall recordedCall = replay(RecordedCall.DAILY_SERIES, List.of(ticker));
+        DailySeries.Builder series = DailySeries.builder(recordedCall.bars().size());
+        for (long[] bar : recordedCall.bars()) {
+            series.add(bar[0], bar[1], bar[2], bar[3], bar[4], bar[5]);
+        }
+        return series.build();
+    }
+
+    /**
+     * Wait for the latency of the next recording of the call, then throw its failure if it failed.
+     */
+    private RecordedCall replay(String call, List<String> tickers) {
+        String key = RecordedCall.key(call, tickers);
+        List<RecordedCall> calls = recordings.get(key);
+        if (calls == null) {
+            throw new MarketDataException("No recorded " + call + " call for " + String.join(",", tickers));
+        }
+        RecordedCall recordedCall = calls.get(Math.floorMod(cursors.get(key).getAndIncrement(), calls.size()));
+        if (speed > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep((long) (recordedCall.latencyNanos() / speed));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MarketDataException("Interrupted while replaying " + name);
+            }
+        }
+        if (recordedCall.failure() != null) {
+            throw failure(recordedCall);
+        }
+        return recordedCall;
+    }
+
+    private static MarketDataException failure(RecordedCall recordedCall) {
+        String message = recordedCall.message();
+        if (QuotaExceededException.class.getSimpleName().equals(recordedCall.failure())) {
+            return new QuotaExceededException(message);
+        }
+        if (CallNotPermittedException.class.getSimpleName().equals(recordedCall.failure())) {
+            return new CallNotPermittedException(message);
+        }
+        return new MarketDataException(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.portfolio.service.marketdata;
+
+/**
+ * Priority of a market data request when competing for a provider's call budget.
+ */
+public enum RequestPriority {
+    /** A request a user is waiting for. */
+    INTERACTIVE,
+    /** A refresh nobody is waiting for, served only with budget interactive requests do not need. */
+    BACKGROUND,
+}
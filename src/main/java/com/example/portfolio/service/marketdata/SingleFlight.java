@@ -0,0 +1,106 @@
+package com.example.portfolio.service.marketdata;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * De-duplicates concurrent calls for the same key: while a call for a key is in flight, further callers for that key
+ * wait for and share its result instead of starting their own.
+ *
+ * @param <K> the key type.
+ * @param <V> the result type.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Consumer<K> coalescedListener;
+
+    /**
+     * @param coalescedListener notified with the key each time a caller joins a call already in flight.
+     */
+    public SingleFlight(Consumer<K> coalescedListener) {
+        this.coalescedListener = coalescedListener;
+    }
+
+    /**
+     * Run {@code loader} on the calling thread unless a call for {@code key} is already in flight, in which case wait for
+     * that call and return its result.
+     *
+     * @throws RuntimeException whatever the shared call threw.
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalescedListener.accept(key);
+            return join(existing);
+        }
+        run(key, call, loader);
+        return join(call);
+    }
+
+    /**
+     * Run {@code loader} on {@code executor} unless a call for {@code key} is already in flight, in which case the
+     * in-flight call is returned.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<V> loader, Executor executor) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalescedListener.accept(key);
+            return existing;
+        }
+        try {
+            executor.execute(() -> run(key, call, loader));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+        }
+        return call;
+    }
+
+    /**
+     * @return whether a call for the key is in flight.
+     */
+    public boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * @return the number of keys with a call currently in flight.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private void run(K key, CompletableFuture<V> call, Supplier<V> loader) {
+        try {
+            call.complete(loader.get());
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
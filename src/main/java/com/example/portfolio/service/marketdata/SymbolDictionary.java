@@ -0,0 +1,80 @@
+package com.example.portfolio.service.marketdata;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Interns tickers to dense {@code int} ids, 0 for the first ticker seen, 1 for the next and so on, so that per-ticker
+ * data can live in arrays and off-heap tables indexed by id rather than in maps keyed by {@code String}.
+ * <p>
+ * Ids are never reused: a ticker keeps its id for the lifetime of the dictionary, and once {@code capacity} tickers are
+ * interned, further ones get none. Looking up an id does not allocate.
+ */
+public final class SymbolDictionary {
+
+    /**
+     * Id of a ticker that is not in the dictionary.
+     */
+    public static final int NO_ID = -1;
+
+    private final int capacity;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> symbols;
+
+    // Guarded by this for writes
+    private volatile int size;
+
+    public SymbolDictionary(int capacity) {
+        this.capacity = capacity;
+        this.symbols = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * @param symbol the normalized ticker.
+     * @return the id of the ticker, given one if it had none, or {@link #NO_ID} if the dictionary is full.
+     */
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(symbol);
+            if (id != null) {
+                return id;
+            }
+            if (size == capacity) {
+                return NO_ID;
+            }
+            // The symbol is readable by id before the id is handed out
+            symbols.set(size, symbol);
+            ids.put(symbol, size);
+            return size++;
+        }
+    }
+
+    /**
+     * @param symbol the normalized ticker.
+     * @return the id of the ticker, or {@link #NO_ID} if it was never interned.
+     */
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : NO_ID;
+    }
+
+    /**
+     * @return the ticker of an id handed out by {@link #intern(String)}.
+     */
+    public String symbol(int id) {
+        return symbols.get(id);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.portfolio.service.marketdata;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming parser of Alpha Vantage {@code TIME_SERIES_DAILY} responses into a {@link DailySeries}.
+ * <p>
+ * The response is read token by token straight from the HTTP stream: dates and prices are decoded from the parser's
+ * character buffer without building a {@code String}, a {@code BigDecimal} or a {@code JsonNode} per value, so the
+ * only allocations are the series columns. A full history of 6,000 bars would otherwise make tens of megabytes of
+ * garbage per call.
+ */
+final class TimeSeriesDailyParser {
+
+    static final String TIME_SERIES_FIELD = "Time Series (Daily)";
+
+    private static final int OPEN = 0;
+    private static final int HIGH = 1;
+    private static final int LOW = 2;
+    private static final int CLOSE = 3;
+    private static final int VOLUME = 4;
+
+    /**
+     * The series when the response has one, or the message explaining why the call was rejected.
+     *
+     * @param series the bars, empty if the response has none.
+     * @param rejection the {@code Note}, {@code Information} or {@code Error Message} of the response, {@code null} if none.
+     * @param limitReached whether the rejection is about the API call limit.
+     */
+    record Result(DailySeries series, String rejection, boolean limitReached) {}
+
+    private TimeSeriesDailyParser() {}
+
+    /**
+     * Parse a response; the stream is read up to the end of the top-level object but not closed.
+     *
+     * @throws JsonParseException if the response is not a well-formed time series.
+     * @throws IOException if the stream could not be read.
+     */
+    static Result parse(JsonFactory jsonFactory, InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            DailySeries series = DailySeries.empty();
+            String rejection = null;
+            boolean limitReached = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (TIME_SERIES_FIELD.equals(field) && value == JsonToken.START_OBJECT) {
+                    series = parseSeries(parser);
+                } else if (("Note".equals(field) || "Information".equals(field)) && value.isScalarValue()) {
+                    rejection = parser.getText();
+                    limitReached = true;
+                } else if ("Error Message".equals(field) && value.isScalarValue()) {
+                    rejection = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new Result(series, rejection, limitReached);
+        }
+    }
+
+    private static DailySeries parseSeries(JsonParser parser) throws IOException {
+        // The compact output size has 100 bars
+        DailySeries.Builder series = DailySeries.builder(100);
+        long[] bar = new long[5];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            long epochDay = parseEpochDay(parser);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected the bar of " + parser.currentName());
+            }
+            int seen = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int column = column(parser);
+                JsonToken value = parser.nextToken();
+                if (column < 0) {
+                    parser.skipChildren();
+                } else if (value.isScalarValue()) {
+                    bar[column] = column == VOLUME ? parseLong(parser) : parseUnits(parser);
+                    seen |= 1 << column;
+                } else {
+                    throw new JsonParseException(parser, "Expected a number");
+                }
+            }
+            if (seen != 0b11111) {
+                throw new JsonParseException(parser, "Incomplete bar");
+            }
+            series.add(epochDay, bar[OPEN], bar[HIGH], bar[LOW], bar[CLOSE], bar[VOLUME]);
+        }
+        return series.build();
+    }
+
+    /**
+     * @return the column of the current field, from the digit before the dot of {@code "1. open"} to {@code "5. volume"};
+     * -1 for any other field.
+     */
+    private static int column(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if (length < 3 || chars[offset + 1] != '.' || chars[offset] < '1' || chars[offset] > '5') {
+            return -1;
+        }
+        return chars[offset] - '1';
+    }
+
+    /**
+     * @return the epoch day of the current {@code yyyy-MM-dd} field name.
+     */
+    private static long parseEpochDay(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        if (parser.getTextLength() != 10 || chars[offset + 4] != '-' || chars[offset + 7] != '-') {
+            throw new JsonParseException(parser, "Expected a yyyy-MM-dd date");
+        }
+        int year = digits(parser, chars, offset, 4);
+        int month = digits(parser, chars, offset + 5, 2);
+        int day = digits(parser, chars, offset + 8, 2);
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            throw new JsonParseException(parser, "Expected a yyyy-MM-dd date");
+        }
+        return epochDay(year, month, day);
+    }
+
+    /**
+     * @return the days between 1970-01-01 and a date of the proleptic Gregorian calendar, like
+     * {@code LocalDate.of(year, month, day).toEpochDay()} without the object.
+     */
+    static long epochDay(int year, int month, int day) {
+        // Years start in March, so that the leap day is the last day of the year
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468;
+    }
+
+    /**
+     * @return the current value as units of {@value PriceSeries#PRICE_SCALE} decimal places, rounded half up beyond.
+     */
+    private static long parseUnits(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int end = offset + parser.getTextLength();
+        int i = offset;
+        boolean negative = i < end && chars[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long units = 0;
+        int decimals = -1;
+        boolean anyDigit = false;
+        boolean roundUp = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (decimals < PriceSeries.PRICE_SCALE) {
+                    units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                    if (decimals >= 0) {
+                        decimals++;
+                    }
+                } else if (decimals == PriceSeries.PRICE_SCALE) {
+                    roundUp = c >= '5';
+                    decimals++;
+                }
+            } else {
+                throw new JsonParseException(parser, "Expected a decimal number");
+            }
+        }
+        if (!anyDigit) {
+            throw new JsonParseException(parser, "Expected a decimal number");
+        }
+        for (int scale = Math.max(decimals, 0); scale < PriceSeries.PRICE_SCALE; scale++) {
+            units = Math.multiplyExact(units, 10);
+        }
+        if (roundUp) {
+            units = Math.addExact(units, 1);
+        }
+        return negative ? -units : units;
+    }
+
+    private static long parseLong(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if (length == 0) {
+            throw new JsonParseException(parser, "Expected an integer");
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                throw new JsonParseException(parser, "Expected an integer");
+            }
+            value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+        }
+        return value;
+    }
+
+    private static int digits(JsonParser parser, char[] chars, int offset, int count) throws JsonParseException {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                throw new JsonParseException(parser, "Expected a yyyy-MM-dd date");
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.portfolio.service.marketdata;
+
+import com.example.portfolio.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Enforces a provider's per-minute and per-day call budgets.
+ * <p>
+ * The per-minute budget is a token bucket refilled continuously, the per-day budget a counter reset at midnight.
+ * Callers waiting for a token are served in {@link RequestPriority} order, and background callers may not use the
+ * share of the daily budget reserved for interactive requests.
+ */
+public class TokenBucketRateLimiter {
+
+    public static final String QUOTA_USED_METER_NAME = "market-data.quota.used";
+    public static final String QUOTA_LIMIT_METER_NAME = "market-data.quota.limit";
+    public static final String QUOTA_REJECTED_METER_NAME = "market-data.quota.rejected";
+
+    private static final String WINDOW_MINUTE = "minute";
+    private static final String WINDOW_DAY = "day";
+
+    private record Waiter(RequestPriority priority, long sequence) {}
+
+    private final String providerName;
+    private final long requestsPerMinute;
+    private final long requestsPerDay;
+    private final long backgroundRequestsPerDay;
+    private final Map<RequestPriority, Duration> maxWaits = new EnumMap<>(RequestPriority.class);
+    private final Clock clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+        Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence)
+    );
+    private long sequence;
+    private double tokens;
+    private long lastRefillMillis;
+    private LocalDate day;
+    private long usedToday;
+
+    private final Map<RequestPriority, Counter> minuteRejections = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Counter> dayRejections = new EnumMap<>(RequestPriority.class);
+
+    public TokenBucketRateLimiter(String providerName, ApplicationProperties.MarketData.RateLimit rateLimit, MeterRegistry meterRegistry) {
+        this(providerName, rateLimit, meterRegistry, Clock.systemUTC());
+    }
+
+    TokenBucketRateLimiter(String providerName, ApplicationProperties.MarketData.RateLimit rateLimit, MeterRegistry meterRegistry, Clock clock) {
+        this.providerName = providerName;
+        this.requestsPerMinute = rateLimit.getRequestsPerMinute();
+        this.requestsPerDay = rateLimit.getRequestsPerDay();
+        this.backgroundRequestsPerDay = requestsPerDay * (100 - rateLimit.getInteractiveReservePercent()) / 100;
+        this.maxWaits.put(RequestPriority.INTERACTIVE, Duration.ofMillis(rateLimit.getInteractiveMaxWaitMillis()));
+        this.maxWaits.put(RequestPriority.BACKGROUND, Duration.ofMillis(rateLimit.getBackgroundMaxWaitMillis()));
+        this.clock = clock;
+        this.tokens = requestsPerMinute;
+        this.lastRefillMillis = clock.millis();
+        this.day = LocalDate.now(clock);
+
+        Gauge.builder(QUOTA_USED_METER_NAME, this, TokenBucketRateLimiter::usedThisMinute)
+            .description("Provider calls used in the current window.")
+            .tags("provider", providerName, "window", WINDOW_MINUTE)
+            .register(meterRegistry);
+        Gauge.builder(QUOTA_USED_METER_NAME, this, TokenBucketRateLimiter::usedToday)
+            .description("Provider calls used in the current window.")
+            .tags("provider", providerName, "window", WINDOW_DAY)
+            .register(meterRegistry);
+        Gauge.builder(QUOTA_LIMIT_METER_NAME, () -> requestsPerMinute)
+            .description("Provider calls allowed per window.")
+            .tags("provider", providerName, "window", WINDOW_MINUTE)
+            .register(meterRegistry);
+        Gauge.builder(QUOTA_LIMIT_METER_NAME, () -> requestsPerDay)
+            .description("Provider calls allowed per window.")
+            .tags("provider", providerName, "window", WINDOW_DAY)
+            .register(meterRegistry);
+        for (RequestPriority priority : RequestPriority.values()) {
+            minuteRejections.put(priority, rejectionCounter(meterRegistry, priority, WINDOW_MINUTE));
+            dayRejections.put(priority, rejectionCounter(meterRegistry, priority, WINDOW_DAY));
+        }
+    }
+
+    private Counter rejectionCounter(MeterRegistry meterRegistry, RequestPriority priority, String window) {
+        return Counter.builder(QUOTA_REJECTED_METER_NAME)
+            .description("Provider calls refused because the budget of the window was spent.")
+            .tags("provider", providerName, "priority", priority.name().toLowerCase(Locale.ROOT), "window", window)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Take one call from the budget, waiting up to the configured maximum for the priority if the per-minute budget is
+     * momentarily spent.
+     *
+     * @throws QuotaExceededException if no call could be granted in time.
+     */
+    public void acquire(RequestPriority priority) {
+        long deadline = System.nanoTime() + maxWaits.get(priority).toNanos();
+        lock.lock();
+        Waiter waiter = new Waiter(priority, sequence++);
+        waiters.add(waiter);
+        try {
+            while (true) {
+                refill();
+                if (!withinDailyBudget(priority)) {
+                    dayRejections.get(priority).increment();
+                    throw new QuotaExceededException("Daily call budget of " + providerName + " is spent");
+                }
+                boolean first = waiters.peek() == waiter;
+                if (first && (requestsPerMinute <= 0 || tokens >= 1)) {
+                    tokens -= 1;
+                    usedToday++;
+                    return;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    minuteRejections.get(priority).increment();
+                    throw new QuotaExceededException("Per-minute call budget of " + providerName + " is spent");
+                }
+                changed.awaitNanos(first ? Math.min(remaining, nanosUntilNextToken()) : remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            minuteRejections.get(priority).increment();
+            throw new QuotaExceededException("Interrupted while waiting for the call budget of " + providerName);
+        } finally {
+            waiters.remove(waiter);
+            changed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give back a call taken by {@link #acquire(RequestPriority)} that was not made after all.
+     */
+    public void refund() {
+        lock.lock();
+        try {
+            refill();
+            if (requestsPerMinute > 0) {
+                tokens = Math.min(requestsPerMinute, tokens + 1);
+            }
+            usedToday = Math.max(0, usedToday - 1);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Empty the per-minute bucket, for when the upstream reports its limit was reached before ours.
+     */
+    public void drain() {
+        lock.lock();
+        try {
+            refill();
+            tokens = Math.min(tokens, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double usedThisMinute() {
+        lock.lock();
+        try {
+            refill();
+            return Math.max(0, requestsPerMinute - tokens);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long usedToday() {
+        lock.lock();
+        try {
+            refill();
+            return usedToday;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean withinDailyBudget(RequestPriority priority) {
+        if (requestsPerDay <= 0) {
+            return true;
+        }
+        return usedToday < (priority == RequestPriority.INTERACTIVE ? requestsPerDay : backgroundRequestsPerDay);
+    }
+
+    private void refill() {
+        long now = clock.millis();
+        if (requestsPerMinute > 0 && now > lastRefillMillis) {
+            tokens = Math.min(requestsPerMinute, tokens + ((now - lastRefillMillis) * requestsPerMinute) / 60_000d);
+        }
+        lastRefillMillis = Math.max(lastRefillMillis, now);
+        LocalDate today = LocalDate.now(clock);
+        if (!today.equals(day)) {
+            day = today;
+            usedToday = 0;
+        }
+    }
+
+    private long nanosUntilNextToken() {
+        double missing = 1 - tokens;
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) (missing * TimeUnit.MINUTES.toNanos(1) / requestsPerMinute));
+    }
+}
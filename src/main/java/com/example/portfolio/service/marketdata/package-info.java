@@ -0,0 +1,4 @@
+/**
+ * Market data access: quote providers, caching and related infrastructure.
+ */
+package com.example.portfolio.service.marketdata;
@@ -0,0 +1,356 @@
+package com.example.portfolio.service.stream;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.domain.Asset;
+import com.example.portfolio.repository.AssetRepository;
+import com.example.portfolio.repository.PortfolioRepository;
+import com.example.portfolio.service.StockDataService;
+import com.example.portfolio.service.dto.HoldingMetrics;
+import com.example.portfolio.service.dto.PortfolioValuationDelta;
+import com.example.portfolio.service.marketdata.PriceChangedEvent;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import com.example.portfolio.service.marketdata.QuoteFetchExecutors;
+import com.example.portfolio.service.marketdata.QuotePrices;
+import com.example.portfolio.service.valuation.Holding;
+import com.example.portfolio.service.valuation.HoldingChangedEvent;
+import com.example.portfolio.service.valuation.HoldingsCalculator;
+import com.example.portfolio.service.valuation.HoldingsIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Pushes the valuation of the portfolios each subscriber watches as deltas: the holdings that changed and the new
+ * totals.
+ * <p>
+ * A subscriber first gets every holding, then an update whenever the price of a held ticker changes in the quote cache
+ * or a holding is written. The {@link HoldingsIndex} tells which portfolios hold a ticker, so a price change only
+ * touches the watched ones among them. The changes of a portfolio are gathered for
+ * {@code application.market-data.stream.valuation-coalesce-millis}, so that a burst of ticks produces a single update.
+ */
+@Service
+public class PortfolioStreamService implements DisposableBean {
+
+    public static final String SUBSCRIBERS_METER_NAME = "portfolio.stream.subscribers";
+    public static final String PUSHED_METER_NAME = "portfolio.stream.pushed";
+    public static final String COALESCED_METER_NAME = "portfolio.stream.coalesced";
+    public static final String EVICTED_METER_NAME = "portfolio.stream.evicted";
+
+    private final AssetRepository assetRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final StockDataService stockDataService;
+    private final QuoteCache quoteCache;
+    private final HoldingsIndex holdingsIndex;
+    private final int bufferSize;
+    private final long coalesceMillis;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService flusher;
+    private final StreamSendWatchdog watchdog;
+    private final Map<Long, PortfolioWatch> watches = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter pushedCounter;
+    private final Counter coalescedCounter;
+    private final Counter evictedCounter;
+
+    public PortfolioStreamService(
+        AssetRepository assetRepository,
+        PortfolioRepository portfolioRepository,
+        StockDataService stockDataService,
+        QuoteCache quoteCache,
+        HoldingsIndex holdingsIndex,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.MarketData.Stream stream = applicationProperties.getMarketData().getStream();
+        this.assetRepository = assetRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.stockDataService = stockDataService;
+        this.quoteCache = quoteCache;
+        this.holdingsIndex = holdingsIndex;
+        this.bufferSize = stream.getBufferSize();
+        this.coalesceMillis = stream.getValuationCoalesceMillis();
+        this.senders = QuoteFetchExecutors.create(stream.getSenderThreads(), "portfolio-stream-");
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("portfolio-stream-flush-"));
+        this.watchdog = new StreamSendWatchdog(stream.getSendTimeoutMillis(), "portfolio-stream-watchdog-");
+        Gauge.builder(SUBSCRIBERS_METER_NAME, subscribers, AtomicInteger::get)
+            .description("Connections streaming portfolio valuations.")
+            .register(meterRegistry);
+        this.pushedCounter = Counter.builder(PUSHED_METER_NAME)
+            .description("Valuation updates queued for streaming connections.")
+            .register(meterRegistry);
+        this.coalescedCounter = Counter.builder(COALESCED_METER_NAME)
+            .description("Changes folded into a valuation update that was already pending.")
+            .register(meterRegistry);
+        this.evictedCounter = Counter.builder(EVICTED_METER_NAME)
+            .description("Streaming connections closed because they could not keep up with the valuation updates.")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Subscribe a connection to the valuation of a portfolio, starting with all of its holdings at current prices.
+     *
+     * @return the subscriber, to be closed when the connection ends.
+     */
+    public StreamSubscriber<PortfolioValuationDelta> subscribe(Long portfolioId, StreamSubscriber.Sink<PortfolioValuationDelta> sink) {
+        if (!portfolioRepository.existsById(portfolioId)) {
+            throw new RuntimeException("Portfolio not found");
+        }
+        StreamSubscriber<PortfolioValuationDelta> subscriber = new StreamSubscriber<>(sink, bufferSize, senders, watchdog, closed ->
+            unsubscribe(portfolioId, closed)
+        );
+        subscribers.incrementAndGet();
+        PortfolioWatch watch = watches.compute(portfolioId, (key, existing) -> {
+            PortfolioWatch portfolioWatch = existing != null ? existing : new PortfolioWatch(portfolioId);
+            portfolioWatch.subscribers.add(subscriber);
+            return portfolioWatch;
+        });
+        try {
+            watch.load();
+        } catch (RuntimeException e) {
+            subscriber.close();
+            throw e;
+        }
+        if (subscriber.offer(watch.snapshot())) {
+            pushedCounter.increment();
+        }
+        return subscriber;
+    }
+
+    private void unsubscribe(Long portfolioId, StreamSubscriber<PortfolioValuationDelta> subscriber) {
+        watches.computeIfPresent(portfolioId, (key, watch) -> {
+            watch.subscribers.remove(subscriber);
+            return watch.subscribers.isEmpty() ? null : watch;
+        });
+        subscribers.decrementAndGet();
+        if (subscriber.isEvicted()) {
+            evictedCounter.increment();
+        }
+    }
+
+    @EventListener
+    public void onPriceChanged(PriceChangedEvent event) {
+        if (watches.isEmpty()) {
+            return;
+        }
+        holdingsIndex.forEachHolder(event.ticker(), (portfolioId, quantity) -> {
+            PortfolioWatch watch = watches.get(portfolioId);
+            if (watch != null) {
+                watch.priceChanged(event.ticker(), event.quote());
+            }
+        });
+    }
+
+    /**
+     * Apply an asset write to the watched portfolio once its transaction has committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHoldingChanged(HoldingChangedEvent event) {
+        Set<Long> portfolioIds = new LinkedHashSet<>();
+        for (Holding holding : new Holding[] { event.before(), event.after() }) {
+            if (holding != null) {
+                portfolioIds.add(holding.portfolioId());
+            }
+        }
+        for (Long portfolioId : portfolioIds) {
+            PortfolioWatch watch = watches.get(portfolioId);
+            if (watch != null) {
+                watch.holdingChanged(event);
+            }
+        }
+    }
+
+    /**
+     * @return the ids of the portfolios with at least one subscriber.
+     */
+    public Set<Long> watchedPortfolioIds() {
+        return Set.copyOf(watches.keySet());
+    }
+
+    @Override
+    public void destroy() {
+        flusher.shutdownNow();
+        senders.shutdownNow();
+        watchdog.shutdown();
+    }
+
+    /**
+     * The holdings of a watched portfolio, the last price of each held ticker and what changed since the last update.
+     */
+    private final class PortfolioWatch {
+
+        private final Long portfolioId;
+        private final Set<StreamSubscriber<PortfolioValuationDelta>> subscribers = ConcurrentHashMap.newKeySet();
+
+        // Only the first subscriber loads the holdings; the others wait for it
+        private final Object loading = new Object();
+
+        // Guarded by this
+        private final List<Holding> holdings = new ArrayList<>();
+        private final Map<String, Quote> quotes = new HashMap<>();
+        private final Set<String> changedTickers = new LinkedHashSet<>();
+        private boolean loaded;
+        private boolean changedDuringLoad;
+        private boolean flushScheduled;
+
+        PortfolioWatch(Long portfolioId) {
+            this.portfolioId = portfolioId;
+        }
+
+        void load() {
+            synchronized (loading) {
+                synchronized (this) {
+                    if (loaded) {
+                        return;
+                    }
+                }
+                while (true) {
+                    synchronized (this) {
+                        changedDuringLoad = false;
+                    }
+                    // Outside of the lock, so that price changes are not held up by the fetch
+                    List<Holding> portfolioHoldings = new ArrayList<>();
+                    for (Asset asset : assetRepository.findAllByPortfolioId(portfolioId)) {
+                        portfolioHoldings.add(
+                            new Holding(portfolioId, Quote.normalizeTicker(asset.getTicker()), asset.getQuantity(), asset.getAvgPrice())
+                        );
+                    }
+                    QuotePrices current = stockDataService.getValuationPrices(
+                        portfolioHoldings.stream().map(Holding::ticker).distinct().toList()
+                    );
+                    synchronized (this) {
+                        if (changedDuringLoad) {
+                            // The holdings may have been read before the change was committed: read them again
+                            continue;
+                        }
+                        holdings.addAll(portfolioHoldings);
+                        // A price change that arrived during the fetch is newer
+                        for (int index = 0; index < current.size(); index++) {
+                            if (!quotes.containsKey(current.ticker(index))) {
+                                quotes.put(current.ticker(index), current.quote(index));
+                            }
+                        }
+                        changedTickers.clear();
+                        loaded = true;
+                        return;
+                    }
+                }
+            }
+        }
+
+        synchronized PortfolioValuationDelta snapshot() {
+            return valuation(null);
+        }
+
+        synchronized void priceChanged(String ticker, Quote quote) {
+            quotes.put(ticker, quote);
+            if (loaded) {
+                changed(ticker);
+            }
+        }
+
+        synchronized void holdingChanged(HoldingChangedEvent event) {
+            if (!loaded) {
+                // Committed already, so the load reads it again from the database
+                changedDuringLoad = true;
+                return;
+            }
+            if (event.before() != null && portfolioId.equals(event.before().portfolioId())) {
+                holdings.remove(event.before());
+                changed(event.before().ticker());
+            }
+            if (event.after() != null && portfolioId.equals(event.after().portfolioId())) {
+                holdings.add(event.after());
+                if (!quotes.containsKey(event.after().ticker())) {
+                    quoteCache.getIfPresent(event.after().ticker()).ifPresent(quote -> quotes.put(event.after().ticker(), quote));
+                }
+                changed(event.after().ticker());
+            }
+        }
+
+        private void changed(String ticker) {
+            if (!changedTickers.add(ticker) || flushScheduled) {
+                coalescedCounter.increment();
+                return;
+            }
+            flushScheduled = true;
+            try {
+                flusher.schedule(this::flush, coalesceMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                flushScheduled = false;
+            }
+        }
+
+        private void flush() {
+            PortfolioValuationDelta delta;
+            synchronized (this) {
+                flushScheduled = false;
+                if (changedTickers.isEmpty()) {
+                    return;
+                }
+                delta = valuation(changedTickers);
+                changedTickers.clear();
+            }
+            for (StreamSubscriber<PortfolioValuationDelta> subscriber : subscribers) {
+                if (subscriber.offer(delta)) {
+                    pushedCounter.increment();
+                }
+            }
+        }
+
+        /**
+         * Value the priced holdings with the same arithmetic as the portfolio metrics.
+         *
+         * @param tickers the tickers whose holdings are listed, all of them if {@code null}.
+         */
+        private PortfolioValuationDelta valuation(Set<String> tickers) {
+            List<Asset> priced = new ArrayList<>(holdings.size());
+            Set<String> held = new LinkedHashSet<>();
+            Set<String> unpriced = new LinkedHashSet<>();
+            for (Holding holding : holdings) {
+                held.add(holding.ticker());
+                if (quotes.containsKey(holding.ticker())) {
+                    priced.add(
+                        new Asset().ticker(holding.ticker()).quantity(Math.toIntExact(holding.quantity())).avgPrice(holding.avgPrice())
+                    );
+                } else {
+                    unpriced.add(holding.ticker());
+                }
+            }
+            HoldingsCalculator.Result result = HoldingsCalculator.calculate(priced, quotes);
+            List<HoldingMetrics> changed = tickers == null
+                ? result.holdings()
+                : result.holdings().stream().filter(holding -> tickers.contains(holding.ticker())).toList();
+            List<String> removed = tickers == null ? List.of() : tickers.stream().filter(ticker -> !held.contains(ticker)).toList();
+            return new PortfolioValuationDelta(
+                portfolioId,
+                changed,
+                removed,
+                result.totalValue(),
+                result.totalCost(),
+                result.totalValue().subtract(result.totalCost()),
+                HoldingsCalculator.percentOf(result.totalValue().subtract(result.totalCost()), result.totalCost()),
+                unpriced.size()
+            );
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.portfolio.service.stream;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.service.marketdata.PriceChangedEvent;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import com.example.portfolio.service.marketdata.QuoteFetchExecutors;
+import com.example.portfolio.service.marketdata.SymbolDictionary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Pushes the quotes of the tickers each subscriber asked for, whenever their price changes in the quote cache.
+ * <p>
+ * Subscribers are registered per ticker, so that a price change only reaches the subscribers of its ticker. The
+ * change is offered to each of them without blocking the thread that put the quote into the cache, and subscribers
+ * too slow to keep up are evicted.
+ */
+@Service
+public class QuoteStreamService implements DisposableBean {
+
+    public static final String SUBSCRIBERS_METER_NAME = "market-data.stream.subscribers";
+    public static final String PUSHED_METER_NAME = "market-data.stream.pushed";
+    public static final String EVICTED_METER_NAME = "market-data.stream.evicted";
+
+    private final QuoteCache quoteCache;
+    private final int bufferSize;
+    private final ExecutorService senders;
+    private final StreamSendWatchdog watchdog;
+    private final Map<String, Set<StreamSubscriber<Quote>>> subscribersByTicker = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter pushedCounter;
+    private final Counter evictedCounter;
+
+    public QuoteStreamService(QuoteCache quoteCache, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.MarketData.Stream stream = applicationProperties.getMarketData().getStream();
+        this.quoteCache = quoteCache;
+        this.bufferSize = stream.getBufferSize();
+        this.senders = QuoteFetchExecutors.create(stream.getSenderThreads(), "quote-stream-");
+        this.watchdog = new StreamSendWatchdog(stream.getSendTimeoutMillis(), "quote-stream-watchdog-");
+        Gauge.builder(SUBSCRIBERS_METER_NAME, subscribers, AtomicInteger::get)
+            .description("Connections streaming quotes.")
+            .register(meterRegistry);
+        this.pushedCounter = Counter.builder(PUSHED_METER_NAME)
+            .description("Quotes queued for streaming connections.")
+            .register(meterRegistry);
+        this.evictedCounter = Counter.builder(EVICTED_METER_NAME)
+            .description("Streaming connections closed because they could not keep up with the price changes.")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Subscribe a connection to the price changes of tickers, starting with their current cached quotes.
+     *
+     * @param tickers the tickers, in any case.
+     * @return the subscriber, to be closed when the connection ends.
+     */
+    public StreamSubscriber<Quote> subscribe(Collection<String> tickers, StreamSubscriber.Sink<Quote> sink) {
+        Set<String> normalized = new LinkedHashSet<>();
+        tickers.forEach(ticker -> normalized.add(Quote.normalizeTicker(ticker)));
+        StreamSubscriber<Quote> subscriber = new StreamSubscriber<>(sink, bufferSize, senders, watchdog, closed ->
+            unsubscribe(normalized, closed)
+        );
+        subscribers.incrementAndGet();
+        for (String ticker : normalized) {
+            subscribersByTicker.compute(ticker, (key, set) -> {
+                Set<StreamSubscriber<Quote>> tickerSubscribers = set != null ? set : ConcurrentHashMap.newKeySet();
+                tickerSubscribers.add(subscriber);
+                return tickerSubscribers;
+            });
+        }
+        // So that the client does not wait for the next change to show a price
+        for (String ticker : normalized) {
+            quoteCache.getIfPresent(ticker).ifPresent(subscriber::offer);
+        }
+        return subscriber;
+    }
+
+    private void unsubscribe(Set<String> tickers, StreamSubscriber<Quote> subscriber) {
+        for (String ticker : tickers) {
+            subscribersByTicker.computeIfPresent(ticker, (key, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        subscribers.decrementAndGet();
+        if (subscriber.isEvicted()) {
+            evictedCounter.increment();
+        }
+    }
+
+    @EventListener
+    public void onPriceChanged(PriceChangedEvent event) {
+        Set<StreamSubscriber<Quote>> tickerSubscribers = subscribersByTicker.get(event.ticker());
+        if (tickerSubscribers == null) {
+            return;
+        }
+        for (StreamSubscriber<Quote> subscriber : tickerSubscribers) {
+            if (subscriber.offer(event.quote())) {
+                pushedCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * @return the tickers with at least one subscriber.
+     */
+    public Set<String> subscribedTickers() {
+        return Set.copyOf(subscribersByTicker.keySet());
+    }
+
+    /**
+     * @return the tickers with at least one subscriber that the quote cache has had a quote for, to be refreshed for
+     *     their subscribers; anyone can subscribe to any ticker, and made-up ones must not spend the background quota.
+     */
+    public Set<String> tickersToRefresh() {
+        return subscribersByTicker
+            .keySet()
+            .stream()
+            .filter(ticker -> quoteCache.symbolId(ticker) != SymbolDictionary.NO_ID)
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public void destroy() {
+        senders.shutdownNow();
+        watchdog.shutdown();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.portfolio.service.stream;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Evicts the subscribers whose connection has been taking an event for longer than the send timeout, so that clients
+ * that stopped reading do not hold the sender threads the other subscribers are drained on.
+ * <p>
+ * Subscribers are only watched while they send, and checked every half of the timeout.
+ */
+final class StreamSendWatchdog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreamSendWatchdog.class);
+
+    private final long sendTimeoutNanos;
+    private final Set<StreamSubscriber<?>> sending = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer;
+
+    /**
+     * @param sendTimeoutMillis how long an event may take to be sent.
+     * @param threadNamePrefix the name prefix of the thread checking the sends.
+     */
+    StreamSendWatchdog(long sendTimeoutMillis, String threadNamePrefix) {
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory(threadNamePrefix));
+        long checkMillis = Math.max(1, sendTimeoutMillis / 2);
+        timer.scheduleWithFixedDelay(this::evictStuck, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void sending(StreamSubscriber<?> subscriber) {
+        sending.add(subscriber);
+    }
+
+    void sent(StreamSubscriber<?> subscriber) {
+        sending.remove(subscriber);
+    }
+
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void evictStuck() {
+        long deadlineNanos = System.nanoTime() - sendTimeoutNanos;
+        for (StreamSubscriber<?> subscriber : sending) {
+            try {
+                if (subscriber.evictIfSendingSince(deadlineNanos)) {
+                    sending.remove(subscriber);
+                }
+            } catch (RuntimeException e) {
+                // Keep checking the other subscribers, now and on the next run
+                LOG.warn("Unable to evict a stuck stream subscriber", e);
+            }
+        }
+    }
+}
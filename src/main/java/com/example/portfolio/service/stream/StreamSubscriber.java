@@ -0,0 +1,198 @@
+package com.example.portfolio.service.stream;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A connection events are pushed to.
+ * <p>
+ * Events are offered without blocking into a bounded buffer, which a task on the senders executor drains into the
+ * connection; at most one such task runs per subscriber, so events are sent in order. A subscriber whose buffer is full
+ * is too slow to keep up: it is evicted rather than holding up the events or the memory of the others. So is a subscriber
+ * whose connection takes an event for longer than the send timeout, as told by the {@link StreamSendWatchdog}: the
+ * send is interrupted, and the connection closed once it returns.
+ *
+ * @param <T> the type of the events.
+ */
+public final class StreamSubscriber<T> {
+
+    /**
+     * The connection of a subscriber.
+     */
+    public interface Sink<T> {
+        /**
+         * Write an event to the connection, blocking while it does.
+         *
+         * @throws IOException if the connection is broken.
+         */
+        void send(T event) throws IOException;
+
+        /**
+         * End the connection from the server side, once the subscriber was evicted or a send failed.
+         */
+        void close();
+    }
+
+    private final Sink<T> sink;
+    private final BlockingQueue<T> buffer;
+    private final Executor senders;
+    private final StreamSendWatchdog watchdog;
+    private final Consumer<StreamSubscriber<T>> onClose;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean evicted;
+
+    // The thread sending an event and since when, so that the watchdog only ever interrupts a send of this subscriber
+    private final Object sendLock = new Object();
+    private Thread sendingThread;
+    private long sendStartedNanos;
+    private boolean sendTimedOut;
+
+    /**
+     * @param onClose called once when the subscriber is closed, whichever side closed it.
+     */
+    StreamSubscriber(
+        Sink<T> sink,
+        int bufferSize,
+        Executor senders,
+        StreamSendWatchdog watchdog,
+        Consumer<StreamSubscriber<T>> onClose
+    ) {
+        this.sink = sink;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        this.senders = senders;
+        this.watchdog = watchdog;
+        this.onClose = onClose;
+    }
+
+    /**
+     * Queue an event for the connection without blocking, evicting the subscriber if its buffer is full.
+     *
+     * @return whether the event was queued.
+     */
+    public boolean offer(T event) {
+        if (closed.get()) {
+            return false;
+        }
+        if (!buffer.offer(event)) {
+            evict();
+            return false;
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * Stop pushing events, as the client went away; the connection is left to its owner.
+     */
+    public void close() {
+        markClosed();
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * @return whether the subscriber was closed because it could not keep up with its events.
+     */
+    public boolean isEvicted() {
+        return evicted;
+    }
+
+    private void evict() {
+        evicted = true;
+        closeConnection();
+    }
+
+    /**
+     * Evict the subscriber if it has been sending an event since before a deadline, interrupting the send. The
+     * connection is closed by the sender once the send returns, as closing it may wait for the send.
+     *
+     * @return whether the subscriber was evicted.
+     */
+    boolean evictIfSendingSince(long deadlineNanos) {
+        synchronized (sendLock) {
+            if (sendingThread == null || sendStartedNanos - deadlineNanos > 0) {
+                return false;
+            }
+            // Closed before the interrupt, so that the failing send does not close the connection as well
+            evicted = true;
+            sendTimedOut = true;
+            markClosed();
+            sendingThread.interrupt();
+        }
+        return true;
+    }
+
+    private void closeConnection() {
+        if (markClosed()) {
+            sink.close();
+        }
+    }
+
+    private boolean markClosed() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        buffer.clear();
+        onClose.accept(this);
+        return true;
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                closeConnection();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            T event;
+            while (!closed.get() && (event = buffer.poll()) != null) {
+                send(event);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeConnection();
+        } finally {
+            if (sendTimedOut) {
+                sink.close();
+            }
+            draining.set(false);
+        }
+        // An event queued after the last poll, while the drain was still marked as running
+        if (!closed.get() && !buffer.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private void send(T event) throws IOException {
+        synchronized (sendLock) {
+            sendingThread = Thread.currentThread();
+            sendStartedNanos = System.nanoTime();
+        }
+        watchdog.sending(this);
+        try {
+            sink.send(event);
+        } finally {
+            watchdog.sent(this);
+            synchronized (sendLock) {
+                sendingThread = null;
+                if (sendTimedOut) {
+                    // Leave the sender thread to its next task without the interrupt meant for this send
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+}
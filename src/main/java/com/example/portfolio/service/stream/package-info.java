@@ -0,0 +1,4 @@
+/**
+ * Server push to connected clients: subscriber registries fanning events out through bounded per-connection buffers.
+ */
+package com.example.portfolio.service.stream;
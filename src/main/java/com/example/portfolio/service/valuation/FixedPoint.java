@@ -0,0 +1,81 @@
+package com.example.portfolio.service.valuation;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point arithmetic on amounts held in a {@code long} as a number of {@value #SCALE}-decimal units, so that
+ * {@code 150.5} is {@code 1_505_000}.
+ * <p>
+ * Every operation is exact or rounds like its {@link BigDecimal} counterpart, and throws an {@link ArithmeticException}
+ * rather than overflow, so callers can fall back to {@code BigDecimal} for the rare amount that does not fit.
+ */
+public final class FixedPoint {
+
+    /**
+     * Number of decimal places of a unit.
+     */
+    public static final int SCALE = 4;
+
+    private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1_000, 10_000 };
+
+    private static final long ONE = POWERS_OF_TEN[SCALE];
+
+    private FixedPoint() {}
+
+    /**
+     * @param amount an amount with at most {@value #SCALE} decimal places.
+     * @return the amount in units.
+     * @throws ArithmeticException if the amount has more decimal places or does not fit.
+     */
+    public static long toUnits(BigDecimal amount) {
+        if (amount.scale() < 0 || amount.scale() > SCALE) {
+            throw new ArithmeticException("Not a fixed-point amount: " + amount);
+        }
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * @param unscaledAmount the unscaled value of an amount with at most {@value #SCALE} decimal places.
+     * @param scale the number of decimal places of the amount.
+     * @return the amount in units.
+     * @throws ArithmeticException if the amount has more decimal places or does not fit.
+     */
+    public static long toUnits(long unscaledAmount, int scale) {
+        if (scale < 0 || scale > SCALE) {
+            throw new ArithmeticException("Not a fixed-point amount: " + unscaledAmount + "E-" + scale);
+        }
+        return Math.multiplyExact(unscaledAmount, POWERS_OF_TEN[SCALE - scale]);
+    }
+
+    /**
+     * @param units an amount in units.
+     * @param scale the scale of the result, at most {@value #SCALE}; the amount must not have more decimal places.
+     * @return the amount as a {@code BigDecimal} of the given scale.
+     */
+    public static BigDecimal toBigDecimal(long units, int scale) {
+        return BigDecimal.valueOf(units / POWERS_OF_TEN[SCALE - scale], scale);
+    }
+
+    /**
+     * @return {@code units * quantity}.
+     * @throws ArithmeticException on overflow.
+     */
+    public static long multiply(long units, long quantity) {
+        return Math.multiplyExact(units, quantity);
+    }
+
+    /**
+     * @return the ratio of two amounts in units, rounded half up like {@code dividend.divide(divisor, SCALE, HALF_UP)}.
+     * @throws ArithmeticException on overflow or if the divisor is 0.
+     */
+    public static long ratio(long dividend, long divisor) {
+        // Integer and fractional parts apart, so that only the remainder is scaled up
+        long scaledRemainder = Math.multiplyExact(dividend % divisor, ONE);
+        long fraction = scaledRemainder / divisor;
+        long leftover = Math.abs(scaledRemainder % divisor);
+        if (leftover != 0 && leftover >= Math.abs(divisor) - leftover) {
+            fraction += Long.signum(scaledRemainder) * Long.signum(divisor);
+        }
+        return Math.addExact(Math.multiplyExact(dividend / divisor, ONE), fraction);
+    }
+}
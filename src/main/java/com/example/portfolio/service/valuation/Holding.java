@@ -0,0 +1,30 @@
+package com.example.portfolio.service.valuation;
+
+import com.example.portfolio.domain.Asset;
+import com.example.portfolio.repository.HoldingRow;
+import com.example.portfolio.service.marketdata.Quote;
+import java.math.BigDecimal;
+
+/**
+ * The part of an {@link Asset} that counts towards the valuation of its portfolio.
+ *
+ * @param portfolioId the id of the portfolio holding the asset.
+ * @param ticker the normalized ticker.
+ * @param quantity the number of shares held.
+ * @param avgPrice the average price paid per share.
+ */
+public record Holding(Long portfolioId, String ticker, long quantity, BigDecimal avgPrice) {
+    /**
+     * @return the holding of the asset, {@code null} if the asset does not belong to a portfolio.
+     */
+    public static Holding of(Asset asset) {
+        if (asset.getPortfolio() == null || asset.getPortfolio().getId() == null) {
+            return null;
+        }
+        return new Holding(asset.getPortfolio().getId(), Quote.normalizeTicker(asset.getTicker()), asset.getQuantity(), asset.getAvgPrice());
+    }
+
+    public static Holding of(HoldingRow row) {
+        return new Holding(row.portfolioId(), Quote.normalizeTicker(row.ticker()), row.quantity(), row.avgPrice());
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.portfolio.service.valuation;
+
+/**
+ * Published when an asset is created, updated or deleted.
+ *
+ * @param before the holding before the change, {@code null} for a creation.
+ * @param after the holding after the change, {@code null} for a deletion.
+ */
+public record HoldingChangedEvent(Holding before, Holding after) {}
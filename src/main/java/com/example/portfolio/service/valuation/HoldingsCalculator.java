@@ -0,0 +1,155 @@
+package com.example.portfolio.service.valuation;
+
+import com.example.portfolio.domain.Asset;
+import com.example.portfolio.service.dto.HoldingMetrics;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuotePrices;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Values each holding of a portfolio at its quote and sums the holdings up.
+ * <p>
+ * The arithmetic runs on {@link FixedPoint} longs and only the results are turned into {@code BigDecimal}, with the
+ * same scale the {@code BigDecimal} arithmetic would have given them. Amounts that do not fit, such as prices with more
+ * than {@value FixedPoint#SCALE} decimal places, send the whole portfolio down the {@code BigDecimal} path instead.
+ */
+public final class HoldingsCalculator {
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    /**
+     * @param holdings the metrics of each holding, in the order of the assets.
+     * @param totalValue the sum of the holdings' current value.
+     * @param totalCost the sum of the holdings' cost.
+     * @param anyStale whether any holding is valued at a stale price.
+     */
+    public record Result(List<HoldingMetrics> holdings, BigDecimal totalValue, BigDecimal totalCost, boolean anyStale) {}
+
+    private HoldingsCalculator() {}
+
+    /**
+     * @param assets the holdings.
+     * @param quotes the quote of every asset, keyed by the asset ticker.
+     */
+    public static Result calculate(List<Asset> assets, Map<String, Quote> quotes) {
+        return calculate(assets, pricesOf(assets, quotes));
+    }
+
+    /**
+     * @param assets the holdings.
+     * @param prices the price of every asset, by index in {@code assets}.
+     */
+    public static Result calculate(List<Asset> assets, QuotePrices prices) {
+        try {
+            return calculateFixedPoint(assets, prices);
+        } catch (ArithmeticException e) {
+            return calculateBigDecimal(assets, prices);
+        }
+    }
+
+    static Result calculateFixedPoint(List<Asset> assets, Map<String, Quote> quotes) {
+        return calculateFixedPoint(assets, pricesOf(assets, quotes));
+    }
+
+    static Result calculateBigDecimal(List<Asset> assets, Map<String, Quote> quotes) {
+        return calculateBigDecimal(assets, pricesOf(assets, quotes));
+    }
+
+    private static QuotePrices pricesOf(List<Asset> assets, Map<String, Quote> quotes) {
+        return QuotePrices.of(assets.stream().map(Asset::getTicker).toList(), quotes);
+    }
+
+    static Result calculateFixedPoint(List<Asset> assets, QuotePrices prices) {
+        List<HoldingMetrics> holdings = new ArrayList<>(assets.size());
+        long totalValue = 0;
+        long totalCost = 0;
+        int totalValueScale = 0;
+        int totalCostScale = 0;
+        boolean anyStale = false;
+        for (int index = 0; index < assets.size(); index++) {
+            Asset asset = assets.get(index);
+            long quantity = asset.getQuantity();
+            // The price is only turned into a BigDecimal for the holding metrics
+            long value = FixedPoint.multiply(FixedPoint.toUnits(prices.unscaledPrice(index), prices.priceScale(index)), quantity);
+            long cost = FixedPoint.multiply(FixedPoint.toUnits(asset.getAvgPrice()), quantity);
+            long gainLoss = Math.subtractExact(value, cost);
+            // The scales BigDecimal multiply and subtract would give
+            int valueScale = prices.priceScale(index);
+            int costScale = asset.getAvgPrice().scale();
+            int gainLossScale = Math.max(valueScale, costScale);
+
+            holdings.add(
+                new HoldingMetrics(
+                    asset.getTicker(),
+                    asset.getQuantity(),
+                    asset.getAvgPrice(),
+                    prices.price(index),
+                    prices.isStale(index),
+                    FixedPoint.toBigDecimal(value, valueScale),
+                    FixedPoint.toBigDecimal(gainLoss, gainLossScale),
+                    percentOf(gainLoss, cost)
+                )
+            );
+            totalValue = Math.addExact(totalValue, value);
+            totalCost = Math.addExact(totalCost, cost);
+            totalValueScale = Math.max(totalValueScale, valueScale);
+            totalCostScale = Math.max(totalCostScale, costScale);
+            anyStale |= prices.isStale(index);
+        }
+        return new Result(
+            holdings,
+            FixedPoint.toBigDecimal(totalValue, totalValueScale),
+            FixedPoint.toBigDecimal(totalCost, totalCostScale),
+            anyStale
+        );
+    }
+
+    static Result calculateBigDecimal(List<Asset> assets, QuotePrices prices) {
+        List<HoldingMetrics> holdings = new ArrayList<>(assets.size());
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        boolean anyStale = false;
+        for (int index = 0; index < assets.size(); index++) {
+            Asset asset = assets.get(index);
+            BigDecimal currentPrice = prices.price(index);
+            BigDecimal assetValue = currentPrice.multiply(BigDecimal.valueOf(asset.getQuantity()));
+            BigDecimal assetCost = asset.getAvgPrice().multiply(BigDecimal.valueOf(asset.getQuantity()));
+
+            holdings.add(
+                new HoldingMetrics(
+                    asset.getTicker(),
+                    asset.getQuantity(),
+                    asset.getAvgPrice(),
+                    currentPrice,
+                    prices.isStale(index),
+                    assetValue,
+                    assetValue.subtract(assetCost),
+                    percentOf(assetValue.subtract(assetCost), assetCost)
+                )
+            );
+            totalValue = totalValue.add(assetValue);
+            totalCost = totalCost.add(assetCost);
+            anyStale |= prices.isStale(index);
+        }
+        return new Result(holdings, totalValue, totalCost, anyStale);
+    }
+
+    /**
+     * @return the gain or loss as a percentage of the cost, with 2 decimal places rendered at scale 4, or 0 without a cost.
+     */
+    public static BigDecimal percentOf(BigDecimal gainLoss, BigDecimal cost) {
+        return cost.compareTo(BigDecimal.ZERO) > 0 ? gainLoss.divide(cost, 4, RoundingMode.HALF_UP).multiply(ONE_HUNDRED) : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal percentOf(long gainLoss, long cost) {
+        if (cost <= 0) {
+            return BigDecimal.ZERO;
+        }
+        // ratio() has 4 decimal places like divide(cost, 4, HALF_UP); times 100 keeps that scale
+        return BigDecimal.valueOf(Math.multiplyExact(FixedPoint.ratio(gainLoss, cost), 100), 4);
+    }
+}
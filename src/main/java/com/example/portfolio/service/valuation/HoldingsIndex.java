@@ -0,0 +1,216 @@
+package com.example.portfolio.service.valuation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reverse index from a ticker to the portfolios holding it, with the quantity each one holds.
+ * <p>
+ * A price change for a ticker only concerns the portfolios listed here, so valuation and alerting code can touch those
+ * and nothing else. The holders of a ticker are kept in two parallel primitive arrays sorted by portfolio id, 16 bytes
+ * per holder, so the index stays small with millions of holdings.
+ * <p>
+ * The {@link PortfolioValuationEngine} keeps the index current, from the database at startup and from asset writes
+ * afterwards; everyone else only reads it.
+ */
+@Component
+public class HoldingsIndex {
+
+    /**
+     * Receives the holders of a ticker.
+     */
+    @FunctionalInterface
+    public interface HolderConsumer {
+        void accept(long portfolioId, long quantity);
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Table table = new Table();
+
+    /**
+     * Call the consumer with each portfolio holding the ticker, in increasing portfolio id order.
+     * <p>
+     * The index is read locked meanwhile, so the consumer should be quick and must not write holdings.
+     *
+     * @param ticker the normalized ticker.
+     */
+    public void forEachHolder(String ticker, HolderConsumer consumer) {
+        lock.readLock().lock();
+        try {
+            Holders holders = table.byTicker.get(ticker);
+            if (holders != null) {
+                for (int i = 0; i < holders.size; i++) {
+                    consumer.accept(holders.portfolioIds[i], holders.quantities[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param ticker the normalized ticker.
+     * @return the ids of the portfolios holding the ticker, in increasing order.
+     */
+    public long[] getPortfolioIds(String ticker) {
+        lock.readLock().lock();
+        try {
+            Holders holders = table.byTicker.get(ticker);
+            return holders == null ? new long[0] : Arrays.copyOf(holders.portfolioIds, holders.size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param ticker the normalized ticker.
+     * @return the quantity of the ticker held by the portfolio, 0 if none.
+     */
+    public long getQuantity(String ticker, long portfolioId) {
+        lock.readLock().lock();
+        try {
+            return table.quantity(ticker, portfolioId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param ticker the normalized ticker.
+     * @return whether any portfolio holds the ticker.
+     */
+    public boolean isHeld(String ticker) {
+        lock.readLock().lock();
+        try {
+            return table.byTicker.containsKey(ticker);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct tickers held.
+     */
+    public int getTickerCount() {
+        lock.readLock().lock();
+        try {
+            return table.byTicker.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apply changes under the write lock.
+     */
+    void update(Consumer<Table> changes) {
+        lock.writeLock().lock();
+        try {
+            changes.accept(table);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Swap in a table built from scratch.
+     */
+    void replace(Table newTable) {
+        lock.writeLock().lock();
+        try {
+            table = newTable;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The index content, not thread-safe on its own.
+     */
+    static final class Table {
+
+        private final Map<String, Holders> byTicker = new HashMap<>();
+
+        /**
+         * Add a quantity, possibly negative, to what a portfolio holds of a ticker.
+         *
+         * @return the quantity held afterwards.
+         */
+        long add(String ticker, long portfolioId, long quantity) {
+            Holders holders = byTicker.computeIfAbsent(ticker, t -> new Holders());
+            long held = holders.add(portfolioId, quantity);
+            if (holders.size == 0) {
+                byTicker.remove(ticker);
+            }
+            return held;
+        }
+
+        long quantity(String ticker, long portfolioId) {
+            Holders holders = byTicker.get(ticker);
+            if (holders == null) {
+                return 0;
+            }
+            int index = holders.indexOf(portfolioId);
+            return index >= 0 ? holders.quantities[index] : 0;
+        }
+
+        boolean isHeld(String ticker) {
+            return byTicker.containsKey(ticker);
+        }
+
+        int tickerCount() {
+            return byTicker.size();
+        }
+    }
+
+    /**
+     * Holders of one ticker: portfolio ids in increasing order, and the quantity held at the same position.
+     */
+    private static final class Holders {
+
+        private static final int INITIAL_CAPACITY = 4;
+
+        private long[] portfolioIds = new long[INITIAL_CAPACITY];
+        private long[] quantities = new long[INITIAL_CAPACITY];
+        private int size;
+
+        int indexOf(long portfolioId) {
+            return Arrays.binarySearch(portfolioIds, 0, size, portfolioId);
+        }
+
+        long add(long portfolioId, long quantity) {
+            int index = indexOf(portfolioId);
+            if (index >= 0) {
+                long held = quantities[index] + quantity;
+                if (held == 0) {
+                    System.arraycopy(portfolioIds, index + 1, portfolioIds, index, size - index - 1);
+                    System.arraycopy(quantities, index + 1, quantities, index, size - index - 1);
+                    size--;
+                } else {
+                    quantities[index] = held;
+                }
+                return held;
+            }
+            if (quantity == 0) {
+                return 0;
+            }
+            int insertion = -index - 1;
+            if (size == portfolioIds.length) {
+                int capacity = size + (size >> 1);
+                portfolioIds = Arrays.copyOf(portfolioIds, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+            }
+            System.arraycopy(portfolioIds, insertion, portfolioIds, insertion + 1, size - insertion);
+            System.arraycopy(quantities, insertion, quantities, insertion + 1, size - insertion);
+            portfolioIds[insertion] = portfolioId;
+            quantities[insertion] = quantity;
+            size++;
+            return quantity;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.portfolio.service.valuation;
+
+import com.example.portfolio.repository.AssetRepository;
+import com.example.portfolio.repository.HoldingRow;
+import com.example.portfolio.service.dto.PortfolioValuation;
+import com.example.portfolio.service.marketdata.PriceChangedEvent;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps the running totals of every portfolio so that reading them is a map lookup.
+ * <p>
+ * Totals only ever move by deltas: a holding write adjusts its portfolio by the difference between the holding before
+ * and after the write, and a price change adjusts each portfolio holding the ticker by the price difference times the
+ * quantity held, as listed by the {@link HoldingsIndex}. Holdings are valued at the last price that entered the quote
+ * cache; only the prices of held tickers are kept, and a ticker that comes to be held takes its price from the cache.
+ * <p>
+ * The totals are built from the database once the application is ready, and rebuilt every
+ * {@code application.valuation.reconcile-interval-minutes}. The rebuild doubles as a consistency check: portfolios whose
+ * running totals differ from the rebuilt ones are logged and counted in {@value #DRIFT_METER_NAME}.
+ * <p>
+ * A holding write whose listener runs while the rebuild reads the database may or may not be in what it read, so the
+ * listener leaves it to the rebuild, which reads again, up to {@value #MAX_REBUILD_PASSES} times. A listener waiting for
+ * a rebuild that started after it skips its write, which the rebuild has read.
+ */
+@Component
+public class PortfolioValuationEngine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PortfolioValuationEngine.class);
+
+    public static final String DRIFT_METER_NAME = "portfolio.valuation.drift";
+
+    static final int MAX_REBUILD_PASSES = 3;
+
+    private final AssetRepository assetRepository;
+
+    private final HoldingsIndex holdingsIndex;
+
+    private final QuoteCache quoteCache;
+
+    private final Counter driftCounter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // The mutable state below is guarded by the lock; readers only see the published valuations
+    private final Map<String, BigDecimal> prices = new HashMap<>();
+    private Map<Long, Totals> totals = new HashMap<>();
+    private boolean loaded;
+
+    private final Map<Long, PortfolioValuation> valuations = new ConcurrentHashMap<>();
+
+    // Tells the holding listeners whether a rebuild is reading, without waiting for the lock it holds
+    private final Object rebuildMonitor = new Object();
+    private boolean rebuilding;
+    private long rebuildCount;
+    // Portfolios written while a rebuild read, and portfolios whose writes wait for the lock, left out of the drift check
+    private final Set<Long> changedWhileRebuilding = new HashSet<>();
+    private final Map<Long, Integer> pendingChanges = new HashMap<>();
+
+    public PortfolioValuationEngine(
+        AssetRepository assetRepository,
+        HoldingsIndex holdingsIndex,
+        QuoteCache quoteCache,
+        MeterRegistry meterRegistry
+    ) {
+        this.assetRepository = assetRepository;
+        this.holdingsIndex = holdingsIndex;
+        this.quoteCache = quoteCache;
+        this.driftCounter = Counter.builder(DRIFT_METER_NAME)
+            .description("Portfolios whose running totals differed from a full recompute.")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Get the running totals of a portfolio.
+     *
+     * @param portfolioId the id of the portfolio.
+     * @return the totals, empty until the engine is loaded or if the portfolio has no holdings.
+     */
+    public Optional<PortfolioValuation> getValuation(Long portfolioId) {
+        return Optional.ofNullable(valuations.get(portfolioId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        rebuild();
+    }
+
+    @Scheduled(
+        initialDelayString = "${application.valuation.reconcile-interval-minutes:60}",
+        fixedDelayString = "${application.valuation.reconcile-interval-minutes:60}",
+        timeUnit = TimeUnit.MINUTES
+    )
+    @Transactional(readOnly = true)
+    public void reconcile() {
+        rebuild();
+    }
+
+    /**
+     * Recompute every total and the {@link HoldingsIndex} from the holdings in the database and replace the running ones
+     * with them. The holdings are streamed, so this must run in a transaction.
+     *
+     * @return the number of portfolios whose running totals differed.
+     */
+    public int rebuild() {
+        lock.lock();
+        try {
+            Map<Long, Totals> previousTotals = totals;
+            boolean wasLoaded = loaded;
+            Set<Long> unsettled = new HashSet<>();
+            HoldingsIndex.Table table;
+            boolean changed;
+            int passes = 0;
+            do {
+                synchronized (rebuildMonitor) {
+                    rebuilding = true;
+                }
+                HoldingsIndex.Table passTable = new HoldingsIndex.Table();
+                totals = new HashMap<>();
+                try (Stream<HoldingRow> rows = assetRepository.streamAllHoldings()) {
+                    rows.forEach(row -> apply(Holding.of(row), 1, passTable));
+                } finally {
+                    synchronized (rebuildMonitor) {
+                        rebuilding = false;
+                        rebuildCount++;
+                        changed = !changedWhileRebuilding.isEmpty();
+                        unsettled.addAll(changedWhileRebuilding);
+                        unsettled.addAll(pendingChanges.keySet());
+                        changedWhileRebuilding.clear();
+                    }
+                }
+                table = passTable;
+            } while (changed && ++passes < MAX_REBUILD_PASSES);
+            if (changed) {
+                LOG.warn("Holdings kept changing over {} rebuild passes, the next reconcile will pick up the last changes", passes);
+            }
+            holdingsIndex.replace(table);
+            prices.keySet().removeIf(ticker -> !holdingsIndex.isHeld(ticker));
+            loaded = true;
+
+            int drifted = 0;
+            if (wasLoaded) {
+                for (Long portfolioId : union(previousTotals, totals)) {
+                    if (unsettled.contains(portfolioId)) {
+                        continue;
+                    }
+                    Totals before = previousTotals.get(portfolioId);
+                    Totals after = totals.get(portfolioId);
+                    if (before == null || after == null || !before.sameAs(after)) {
+                        LOG.warn("Running totals of portfolio {} drifted: {} instead of {}", portfolioId, before, after);
+                        drifted++;
+                    }
+                }
+                driftCounter.increment(drifted);
+            }
+            valuations.keySet().retainAll(totals.keySet());
+            totals.forEach(this::publish);
+            LOG.debug("Valued {} portfolios holding {} tickers", totals.size(), table.tickerCount());
+            return drifted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apply an asset write once its transaction has committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHoldingChanged(HoldingChangedEvent event) {
+        List<Long> portfolioIds = portfolioIds(event);
+        long rebuildsSeen;
+        synchronized (rebuildMonitor) {
+            if (rebuilding) {
+                // The rebuild may have read the database before the change committed, so it reads again
+                changedWhileRebuilding.addAll(portfolioIds);
+                return;
+            }
+            rebuildsSeen = rebuildCount;
+            portfolioIds.forEach(portfolioId -> pendingChanges.merge(portfolioId, 1, Integer::sum));
+        }
+        lock.lock();
+        try {
+            if (!loaded || rebuildCount != rebuildsSeen) {
+                // A rebuild that started after the change committed has read it from the database
+                return;
+            }
+            holdingsIndex.update(table -> {
+                if (event.before() != null) {
+                    apply(event.before(), -1, table);
+                }
+                if (event.after() != null) {
+                    apply(event.after(), 1, table);
+                }
+                if (event.before() != null && !table.isHeld(event.before().ticker())) {
+                    prices.remove(event.before().ticker());
+                }
+            });
+            portfolioIds.forEach(this::publishOrRemove);
+        } finally {
+            lock.unlock();
+            synchronized (rebuildMonitor) {
+                portfolioIds.forEach(portfolioId -> pendingChanges.computeIfPresent(portfolioId, (id, count) -> count > 1 ? count - 1 : null));
+            }
+        }
+    }
+
+    @EventListener
+    public void onPriceChanged(PriceChangedEvent event) {
+        String ticker = event.ticker();
+        BigDecimal price = event.quote().price();
+        lock.lock();
+        try {
+            if (!holdingsIndex.isHeld(ticker)) {
+                // Taken from the quote cache once the ticker is held
+                return;
+            }
+            BigDecimal previousPrice = prices.put(ticker, price);
+            if (previousPrice != null && previousPrice.compareTo(price) == 0) {
+                return;
+            }
+            holdingsIndex.forEachHolder(ticker, (portfolioId, quantity) -> {
+                Totals portfolioTotals = totals.get(portfolioId);
+                if (previousPrice == null) {
+                    portfolioTotals.value = portfolioTotals.value.add(price.multiply(BigDecimal.valueOf(quantity)));
+                    portfolioTotals.unpricedTickers--;
+                } else {
+                    portfolioTotals.value = portfolioTotals.value.add(price.subtract(previousPrice).multiply(BigDecimal.valueOf(quantity)));
+                }
+                publish(portfolioId, portfolioTotals);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add ({@code sign} 1) or remove ({@code sign} -1) a holding from the totals of its portfolio and from the index.
+     */
+    private void apply(Holding holding, int sign, HoldingsIndex.Table table) {
+        Totals portfolioTotals = totals.computeIfAbsent(holding.portfolioId(), id -> new Totals());
+        BigDecimal quantity = BigDecimal.valueOf(sign * holding.quantity());
+        portfolioTotals.cost = portfolioTotals.cost.add(holding.avgPrice().multiply(quantity));
+        portfolioTotals.holdings += sign;
+
+        BigDecimal price = prices.get(holding.ticker());
+        if (price == null && sign > 0 && !table.isHeld(holding.ticker())) {
+            price = quoteCache.getIfPresent(holding.ticker()).map(Quote::price).orElse(null);
+            if (price != null) {
+                prices.put(holding.ticker(), price);
+            }
+        }
+
+        long heldAfter = table.add(holding.ticker(), holding.portfolioId(), sign * holding.quantity());
+        long heldBefore = heldAfter - sign * holding.quantity();
+
+        if (price != null) {
+            portfolioTotals.value = portfolioTotals.value.add(price.multiply(quantity));
+        } else if (heldBefore == 0 && heldAfter != 0) {
+            portfolioTotals.unpricedTickers++;
+        } else if (heldBefore != 0 && heldAfter == 0) {
+            portfolioTotals.unpricedTickers--;
+        }
+    }
+
+    private void publishOrRemove(Long portfolioId) {
+        Totals portfolioTotals = totals.get(portfolioId);
+        if (portfolioTotals != null && portfolioTotals.holdings > 0) {
+            publish(portfolioId, portfolioTotals);
+        } else {
+            totals.remove(portfolioId);
+            valuations.remove(portfolioId);
+        }
+    }
+
+    private void publish(Long portfolioId, Totals portfolioTotals) {
+        valuations.put(
+            portfolioId,
+            new PortfolioValuation(portfolioId, portfolioTotals.value, portfolioTotals.cost, portfolioTotals.unpricedTickers)
+        );
+    }
+
+    private static List<Long> portfolioIds(HoldingChangedEvent event) {
+        return Stream.of(event.before(), event.after()).filter(Objects::nonNull).map(Holding::portfolioId).toList();
+    }
+
+    private static Set<Long> union(Map<Long, ?> first, Map<Long, ?> second) {
+        Set<Long> keys = new HashSet<>(first.keySet());
+        keys.addAll(second.keySet());
+        return keys;
+    }
+
+    private static final class Totals {
+
+        private BigDecimal value = BigDecimal.ZERO;
+        private BigDecimal cost = BigDecimal.ZERO;
+        private int unpricedTickers;
+        private int holdings;
+
+        boolean sameAs(Totals other) {
+            return (
+                value.compareTo(other.value) == 0 &&
+                cost.compareTo(other.cost) == 0 &&
+                unpricedTickers == other.unpricedTickers &&
+                holdings == other.holdings
+            );
+        }
+
+        @Override
+        public String toString() {
+            return "Totals{value=" + value + ", cost=" + cost + ", unpricedTickers=" + unpricedTickers + ", holdings=" + holdings + "}";
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Portfolio valuation: running totals kept up to date from holding writes and price changes.
+ */
+package com.example.portfolio.service.valuation;
@@ -1,12 +1,28 @@
 package com.example.portfolio.web.rest;
 
+import com.example.portfolio.config.ApplicationProperties;
 import com.example.portfolio.service.PortfolioAnalyticsService;
+import com.example.portfolio.service.PriceHistoryService;
 import com.example.portfolio.service.StockDataService;
+import com.example.portfolio.service.dto.PortfolioMetrics;
+import com.example.portfolio.service.dto.PortfolioValuation;
+import com.example.portfolio.service.dto.PortfolioValuationDelta;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.stream.PortfolioStreamService;
+import com.example.portfolio.service.stream.QuoteStreamService;
+import com.example.portfolio.service.stream.StreamSubscriber;
+import com.example.portfolio.web.rest.errors.BadRequestAlertException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tech.jhipster.web.util.ResponseUtil;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -15,22 +31,73 @@ public class PortfolioAnalyticsResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(PortfolioAnalyticsResource.class);
 
+    private static final String ENTITY_NAME = "stockPrice";
+
+    static final int MAX_BATCH_TICKERS = 100;
+
     private final PortfolioAnalyticsService portfolioAnalyticsService;
     private final StockDataService stockDataService;
+    private final PriceHistoryService priceHistoryService;
+    private final QuoteStreamService quoteStreamService;
+    private final PortfolioStreamService portfolioStreamService;
+    private final Duration streamTimeout;
 
     public PortfolioAnalyticsResource(PortfolioAnalyticsService portfolioAnalyticsService,
-                                    StockDataService stockDataService) {
+                                    StockDataService stockDataService,
+                                    PriceHistoryService priceHistoryService,
+                                    QuoteStreamService quoteStreamService,
+                                    PortfolioStreamService portfolioStreamService,
+                                    ApplicationProperties applicationProperties) {
         this.portfolioAnalyticsService = portfolioAnalyticsService;
         this.stockDataService = stockDataService;
+        this.priceHistoryService = priceHistoryService;
+        this.quoteStreamService = quoteStreamService;
+        this.portfolioStreamService = portfolioStreamService;
+        this.streamTimeout = Duration.ofMinutes(applicationProperties.getMarketData().getStream().getTimeoutMinutes());
     }
 
     @GetMapping("/portfolio/{id}/metrics")
-    public ResponseEntity<Map<String, Object>> getPortfolioMetrics(@PathVariable Long id) {
+    public ResponseEntity<PortfolioMetrics> getPortfolioMetrics(@PathVariable Long id) {
         LOG.debug("REST request to get Portfolio metrics : {}", id);
-        Map<String, Object> metrics = portfolioAnalyticsService.calculatePortfolioMetrics(id);
+        PortfolioMetrics metrics = portfolioAnalyticsService.calculatePortfolioMetrics(id);
         return ResponseEntity.ok(metrics);
     }
 
+    /**
+     * Get the running value and cost totals of a portfolio, kept up to date by the valuation engine, without its
+     * holdings. {@code 404} until the engine is loaded or while the portfolio has no holdings.
+     */
+    @GetMapping("/portfolio/{id}/valuation")
+    public ResponseEntity<PortfolioValuation> getPortfolioValuation(@PathVariable Long id) {
+        LOG.debug("REST request to get Portfolio valuation : {}", id);
+        return ResponseUtil.wrapOrNotFound(portfolioAnalyticsService.getPortfolioValuation(id));
+    }
+
+    /**
+     * Stream the valuation of a portfolio as server-sent {@code valuation} events: every holding first, then the
+     * holdings that changed and the new totals whenever the price of a held ticker moves or a holding is written.
+     */
+    @GetMapping(path = "/portfolio/{id}/valuation/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPortfolioValuation(@PathVariable Long id) {
+        LOG.debug("REST request to stream Portfolio valuation : {}", id);
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        StreamSubscriber<PortfolioValuationDelta> subscriber = portfolioStreamService.subscribe(id, new StreamSubscriber.Sink<>() {
+            @Override
+            public void send(PortfolioValuationDelta delta) throws IOException {
+                emitter.send(SseEmitter.event().name("valuation").data(delta, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        return emitter;
+    }
+
     @GetMapping("/stock/{ticker}/price")
     public ResponseEntity<Map<String, Object>> getStockPrice(@PathVariable String ticker) {
         LOG.debug("REST request to get stock price for ticker : {}", ticker);
@@ -41,10 +108,53 @@ public class PortfolioAnalyticsResource {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping("/stock/prices")
+    public ResponseEntity<Map<String, Quote>> getStockPrices(@RequestParam List<String> tickers) {
+        LOG.debug("REST request to get stock prices for tickers : {}", tickers);
+        return ResponseEntity.ok(stockDataService.getCurrentPrices(requestedTickers(tickers)));
+    }
+
+    /**
+     * Stream the quotes of tickers as server-sent {@code quote} events: their cached quotes first, then a quote
+     * whenever their price changes. A client too slow to read the events is disconnected.
+     */
+    @GetMapping(path = "/stock/prices/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStockPrices(@RequestParam List<String> tickers) {
+        LOG.debug("REST request to stream stock prices for tickers : {}", tickers);
+        List<String> requested = requestedTickers(tickers);
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        StreamSubscriber<Quote> subscriber = quoteStreamService.subscribe(requested, new StreamSubscriber.Sink<>() {
+            @Override
+            public void send(Quote quote) throws IOException {
+                emitter.send(SseEmitter.event().name("quote").data(quote, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        return emitter;
+    }
+
+    private static List<String> requestedTickers(List<String> tickers) {
+        List<String> requested = tickers.stream().filter(ticker -> !ticker.isBlank()).toList();
+        if (requested.isEmpty()) {
+            throw new BadRequestAlertException("At least one ticker is required", ENTITY_NAME, "tickersempty");
+        }
+        if (requested.size() > MAX_BATCH_TICKERS) {
+            throw new BadRequestAlertException("At most " + MAX_BATCH_TICKERS + " tickers can be requested", ENTITY_NAME, "toomanytickers");
+        }
+        return requested;
+    }
+
     @GetMapping("/stock/{ticker}/historical")
     public ResponseEntity<Map<String, Object>> getHistoricalData(@PathVariable String ticker) {
         LOG.debug("REST request to get historical data for ticker : {}", ticker);
-        Map<String, Object> data = stockDataService.getHistoricalData(ticker);
+        Map<String, Object> data = priceHistoryService.getHistoricalData(ticker);
         return ResponseEntity.ok(data);
     }
 }
\ No newline at end of file
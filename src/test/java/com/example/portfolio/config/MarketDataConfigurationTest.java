@@ -0,0 +1,50 @@
+package com.example.portfolio.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.portfolio.service.marketdata.HedgedQuoteProvider;
+import com.example.portfolio.service.marketdata.MockQuoteProvider;
+import com.example.portfolio.service.marketdata.QuoteProvider;
+import com.example.portfolio.service.marketdata.ReplayQuoteProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+class MarketDataConfigurationTest {
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withBean(MockQuoteProvider.class)
+        .withBean(ApplicationProperties.class, () -> applicationProperties)
+        .withBean(SimpleMeterRegistry.class)
+        .withUserConfiguration(MarketDataConfiguration.class);
+
+    @Test
+    void injectedProviderIsTheComposedOne() {
+        applicationProperties.getMarketData().setProvider(MockQuoteProvider.NAME);
+
+        contextRunner.run(context -> {
+            assertThat(context).hasSingleBean(MockQuoteProvider.class);
+            assertThat(context.getBean(QuoteProvider.class)).isInstanceOf(HedgedQuoteProvider.class);
+            assertThat(context.getBean(QuoteProvider.class).getName()).isEqualTo(MockQuoteProvider.NAME);
+        });
+    }
+
+    @Test
+    void replayAnswersFromTheRecordingOnly(@TempDir Path directory) throws IOException {
+        Path recording = Files.createFile(directory.resolve("calls.jsonl"));
+        applicationProperties.getMarketData().setProvider("alpha-vantage");
+        applicationProperties.getMarketData().getRecording().setMode(ApplicationProperties.MarketData.Recording.Mode.REPLAY);
+        applicationProperties.getMarketData().getRecording().setFile(recording.toString());
+
+        contextRunner.run(context -> {
+            assertThat(context.getBean(QuoteProvider.class)).isInstanceOf(ReplayQuoteProvider.class);
+            assertThat(context.getBean(QuoteProvider.class).getName()).isEqualTo("alpha-vantage");
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.portfolio.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.portfolio.web.rest.TestUtil;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+class PriceBarTest {
+
+    @Test
+    void equalsVerifier() throws Exception {
+        TestUtil.equalsVerifier(PriceBar.class);
+        PriceBar priceBar1 = new PriceBar().ticker("AAPL").tradeDate(LocalDate.of(2025, 10, 14));
+        PriceBar priceBar2 = new PriceBar();
+        assertThat(priceBar1).isNotEqualTo(priceBar2);
+
+        priceBar2.ticker("AAPL").tradeDate(LocalDate.of(2025, 10, 14));
+        assertThat(priceBar1).isEqualTo(priceBar2);
+
+        priceBar2.tradeDate(LocalDate.of(2025, 10, 13));
+        assertThat(priceBar1).isNotEqualTo(priceBar2);
+    }
+
+    @Test
+    void newUntilPersisted() {
+        PriceBar priceBar = new PriceBar().ticker("AAPL").tradeDate(LocalDate.of(2025, 10, 14));
+        assertThat(priceBar.isNew()).isTrue();
+
+        priceBar.updateEntityState();
+        assertThat(priceBar.isNew()).isFalse();
+    }
+}
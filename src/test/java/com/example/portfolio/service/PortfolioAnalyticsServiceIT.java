@@ -0,0 +1,89 @@
+package com.example.portfolio.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.portfolio.IntegrationTest;
+import com.example.portfolio.domain.Asset;
+import com.example.portfolio.domain.Portfolio;
+import com.example.portfolio.repository.AssetRepository;
+import com.example.portfolio.repository.PortfolioRepository;
+import com.example.portfolio.service.dto.HoldingMetrics;
+import com.example.portfolio.service.dto.PortfolioMetrics;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.Instant;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link PortfolioAnalyticsService}.
+ */
+@IntegrationTest
+@Transactional
+class PortfolioAnalyticsServiceIT {
+
+    private static final int HOLDINGS_PER_PORTFOLIO = 20;
+
+    @Autowired
+    private PortfolioAnalyticsService portfolioAnalyticsService;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void metricsOnlyLoadTheRequestedPortfolioHoldings() {
+        Portfolio portfolio = createPortfolioWithHoldings("Growth");
+        createPortfolioWithHoldings("Income");
+        em.flush();
+        em.clear();
+        statistics.clear();
+
+        PortfolioMetrics metrics = portfolioAnalyticsService.calculatePortfolioMetrics(portfolio.getId());
+
+        assertThat(metrics.assets()).hasSize(HOLDINGS_PER_PORTFOLIO);
+        // One statement to check the portfolio exists, one to load its holdings, whatever the number of holdings
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(HOLDINGS_PER_PORTFOLIO);
+        assertThat(metrics.totalValue()).isEqualByComparingTo(
+            metrics.assets().stream().map(HoldingMetrics::currentValue).reduce(BigDecimal.ZERO, BigDecimal::add)
+        );
+    }
+
+    private Portfolio createPortfolioWithHoldings(String name) {
+        Portfolio portfolio = portfolioRepository.save(new Portfolio().name(name).createdDate(Instant.now()));
+        for (int i = 0; i < HOLDINGS_PER_PORTFOLIO; i++) {
+            assetRepository.save(
+                new Asset().ticker(name.substring(0, 1) + "T" + i).quantity(i + 1).avgPrice(new BigDecimal("10.00")).portfolio(portfolio)
+            );
+        }
+        return portfolio;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.portfolio.service;
+
+import com.example.portfolio.service.dto.HoldingMetrics;
+import com.example.portfolio.service.dto.PortfolioMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares building and serializing the portfolio metrics as nested {@code HashMap}s, as they used to be, with the
+ * {@link PortfolioMetrics} and {@link HoldingMetrics} records.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation rate per operation next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PortfolioMetricsBenchmark {
+
+    @Param({ "10", "200" })
+    int holdings;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String[] tickers;
+    private int[] quantities;
+    private BigDecimal[] avgPrices;
+    private BigDecimal[] currentPrices;
+
+    @Setup
+    public void setup() {
+        tickers = new String[holdings];
+        quantities = new int[holdings];
+        avgPrices = new BigDecimal[holdings];
+        currentPrices = new BigDecimal[holdings];
+        for (int i = 0; i < holdings; i++) {
+            tickers[i] = "T" + i;
+            quantities[i] = i + 1;
+            avgPrices[i] = BigDecimal.valueOf(10_000 + i, 2);
+            currentPrices[i] = BigDecimal.valueOf(10_500 + 3L * i, 2);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> buildMaps() {
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        List<Map<String, Object>> assetDetails = new ArrayList<>();
+        for (int i = 0; i < holdings; i++) {
+            BigDecimal assetValue = currentPrices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            BigDecimal assetCost = avgPrices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            totalValue = totalValue.add(assetValue);
+            totalCost = totalCost.add(assetCost);
+
+            Map<String, Object> assetDetail = new HashMap<>();
+            assetDetail.put("ticker", tickers[i]);
+            assetDetail.put("quantity", quantities[i]);
+            assetDetail.put("avgPrice", avgPrices[i]);
+            assetDetail.put("currentPrice", currentPrices[i]);
+            assetDetail.put("priceStale", false);
+            assetDetail.put("currentValue", assetValue);
+            assetDetail.put("gainLoss", assetValue.subtract(assetCost));
+            assetDetail.put("gainLossPercent", percentOf(assetValue.subtract(assetCost), assetCost));
+            assetDetails.add(assetDetail);
+        }
+
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalValue", totalValue);
+        metrics.put("totalCost", totalCost);
+        metrics.put("totalGainLoss", totalValue.subtract(totalCost));
+        metrics.put("totalGainLossPercent", percentOf(totalValue.subtract(totalCost), totalCost));
+        metrics.put("assets", assetDetails);
+        metrics.put("diversificationScore", BigDecimal.valueOf(100.0));
+        metrics.put("recommendedAsset", "MSFT");
+        return metrics;
+    }
+
+    @Benchmark
+    public PortfolioMetrics buildRecords() {
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        List<HoldingMetrics> assetDetails = new ArrayList<>(holdings);
+        for (int i = 0; i < holdings; i++) {
+            BigDecimal assetValue = currentPrices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            BigDecimal assetCost = avgPrices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            totalValue = totalValue.add(assetValue);
+            totalCost = totalCost.add(assetCost);
+
+            assetDetails.add(
+                new HoldingMetrics(
+                    tickers[i],
+                    quantities[i],
+                    avgPrices[i],
+                    currentPrices[i],
+                    false,
+                    assetValue,
+                    assetValue.subtract(assetCost),
+                    percentOf(assetValue.subtract(assetCost), assetCost)
+                )
+            );
+        }
+
+        return new PortfolioMetrics(
+            totalValue,
+            totalCost,
+            totalValue.subtract(totalCost),
+            percentOf(totalValue.subtract(totalCost), totalCost),
+            assetDetails,
+            BigDecimal.valueOf(100.0),
+            "MSFT"
+        );
+    }
+
+    @Benchmark
+    public byte[] serializeMaps() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(buildMaps());
+    }
+
+    @Benchmark
+    public byte[] serializeRecords() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(buildRecords());
+    }
+
+    private static BigDecimal percentOf(BigDecimal gainLoss, BigDecimal cost) {
+        return cost.compareTo(BigDecimal.ZERO) > 0
+            ? gainLoss.divide(cost, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100))
+            : BigDecimal.ZERO;
+    }
+}
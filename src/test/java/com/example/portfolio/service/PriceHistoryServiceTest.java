@@ -0,0 +1,262 @@
+package com.example.portfolio.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.domain.PriceBar;
+import com.example.portfolio.repository.AssetRepository;
+import com.example.portfolio.repository.PriceBarRepository;
+import com.example.portfolio.service.history.PriceFileStore;
+import com.example.portfolio.service.marketdata.DailyBar;
+import com.example.portfolio.service.marketdata.DailySeries;
+import com.example.portfolio.service.marketdata.MarketCalendar;
+import com.example.portfolio.service.marketdata.MarketDataException;
+import com.example.portfolio.service.marketdata.MockQuoteProvider;
+import com.example.portfolio.service.marketdata.PriceSeries;
+import com.example.portfolio.service.marketdata.QuotaExceededException;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteProvider;
+import com.example.portfolio.service.marketdata.RequestPriority;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class PriceHistoryServiceTest {
+
+    // Wednesday 2025-10-15, 14:00 in New York: the last final bar is Tuesday's
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-10-15T18:00:00Z"), ZoneOffset.UTC);
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 10, 13);
+    private static final LocalDate TUESDAY = LocalDate.of(2025, 10, 14);
+    private static final LocalDate WEDNESDAY = LocalDate.of(2025, 10, 15);
+
+    private PriceBarRepository priceBarRepository;
+
+    private AssetRepository assetRepository;
+
+    private StubQuoteProvider provider;
+
+    @TempDir
+    Path storeDirectory;
+
+    private ApplicationProperties applicationProperties;
+
+    private PriceHistoryService priceHistoryService;
+
+    @BeforeEach
+    void setup() {
+        priceBarRepository = mock(PriceBarRepository.class);
+        assetRepository = mock(AssetRepository.class);
+        provider = new StubQuoteProvider();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getMarketData().setProvider(StubQuoteProvider.NAME);
+        applicationProperties.getMarketData().getHistory().getFileStore().setDirectory(storeDirectory.toString());
+        createService();
+    }
+
+    @Test
+    void lastFinalTradeDateSkipsTheWeekend() {
+        assertThat(priceHistoryService.lastFinalTradeDate()).isEqualTo(TUESDAY);
+    }
+
+    @Test
+    void lastFinalTradeDateSkipsHolidays() {
+        applicationProperties.getMarketData().getCalendar().setHolidays(List.of(TUESDAY.toString()));
+        createService();
+
+        assertThat(priceHistoryService.lastFinalTradeDate()).isEqualTo(MONDAY);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void syncStoresOnlyTheFinalBarsMissingSinceTheLastStoredOne() {
+        when(priceBarRepository.findLastTradeDate("AAPL")).thenReturn(Optional.of(MONDAY));
+        provider.series = DailySeries.builder(3).add(bar(WEDNESDAY, "102.00")).add(bar(TUESDAY, "101.1235")).add(bar(MONDAY, "100.00")).build();
+
+        assertThat(priceHistoryService.sync("aapl", RequestPriority.BACKGROUND)).isEqualTo(1);
+
+        ArgumentCaptor<List<PriceBar>> saved = ArgumentCaptor.forClass(List.class);
+        verify(priceBarRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).singleElement().satisfies(priceBar -> {
+            assertThat(priceBar.getTicker()).isEqualTo("AAPL");
+            assertThat(priceBar.getTradeDate()).isEqualTo(TUESDAY);
+            assertThat(priceBar.getClose()).isEqualTo("101.1235");
+        });
+        assertThat(provider.calls).containsExactly("AAPL");
+    }
+
+    @Test
+    void syncAppendsTheFinalBarsToTheFileStore() {
+        applicationProperties.getMarketData().getHistory().getFileStore().setEnabled(true);
+        createService();
+        when(priceBarRepository.findLastTradeDate("AAPL")).thenReturn(Optional.of(TUESDAY));
+        provider.series = DailySeries.builder(3).add(bar(WEDNESDAY, "102.00")).add(bar(TUESDAY, "101.00")).add(bar(MONDAY, "100.00")).build();
+
+        priceHistoryService.sync("AAPL", RequestPriority.BACKGROUND);
+        PriceSeries series = priceHistoryService.getPriceSeries("AAPL");
+
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.date(1)).isEqualTo(TUESDAY);
+        assertThat(series.close(1)).isEqualTo(1_010_000);
+        // Current in both stores now
+        assertThat(priceHistoryService.sync("AAPL", RequestPriority.BACKGROUND)).isZero();
+        assertThat(provider.calls).containsExactly("AAPL");
+    }
+
+    @Test
+    void syncSkipsTheProviderWhenTheStoreIsCurrent() {
+        when(priceBarRepository.findLastTradeDate("AAPL")).thenReturn(Optional.of(TUESDAY));
+
+        assertThat(priceHistoryService.sync("AAPL", RequestPriority.BACKGROUND)).isZero();
+
+        assertThat(provider.calls).isEmpty();
+        verify(priceBarRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void historicalDataIsServedFromTheStoreNewestFirst() {
+        when(priceBarRepository.findAllByTickerAndTradeDateBetweenOrderByTradeDateDesc(eq("AAPL"), any(), eq(TUESDAY))).thenReturn(
+            List.of(priceBar(TUESDAY, "101.0000"), priceBar(MONDAY, "100.0000"))
+        );
+
+        Map<String, Object> historicalData = priceHistoryService.getHistoricalData("aapl");
+
+        assertThat(historicalData).containsEntry("ticker", "aapl");
+        Map<String, Map<String, String>> data = (Map<String, Map<String, String>>) historicalData.get("data");
+        assertThat(data).containsOnlyKeys("2025-10-14", "2025-10-13");
+        assertThat(data.keySet()).first().isEqualTo("2025-10-14");
+        assertThat(data.get("2025-10-14")).containsEntry("4. close", "101.0000").containsEntry("5. volume", "1000");
+        assertThat(provider.calls).isEmpty();
+        // The range scan alone tells the ticker is current
+        verify(priceBarRepository, never()).findLastTradeDate(any());
+    }
+
+    @Test
+    void tickerBehindIsSyncedOnDemandOnceADay() {
+        when(priceBarRepository.findLastTradeDate("AAPL")).thenReturn(Optional.empty());
+        provider.failure = new MarketDataException("down");
+
+        Map<String, Object> first = priceHistoryService.getHistoricalData("AAPL");
+        priceHistoryService.getHistoricalData("AAPL");
+
+        assertThat(provider.calls).containsExactly("AAPL");
+        // Nothing stored: mock bars rather than an empty history
+        assertThat((Map<?, ?>) first.get("data")).isNotEmpty();
+    }
+
+    @Test
+    void barsStoredConcurrentlyElsewhereAreServed() {
+        when(priceBarRepository.findLastTradeDate("AAPL")).thenReturn(Optional.of(MONDAY));
+        when(priceBarRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(priceBarRepository.findAllByTickerAndTradeDateBetweenOrderByTradeDateDesc(eq("AAPL"), any(), eq(TUESDAY))).thenReturn(
+            List.of(priceBar(MONDAY, "100.0000")),
+            List.of(priceBar(TUESDAY, "101.0000"), priceBar(MONDAY, "100.0000"))
+        );
+        provider.series = DailySeries.builder(2).add(bar(TUESDAY, "101.00")).add(bar(MONDAY, "100.00")).build();
+
+        PriceSeries series = priceHistoryService.getPriceSeries("AAPL");
+
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.date(1)).isEqualTo(TUESDAY);
+        assertThat(provider.calls).containsExactly("AAPL");
+    }
+
+    @Test
+    void onDemandSyncsAreTrackedForAtMostTheConfiguredTickers() {
+        applicationProperties.getMarketData().getHistory().setOnDemandMaxTickers(1);
+        createService();
+        when(priceBarRepository.findLastTradeDate(any())).thenReturn(Optional.empty());
+        provider.failure = new MarketDataException("down");
+
+        priceHistoryService.getPriceSeries("AAPL");
+        priceHistoryService.getPriceSeries("MSFT");
+        priceHistoryService.getPriceSeries("AAPL");
+
+        // MSFT waits for the scheduled sync
+        assertThat(provider.calls).containsExactly("AAPL");
+    }
+
+    @Test
+    void heldTickersSyncStopsOnceTheBudgetIsSpent() {
+        when(assetRepository.findDistinctTickers()).thenReturn(List.of("msft", "AAPL", "MSFT"));
+        when(priceBarRepository.findLastTradeDate(any())).thenReturn(Optional.empty());
+        provider.failure = new QuotaExceededException("spent");
+
+        priceHistoryService.syncHeldTickers();
+
+        assertThat(provider.calls).containsExactly("AAPL");
+    }
+
+    private void createService() {
+        priceHistoryService = new PriceHistoryService(
+            provider,
+            new MockQuoteProvider(),
+            priceBarRepository,
+            assetRepository,
+            new PriceFileStore(applicationProperties),
+            new MarketCalendar(applicationProperties),
+            applicationProperties,
+            CLOCK
+        );
+    }
+
+    private static DailyBar bar(LocalDate date, String close) {
+        BigDecimal price = new BigDecimal(close);
+        return new DailyBar(date, price, price, price, price, 1000);
+    }
+
+    private static PriceBar priceBar(LocalDate date, String close) {
+        BigDecimal price = new BigDecimal(close);
+        return new PriceBar().ticker("AAPL").tradeDate(date).open(price).high(price).low(price).close(price).volume(1000L);
+    }
+
+    private static class StubQuoteProvider implements QuoteProvider {
+
+        static final String NAME = "stub";
+
+        final List<String> calls = new ArrayList<>();
+
+        DailySeries series = DailySeries.empty();
+
+        MarketDataException failure;
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public Optional<Quote> fetchQuote(String ticker, RequestPriority priority) {
+            return Optional.empty();
+        }
+
+        @Override
+        public DailySeries fetchDailySeries(String ticker, RequestPriority priority) {
+            calls.add(ticker);
+            if (failure != null) {
+                throw failure;
+            }
+            return series;
+        }
+    }
+}
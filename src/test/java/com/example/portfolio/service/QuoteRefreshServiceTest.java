@@ -0,0 +1,192 @@
+package com.example.portfolio.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.repository.AssetRepository;
+import com.example.portfolio.service.marketdata.MarketCalendar;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import com.example.portfolio.service.marketdata.RefreshSchedule;
+import com.example.portfolio.service.stream.QuoteStreamService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+class QuoteRefreshServiceTest {
+
+    private ApplicationProperties applicationProperties;
+
+    private QuoteCache quoteCache;
+
+    private StockDataService stockDataService;
+
+    private AssetRepository assetRepository;
+
+    private QuoteStreamService quoteStreamService;
+
+    private MarketCalendar marketCalendar;
+
+    private QuoteRefreshService quoteRefreshService;
+
+    @BeforeEach
+    void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getMarketData().getQuoteCache().setTimeToLiveSeconds(300);
+        applicationProperties.getMarketData().getRefresh().setTickSeconds(15);
+        applicationProperties.getMarketData().getRefresh().setMinIntervalSeconds(60);
+        applicationProperties.getMarketData().getRefresh().setMaxIntervalSeconds(3600);
+        applicationProperties.getMarketData().getRefresh().setMaxTickersPerRun(2);
+        marketCalendar = mock(MarketCalendar.class);
+        when(marketCalendar.isOpen(any())).thenReturn(true);
+        quoteCache = new QuoteCache(
+            new ConcurrentMapCacheManager(QuoteCache.QUOTES_CACHE),
+            event -> {},
+            marketCalendar,
+            applicationProperties,
+            new SimpleMeterRegistry()
+        );
+        stockDataService = mock(StockDataService.class);
+        assetRepository = mock(AssetRepository.class);
+        quoteStreamService = mock(QuoteStreamService.class);
+        createService();
+    }
+
+    @Test
+    void mostReadTickersAboutToGoStaleComeFirst() {
+        when(assetRepository.findDistinctTickers()).thenReturn(List.of("aapl", "MSFT", "GOOGL", "TSLA", "AAPL", "NVDA"));
+        read("GOOGL", 1);
+        read("TSLA", 3);
+        read("MSFT", 5);
+        // Fresh until after the next tick
+        quoteCache.put(new Quote("MSFT", BigDecimal.TEN, Instant.now(), false));
+        applicationProperties.getMarketData().getRefresh().setMaxTickersPerRun(3);
+        createService();
+
+        quoteRefreshService.refreshHeldTickers();
+
+        verify(stockDataService).refreshQuotes(List.of("TSLA", "GOOGL"));
+    }
+
+    @Test
+    void refreshedTickersAreRescheduledAndFailedOnesRetried() {
+        when(assetRepository.findDistinctTickers()).thenReturn(List.of("AAPL", "MSFT"));
+        read("AAPL", 2);
+        read("MSFT", 1);
+        when(stockDataService.refreshQuotes(anyList())).thenAnswer(invocation -> {
+            quoteCache.put(new Quote("AAPL", BigDecimal.TEN, Instant.now(), false));
+            return 1;
+        });
+
+        quoteRefreshService.refreshHeldTickers();
+
+        assertThat(quoteRefreshService.tickerRefreshes()).allSatisfy(refresh -> assertThat(refresh.nextRefresh()).isAfter(Instant.now()));
+        RefreshSchedule.TickerRefresh aapl = refresh("AAPL");
+        assertThat(aapl.interval()).isEqualTo(Duration.ofMinutes(1));
+        assertThat(aapl.lastQuoteAt()).isNotNull();
+        RefreshSchedule.TickerRefresh msft = refresh("MSFT");
+        assertThat(msft.interval()).isNull();
+        assertThat(msft.lastQuoteAt()).isNull();
+    }
+
+    @Test
+    void tickersNotDueAreLeftAlone() {
+        when(assetRepository.findDistinctTickers()).thenReturn(List.of("AAPL"));
+        when(stockDataService.refreshQuotes(anyList())).thenAnswer(invocation -> {
+            quoteCache.put(new Quote("AAPL", BigDecimal.TEN, Instant.now(), false));
+            return 1;
+        });
+
+        quoteRefreshService.refreshHeldTickers();
+        quoteRefreshService.refreshHeldTickers();
+
+        verify(stockDataService, times(1)).refreshQuotes(anyList());
+    }
+
+    @Test
+    void unreadTickersAreDueInAlphabeticalOrder() {
+        when(assetRepository.findDistinctTickers()).thenReturn(List.of("MSFT", "AAPL"));
+
+        quoteRefreshService.refreshHeldTickers();
+
+        verify(stockDataService).refreshQuotes(List.of("AAPL", "MSFT"));
+    }
+
+    @Test
+    void streamedTickersAreRefreshedAlongWithTheHeldOnes() {
+        when(assetRepository.findDistinctTickers()).thenReturn(List.of("MSFT"));
+        when(quoteStreamService.tickersToRefresh()).thenReturn(Set.of("AAPL", "MSFT"));
+
+        quoteRefreshService.refreshHeldTickers();
+
+        verify(stockDataService).refreshQuotes(List.of("AAPL", "MSFT"));
+    }
+
+    @Test
+    void nothingIsFetchedWhenDisabled() {
+        applicationProperties.getMarketData().getRefresh().setEnabled(false);
+        createService();
+        when(assetRepository.findDistinctTickers()).thenReturn(List.of("AAPL"));
+
+        quoteRefreshService.refreshHeldTickers();
+
+        verify(stockDataService, never()).refreshQuotes(anyList());
+    }
+
+    @Test
+    void nothingIsFetchedWhileTheMarketIsClosed() {
+        when(marketCalendar.isOpen(any())).thenReturn(false);
+        when(assetRepository.findDistinctTickers()).thenReturn(List.of("AAPL"));
+
+        quoteRefreshService.refreshHeldTickers();
+
+        verify(stockDataService, never()).refreshQuotes(anyList());
+    }
+
+    @Test
+    void readCountsDecayOncePerHalfLife() {
+        read("AAPL", 4);
+
+        quoteRefreshService.refreshHeldTickers();
+        assertThat(quoteCache.readCount("AAPL")).isEqualTo(4);
+
+        applicationProperties.getMarketData().getRefresh().setReadCountHalfLifeMinutes(0);
+        createService();
+        quoteRefreshService.refreshHeldTickers();
+        assertThat(quoteCache.readCount("AAPL")).isEqualTo(2);
+    }
+
+    private void createService() {
+        quoteRefreshService = new QuoteRefreshService(
+            stockDataService,
+            quoteCache,
+            assetRepository,
+            quoteStreamService,
+            marketCalendar,
+            applicationProperties
+        );
+    }
+
+    private RefreshSchedule.TickerRefresh refresh(String ticker) {
+        return quoteRefreshService.tickerRefreshes().stream().filter(refresh -> refresh.ticker().equals(ticker)).findFirst().orElseThrow();
+    }
+
+    private void read(String ticker, int times) {
+        for (int i = 0; i < times; i++) {
+            quoteCache.lookup(ticker);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.example.portfolio.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.service.marketdata.CallNotPermittedException;
+import com.example.portfolio.service.marketdata.DailySeries;
+import com.example.portfolio.service.marketdata.MarketCalendar;
+import com.example.portfolio.service.marketdata.MarketDataException;
+import com.example.portfolio.service.marketdata.MockQuoteProvider;
+import com.example.portfolio.service.marketdata.QuotaExceededException;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import com.example.portfolio.service.marketdata.QuotePrices;
+import com.example.portfolio.service.marketdata.QuoteProvider;
+import com.example.portfolio.service.marketdata.RequestPriority;
+import com.example.portfolio.service.valuation.HoldingsIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.core.task.SyncTaskExecutor;
+
+class StockDataServiceTest {
+
+    private ApplicationProperties applicationProperties;
+
+    private QuoteCache quoteCache;
+
+    private StubQuoteProvider provider;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private StockDataService stockDataService;
+
+    @BeforeEach
+    void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getMarketData().setProvider(StubQuoteProvider.NAME);
+        // Open at all hours, so that quotes age the same whenever the tests run
+        MarketCalendar marketCalendar = mock(MarketCalendar.class);
+        when(marketCalendar.isOpen(any())).thenReturn(true);
+        quoteCache = new QuoteCache(
+            new ConcurrentMapCacheManager(QuoteCache.QUOTES_CACHE),
+            event -> {},
+            marketCalendar,
+            applicationProperties,
+            new SimpleMeterRegistry()
+        );
+        provider = new StubQuoteProvider();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockDataService.destroy();
+    }
+
+    @Test
+    void currentPriceIsServedFromCacheOnceFetched() {
+        createService();
+
+        assertThat(stockDataService.getCurrentPrice("aapl")).isEqualByComparingTo("100.00");
+        assertThat(stockDataService.getCurrentPrice("AAPL")).isEqualByComparingTo("100.00");
+
+        assertThat(provider.singleCalls).containsExactly("AAPL");
+    }
+
+    @Test
+    void spentBudgetFallsBackToTheStaleCachedQuote() {
+        createService();
+        quoteCache.put(new Quote("AAPL", new BigDecimal("42.00"), Instant.now().minusSeconds(86000), false));
+        provider.quotaExceeded = true;
+
+        Quote quote = stockDataService.getQuote("AAPL");
+
+        assertThat(quote.price()).isEqualByComparingTo("42.00");
+        assertThat(quote.stale()).isTrue();
+    }
+
+    @Test
+    void openCircuitFallsBackToTheStaleCachedQuote() {
+        createService();
+        quoteCache.put(new Quote("AAPL", new BigDecimal("42.00"), Instant.now().minusSeconds(86000), false));
+        provider.circuitOpen = true;
+
+        Quote quote = stockDataService.getQuote("AAPL");
+
+        assertThat(quote.price()).isEqualByComparingTo("42.00");
+        assertThat(quote.stale()).isTrue();
+        assertThat(fallbacks("cache")).isEqualTo(1);
+        assertThat(fallbacks("mock")).isZero();
+    }
+
+    @Test
+    void tickerWithoutAnyQuoteGetsACountedMockPrice() {
+        createService();
+        provider.circuitOpen = true;
+
+        Map<String, Quote> quotes = stockDataService.getCurrentPrices(List.of("AAPL", "MSFT"));
+
+        assertThat(quotes.values()).allSatisfy(quote -> assertThat(quote.stale()).isTrue());
+        assertThat(fallbacks("mock")).isEqualTo(2);
+    }
+
+    @Test
+    void tickerWithoutAnyQuoteIsAnErrorWithoutTheMockFallback() {
+        applicationProperties.getMarketData().setMockFallback(false);
+        createService();
+        provider.circuitOpen = true;
+
+        assertThatThrownBy(() -> stockDataService.getQuote("AAPL")).isInstanceOf(MarketDataException.class).hasMessageContaining("AAPL");
+        assertThat(fallbacks("mock")).isZero();
+    }
+
+    @Test
+    void batchIsDeduplicatedAndSkipsCachedTickers() {
+        createService();
+        quoteCache.put(new Quote("MSFT", new BigDecimal("50.00"), Instant.now(), false));
+
+        Map<String, Quote> quotes = stockDataService.getCurrentPrices(List.of("AAPL", "aapl", "MSFT", "GOOGL"));
+
+        assertThat(quotes).containsOnlyKeys("AAPL", "aapl", "MSFT", "GOOGL");
+        assertThat(quotes.get("aapl")).isSameAs(quotes.get("AAPL"));
+        assertThat(quotes.get("MSFT").price()).isEqualByComparingTo("50.00");
+        assertThat(provider.singleCalls).containsExactlyInAnyOrder("AAPL", "GOOGL");
+        assertThat(provider.batchCalls).isEmpty();
+    }
+
+    @Test
+    void valuationPricesReadFreshTickersFromTheQuoteTable() {
+        createService();
+        quoteCache.put(new Quote("MSFT", new BigDecimal("50.25"), Instant.now(), false));
+
+        QuotePrices prices = stockDataService.getValuationPrices(List.of("msft", "AAPL"));
+
+        assertThat(prices.unscaledPrice(0)).isEqualTo(5025);
+        assertThat(prices.priceScale(0)).isEqualTo(2);
+        assertThat(prices.isStale(0)).isFalse();
+        assertThat(prices.price(1)).isEqualByComparingTo("100.00");
+        assertThat(provider.singleCalls).containsExactly("AAPL");
+    }
+
+    @Test
+    void batchUsesOneUpstreamRequestWhenSupported() {
+        provider.batch = true;
+        createService();
+
+        Map<String, Quote> quotes = stockDataService.getCurrentPrices(List.of("AAPL", "MSFT", "GOOGL"));
+
+        assertThat(quotes.values()).extracting(Quote::price).allSatisfy(price -> assertThat(price).isEqualByComparingTo("100.00"));
+        assertThat(provider.batchCalls).containsExactly(List.of("AAPL", "MSFT", "GOOGL"));
+        assertThat(provider.singleCalls).isEmpty();
+    }
+
+    @Test
+    void batchReturnsStaleQuotesForTickersMissingTheDeadline() {
+        createService();
+        quoteCache.put(new Quote("SLOW", new BigDecimal("42.00"), Instant.now().minusSeconds(86000), false));
+        provider.slowTicker = "SLOW";
+
+        long start = System.nanoTime();
+        Map<String, Quote> quotes = stockDataService.getCurrentPrices(List.of("AAPL", "SLOW"), Duration.ofMillis(200));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(elapsed).isLessThan(Duration.ofMillis(StubQuoteProvider.SLOW_DELAY_MILLIS));
+        assertThat(quotes.get("AAPL").stale()).isFalse();
+        assertThat(quotes.get("SLOW").price()).isEqualByComparingTo("42.00");
+        assertThat(quotes.get("SLOW").stale()).isTrue();
+    }
+
+    @Test
+    void refreshFetchesInOrderUntilTheBudgetIsSpent() {
+        createService();
+        provider.budget = 2;
+
+        int refreshed = stockDataService.refreshQuotes(List.of("MSFT", "AAPL", "GOOGL"));
+
+        assertThat(refreshed).isEqualTo(2);
+        assertThat(provider.singleCalls).containsExactly("MSFT", "AAPL");
+        assertThat(quoteCache.getIfPresent("AAPL")).isPresent();
+        assertThat(quoteCache.getIfPresent("GOOGL")).isEmpty();
+    }
+
+    @Test
+    void refreshStopsWhileTheCircuitIsOpen() {
+        createService();
+        provider.circuitOpen = true;
+
+        assertThat(stockDataService.refreshQuotes(List.of("MSFT", "AAPL"))).isZero();
+
+        assertThat(provider.refusedCalls).isEqualTo(1);
+    }
+
+    @Test
+    void refreshUsesOneUpstreamRequestWhenSupported() {
+        provider.batch = true;
+        createService();
+
+        assertThat(stockDataService.refreshQuotes(List.of("MSFT", "AAPL"))).isEqualTo(2);
+
+        assertThat(provider.batchCalls).containsExactly(List.of("MSFT", "AAPL"));
+        assertThat(quoteCache.getIfPresent("MSFT")).isPresent();
+    }
+
+    @Test
+    void interactiveRequestDoesNotWaitForARevalidation() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            createService(executor);
+            quoteCache.put(new Quote("AAPL", new BigDecimal("42.00"), Instant.now().minusSeconds(120), false));
+            provider.blockedTicker = "AAPL";
+            provider.blockedPriority = RequestPriority.BACKGROUND;
+
+            assertThat(stockDataService.getQuote("AAPL").stale()).isTrue();
+            // The revalidation waits for the background budget while the quote goes missing
+            assertThat(provider.blockedCalls.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+            quoteCache.evict("AAPL");
+
+            Quote quote = CompletableFuture.supplyAsync(() -> stockDataService.getQuote("AAPL")).get(5, TimeUnit.SECONDS);
+
+            assertThat(quote.price()).isEqualByComparingTo("100.00");
+            assertThat(quote.stale()).isFalse();
+            assertThat(provider.singleCalls).containsExactly("AAPL", "AAPL");
+        } finally {
+            provider.release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void interactiveRequestDoesNotWaitForABackgroundRefresh() throws Exception {
+        createService();
+        provider.blockedTicker = "AAPL";
+        provider.blockedPriority = RequestPriority.BACKGROUND;
+        CompletableFuture<Integer> refresh = CompletableFuture.supplyAsync(() -> stockDataService.refreshQuotes(List.of("AAPL")));
+        try {
+            // The refresh waits for the background budget
+            assertThat(provider.blockedCalls.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+
+            Quote quote = CompletableFuture.supplyAsync(() -> stockDataService.getQuote("AAPL")).get(5, TimeUnit.SECONDS);
+
+            assertThat(quote.price()).isEqualByComparingTo("100.00");
+            assertThat(quote.stale()).isFalse();
+        } finally {
+            provider.release.countDown();
+        }
+        assertThat(refresh.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(provider.singleCalls).containsExactly("AAPL", "AAPL");
+    }
+
+    @Test
+    void coalescedRequestsAreCountedPerKnownTicker() throws Exception {
+        createService();
+        quoteCache.put(new Quote("AAPL", new BigDecimal("42.00"), Instant.now().minusSeconds(86000), false));
+        provider.blockedTicker = "AAPL";
+        CompletableFuture<Quote> first = CompletableFuture.supplyAsync(() -> stockDataService.getQuote("AAPL"));
+        assertThat(provider.blockedCalls.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Quote> second = CompletableFuture.supplyAsync(() -> stockDataService.getQuote("AAPL"));
+        awaitCoalesced("AAPL");
+        provider.release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(second.get(5, TimeUnit.SECONDS));
+        assertThat(provider.singleCalls).containsExactly("AAPL");
+        assertThat(coalesced("AAPL").count()).isEqualTo(1);
+        assertThat(coalesced(StockDataService.COALESCED_METER_OTHER_TICKER)).isNull();
+    }
+
+    @Test
+    void coalescedRequestsForUnknownTickersShareOneTag() throws Exception {
+        createService();
+        provider.blockedTicker = "MADEUP";
+        CompletableFuture<Quote> first = CompletableFuture.supplyAsync(() -> stockDataService.getQuote("MADEUP"));
+        assertThat(provider.blockedCalls.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Quote> second = CompletableFuture.supplyAsync(() -> stockDataService.getQuote("MADEUP"));
+        awaitCoalesced(StockDataService.COALESCED_METER_OTHER_TICKER);
+        provider.release.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(coalesced(StockDataService.COALESCED_METER_OTHER_TICKER).count()).isEqualTo(1);
+        assertThat(coalesced("MADEUP")).isNull();
+    }
+
+    private Counter coalesced(String tag) {
+        return meterRegistry
+            .find(StockDataService.COALESCED_METER_NAME)
+            .tag(StockDataService.COALESCED_METER_TICKER_DIMENSION, tag)
+            .counter();
+    }
+
+    private void awaitCoalesced(String tag) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced(tag) == null) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private double fallbacks(String source) {
+        return meterRegistry.get(StockDataService.FALLBACK_METER_NAME).tag(StockDataService.FALLBACK_METER_SOURCE_DIMENSION, source).counter().count();
+    }
+
+    private void createService() {
+        createService(new SyncTaskExecutor());
+    }
+
+    private void createService(Executor taskExecutor) {
+        stockDataService = new StockDataService(
+            provider,
+            new MockQuoteProvider(),
+            applicationProperties,
+            quoteCache,
+            new HoldingsIndex(),
+            taskExecutor,
+            meterRegistry
+        );
+    }
+
+    private static class StubQuoteProvider implements QuoteProvider {
+
+        static final String NAME = "stub";
+        static final long SLOW_DELAY_MILLIS = 2000;
+
+        final List<String> singleCalls = Collections.synchronizedList(new ArrayList<>());
+        final List<List<String>> batchCalls = Collections.synchronizedList(new ArrayList<>());
+        boolean batch;
+        boolean quotaExceeded;
+        boolean circuitOpen;
+        int refusedCalls;
+        int budget = Integer.MAX_VALUE;
+        volatile String slowTicker;
+        // Fetches of the blocked ticker, at the blocked priority if any, signal blockedCalls and wait for release
+        volatile String blockedTicker;
+        volatile RequestPriority blockedPriority;
+        final Semaphore blockedCalls = new Semaphore(0);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public Optional<Quote> fetchQuote(String ticker, RequestPriority priority) {
+            if (quotaExceeded || singleCalls.size() == budget) {
+                throw new QuotaExceededException("spent");
+            }
+            if (circuitOpen) {
+                refusedCalls++;
+                throw new CallNotPermittedException("open");
+            }
+            singleCalls.add(ticker);
+            if (ticker.equals(blockedTicker) && (blockedPriority == null || priority == blockedPriority)) {
+                blockedCalls.release();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (ticker.equals(slowTicker)) {
+                try {
+                    Thread.sleep(SLOW_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Optional.of(new Quote(ticker, new BigDecimal("100.00"), Instant.now(), false));
+        }
+
+        @Override
+        public boolean supportsBatch() {
+            return batch;
+        }
+
+        @Override
+        public Map<String, Quote> fetchQuotes(Collection<String> tickers, RequestPriority priority) {
+            batchCalls.add(List.copyOf(tickers));
+            Map<String, Quote> quotes = new LinkedHashMap<>();
+            tickers.forEach(ticker -> quotes.put(ticker, new Quote(ticker, new BigDecimal("100.00"), Instant.now(), false)));
+            return quotes;
+        }
+
+        @Override
+        public DailySeries fetchDailySeries(String ticker, RequestPriority priority) {
+            return DailySeries.empty();
+        }
+    }
+}
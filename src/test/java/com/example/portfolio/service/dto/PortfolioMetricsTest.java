@@ -0,0 +1,59 @@
+package com.example.portfolio.service.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PortfolioMetricsTest {
+
+    @Test
+    void serializesWithTheMetricsFieldNames() {
+        PortfolioMetrics metrics = new PortfolioMetrics(
+            new BigDecimal("1505.00"),
+            new BigDecimal("1450.00"),
+            new BigDecimal("55.00"),
+            new BigDecimal("3.79"),
+            List.of(
+                new HoldingMetrics(
+                    "AAPL",
+                    10,
+                    new BigDecimal("145.00"),
+                    new BigDecimal("150.50"),
+                    false,
+                    new BigDecimal("1505.00"),
+                    new BigDecimal("55.00"),
+                    new BigDecimal("3.79")
+                )
+            ),
+            new BigDecimal("65.0"),
+            "MSFT"
+        );
+
+        JsonNode json = new ObjectMapper().valueToTree(metrics);
+
+        assertThat(json.fieldNames()).toIterable().containsExactlyInAnyOrder(
+            "totalValue",
+            "totalCost",
+            "totalGainLoss",
+            "totalGainLossPercent",
+            "assets",
+            "diversificationScore",
+            "recommendedAsset"
+        );
+        assertThat(json.get("assets").get(0).fieldNames()).toIterable().containsExactlyInAnyOrder(
+            "ticker",
+            "quantity",
+            "avgPrice",
+            "currentPrice",
+            "priceStale",
+            "currentValue",
+            "gainLoss",
+            "gainLossPercent"
+        );
+        assertThat(json.get("assets").get(0).get("currentPrice").decimalValue()).isEqualByComparingTo("150.50");
+    }
+}
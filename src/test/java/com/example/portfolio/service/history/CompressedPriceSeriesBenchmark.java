@@ -0,0 +1,65 @@
+package com.example.portfolio.service.history;
+
+import com.example.portfolio.service.marketdata.DailySeries;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodes 10 years of daily bars of a {@link CompressedPriceSeries}: all of them, and the last 140 days through the
+ * block index. The copy of the raw columns into a {@link DailySeries} is the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressedPriceSeriesBenchmark {
+
+    private static final int BARS = 2520;
+
+    private DailySeries series;
+    private CompressedPriceSeries compressed;
+    private long lastEpochDay;
+
+    @Setup
+    public void setup() {
+        series = CompressedPriceSeriesTest.typicalStock(LocalDate.of(2015, 10, 1), BARS, 1);
+        compressed = CompressedPriceSeries.encode(series);
+        lastEpochDay = series.epochDay(BARS - 1);
+    }
+
+    @Benchmark
+    public DailySeries decodeAll() {
+        return compressed.decode();
+    }
+
+    @Benchmark
+    public DailySeries decodeLastWindow() {
+        return compressed.decode(lastEpochDay - 140, lastEpochDay);
+    }
+
+    @Benchmark
+    public DailySeries copyRaw() {
+        DailySeries.Builder copy = DailySeries.builder(BARS);
+        for (int i = 0; i < BARS; i++) {
+            copy.add(series.epochDay(i), series.open(i), series.high(i), series.low(i), series.close(i), series.volume(i));
+        }
+        return copy.build();
+    }
+
+    @Benchmark
+    public CompressedPriceSeries encode() {
+        return CompressedPriceSeries.encode(series);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.portfolio.service.history;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.portfolio.service.marketdata.DailySeries;
+import com.example.portfolio.service.marketdata.PriceSeries;
+import java.nio.ByteBuffer;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Combinators;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.constraints.IntRange;
+
+class CompressedPriceSeriesTest {
+
+    /**
+     * Raw size of a bar in a {@link PriceFile}: an int date and 5 long columns.
+     */
+    private static final int RAW_BAR_BYTES = 44;
+
+    @Property(tries = 300)
+    void anySeriesRoundTrips(@ForAll("series") DailySeries series) {
+        CompressedPriceSeries compressed = CompressedPriceSeries.encode(series);
+
+        assertThat(compressed.size()).isEqualTo(series.size());
+        assertSameBars(compressed.decode(), series, 0, series.size());
+    }
+
+    @Property(tries = 300)
+    void rangeDecodesOnlyTheBarsWithinIt(
+        @ForAll("series") DailySeries series,
+        @ForAll @IntRange(min = -50, max = 1200) int from,
+        @ForAll @IntRange(min = 0, max = 1200) int length
+    ) {
+        CompressedPriceSeries compressed = CompressedPriceSeries.encode(series);
+        long fromEpochDay = 10_000L + from;
+        long toEpochDay = fromEpochDay + length;
+
+        DailySeries range = compressed.decode(fromEpochDay, toEpochDay);
+
+        int first = series.indexOf(fromEpochDay);
+        int last = series.indexOf(toEpochDay + 1);
+        assertSameBars(range, series, first, last);
+    }
+
+    @Property(tries = 100)
+    void wrappedBytesDecodeLikeTheOriginal(@ForAll("series") DailySeries series) {
+        ByteBuffer stored = ByteBuffer.allocate(CompressedPriceSeries.encode(series).byteSize() + 3);
+        stored.position(3);
+        stored.put(CompressedPriceSeries.encode(series).toByteBuffer());
+        stored.position(3);
+
+        assertSameBars(CompressedPriceSeries.wrap(stored).decode(), series, 0, series.size());
+    }
+
+    @Example
+    void tenYearsOfATypicalStockAreAtLeastFiveTimesSmaller() {
+        DailySeries series = typicalStock(LocalDate.of(2015, 10, 1), 2520, 1);
+
+        CompressedPriceSeries compressed = CompressedPriceSeries.encode(series);
+
+        assertSameBars(compressed.decode(), series, 0, series.size());
+        assertThat(compressed.blockCount()).isEqualTo(20);
+        assertThat(compressed.byteSize() * 5).isLessThanOrEqualTo(series.size() * RAW_BAR_BYTES);
+    }
+
+    @Example
+    void pricesWithFourDecimalsAreKept() {
+        DailySeries series = DailySeries.builder(2).add(20_000, 1_234_567, 1_300_001, 1_200_003, 1_250_009, 10).add(20_001, 5, 9, 1, 7, 0).build();
+
+        assertSameBars(CompressedPriceSeries.encode(series).decode(), series, 0, 2);
+    }
+
+    @Example
+    void emptySeriesRoundTrips() {
+        CompressedPriceSeries compressed = CompressedPriceSeries.encode(DailySeries.empty());
+
+        assertThat(compressed.blockCount()).isZero();
+        assertThat(compressed.decode().isEmpty()).isTrue();
+        assertThat(compressed.decode(0, 100).isEmpty()).isTrue();
+    }
+
+    @Example
+    void foreignBytesAreRejected() {
+        assertThatThrownBy(() -> CompressedPriceSeries.wrap(ByteBuffer.allocate(32))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Provide
+    Arbitrary<DailySeries> series() {
+        Arbitrary<long[]> steps = Arbitraries.oneOf(
+            // Random walks in cents or in full units, and any values at all
+            Arbitraries.longs().between(-5_000, 5_000).array(long[].class).ofSize(5).map(values -> scale(values, 100)),
+            Arbitraries.longs().between(-50_000, 50_000).array(long[].class).ofSize(5),
+            Arbitraries.longs().array(long[].class).ofSize(5)
+        );
+        Arbitrary<Integer> gap = Arbitraries.integers().between(1, 5);
+        return Combinators.combine(steps, gap)
+            .as((values, days) -> new long[] { days, values[0], values[1], values[2], values[3], values[4] })
+            .list()
+            .ofMaxSize(600)
+            .map(CompressedPriceSeriesTest::walk);
+    }
+
+    private static long[] scale(long[] values, long factor) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= factor;
+        }
+        return values;
+    }
+
+    private static DailySeries walk(List<long[]> steps) {
+        DailySeries.Builder builder = DailySeries.builder(steps.size());
+        long epochDay = 10_000;
+        long close = 1_000_000;
+        long volume = 1_000_000;
+        for (long[] step : steps) {
+            epochDay += step[0];
+            close += step[1];
+            volume += step[5];
+            builder.add(epochDay, close + step[2], close + Math.abs(step[3]), close - Math.abs(step[4]), close, volume);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return weekday bars of a stock quoted in cents, moving about 1.5% a day on a few million shares.
+     */
+    static DailySeries typicalStock(LocalDate start, int bars, long seed) {
+        Random random = new Random(seed);
+        DailySeries.Builder builder = DailySeries.builder(bars);
+        LocalDate date = start;
+        double close = 150;
+        for (int i = 0; i < bars; i++) {
+            while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY || random.nextInt(60) == 0) {
+                date = date.plusDays(1);
+            }
+            double open = close * (1 + random.nextGaussian() * 0.005);
+            close = close * (1 + random.nextGaussian() * 0.015);
+            double high = Math.max(open, close) * (1 + Math.abs(random.nextGaussian()) * 0.006);
+            double low = Math.min(open, close) * (1 - Math.abs(random.nextGaussian()) * 0.006);
+            long volume = (long) (5_000_000 * Math.exp(random.nextGaussian() * 0.35));
+            builder.add(date.toEpochDay(), cents(open), cents(high), cents(low), cents(close), volume);
+            date = date.plusDays(1);
+        }
+        return builder.build();
+    }
+
+    private static long cents(double price) {
+        return Math.round(price * 100) * 100;
+    }
+
+    private static void assertSameBars(PriceSeries actual, PriceSeries expected, int from, int to) {
+        assertThat(actual.size()).isEqualTo(to - from);
+        for (int i = from; i < to; i++) {
+            assertThat(actual.bar(i - from)).isEqualTo(expected.bar(i));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.portfolio.service.history;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.service.marketdata.DailyBar;
+import com.example.portfolio.service.marketdata.DailySeries;
+import com.example.portfolio.service.marketdata.PriceSeries;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scans 10 years of daily closes of every ticker, summing their daily moves: through {@link PriceFileStore} views of
+ * the mapped files, and through the {@link DailyBar} rows a JPA query would return, already in memory.
+ * <p>
+ * The rows baseline leaves out the database round trips, so the gap with a real query is wider still. Use
+ * {@code -p tickers=5000} for the full universe, about 550 MB of files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceFileStoreScanBenchmark {
+
+    private static final int BARS = 2520;
+
+    @Param({ "500" })
+    int tickers;
+
+    private Path directory;
+    private PriceFileStore store;
+    private List<String> symbols;
+    private List<List<DailyBar>> rows;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("price-store");
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getMarketData().getHistory().getFileStore().setEnabled(true);
+        applicationProperties.getMarketData().getHistory().getFileStore().setDirectory(directory.toString());
+        // Every bar in the column files
+        applicationProperties.getMarketData().getHistory().getFileStore().setHotBars(0);
+        store = new PriceFileStore(applicationProperties);
+        symbols = new ArrayList<>(tickers);
+        rows = new ArrayList<>(tickers);
+        for (int t = 0; t < tickers; t++) {
+            String symbol = "T" + t;
+            DailySeries.Builder builder = DailySeries.builder(BARS);
+            long close = 1_000_000 + t * 1_000L;
+            for (int i = 0; i < BARS; i++) {
+                close += (i * 7919L + t) % 2001 - 1000;
+                builder.add(16_000 + i, close, close + 500, close - 500, close, 1_000_000 + i);
+            }
+            DailySeries series = builder.build();
+            store.append(symbol, series);
+            symbols.add(symbol);
+            List<DailyBar> bars = new ArrayList<>(BARS);
+            for (int i = 0; i < BARS; i++) {
+                bars.add(series.bar(i));
+            }
+            rows.add(bars);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long mappedColumns() {
+        long total = 0;
+        for (String symbol : symbols) {
+            PriceSeries series = store.read(symbol).orElseThrow();
+            for (int i = 1; i < series.size(); i++) {
+                total += series.close(i) - series.close(i - 1);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long entityRows() {
+        long total = 0;
+        for (List<DailyBar> bars : rows) {
+            for (int i = 1; i < bars.size(); i++) {
+                total += PriceSeries.toUnits(bars.get(i).close().subtract(bars.get(i - 1).close()));
+            }
+        }
+        return total;
+    }
+}
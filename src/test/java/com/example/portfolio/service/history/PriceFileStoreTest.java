@@ -0,0 +1,127 @@
+package com.example.portfolio.service.history;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.service.marketdata.DailySeries;
+import com.example.portfolio.service.marketdata.PriceSeries;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PriceFileStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private ApplicationProperties applicationProperties;
+
+    private PriceFileStore store;
+
+    @BeforeEach
+    void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getMarketData().getHistory().getFileStore().setEnabled(true);
+        applicationProperties.getMarketData().getHistory().getFileStore().setDirectory(directory.toString());
+        store = new PriceFileStore(applicationProperties);
+    }
+
+    @Test
+    void appendsOnlyTheBarsAfterTheLastStoredOne() {
+        assertThat(store.append("AAPL", series(100, 3))).isEqualTo(3);
+        assertThat(store.append("AAPL", series(101, 4))).isEqualTo(2);
+
+        PriceSeries series = store.read("AAPL").orElseThrow();
+        assertThat(series.size()).isEqualTo(5);
+        for (int i = 0; i < 5; i++) {
+            assertThat(series.epochDay(i)).isEqualTo(100 + i);
+            assertThat(series.close(i)).isEqualTo(close(100 + i));
+            assertThat(series.volume(i)).isEqualTo(1000 + 100 + i);
+        }
+    }
+
+    @Test
+    void barsSurviveAReopen() {
+        store.append("BRK/B", series(18_000, 10));
+
+        PriceFileStore reopened = new PriceFileStore(applicationProperties);
+
+        assertThat(reopened.getTickers()).containsExactly("BRK/B");
+        PriceSeries series = reopened.read("BRK/B").orElseThrow();
+        assertThat(series.size()).isEqualTo(10);
+        assertThat(series.bar(9)).isEqualTo(series(18_000, 10).bar(9));
+    }
+
+    @Test
+    void viewsAreSnapshotsThroughAppendsAndGrowth() {
+        store.append("AAPL", series(0, 10));
+        PriceSeries before = store.read("AAPL").orElseThrow();
+
+        // Well past the initial capacity: the file is replaced by a larger copy
+        store.append("AAPL", series(0, 3000));
+        PriceSeries after = store.read("AAPL").orElseThrow();
+
+        assertThat(before.size()).isEqualTo(10);
+        assertThat(before.close(9)).isEqualTo(close(9));
+        assertThatThrownBy(() -> before.close(10)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThat(after.size()).isEqualTo(3000);
+        assertThat(after.close(2999)).isEqualTo(close(2999));
+        assertThat(after.indexOf(1500)).isEqualTo(1500);
+    }
+
+    @Test
+    void oldBarsAreSealedAndReadBackByRange() {
+        applicationProperties.getMarketData().getHistory().getFileStore().setHotBars(100);
+        store = new PriceFileStore(applicationProperties);
+
+        store.append("AAPL", series(0, 400));
+        store.append("AAPL", series(0, 600));
+
+        assertThat(directory.resolve("AAPL" + PriceFileStore.SEALED_FILE_EXTENSION)).isRegularFile();
+        PriceSeries all = store.read("AAPL").orElseThrow();
+        assertThat(all.size()).isEqualTo(600);
+        for (int i = 0; i < 600; i++) {
+            assertThat(all.bar(i)).isEqualTo(series(i, 1).bar(0));
+        }
+        // Across the sealed bars and the column file
+        PriceSeries range = new PriceFileStore(applicationProperties).read("AAPL", 380, 389).orElseThrow();
+        assertThat(range.size()).isEqualTo(10);
+        assertThat(range.epochDay(0)).isEqualTo(380);
+        assertThat(range.close(9)).isEqualTo(close(389));
+        assertThat(store.read("AAPL", 590, 700).orElseThrow().size()).isEqualTo(10);
+        assertThat(store.read("AAPL", 700, 800)).isEmpty();
+    }
+
+    @Test
+    void nothingIsStoredWhenDisabled() {
+        applicationProperties.getMarketData().getHistory().getFileStore().setEnabled(false);
+        PriceFileStore disabled = new PriceFileStore(applicationProperties);
+
+        assertThat(disabled.append("AAPL", series(0, 3))).isZero();
+        assertThat(disabled.read("AAPL")).isEmpty();
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    @Test
+    void foreignFileIsRejected() throws Exception {
+        Files.write(directory.resolve("AAPL" + PriceFileStore.FILE_EXTENSION), new byte[128]);
+
+        assertThatThrownBy(() -> store.read("AAPL")).isInstanceOf(UncheckedIOException.class);
+    }
+
+    private static DailySeries series(long firstEpochDay, int bars) {
+        DailySeries.Builder series = DailySeries.builder(bars);
+        for (long epochDay = firstEpochDay; epochDay < firstEpochDay + bars; epochDay++) {
+            series.add(epochDay, close(epochDay) - 100, close(epochDay) + 500, close(epochDay) - 500, close(epochDay), 1000 + epochDay);
+        }
+        return series.build();
+    }
+
+    private static long close(long epochDay) {
+        return 1_500_000 + epochDay * 37;
+    }
+}
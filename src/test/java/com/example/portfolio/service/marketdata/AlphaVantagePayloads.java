@@ -0,0 +1,61 @@
+package com.example.portfolio.service.marketdata;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Alpha Vantage responses shaped byte for byte like the recorded ones, with deterministic prices.
+ */
+final class AlphaVantagePayloads {
+
+    private AlphaVantagePayloads() {}
+
+    /**
+     * A {@code TIME_SERIES_DAILY} response of {@code bars} weekdays up to {@code last}, newest first like the API, about
+     * 200 bytes per bar: the full output size of a ticker listed since 2000 is 1.2 MB.
+     */
+    static String timeSeriesDaily(String symbol, LocalDate last, int bars, long seed) {
+        Random random = new Random(seed);
+        StringBuilder json = new StringBuilder(bars * 200 + 512);
+        json
+            .append("{\n    \"Meta Data\": {\n")
+            .append("        \"1. Information\": \"Daily Prices (open, high, low, close) and Volumes\",\n")
+            .append("        \"2. Symbol\": \"")
+            .append(symbol)
+            .append("\",\n")
+            .append("        \"3. Last Refreshed\": \"")
+            .append(last)
+            .append("\",\n")
+            .append("        \"4. Output Size\": \"Full size\",\n")
+            .append("        \"5. Time Zone\": \"US/Eastern\"\n    },\n")
+            .append("    \"Time Series (Daily)\": {\n");
+        LocalDate date = last;
+        double close = 150;
+        for (int i = 0; i < bars; i++) {
+            while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                date = date.minusDays(1);
+            }
+            double open = close * (1 + (random.nextDouble() - 0.5) * 0.02);
+            double high = Math.max(open, close) * (1 + random.nextDouble() * 0.01);
+            double low = Math.min(open, close) * (1 - random.nextDouble() * 0.01);
+            long volume = 1_000_000 + random.nextInt(9_000_000);
+            json
+                .append("        \"")
+                .append(date)
+                .append("\": {\n")
+                .append(String.format(Locale.ROOT, "            \"1. open\": \"%.4f\",\n", open))
+                .append(String.format(Locale.ROOT, "            \"2. high\": \"%.4f\",\n", high))
+                .append(String.format(Locale.ROOT, "            \"3. low\": \"%.4f\",\n", low))
+                .append(String.format(Locale.ROOT, "            \"4. close\": \"%.4f\",\n", close))
+                .append("            \"5. volume\": \"")
+                .append(volume)
+                .append("\"\n        }")
+                .append(i < bars - 1 ? ",\n" : "\n");
+            close = open * (1 + (random.nextDouble() - 0.5) * 0.02);
+            date = date.minusDays(1);
+        }
+        return json.append("    }\n}").toString();
+    }
+}
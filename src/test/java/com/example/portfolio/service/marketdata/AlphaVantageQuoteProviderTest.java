@@ -0,0 +1,200 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AlphaVantageQuoteProviderTest {
+
+    private HttpServer server;
+
+    private final AtomicReference<String> responseBody = new AtomicReference<>();
+
+    private final AtomicReference<String> lastQuery = new AtomicReference<>();
+
+    private volatile long responseDelayMillis;
+
+    private ApplicationProperties applicationProperties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AlphaVantageQuoteProvider provider;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/query", exchange -> {
+            lastQuery.set(exchange.getRequestURI().getQuery());
+            sleep(responseDelayMillis);
+            byte[] body = responseBody.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        applicationProperties = new ApplicationProperties();
+        ApplicationProperties.MarketData.AlphaVantage alphaVantage = applicationProperties.getMarketData().getAlphaVantage();
+        alphaVantage.setBaseUrl("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/query");
+        alphaVantage.setApiKey("test-key");
+        alphaVantage.getHttp().setReadTimeoutMillis(1000);
+        alphaVantage.getRateLimit().setRequestsPerMinute(0);
+        alphaVantage.getRateLimit().setRequestsPerDay(0);
+        alphaVantage.getCircuitBreaker().setSlidingWindowSize(4);
+        alphaVantage.getCircuitBreaker().setMinimumCalls(2);
+        createProvider();
+    }
+
+    private void createProvider() {
+        meterRegistry = new SimpleMeterRegistry();
+        provider = new AlphaVantageQuoteProvider(applicationProperties, new ObjectMapper(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        provider.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void parsesGlobalQuote() {
+        responseBody.set("{\"Global Quote\": {\"01. symbol\": \"IBM\", \"05. price\": \"251.3400\"}}");
+
+        assertThat(provider.fetchQuote("IBM", RequestPriority.INTERACTIVE)).hasValueSatisfying(quote -> {
+            assertThat(quote.ticker()).isEqualTo("IBM");
+            assertThat(quote.price()).isEqualByComparingTo("251.34");
+            assertThat(quote.stale()).isFalse();
+        });
+        assertThat(lastQuery.get()).contains("function=GLOBAL_QUOTE").contains("symbol=IBM").contains("apikey=test-key");
+    }
+
+    @Test
+    void unknownTickerYieldsNoQuote() {
+        responseBody.set("{\"Global Quote\": {}}");
+
+        assertThat(provider.fetchQuote("NOPE", RequestPriority.INTERACTIVE)).isEmpty();
+    }
+
+    @Test
+    void rateLimitNoteIsReportedAsFailure() {
+        responseBody.set("{\"Note\": \"Thank you for using Alpha Vantage! Our standard API call frequency is 5 calls per minute.\"}");
+
+        assertThatThrownBy(() -> provider.fetchQuote("IBM", RequestPriority.INTERACTIVE)).isInstanceOf(MarketDataException.class).hasMessageContaining("API limit");
+    }
+
+    @Test
+    void slowUpstreamIsCutOffByTheReadTimeout() {
+        responseBody.set("{\"Global Quote\": {\"05. price\": \"251.3400\"}}");
+        responseDelayMillis = 3000;
+
+        assertThatThrownBy(() -> provider.fetchQuote("IBM", RequestPriority.INTERACTIVE)).isInstanceOf(MarketDataException.class).hasMessageNotContaining("test-key");
+    }
+
+    @Test
+    void failingUpstreamOpensTheCircuitAndIsNoLongerCalled() {
+        responseBody.set("{\"Global Quote\": ");
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> provider.fetchQuote("IBM", RequestPriority.INTERACTIVE)).hasMessageContaining("could not be parsed");
+        }
+        lastQuery.set(null);
+        responseBody.set("{\"Global Quote\": {\"05. price\": \"251.3400\"}}");
+
+        assertThatThrownBy(() -> provider.fetchQuote("IBM", RequestPriority.INTERACTIVE)).isInstanceOf(CallNotPermittedException.class);
+        assertThat(lastQuery.get()).isNull();
+    }
+
+    @Test
+    void callRefusedByTheBulkheadIsGivenBackToTheBudget() throws Exception {
+        provider.destroy();
+        ApplicationProperties.MarketData.AlphaVantage alphaVantage = applicationProperties.getMarketData().getAlphaVantage();
+        alphaVantage.getRateLimit().setRequestsPerDay(25);
+        alphaVantage.getBulkhead().setMaxConcurrentCalls(1);
+        alphaVantage.getBulkhead().setMaxWaitMillis(0);
+        createProvider();
+        responseBody.set("{\"Global Quote\": {\"01. symbol\": \"IBM\", \"05. price\": \"251.3400\"}}");
+        responseDelayMillis = 500;
+        CompletableFuture<Optional<Quote>> first = CompletableFuture.supplyAsync(() ->
+            provider.fetchQuote("IBM", RequestPriority.INTERACTIVE)
+        );
+        while (lastQuery.get() == null) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> provider.fetchQuote("IBM", RequestPriority.INTERACTIVE)).isInstanceOf(CallNotPermittedException.class);
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isPresent();
+        assertThat(meterRegistry.get(TokenBucketRateLimiter.QUOTA_USED_METER_NAME).tag("window", "day").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void parsesDailyTimeSeries() {
+        responseBody.set(
+            "{\"Meta Data\": {}, \"Time Series (Daily)\": {" +
+            "\"2025-09-19\": {\"1. open\": \"250.0\", \"2. high\": \"252.1\", \"3. low\": \"249.5\", \"4. close\": \"251.34\", \"5. volume\": \"3120045\"}," +
+            "\"2025-09-18\": {\"1. open\": \"248.0\", \"2. high\": \"250.2\", \"3. low\": \"247.9\", \"4. close\": \"249.90\", \"5. volume\": \"2871002\"}}}"
+        );
+
+        DailySeries series = provider.fetchDailySeries("IBM", RequestPriority.INTERACTIVE);
+
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.bar(0)).isEqualTo(
+            new DailyBar(LocalDate.of(2025, 9, 18), new BigDecimal("248.0000"), new BigDecimal("250.2000"), new BigDecimal("247.9000"), new BigDecimal("249.9000"), 2871002)
+        );
+        assertThat(series.bar(1)).isEqualTo(
+            new DailyBar(LocalDate.of(2025, 9, 19), new BigDecimal("250.0000"), new BigDecimal("252.1000"), new BigDecimal("249.5000"), new BigDecimal("251.3400"), 3120045)
+        );
+    }
+
+    @Test
+    void unknownTickerHasNoDailyBars() {
+        responseBody.set("{\"Error Message\": \"Invalid API call. Please retry or visit the documentation for TIME_SERIES_DAILY.\"}");
+
+        assertThat(provider.fetchDailySeries("NOPE", RequestPriority.INTERACTIVE).isEmpty()).isTrue();
+    }
+
+    @Test
+    void rateLimitNoteOnDailyTimeSeriesIsReportedAsFailure() {
+        responseBody.set("{\"Information\": \"Thank you for using Alpha Vantage! Our standard API rate limit is 25 requests per day.\"}");
+
+        assertThatThrownBy(() -> provider.fetchDailySeries("IBM", RequestPriority.INTERACTIVE))
+            .isInstanceOf(MarketDataException.class)
+            .hasMessageContaining("API limit");
+    }
+
+    @Test
+    void malformedDailyTimeSeriesIsReportedAsFailure() {
+        responseBody.set("{\"Time Series (Daily)\": {\"2025-09-19\": {\"1. open\": \"n/a\"}}}");
+
+        assertThatThrownBy(() -> provider.fetchDailySeries("IBM", RequestPriority.INTERACTIVE))
+            .isInstanceOf(MarketDataException.class)
+            .hasMessageContaining("could not be parsed");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
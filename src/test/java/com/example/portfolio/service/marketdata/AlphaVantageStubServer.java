@@ -0,0 +1,447 @@
+package com.example.portfolio.service.marketdata;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Alpha Vantage API, answering {@code GLOBAL_QUOTE} and {@code TIME_SERIES_DAILY} requests in
+ * the wire format of the real one, so that load and integration tests drive the real client, call budget, circuit
+ * breaker and parser on an offline machine.
+ * <p>
+ * The daily bars of a symbol are a random walk seeded from the server seed and the symbol, and the successive quotes of
+ * a symbol drift around its last close: two servers with the same seed serve the same prices, whatever the order the
+ * symbols are asked in. Latencies, errors and rate-limit notes are drawn from the seed and the request number, so they
+ * repeat as long as the requests are sent one at a time.
+ */
+public final class AlphaVantageStubServer implements AutoCloseable {
+
+    /**
+     * Number of bars of the compact output size, the default one.
+     */
+    static final int COMPACT_BARS = 100;
+
+    static final String NOTE =
+        "Thank you for using Alpha Vantage! Our standard API call frequency is 5 calls per minute and 500 calls per day.";
+
+    /**
+     * Distribution of the time the server takes before answering a request.
+     */
+    @FunctionalInterface
+    public interface Latency {
+        Duration next(Random random);
+
+        static Latency none() {
+            return random -> Duration.ZERO;
+        }
+
+        static Latency fixed(Duration latency) {
+            return random -> latency;
+        }
+
+        static Latency uniform(Duration min, Duration max) {
+            long spanNanos = max.toNanos() - min.toNanos();
+            return random -> min.plusNanos((long) (random.nextDouble() * spanNanos));
+        }
+
+        /**
+         * This latency, except for the given share of the requests which take {@code tail}.
+         */
+        default Latency withTail(double probability, Duration tail) {
+            return random -> random.nextDouble() < probability ? tail : next(random);
+        }
+    }
+
+    private record Bars(LocalDate[] dates, double[] opens, double[] highs, double[] lows, double[] closes, long[] volumes) {}
+
+    private final long seed;
+    private final LocalDate lastTradingDay;
+    private final int fullSizeBars;
+    private final Latency latency;
+    private final double errorRate;
+    private final double noteRate;
+    private final int requestsPerMinute;
+    private final Set<String> unknownSymbols;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final Map<String, Bars> bars = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> quoteRequests = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong notes = new AtomicLong();
+
+    // Guarded by itself
+    private final Deque<Long> acceptedAtNanos = new ArrayDeque<>();
+
+    private AlphaVantageStubServer(Builder builder) throws IOException {
+        this.seed = builder.seed;
+        LocalDate day = builder.asOf;
+        while (isWeekend(day)) {
+            day = day.minusDays(1);
+        }
+        this.lastTradingDay = day;
+        this.fullSizeBars = Math.max(COMPACT_BARS, builder.fullSizeBars);
+        this.latency = builder.latency;
+        this.errorRate = builder.errorRate;
+        this.noteRate = builder.noteRate;
+        this.requestsPerMinute = builder.requestsPerMinute;
+        this.unknownSymbols = Set.copyOf(builder.unknownSymbols);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        // Slow answers must not hold the other requests back
+        this.executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/query", this::handle);
+        server.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The URL to set as {@code application.market-data.alpha-vantage.base-url}.
+     */
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/query";
+    }
+
+    /**
+     * @return the number of requests received, including those answered with an error or a note.
+     */
+    public long requests() {
+        return requests.get();
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    public long notes() {
+        return notes.get();
+    }
+
+    /**
+     * The close of the symbol on its {@code daysAgo}-th trading day before the last one, as served by
+     * {@code TIME_SERIES_DAILY}.
+     */
+    public double close(String symbol, int daysAgo) {
+        return bars(symbol).closes()[daysAgo];
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Random random = new Random(mix(seed, requests.incrementAndGet()));
+            Map<String, String> params = parameters(exchange.getRequestURI().getRawQuery());
+            sleep(latency.next(random));
+            if (random.nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                respond(exchange, 503, "text/plain", "Service Unavailable");
+                return;
+            }
+            if (random.nextDouble() < noteRate || !withinRateLimit()) {
+                notes.incrementAndGet();
+                respond(exchange, 200, "application/json", "{\n    \"Note\": \"" + NOTE + "\"\n}");
+                return;
+            }
+            String function = params.getOrDefault("function", "");
+            String symbol = params.getOrDefault("symbol", "");
+            if (!params.containsKey("apikey") || symbol.isEmpty()) {
+                respond(exchange, 200, "application/json", errorMessage(function));
+            } else if (function.equals("GLOBAL_QUOTE")) {
+                respond(exchange, 200, "application/json", unknownSymbols.contains(symbol) ? "{\n    \"Global Quote\": {}\n}" : globalQuote(symbol));
+            } else if (function.equals("TIME_SERIES_DAILY") && !unknownSymbols.contains(symbol)) {
+                int size = "full".equals(params.get("outputsize")) ? fullSizeBars : COMPACT_BARS;
+                respond(exchange, 200, "application/json", timeSeriesDaily(symbol, size));
+            } else {
+                respond(exchange, 200, "application/json", errorMessage(function));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean withinRateLimit() {
+        if (requestsPerMinute <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        synchronized (acceptedAtNanos) {
+            while (!acceptedAtNanos.isEmpty() && now - acceptedAtNanos.peekFirst() >= TimeUnit.MINUTES.toNanos(1)) {
+                acceptedAtNanos.pollFirst();
+            }
+            if (acceptedAtNanos.size() >= requestsPerMinute) {
+                return false;
+            }
+            acceptedAtNanos.addLast(now);
+            return true;
+        }
+    }
+
+    private String globalQuote(String symbol) {
+        Bars series = bars(symbol);
+        long quoteNumber = quoteRequests.computeIfAbsent(symbol, key -> new AtomicLong()).getAndIncrement();
+        Random random = new Random(mix(symbolSeed(symbol), quoteNumber));
+        double previousClose = series.closes()[1];
+        double price = series.closes()[0] * (1 + (random.nextDouble() - 0.5) * 0.004);
+        double change = price - previousClose;
+        return (
+            "{\n    \"Global Quote\": {\n" +
+            field("01. symbol", symbol) +
+            field("02. open", decimal(series.opens()[0])) +
+            field("03. high", decimal(Math.max(series.highs()[0], price))) +
+            field("04. low", decimal(Math.min(series.lows()[0], price))) +
+            field("05. price", decimal(price)) +
+            field("06. volume", Long.toString(series.volumes()[0])) +
+            field("07. latest trading day", series.dates()[0].toString()) +
+            field("08. previous close", decimal(previousClose)) +
+            field("09. change", decimal(change)) +
+            "        \"10. change percent\": \"" +
+            String.format(Locale.ROOT, "%.4f%%", change / previousClose * 100) +
+            "\"\n    }\n}"
+        );
+    }
+
+    private String timeSeriesDaily(String symbol, int size) {
+        Bars series = bars(symbol);
+        StringBuilder json = new StringBuilder(size * 200 + 512);
+        json
+            .append("{\n    \"Meta Data\": {\n")
+            .append("        \"1. Information\": \"Daily Prices (open, high, low, close) and Volumes\",\n")
+            .append("        \"2. Symbol\": \"")
+            .append(symbol)
+            .append("\",\n")
+            .append("        \"3. Last Refreshed\": \"")
+            .append(series.dates()[0])
+            .append("\",\n")
+            .append("        \"4. Output Size\": \"")
+            .append(size == COMPACT_BARS ? "Compact" : "Full size")
+            .append("\",\n")
+            .append("        \"5. Time Zone\": \"US/Eastern\"\n    },\n")
+            .append("    \"Time Series (Daily)\": {\n");
+        for (int i = 0; i < size; i++) {
+            json
+                .append("        \"")
+                .append(series.dates()[i])
+                .append("\": {\n")
+                .append("    ")
+                .append(field("1. open", decimal(series.opens()[i])))
+                .append("    ")
+                .append(field("2. high", decimal(series.highs()[i])))
+                .append("    ")
+                .append(field("3. low", decimal(series.lows()[i])))
+                .append("    ")
+                .append(field("4. close", decimal(series.closes()[i])))
+                .append("            \"5. volume\": \"")
+                .append(series.volumes()[i])
+                .append("\"\n        }")
+                .append(i < size - 1 ? ",\n" : "\n");
+        }
+        return json.append("    }\n}").toString();
+    }
+
+    /**
+     * The bars of a symbol, newest first like the API.
+     */
+    private Bars bars(String symbol) {
+        return bars.computeIfAbsent(symbol, key -> {
+            Random random = new Random(symbolSeed(key));
+            int size = fullSizeBars;
+            Bars series = new Bars(new LocalDate[size], new double[size], new double[size], new double[size], new double[size], new long[size]);
+            LocalDate date = lastTradingDay;
+            double close = 20 + random.nextDouble() * 480;
+            for (int i = 0; i < size; i++) {
+                while (isWeekend(date)) {
+                    date = date.minusDays(1);
+                }
+                double open = close * (1 + (random.nextDouble() - 0.5) * 0.02);
+                series.dates()[i] = date;
+                series.opens()[i] = open;
+                series.highs()[i] = Math.max(open, close) * (1 + random.nextDouble() * 0.01);
+                series.lows()[i] = Math.min(open, close) * (1 - random.nextDouble() * 0.01);
+                series.closes()[i] = close;
+                series.volumes()[i] = 1_000_000 + random.nextInt(9_000_000);
+                close = open * (1 + (random.nextDouble() - 0.5) * 0.02);
+                date = date.minusDays(1);
+            }
+            return series;
+        });
+    }
+
+    private long symbolSeed(String symbol) {
+        return mix(seed, symbol.hashCode());
+    }
+
+    private static String errorMessage(String function) {
+        return (
+            "{\n    \"Error Message\": \"Invalid API call. Please retry or visit the documentation (https://www.alphavantage.co/documentation/) for " +
+            function +
+            ".\"\n}"
+        );
+    }
+
+    private static String field(String name, String value) {
+        return "        \"" + name + "\": \"" + value + "\",\n";
+    }
+
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        return date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * Spreads the bits of a seed and a value, so that close values give unrelated sequences.
+     */
+    private static long mix(long seed, long value) {
+        long z = seed + 0x9E3779B97F4A7C15L * (value + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(
+                    URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8)
+                );
+            }
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero() || duration.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public static final class Builder {
+
+        private long seed = 42;
+        private LocalDate asOf = LocalDate.now(ZoneId.of("America/New_York"));
+        private int fullSizeBars = 1000;
+        private Latency latency = Latency.none();
+        private double errorRate;
+        private double noteRate;
+        private int requestsPerMinute;
+        private final Set<String> unknownSymbols = new HashSet<>();
+
+        private Builder() {}
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * The day of the newest bar, or the trading day before it on weekends; today in New York by default.
+         */
+        public Builder asOf(LocalDate asOf) {
+            this.asOf = asOf;
+            return this;
+        }
+
+        /**
+         * Number of bars served with {@code outputsize=full}, 1000 by default.
+         */
+        public Builder fullSizeBars(int fullSizeBars) {
+            this.fullSizeBars = fullSizeBars;
+            return this;
+        }
+
+        public Builder latency(Latency latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Share of the requests answered with a 503.
+         */
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Share of the requests answered with a rate-limit {@code "Note"}, on top of those over
+         * {@link #requestsPerMinute(int)}.
+         */
+        public Builder noteRate(double noteRate) {
+            this.noteRate = noteRate;
+            return this;
+        }
+
+        /**
+         * Requests answered in a sliding minute before the others get a rate-limit {@code "Note"}; unlimited when 0,
+         * the default.
+         */
+        public Builder requestsPerMinute(int requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+            return this;
+        }
+
+        /**
+         * Symbols answered like the API answers unknown tickers.
+         */
+        public Builder unknownSymbols(String... symbols) {
+            unknownSymbols.addAll(Set.of(symbols));
+            return this;
+        }
+
+        public AlphaVantageStubServer start() throws IOException {
+            return new AlphaVantageStubServer(this);
+        }
+    }
+}
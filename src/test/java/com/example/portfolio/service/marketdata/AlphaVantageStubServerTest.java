@@ -0,0 +1,161 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives the real Alpha Vantage client against the stub server.
+ */
+class AlphaVantageStubServerTest {
+
+    private static final LocalDate FRIDAY = LocalDate.of(2025, 10, 17);
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @Test
+    void sameSeedServesTheSamePrices() throws IOException {
+        AlphaVantageQuoteProvider first = provider(start(AlphaVantageStubServer.builder().seed(7).asOf(FRIDAY)));
+        AlphaVantageQuoteProvider second = provider(start(AlphaVantageStubServer.builder().seed(7).asOf(FRIDAY)));
+
+        // Asked in another order, which must not matter
+        BigDecimal ibm = first.fetchQuote("IBM", RequestPriority.INTERACTIVE).orElseThrow().price();
+        BigDecimal aapl = first.fetchQuote("AAPL", RequestPriority.INTERACTIVE).orElseThrow().price();
+        assertThat(second.fetchQuote("AAPL", RequestPriority.INTERACTIVE).orElseThrow().price()).isEqualByComparingTo(aapl);
+        assertThat(second.fetchQuote("IBM", RequestPriority.INTERACTIVE).orElseThrow().price()).isEqualByComparingTo(ibm);
+        DailySeries series = first.fetchDailySeries("IBM", RequestPriority.BACKGROUND);
+        DailySeries other = second.fetchDailySeries("IBM", RequestPriority.BACKGROUND);
+        assertThat(other.size()).isEqualTo(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            assertThat(other.bar(i)).isEqualTo(series.bar(i));
+        }
+    }
+
+    @Test
+    void dailySeriesHasTheCompactSizeUpToTheLastTradingDay() throws IOException {
+        // A Sunday: the newest bar is the Friday before
+        AlphaVantageStubServer server = start(AlphaVantageStubServer.builder().asOf(FRIDAY.plusDays(2)));
+
+        DailySeries series = provider(server).fetchDailySeries("MSFT", RequestPriority.BACKGROUND);
+
+        assertThat(series.size()).isEqualTo(AlphaVantageStubServer.COMPACT_BARS);
+        assertThat(series.bar(series.size() - 1).date()).isEqualTo(FRIDAY);
+        assertThat(series.bar(series.size() - 1).close().doubleValue()).isCloseTo(server.close("MSFT", 0), offset(0.0001));
+    }
+
+    @Test
+    void unknownSymbolsHaveNoQuoteNorBars() throws IOException {
+        AlphaVantageQuoteProvider provider = provider(start(AlphaVantageStubServer.builder().unknownSymbols("NOPE")));
+
+        assertThat(provider.fetchQuote("NOPE", RequestPriority.INTERACTIVE)).isEmpty();
+        assertThat(provider.fetchDailySeries("NOPE", RequestPriority.INTERACTIVE).isEmpty()).isTrue();
+    }
+
+    @Test
+    void requestsOverTheRateLimitGetANote() throws IOException {
+        AlphaVantageStubServer server = start(AlphaVantageStubServer.builder().requestsPerMinute(2));
+        AlphaVantageQuoteProvider provider = provider(server);
+
+        provider.fetchQuote("IBM", RequestPriority.INTERACTIVE);
+        provider.fetchDailySeries("IBM", RequestPriority.INTERACTIVE);
+
+        assertThatThrownBy(() -> provider.fetchQuote("IBM", RequestPriority.INTERACTIVE)).isInstanceOf(MarketDataException.class).hasMessageContaining("API limit");
+        assertThat(server.notes()).isEqualTo(1);
+    }
+
+    @Test
+    void failingUpstreamOpensTheCircuit() throws IOException {
+        AlphaVantageStubServer server = start(AlphaVantageStubServer.builder().errorRate(1));
+        AlphaVantageQuoteProvider provider = provider(server);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> provider.fetchQuote("IBM", RequestPriority.INTERACTIVE)).isInstanceOf(MarketDataException.class);
+        }
+        assertThatThrownBy(() -> provider.fetchQuote("IBM", RequestPriority.INTERACTIVE)).isInstanceOf(CallNotPermittedException.class);
+        assertThat(server.errors()).isEqualTo(2);
+        assertThat(server.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void faultsRepeatForTheSameSeed() throws IOException {
+        assertThat(outcomes(11)).isEqualTo(outcomes(11)).contains("ok", "error", "note");
+    }
+
+    @Test
+    void answersAreDelayedByTheLatency() throws IOException {
+        AlphaVantageQuoteProvider provider = provider(
+            start(AlphaVantageStubServer.builder().latency(AlphaVantageStubServer.Latency.fixed(Duration.ofMillis(100))))
+        );
+
+        long start = System.nanoTime();
+        provider.fetchQuote("IBM", RequestPriority.INTERACTIVE);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+    }
+
+    private List<String> outcomes(long seed) throws IOException {
+        AlphaVantageQuoteProvider provider = provider(
+            start(AlphaVantageStubServer.builder().seed(seed).errorRate(0.2).noteRate(0.2)),
+            // Keeps the circuit closed, so that every request reaches the server
+            properties -> properties.getCircuitBreaker().setSlidingWindowSize(100)
+        );
+        List<String> outcomes = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            try {
+                provider.fetchQuote("IBM", RequestPriority.INTERACTIVE);
+                outcomes.add("ok");
+            } catch (MarketDataException e) {
+                outcomes.add(e.getMessage().contains("API limit") ? "note" : "error");
+            }
+        }
+        return outcomes;
+    }
+
+    private AlphaVantageStubServer start(AlphaVantageStubServer.Builder builder) throws IOException {
+        AlphaVantageStubServer server = builder.start();
+        resources.add(server);
+        return server;
+    }
+
+    private AlphaVantageQuoteProvider provider(AlphaVantageStubServer server) {
+        return provider(server, properties -> {});
+    }
+
+    private AlphaVantageQuoteProvider provider(
+        AlphaVantageStubServer server,
+        Consumer<ApplicationProperties.MarketData.AlphaVantage> customizer
+    ) {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.MarketData.AlphaVantage alphaVantage = applicationProperties.getMarketData().getAlphaVantage();
+        alphaVantage.setBaseUrl(server.baseUrl());
+        alphaVantage.setApiKey("test-key");
+        alphaVantage.getRateLimit().setRequestsPerMinute(0);
+        alphaVantage.getRateLimit().setRequestsPerDay(0);
+        alphaVantage.getCircuitBreaker().setSlidingWindowSize(4);
+        alphaVantage.getCircuitBreaker().setMinimumCalls(2);
+        customizer.accept(alphaVantage);
+        AlphaVantageQuoteProvider provider = new AlphaVantageQuoteProvider(applicationProperties, new ObjectMapper(), new SimpleMeterRegistry());
+        resources.add(provider::destroy);
+        return provider;
+    }
+}
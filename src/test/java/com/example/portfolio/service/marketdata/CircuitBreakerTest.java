@@ -0,0 +1,186 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.portfolio.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    private static final Duration FAST = Duration.ofMillis(100);
+    private static final Duration SLOW = Duration.ofSeconds(5);
+
+    private long nowMillis = 1_000_000;
+
+    private MeterRegistry meterRegistry;
+
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setup() {
+        ApplicationProperties.MarketData.CircuitBreaker properties = new ApplicationProperties.MarketData.CircuitBreaker();
+        properties.setSlidingWindowSize(10);
+        properties.setMinimumCalls(4);
+        properties.setFailureRateThresholdPercent(50);
+        properties.setSlowCallDurationMillis(3000);
+        properties.setSlowCallRateThresholdPercent(75);
+        properties.setOpenDurationSeconds(30);
+        properties.setHalfOpenCalls(2);
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenAnswer(invocation -> nowMillis);
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new CircuitBreaker("test", properties, meterRegistry, clock);
+    }
+
+    @Test
+    void failuresBelowTheMinimumNumberOfCallsKeepTheCircuitClosed() {
+        record(3, FAST, true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        circuitBreaker.acquirePermission();
+    }
+
+    @Test
+    void failureRateOpensTheCircuitAndCallsAreRefused() {
+        record(2, FAST, false);
+        record(1, FAST, true);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        record(1, FAST, true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(circuitBreaker::acquirePermission).isInstanceOf(CallNotPermittedException.class);
+        assertThat(calls("not-permitted")).isEqualTo(1);
+        assertThat(calls("failure")).isEqualTo(2);
+        assertThat(transitions("closed", "open")).isEqualTo(1);
+        assertThat(state("open")).isEqualTo(1);
+        assertThat(state("closed")).isZero();
+    }
+
+    @Test
+    void slowCallRateOpensTheCircuit() {
+        record(3, SLOW, false);
+        record(1, FAST, false);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(meterRegistry.get(CircuitBreaker.SLOW_CALLS_METER_NAME).counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void oldOutcomesLeaveTheSlidingWindow() {
+        record(4, FAST, true);
+        advance(Duration.ofSeconds(30));
+        record(2, FAST, false);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // Of the last 10 calls, 4 failures stay below the threshold and 5 reach it
+        record(10, FAST, false);
+        record(4, FAST, true);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        record(1, FAST, true);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void halfOpenCircuitClosesAfterSuccessfulTrialCalls() {
+        record(4, FAST, true);
+
+        advance(Duration.ofSeconds(29));
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        advance(Duration.ofSeconds(1));
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        circuitBreaker.acquirePermission();
+        circuitBreaker.acquirePermission();
+        assertThatThrownBy(circuitBreaker::acquirePermission).isInstanceOf(CallNotPermittedException.class);
+        circuitBreaker.onResult(FAST, false);
+        circuitBreaker.onResult(FAST, false);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(transitions("open", "half-open")).isEqualTo(1);
+        assertThat(transitions("half-open", "closed")).isEqualTo(1);
+    }
+
+    @Test
+    void failedTrialCallReopensTheCircuit() {
+        record(4, FAST, true);
+        advance(Duration.ofSeconds(30));
+
+        record(1, FAST, false);
+        record(1, FAST, true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(transitions("half-open", "open")).isEqualTo(1);
+    }
+
+    @Test
+    void openCircuitIsCheckedWithoutTakingATrialPermission() {
+        record(4, FAST, true);
+        assertThatThrownBy(circuitBreaker::checkNotOpen).isInstanceOf(CallNotPermittedException.class);
+        assertThat(calls("not-permitted")).isEqualTo(1);
+        advance(Duration.ofSeconds(30));
+
+        circuitBreaker.checkNotOpen();
+        circuitBreaker.checkNotOpen();
+        circuitBreaker.checkNotOpen();
+
+        circuitBreaker.acquirePermission();
+        circuitBreaker.acquirePermission();
+    }
+
+    @Test
+    void releasedPermissionIsGivenBackToTheTrialCalls() {
+        record(4, FAST, true);
+        advance(Duration.ofSeconds(30));
+
+        circuitBreaker.acquirePermission();
+        circuitBreaker.acquirePermission();
+        circuitBreaker.releasePermission();
+
+        circuitBreaker.acquirePermission();
+    }
+
+    @Test
+    void recordedCallsAreTimedAndExceptionsCountAsFailures() {
+        assertThat(circuitBreaker.record(() -> "quote")).isEqualTo("quote");
+        assertThatThrownBy(() ->
+            circuitBreaker.record(() -> {
+                throw new MarketDataException("down");
+            })
+        ).isInstanceOf(MarketDataException.class);
+
+        assertThat(calls("success")).isEqualTo(1);
+        assertThat(calls("failure")).isEqualTo(1);
+    }
+
+    private void record(int calls, Duration duration, boolean failed) {
+        for (int i = 0; i < calls; i++) {
+            circuitBreaker.acquirePermission();
+            circuitBreaker.onResult(duration, failed);
+        }
+    }
+
+    private void advance(Duration duration) {
+        nowMillis += duration.toMillis();
+    }
+
+    private double calls(String outcome) {
+        return meterRegistry.get(CircuitBreaker.CALLS_METER_NAME).tag("outcome", outcome).counter().count();
+    }
+
+    private double transitions(String from, String to) {
+        return meterRegistry.get(CircuitBreaker.TRANSITIONS_METER_NAME).tag("from", from).tag("to", to).counter().count();
+    }
+
+    private double state(String state) {
+        return meterRegistry.get(CircuitBreaker.STATE_METER_NAME).tag("state", state).gauge().value();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.portfolio.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HedgedQuoteProviderTest {
+
+    private static final long FAST_MILLIS = 5;
+    private static final long SLOW_MILLIS = 400;
+
+    private ApplicationProperties.MarketData.Hedging hedging;
+
+    private MeterRegistry meterRegistry;
+
+    private HedgedQuoteProvider provider;
+
+    @BeforeEach
+    void setup() {
+        hedging = new ApplicationProperties.MarketData.Hedging();
+        hedging.setMinDelayMillis(40);
+        hedging.setMaxDelayMillis(1000);
+        hedging.setBudgetPercent(10);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (provider != null) {
+            provider.close();
+        }
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndTailLatencyDrops() {
+        // One call in 25 is slow: the p95 stays fast while the p99 would not
+        StubProvider primary = new StubProvider("primary", call -> call % 25 == 24 ? SLOW_MILLIS : FAST_MILLIS);
+        StubProvider secondary = new StubProvider("secondary", call -> FAST_MILLIS);
+        provider = new HedgedQuoteProvider(List.of(primary, secondary), hedging, meterRegistry);
+
+        int requests = 200;
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            assertThat(provider.fetchQuote("AAPL", RequestPriority.INTERACTIVE)).isPresent();
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        assertThat(Duration.ofNanos(latencies[requests * 99 / 100])).isLessThan(Duration.ofMillis(SLOW_MILLIS / 2));
+        assertThat(primary.calls.get()).isEqualTo(requests);
+        // Only the slow calls are hedged, well within the budget
+        assertThat(secondary.calls.get()).isBetween(1, requests / 10);
+        assertThat(count(HedgedQuoteProvider.HEDGES_METER_NAME, "secondary")).isEqualTo(secondary.calls.get());
+        assertThat(count(HedgedQuoteProvider.WINS_METER_NAME, "primary") + count(HedgedQuoteProvider.WINS_METER_NAME, "secondary")).isEqualTo(requests);
+        // Slow primary calls that lost the race may still be running
+        assertThat(meterRegistry.get(HedgedQuoteProvider.LATENCY_METER_NAME).tag("provider", "primary").timer().count()).isBetween(
+            (long) requests - secondary.calls.get(),
+            (long) requests
+        );
+    }
+
+    @Test
+    void hedgesStayWithinTheBudget() {
+        StubProvider primary = new StubProvider("primary", call -> call < 20 ? FAST_MILLIS : 100);
+        StubProvider secondary = new StubProvider("secondary", call -> 100);
+        provider = new HedgedQuoteProvider(List.of(primary, secondary), hedging, meterRegistry);
+
+        for (int i = 0; i < 50; i++) {
+            provider.fetchQuote("AAPL", RequestPriority.INTERACTIVE);
+        }
+
+        assertThat(secondary.calls.get()).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void noHedgeWhenDisabled() {
+        hedging.setEnabled(false);
+        hedging.setMaxDelayMillis(10);
+        hedging.setMinDelayMillis(10);
+        hedging.setBudgetPercent(100);
+        StubProvider primary = new StubProvider("primary", call -> 50);
+        StubProvider secondary = new StubProvider("secondary", call -> FAST_MILLIS);
+        provider = new HedgedQuoteProvider(List.of(primary, secondary), hedging, meterRegistry);
+
+        provider.fetchQuote("AAPL", RequestPriority.INTERACTIVE);
+
+        assertThat(secondary.calls.get()).isZero();
+    }
+
+    @Test
+    void failingProviderFailsOverToTheNext() {
+        StubProvider primary = new StubProvider("primary", call -> FAST_MILLIS);
+        primary.failure = new CallNotPermittedException("open");
+        StubProvider secondary = new StubProvider("secondary", call -> FAST_MILLIS);
+        provider = new HedgedQuoteProvider(List.of(primary, secondary), hedging, meterRegistry);
+
+        assertThat(provider.fetchQuote("AAPL", RequestPriority.INTERACTIVE)).hasValueSatisfying(quote ->
+            assertThat(quote.price()).isEqualByComparingTo("2")
+        );
+        assertThat(provider.fetchDailySeries("AAPL", RequestPriority.BACKGROUND).isEmpty()).isTrue();
+
+        assertThat(count(HedgedQuoteProvider.FAILOVERS_METER_NAME, "secondary")).isEqualTo(2);
+        assertThat(count(HedgedQuoteProvider.WINS_METER_NAME, "secondary")).isEqualTo(2);
+    }
+
+    @Test
+    void lastFailureIsThrownWhenEveryProviderFails() {
+        StubProvider primary = new StubProvider("primary", call -> FAST_MILLIS);
+        primary.failure = new MarketDataException("down");
+        StubProvider secondary = new StubProvider("secondary", call -> FAST_MILLIS);
+        secondary.failure = new QuotaExceededException("spent");
+        provider = new HedgedQuoteProvider(List.of(primary, secondary), hedging, meterRegistry);
+
+        assertThatThrownBy(() -> provider.fetchQuote("AAPL", RequestPriority.INTERACTIVE)).isSameAs(secondary.failure);
+    }
+
+    @Test
+    void singleProviderIsCalledDirectly() {
+        StubProvider primary = new StubProvider("primary", call -> 0);
+        provider = new HedgedQuoteProvider(List.of(primary), hedging, meterRegistry);
+
+        provider.fetchQuote("AAPL", RequestPriority.INTERACTIVE);
+
+        assertThat(provider.getName()).isEqualTo("primary");
+        assertThat(primary.threads).containsExactly(Thread.currentThread().getName());
+        assertThat(count(HedgedQuoteProvider.WINS_METER_NAME, "primary")).isEqualTo(1);
+    }
+
+    private double count(String meter, String providerName) {
+        return meterRegistry.get(meter).tag("provider", providerName).counter().count();
+    }
+
+    /**
+     * Provider answering after a delay chosen from the number of calls it received before.
+     */
+    private static final class StubProvider implements QuoteProvider {
+
+        final String name;
+        final IntToLongFunction delays;
+        final AtomicInteger calls = new AtomicInteger();
+        final List<String> threads = new ArrayList<>();
+        volatile RuntimeException failure;
+        private final BigDecimal price;
+
+        StubProvider(String name, IntToLongFunction delays) {
+            this.name = name;
+            this.delays = delays;
+            this.price = name.equals("primary") ? BigDecimal.ONE : BigDecimal.valueOf(2);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Optional<Quote> fetchQuote(String ticker, RequestPriority priority) {
+            answer();
+            return Optional.of(new Quote(ticker, price, Instant.now(), false));
+        }
+
+        @Override
+        public DailySeries fetchDailySeries(String ticker, RequestPriority priority) {
+            answer();
+            return DailySeries.empty();
+        }
+
+        private void answer() {
+            long delay = delays.applyAsLong(calls.getAndIncrement());
+            synchronized (threads) {
+                threads.add(Thread.currentThread().getName());
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.portfolio.config.ApplicationProperties;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MarketCalendarTest {
+
+    private MarketCalendar marketCalendar;
+
+    @BeforeEach
+    void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getMarketData().getCalendar().setHolidays(List.of("2025-01-09"));
+        marketCalendar = new MarketCalendar(applicationProperties);
+    }
+
+    @Test
+    void regularHolidaysAreGeneratedForEveryYear() {
+        assertThat(MarketCalendar.nyseHolidays(2026)).containsExactly(
+            LocalDate.of(2026, 1, 1),
+            LocalDate.of(2026, 1, 19),
+            LocalDate.of(2026, 2, 16),
+            LocalDate.of(2026, 4, 3),
+            LocalDate.of(2026, 5, 25),
+            LocalDate.of(2026, 6, 19),
+            LocalDate.of(2026, 7, 3),
+            LocalDate.of(2026, 9, 7),
+            LocalDate.of(2026, 11, 26),
+            LocalDate.of(2026, 12, 25)
+        );
+        // Juneteenth and Christmas on a Saturday, Independence Day on a Sunday
+        assertThat(MarketCalendar.nyseHolidays(2027)).contains(
+            LocalDate.of(2027, 3, 26),
+            LocalDate.of(2027, 6, 18),
+            LocalDate.of(2027, 7, 5),
+            LocalDate.of(2027, 12, 24)
+        );
+        // New Year's Day on a Saturday is not observed the Friday before
+        assertThat(MarketCalendar.nyseHolidays(2022)).doesNotContain(LocalDate.of(2021, 12, 31)).hasSize(9);
+        assertThat(marketCalendar.isTradingDay(LocalDate.of(2021, 12, 31))).isTrue();
+        assertThat(marketCalendar.isTradingDay(LocalDate.of(2025, 1, 9))).isFalse();
+    }
+
+    @Test
+    void easterIsComputedForAnyYear() {
+        assertThat(MarketCalendar.easterSunday(2024)).isEqualTo(LocalDate.of(2024, 3, 31));
+        assertThat(MarketCalendar.easterSunday(2025)).isEqualTo(LocalDate.of(2025, 4, 20));
+        assertThat(MarketCalendar.easterSunday(2038)).isEqualTo(LocalDate.of(2038, 4, 25));
+    }
+
+    @Test
+    void sessionIsOpenFromTheOpenUntilTheClose() {
+        // Wednesday 2025-10-15, in New York daylight time
+        assertThat(marketCalendar.isOpen(Instant.parse("2025-10-15T13:29:59Z"))).isFalse();
+        assertThat(marketCalendar.isOpen(Instant.parse("2025-10-15T13:30:00Z"))).isTrue();
+        assertThat(marketCalendar.isOpen(Instant.parse("2025-10-15T19:59:59Z"))).isTrue();
+        assertThat(marketCalendar.isOpen(Instant.parse("2025-10-15T20:00:00Z"))).isFalse();
+        // Standard time
+        assertThat(marketCalendar.isOpen(Instant.parse("2025-12-01T14:30:00Z"))).isTrue();
+    }
+
+    @Test
+    void weekendsAndHolidaysAreClosed() {
+        assertThat(marketCalendar.isOpen(Instant.parse("2025-10-18T15:00:00Z"))).isFalse();
+        assertThat(marketCalendar.isOpen(Instant.parse("2025-12-25T15:00:00Z"))).isFalse();
+        assertThat(marketCalendar.isTradingDay(LocalDate.of(2025, 12, 24))).isTrue();
+        assertThat(marketCalendar.isTradingDay(LocalDate.of(2025, 12, 25))).isFalse();
+    }
+
+    @Test
+    void nextOpenSkipsTheWeekendAndHolidays() {
+        // Wednesday 2025-12-24 after the close: Thursday is Christmas
+        assertThat(marketCalendar.nextOpen(Instant.parse("2025-12-24T22:00:00Z"))).isEqualTo(Instant.parse("2025-12-26T14:30:00Z"));
+        // Friday 2026-01-02 during the session
+        assertThat(marketCalendar.nextOpen(Instant.parse("2026-01-02T15:00:00Z"))).isEqualTo(Instant.parse("2026-01-05T14:30:00Z"));
+        // Before the open
+        assertThat(marketCalendar.nextOpen(Instant.parse("2025-10-15T12:00:00Z"))).isEqualTo(Instant.parse("2025-10-15T13:30:00Z"));
+    }
+
+    @Test
+    void lastSessionIsTheLastOneClosed() {
+        assertThat(marketCalendar.lastSession(Instant.parse("2025-10-15T19:59:00Z"))).isEqualTo(LocalDate.of(2025, 10, 14));
+        assertThat(marketCalendar.lastSession(Instant.parse("2025-10-15T20:00:00Z"))).isEqualTo(LocalDate.of(2025, 10, 15));
+        assertThat(marketCalendar.lastSession(Instant.parse("2026-01-01T18:00:00Z"))).isEqualTo(LocalDate.of(2025, 12, 31));
+        assertThat(marketCalendar.lastClose(Instant.parse("2025-10-19T12:00:00Z"))).isEqualTo(Instant.parse("2025-10-17T20:00:00Z"));
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class MockQuoteProviderTest {
+
+    private final MockQuoteProvider provider = new MockQuoteProvider();
+
+    @Test
+    void dailySeriesIsTheSameFromOneCallToTheNext() {
+        DailySeries series = provider.fetchDailySeries("AAPL", RequestPriority.INTERACTIVE);
+        DailySeries again = provider.fetchDailySeries("AAPL", RequestPriority.INTERACTIVE);
+
+        assertThat(series.size()).isEqualTo(30);
+        for (int i = 0; i < series.size(); i++) {
+            assertThat(again.bar(i)).isEqualTo(series.bar(i));
+        }
+        assertThat(provider.fetchDailySeries("MSFT", RequestPriority.INTERACTIVE).close(0)).isNotEqualTo(series.close(0));
+    }
+}
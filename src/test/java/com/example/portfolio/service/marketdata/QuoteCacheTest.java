@@ -0,0 +1,292 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.portfolio.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import javax.cache.Caching;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.jcache.JCacheCacheManager;
+
+class QuoteCacheTest {
+
+    private static final Instant NOW = Instant.parse("2025-09-22T14:00:00Z");
+
+    // Friday 2025-09-26, 16:00 in New York
+    private static final Instant FRIDAY_CLOSE = Instant.parse("2025-09-26T20:00:00Z");
+
+    private MeterRegistry meterRegistry;
+
+    private final List<PriceChangedEvent> events = new ArrayList<>();
+
+    private ApplicationProperties applicationProperties;
+
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(QuoteCache.QUOTES_CACHE);
+
+    private QuoteCache quoteCache;
+
+    @BeforeEach
+    void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getMarketData().getQuoteCache().setTimeToLiveSeconds(60);
+        applicationProperties.getMarketData().getQuoteCache().setStaleWhileRevalidateSeconds(600);
+        meterRegistry = new SimpleMeterRegistry();
+        quoteCache = createCache(NOW);
+    }
+
+    @Test
+    void missIsCounted() {
+        QuoteCache.Lookup lookup = quoteCache.lookup("AAPL");
+
+        assertThat(lookup.state()).isEqualTo(QuoteCache.State.MISS);
+        assertThat(lookup.quote()).isNull();
+        assertThat(counter("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void quoteWithinTimeToLiveIsFresh() {
+        quoteCache.put(new Quote("AAPL", new BigDecimal("230.10"), NOW.minusSeconds(59), false));
+
+        QuoteCache.Lookup lookup = quoteCache.lookup("AAPL");
+
+        assertThat(lookup.state()).isEqualTo(QuoteCache.State.FRESH);
+        assertThat(lookup.quote().stale()).isFalse();
+        assertThat(counter("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void quoteWithinStaleWindowIsServedForRevalidation() {
+        quoteCache.put(new Quote("AAPL", new BigDecimal("230.10"), NOW.minusSeconds(61), false));
+
+        QuoteCache.Lookup lookup = quoteCache.lookup("AAPL");
+
+        assertThat(lookup.state()).isEqualTo(QuoteCache.State.REVALIDATE);
+        assertThat(lookup.quote().stale()).isTrue();
+        assertThat(lookup.quote().price()).isEqualByComparingTo("230.10");
+        assertThat(counter("stale")).isEqualTo(1);
+    }
+
+    @Test
+    void quotePastStaleWindowIsExpiredButRetained() {
+        quoteCache.put(new Quote("AAPL", new BigDecimal("230.10"), NOW.minusSeconds(661), false));
+
+        assertThat(quoteCache.lookup("AAPL").state()).isEqualTo(QuoteCache.State.EXPIRED);
+        assertThat(quoteCache.getIfPresent("AAPL")).hasValueSatisfying(quote -> assertThat(quote.stale()).isTrue());
+    }
+
+    @Test
+    void freshPriceIsReadFromTheQuoteTable() {
+        quoteCache.put(new Quote("AAPL", new BigDecimal("230.10"), NOW.minusSeconds(59), false));
+        quoteCache.put(new Quote("MSFT", new BigDecimal("410.00"), NOW.minusSeconds(61), false));
+        QuoteTable.Entry entry = new QuoteTable.Entry();
+
+        assertThat(quoteCache.readFresh(quoteCache.symbolId("AAPL"), entry)).isTrue();
+        assertThat(entry.price()).isEqualTo(new BigDecimal("230.10"));
+        assertThat(entry.asOfMillis()).isEqualTo(NOW.minusSeconds(59).toEpochMilli());
+        assertThat(counter("hit")).isEqualTo(1);
+        assertThat(quoteCache.readCount("AAPL")).isEqualTo(1);
+        // Past its time to live, or never cached: the lookup tells the rest
+        assertThat(quoteCache.readFresh(quoteCache.symbolId("MSFT"), entry)).isFalse();
+        assertThat(quoteCache.readFresh(quoteCache.symbolId("GOOGL"), entry)).isFalse();
+        quoteCache.evict("AAPL");
+        assertThat(quoteCache.readFresh(quoteCache.symbolId("AAPL"), entry)).isFalse();
+    }
+
+    @Test
+    void priceFreshAtTheCloseIsReadFromTheQuoteTableUntilTheOpen() {
+        QuoteCache saturday = createCache(Instant.parse("2025-09-27T12:00:00Z"));
+        saturday.put(new Quote("AAPL", new BigDecimal("230.10"), FRIDAY_CLOSE.minusSeconds(30), false));
+        saturday.put(new Quote("MSFT", new BigDecimal("410.00"), FRIDAY_CLOSE.minusSeconds(61), false));
+        QuoteCache monday = createCache(Instant.parse("2025-09-29T13:31:00Z"));
+        monday.put(new Quote("AAPL", new BigDecimal("230.10"), FRIDAY_CLOSE.minusSeconds(30), false));
+        QuoteTable.Entry entry = new QuoteTable.Entry();
+
+        assertThat(saturday.readFresh(saturday.symbolId("AAPL"), entry)).isTrue();
+        assertThat(saturday.readFresh(saturday.symbolId("MSFT"), entry)).isFalse();
+        assertThat(monday.readFresh(monday.symbolId("AAPL"), entry)).isFalse();
+    }
+
+    @Test
+    void quoteTableFollowsTheRegion() {
+        EhcacheCachingProvider cachingProvider = (EhcacheCachingProvider) Caching.getCachingProvider(
+            EhcacheCachingProvider.class.getName()
+        );
+        try (
+            javax.cache.CacheManager regions = cachingProvider.getCacheManager(
+                URI.create("urn:quote-cache-test"),
+                ConfigurationBuilder.newConfigurationBuilder()
+                    .withCache(
+                        QuoteCache.QUOTES_CACHE,
+                        CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(2))
+                    )
+                    .build()
+            )
+        ) {
+            JCacheCacheManager jcacheCacheManager = new JCacheCacheManager(regions);
+            QuoteCache regionCache = new QuoteCache(
+                jcacheCacheManager,
+                event -> {},
+                new MarketCalendar(applicationProperties),
+                applicationProperties,
+                meterRegistry,
+                Clock.fixed(NOW, ZoneOffset.UTC)
+            );
+            QuoteTable.Entry entry = new QuoteTable.Entry();
+            for (String ticker : List.of("AAPL", "MSFT", "GOOGL")) {
+                regionCache.put(new Quote(ticker, new BigDecimal("100.00"), NOW, false));
+            }
+
+            // The region holds 2 quotes: the one it evicted is gone from the table too
+            javax.cache.Cache<Object, Object> region = regions.getCache(QuoteCache.QUOTES_CACHE);
+            assertThat(List.of("AAPL", "MSFT", "GOOGL")).allSatisfy(ticker ->
+                assertThat(regionCache.readFresh(regionCache.symbolId(ticker), entry)).isEqualTo(region.containsKey(ticker))
+            );
+
+            jcacheCacheManager.getCache(QuoteCache.QUOTES_CACHE).clear();
+
+            assertThat(List.of("AAPL", "MSFT", "GOOGL")).noneSatisfy(ticker ->
+                assertThat(regionCache.readFresh(regionCache.symbolId(ticker), entry)).isTrue()
+            );
+        }
+    }
+
+    @Test
+    void priceChangesArePublished() {
+        quoteCache.put(new Quote("AAPL", new BigDecimal("230.10"), NOW.minusSeconds(30), false));
+        quoteCache.put(new Quote("AAPL", new BigDecimal("230.100"), NOW.minusSeconds(20), false));
+        quoteCache.put(new Quote("AAPL", new BigDecimal("231.00"), NOW.minusSeconds(10), false));
+
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).previousPrice()).isNull();
+        assertThat(events.get(1).previousPrice()).isEqualByComparingTo("230.10");
+        assertThat(events.get(1).quote().price()).isEqualByComparingTo("231.00");
+    }
+
+    @Test
+    void lookupsAreCountedPerTickerAndDecay() {
+        quoteCache.lookup("AAPL");
+        quoteCache.lookup("AAPL");
+        quoteCache.lookup("AAPL");
+        quoteCache.lookup("MSFT");
+        quoteCache.getIfPresent("MSFT");
+
+        assertThat(quoteCache.readCount("AAPL")).isEqualTo(3);
+        assertThat(quoteCache.readCount("MSFT")).isEqualTo(1);
+
+        quoteCache.decayReadCounts();
+
+        assertThat(quoteCache.readCount("AAPL")).isEqualTo(1);
+        assertThat(quoteCache.readCount("MSFT")).isZero();
+    }
+
+    @Test
+    void readCountsAreBoundedByTheSizeOfTheRegion() {
+        applicationProperties.getMarketData().getQuoteCache().setMaxEntries(2);
+        quoteCache = createCache(NOW);
+
+        quoteCache.lookup("AAPL");
+        quoteCache.lookup("MSFT");
+        quoteCache.lookup("NOPE");
+        quoteCache.lookup("AAPL");
+
+        assertThat(quoteCache.readCount("AAPL")).isEqualTo(2);
+        assertThat(quoteCache.readCount("NOPE")).isZero();
+
+        quoteCache.decayReadCounts();
+        quoteCache.lookup("NOPE");
+
+        assertThat(quoteCache.readCount("NOPE")).isEqualTo(1);
+    }
+
+    @Test
+    void statisticsCountLookupsAndTheAgeOfTheQuotesServed() {
+        quoteCache.put(new Quote("AAPL", new BigDecimal("230.10"), NOW.minusSeconds(5), false));
+        quoteCache.put(new Quote("MSFT", new BigDecimal("510.20"), NOW.minusSeconds(120), false));
+        quoteCache.lookup("AAPL");
+        quoteCache.lookup("AAPL");
+        quoteCache.lookup("MSFT");
+        quoteCache.lookup("GOOGL");
+
+        QuoteCache.Statistics statistics = quoteCache.statistics();
+
+        assertThat(statistics.hits()).isEqualTo(2);
+        assertThat(statistics.stale()).isEqualTo(1);
+        assertThat(statistics.misses()).isEqualTo(1);
+        assertThat(statistics.hitRate()).isEqualTo(0.5);
+        assertThat(statistics.ageHistogram())
+            .containsEntry(Duration.ofSeconds(1), 0L)
+            .containsEntry(Duration.ofSeconds(10), 2L)
+            .containsEntry(Duration.ofMinutes(1), 2L)
+            .containsEntry(Duration.ofMinutes(5), 3L)
+            .containsEntry(Duration.ofDays(1), 3L);
+    }
+
+    @Test
+    void freshnessIsJudgedAhead() {
+        quoteCache.put(new Quote("AAPL", new BigDecimal("230.10"), NOW.minusSeconds(30), false));
+
+        assertThat(quoteCache.isFreshFor("AAPL", Duration.ofSeconds(29))).isTrue();
+        assertThat(quoteCache.isFreshFor("AAPL", Duration.ofSeconds(30))).isFalse();
+        assertThat(quoteCache.isFreshFor("MSFT", Duration.ZERO)).isFalse();
+    }
+
+    @Test
+    void quoteFreshAtTheCloseStaysFreshUntilTheOpen() {
+        Quote quote = new Quote("AAPL", new BigDecimal("230.10"), FRIDAY_CLOSE.minusSeconds(30), false);
+        createCache(FRIDAY_CLOSE).put(quote);
+
+        assertThat(createCache(Instant.parse("2025-09-28T12:00:00Z")).lookup("AAPL").state()).isEqualTo(QuoteCache.State.FRESH);
+        // Monday, 09:29 and 09:31 in New York
+        assertThat(createCache(Instant.parse("2025-09-29T13:29:00Z")).lookup("AAPL").state()).isEqualTo(QuoteCache.State.FRESH);
+        assertThat(createCache(Instant.parse("2025-09-29T13:31:00Z")).lookup("AAPL").state()).isEqualTo(QuoteCache.State.EXPIRED);
+    }
+
+    @Test
+    void quoteStaleAtTheCloseIsNotRevivedByIt() {
+        createCache(FRIDAY_CLOSE).put(new Quote("AAPL", new BigDecimal("230.10"), FRIDAY_CLOSE.minusSeconds(61), false));
+
+        assertThat(createCache(Instant.parse("2025-09-27T12:00:00Z")).lookup("AAPL").state()).isEqualTo(QuoteCache.State.EXPIRED);
+    }
+
+    @Test
+    void quoteFetchedAfterTheCloseIsFreshAheadUntilTheOpen() {
+        QuoteCache saturday = createCache(Instant.parse("2025-09-27T12:00:00Z"));
+        saturday.put(new Quote("AAPL", new BigDecimal("230.10"), Instant.parse("2025-09-27T11:00:00Z"), false));
+
+        assertThat(saturday.isFreshFor("AAPL", Duration.ofHours(24))).isTrue();
+        assertThat(saturday.isFreshFor("AAPL", Duration.ofDays(3))).isFalse();
+    }
+
+    /**
+     * @return a cache at the given time, sharing the cache region, events and meters of the others.
+     */
+    private QuoteCache createCache(Instant now) {
+        return new QuoteCache(
+            cacheManager,
+            event -> events.add((PriceChangedEvent) event),
+            new MarketCalendar(applicationProperties),
+            applicationProperties,
+            meterRegistry,
+            Clock.fixed(now, ZoneOffset.UTC)
+        );
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get(QuoteCache.REQUESTS_METER_NAME).tag(QuoteCache.REQUESTS_METER_RESULT_DIMENSION, result).counter().count();
+    }
+}
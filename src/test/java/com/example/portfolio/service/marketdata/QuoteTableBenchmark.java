@@ -0,0 +1,98 @@
+package com.example.portfolio.service.marketdata;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reading prices from a {@code ConcurrentHashMap<String, BigDecimal>} with reading them from a
+ * {@link QuoteTable} by {@link SymbolDictionary} id, with three reader threads per writer thread updating random
+ * tickers meanwhile.
+ * <p>
+ * Run with {@code -prof gc}: table reads allocate nothing, where map writes leave a {@code BigDecimal} behind each time.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuoteTableBenchmark {
+
+    @Param({ "5000" })
+    int tickers;
+
+    private String[] symbols;
+    private int[] symbolIds;
+    private ConcurrentHashMap<String, BigDecimal> map;
+    private QuoteTable table;
+
+    @Setup
+    public void setup() {
+        symbols = new String[tickers];
+        symbolIds = new int[tickers];
+        map = new ConcurrentHashMap<>();
+        SymbolDictionary dictionary = new SymbolDictionary(tickers);
+        table = new QuoteTable(tickers);
+        for (int i = 0; i < tickers; i++) {
+            symbols[i] = "T" + i;
+            symbolIds[i] = dictionary.intern(symbols[i]);
+            map.put(symbols[i], BigDecimal.valueOf(10_000 + i, 2));
+            table.write(symbolIds[i], 10_000 + i, 2, 0);
+        }
+    }
+
+    /**
+     * The entry a reader thread reads slots into.
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+
+        final QuoteTable.Entry entry = new QuoteTable.Entry();
+    }
+
+    @Benchmark
+    @Group("map")
+    @GroupThreads(3)
+    public BigDecimal mapRead() {
+        return map.get(symbols[ThreadLocalRandom.current().nextInt(tickers)]);
+    }
+
+    @Benchmark
+    @Group("map")
+    @GroupThreads(1)
+    public void mapWrite() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        map.put(symbols[random.nextInt(tickers)], BigDecimal.valueOf(random.nextInt(1_000_000), 2));
+    }
+
+    @Benchmark
+    @Group("table")
+    @GroupThreads(3)
+    public long tableRead(Reader reader) {
+        table.read(symbolIds[ThreadLocalRandom.current().nextInt(tickers)], reader.entry);
+        return reader.entry.unscaledPrice();
+    }
+
+    @Benchmark
+    @Group("table")
+    @GroupThreads(1)
+    public void tableWrite() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        table.write(symbolIds[random.nextInt(tickers)], random.nextInt(1_000_000), 2, System.currentTimeMillis());
+    }
+}
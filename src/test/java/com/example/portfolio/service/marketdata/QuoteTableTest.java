@@ -0,0 +1,98 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class QuoteTableTest {
+
+    @Test
+    void dictionaryHandsOutDenseIdsUpToItsCapacity() {
+        SymbolDictionary symbols = new SymbolDictionary(2);
+
+        assertThat(symbols.intern("AAPL")).isZero();
+        assertThat(symbols.intern("MSFT")).isEqualTo(1);
+        assertThat(symbols.intern("AAPL")).isZero();
+        assertThat(symbols.intern("GOOGL")).isEqualTo(SymbolDictionary.NO_ID);
+        assertThat(symbols.idOf("MSFT")).isEqualTo(1);
+        assertThat(symbols.idOf("GOOGL")).isEqualTo(SymbolDictionary.NO_ID);
+        assertThat(symbols.symbol(1)).isEqualTo("MSFT");
+        assertThat(symbols.size()).isEqualTo(2);
+    }
+
+    @Test
+    void slotsHoldThePriceWithItsScale() {
+        QuoteTable table = new QuoteTable(4);
+        QuoteTable.Entry entry = new QuoteTable.Entry();
+
+        assertThat(table.read(0, entry)).isFalse();
+        table.write(0, new BigDecimal("230.10"), 1_758_549_600_000L);
+        table.write(3, new BigDecimal("1E+2"), 1L);
+
+        assertThat(table.read(0, entry)).isTrue();
+        assertThat(entry.price()).isEqualTo(new BigDecimal("230.10"));
+        assertThat(entry.asOfMillis()).isEqualTo(1_758_549_600_000L);
+        assertThat(table.read(3, entry)).isTrue();
+        assertThat(entry.price()).isEqualTo(new BigDecimal("1E+2"));
+        assertThat(table.read(SymbolDictionary.NO_ID, entry)).isFalse();
+        assertThat(table.read(4, entry)).isFalse();
+
+        table.clear(0);
+        assertThat(table.read(0, entry)).isFalse();
+        // Too many digits for the table: the quote cache has it
+        table.write(3, new BigDecimal("123456789012345678901234.5"), 1L);
+        assertThat(table.read(3, entry)).isFalse();
+    }
+
+    @Test
+    void readersNeverSeeAHalfWrittenSlot() throws InterruptedException {
+        QuoteTable table = new QuoteTable(8);
+        for (int id = 0; id < 8; id++) {
+            table.write(id, 0, 0, ~0L);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong torn = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            threads.add(
+                new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (running.get()) {
+                        long value = random.nextLong();
+                        // Every field derives from the same value, so a mix of two writes shows
+                        table.write(random.nextInt(8), value, (int) (value & 7), ~value);
+                    }
+                })
+            );
+            threads.add(
+                new Thread(() -> {
+                    QuoteTable.Entry entry = new QuoteTable.Entry();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (running.get()) {
+                        table.read(random.nextInt(8), entry);
+                        if (entry.asOfMillis() != ~entry.unscaledPrice() || entry.priceScale() != (int) (entry.unscaledPrice() & 7)) {
+                            torn.incrementAndGet();
+                        }
+                        reads.incrementAndGet();
+                    }
+                })
+            );
+        }
+        threads.forEach(Thread::start);
+        Thread.sleep(500);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(reads.get()).isPositive();
+        assertThat(torn.get()).isZero();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class RefreshScheduleTest {
+
+    private static final Instant NOW = Instant.parse("2025-10-01T15:00:00Z");
+
+    private final RefreshSchedule schedule = new RefreshSchedule(Duration.ofMinutes(1), Duration.ofHours(1), 0.0025);
+
+    @Test
+    void unreadTickersGetTheLongestInterval() {
+        assertThat(schedule.interval(0, 0.01)).isEqualTo(Duration.ofHours(1));
+    }
+
+    @Test
+    void tickersOfUnknownVolatilityGetTheShortestInterval() {
+        assertThat(schedule.interval(5, Double.NaN)).isEqualTo(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void intervalShortensWithReadsAndVolatility() {
+        // 0.25% drift at 0.05% per root minute takes 25 minutes, divided by log2(2 + 2) = 2
+        assertThat(schedule.interval(2, 0.0005).toMillis()).isCloseTo(750_000L, within(1L));
+        assertThat(schedule.interval(62, 0.0005).toMillis()).isCloseTo(250_000L, within(1L));
+        assertThat(schedule.interval(2, 0.001).toMillis()).isCloseTo(187_500L, within(1L));
+    }
+
+    @Test
+    void intervalStaysWithinBounds() {
+        assertThat(schedule.interval(1_000_000, 1)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(schedule.interval(1, 0)).isEqualTo(Duration.ofHours(1));
+        assertThat(schedule.interval(1, 1e-9)).isEqualTo(Duration.ofHours(1));
+    }
+
+    @Test
+    void newTickersAreDueAtOnceTheMostReadFirst() {
+        Map<String, Long> reads = Map.of("AAPL", 1L, "MSFT", 5L);
+        schedule.track(List.of("AAPL", "GOOGL", "MSFT"), ticker -> reads.getOrDefault(ticker, 0L), NOW);
+
+        assertThat(schedule.pollDue(NOW, 2)).containsExactly("MSFT", "AAPL");
+        assertThat(schedule.pollDue(NOW, 2)).containsExactly("GOOGL");
+        assertThat(schedule.pollDue(NOW, 2)).isEmpty();
+    }
+
+    @Test
+    void rescheduledTickersAreDueAfterTheirInterval() {
+        schedule.track(List.of("AAPL", "MSFT"), ticker -> 1, NOW);
+        schedule.pollDue(NOW, 2);
+
+        assertThat(schedule.reschedule("AAPL", 1, NOW)).isEqualTo(Duration.ofMinutes(1));
+        schedule.retry("MSFT", NOW.plusSeconds(30));
+
+        assertThat(schedule.pollDue(NOW.plusSeconds(59), 2)).isEmpty();
+        assertThat(schedule.pollDue(NOW.plusSeconds(60), 2)).containsExactly("AAPL");
+        assertThat(schedule.pollDue(NOW.plusSeconds(90), 2)).containsExactly("MSFT");
+    }
+
+    @Test
+    void trackingAgainRequeuesOnlyTheTickersOffTheQueue() {
+        schedule.track(List.of("AAPL", "MSFT"), ticker -> 1, NOW);
+        schedule.pollDue(NOW, 2);
+        schedule.reschedule("AAPL", 1, NOW);
+
+        schedule.track(List.of("AAPL", "MSFT"), ticker -> 1, NOW.plusSeconds(10));
+
+        assertThat(schedule.pollDue(NOW.plusSeconds(10), 2)).containsExactly("MSFT");
+    }
+
+    @Test
+    void tickersNoLongerTrackedAreDropped() {
+        schedule.track(List.of("AAPL", "MSFT"), ticker -> 1, NOW);
+
+        schedule.track(List.of("MSFT"), ticker -> 1, NOW);
+
+        assertThat(schedule.pollDue(NOW, 5)).containsExactly("MSFT");
+        assertThat(schedule.snapshot()).extracting(RefreshSchedule.TickerRefresh::ticker).containsExactly("MSFT");
+    }
+
+    @Test
+    void volatilityFollowsTheMovesBetweenQuotes() {
+        schedule.track(List.of("AAPL"), ticker -> 1, NOW);
+        schedule.observe("AAPL", new BigDecimal("100"), NOW);
+        assertThat(schedule.snapshot().get(0).volatility()).isNaN();
+
+        // A 1% move over 4 minutes is 0.5% per root minute
+        schedule.observe("AAPL", new BigDecimal("101"), NOW.plus(Duration.ofMinutes(4)));
+        assertThat(schedule.snapshot().get(0).volatility()).isCloseTo(Math.log(1.01) / 2, within(1e-12));
+
+        // Older quotes are ignored, unchanged prices pull the average down
+        schedule.observe("AAPL", new BigDecimal("90"), NOW.plus(Duration.ofMinutes(2)));
+        schedule.observe("AAPL", new BigDecimal("101"), NOW.plus(Duration.ofMinutes(5)));
+        assertThat(schedule.snapshot().get(0).volatility()).isCloseTo(0.8 * Math.log(1.01) / 2, within(1e-12));
+        assertThat(schedule.snapshot().get(0).lastQuoteAt()).isEqualTo(NOW.plus(Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void minimumAboveMaximumIsRejected() {
+        assertThatThrownBy(() -> new RefreshSchedule(Duration.ofHours(2), Duration.ofHours(1), 0.01)).isInstanceOf(
+            IllegalArgumentException.class
+        );
+    }
+}
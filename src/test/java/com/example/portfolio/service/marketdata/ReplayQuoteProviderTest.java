@@ -0,0 +1,163 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Replays what {@link RecordingQuoteProvider} recorded.
+ */
+class ReplayQuoteProviderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysTheRecordedAnswersAndFailures() throws Exception {
+        Path file = directory.resolve("recording.jsonl");
+        StubProvider upstream = new StubProvider();
+        try (RecordingQuoteProvider recording = new RecordingQuoteProvider(upstream, file)) {
+            recording.fetchQuote("AAPL", RequestPriority.INTERACTIVE);
+            recording.fetchQuote("NOPE", RequestPriority.INTERACTIVE);
+            recording.fetchQuotes(List.of("MSFT", "AAPL"), RequestPriority.BACKGROUND);
+            recording.fetchDailySeries("AAPL", RequestPriority.BACKGROUND);
+            upstream.failure = new QuotaExceededException("Call budget spent");
+            assertThatThrownBy(() -> recording.fetchQuote("AAPL", RequestPriority.INTERACTIVE)).isInstanceOf(QuotaExceededException.class);
+        }
+        assertThat(Files.readAllLines(file)).hasSize(5);
+
+        ReplayQuoteProvider replay = new ReplayQuoteProvider("stub", file, 0);
+
+        assertThat(replay.fetchQuote("AAPL", RequestPriority.INTERACTIVE)).hasValueSatisfying(quote ->
+            assertThat(quote.price()).isEqualByComparingTo("101.25")
+        );
+        assertThat(replay.fetchQuote("NOPE", RequestPriority.INTERACTIVE)).isEmpty();
+        assertThat(replay.supportsBatch()).isTrue();
+        // The batch is matched whatever the order of its tickers
+        assertThat(replay.fetchQuotes(List.of("AAPL", "MSFT"), RequestPriority.BACKGROUND)).containsOnlyKeys("AAPL", "MSFT");
+        DailySeries series = replay.fetchDailySeries("AAPL", RequestPriority.BACKGROUND);
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.bar(1)).isEqualTo(upstream.fetchDailySeries("AAPL", RequestPriority.BACKGROUND).bar(1));
+        // The second AAPL quote failed
+        assertThatThrownBy(() -> replay.fetchQuote("AAPL", RequestPriority.INTERACTIVE))
+            .isInstanceOf(QuotaExceededException.class)
+            .hasMessage("Call budget spent");
+    }
+
+    @Test
+    void recordingsAreAppendedAndServedInTurn() throws Exception {
+        Path file = directory.resolve("recording.jsonl");
+        StubProvider upstream = new StubProvider();
+        try (RecordingQuoteProvider recording = new RecordingQuoteProvider(upstream, file)) {
+            recording.fetchQuote("AAPL", RequestPriority.INTERACTIVE);
+        }
+        upstream.price = new BigDecimal("99.50");
+        try (RecordingQuoteProvider recording = new RecordingQuoteProvider(upstream, file)) {
+            recording.fetchQuote("AAPL", RequestPriority.INTERACTIVE);
+        }
+
+        ReplayQuoteProvider replay = new ReplayQuoteProvider("stub", file, 0);
+
+        assertThat(replay.fetchQuote("AAPL", RequestPriority.INTERACTIVE).orElseThrow().price()).isEqualByComparingTo("101.25");
+        assertThat(replay.fetchQuote("AAPL", RequestPriority.INTERACTIVE).orElseThrow().price()).isEqualByComparingTo("99.50");
+        // Starting over once all were served
+        assertThat(replay.fetchQuote("AAPL", RequestPriority.INTERACTIVE).orElseThrow().price()).isEqualByComparingTo("101.25");
+    }
+
+    @Test
+    void replayWaitsForTheRecordedLatencyDividedByTheSpeed() throws Exception {
+        Path file = directory.resolve("recording.jsonl");
+        StubProvider upstream = new StubProvider();
+        upstream.latency = Duration.ofMillis(200);
+        try (RecordingQuoteProvider recording = new RecordingQuoteProvider(upstream, file)) {
+            recording.fetchQuote("AAPL", RequestPriority.INTERACTIVE);
+        }
+
+        assertThat(timed(new ReplayQuoteProvider("stub", file, 1))).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+        assertThat(timed(new ReplayQuoteProvider("stub", file, 10))).isLessThan(Duration.ofMillis(150));
+    }
+
+    @Test
+    void callNeverRecordedFails() throws Exception {
+        Path file = directory.resolve("recording.jsonl");
+        try (RecordingQuoteProvider recording = new RecordingQuoteProvider(new StubProvider(), file)) {
+            recording.fetchQuote("AAPL", RequestPriority.INTERACTIVE);
+        }
+
+        ReplayQuoteProvider replay = new ReplayQuoteProvider("stub", file, 0);
+
+        assertThat(replay.supportsBatch()).isFalse();
+        assertThatThrownBy(() -> replay.fetchQuote("MSFT", RequestPriority.INTERACTIVE)).isInstanceOf(MarketDataException.class);
+        // A batch never recorded as such is answered ticker by ticker
+        assertThat(replay.fetchQuotes(List.of("AAPL"), RequestPriority.INTERACTIVE)).containsOnlyKeys("AAPL");
+    }
+
+    private static Duration timed(ReplayQuoteProvider replay) {
+        long start = System.nanoTime();
+        replay.fetchQuote("AAPL", RequestPriority.INTERACTIVE);
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private static final class StubProvider implements QuoteProvider {
+
+        BigDecimal price = new BigDecimal("101.25");
+        Duration latency = Duration.ZERO;
+        RuntimeException failure;
+
+        @Override
+        public String getName() {
+            return "stub";
+        }
+
+        @Override
+        public Optional<Quote> fetchQuote(String ticker, RequestPriority priority) {
+            answer();
+            return ticker.equals("NOPE") ? Optional.empty() : Optional.of(new Quote(ticker, price, Instant.now(), false));
+        }
+
+        @Override
+        public boolean supportsBatch() {
+            return true;
+        }
+
+        @Override
+        public Map<String, Quote> fetchQuotes(Collection<String> tickers, RequestPriority priority) {
+            answer();
+            Map<String, Quote> quotes = new LinkedHashMap<>();
+            tickers.forEach(ticker -> quotes.put(ticker, new Quote(ticker, price, Instant.now(), false)));
+            return quotes;
+        }
+
+        @Override
+        public DailySeries fetchDailySeries(String ticker, RequestPriority priority) {
+            return DailySeries.builder(2)
+                .add(new DailyBar(LocalDate.of(2025, 10, 17), new BigDecimal("100"), new BigDecimal("102"), new BigDecimal("99"), price, 1_200_000))
+                .add(new DailyBar(LocalDate.of(2025, 10, 16), new BigDecimal("98"), new BigDecimal("100.5"), new BigDecimal("97.75"), new BigDecimal("100"), 900_000))
+                .build();
+        }
+
+        private void answer() {
+            if (failure != null) {
+                throw failure;
+            }
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersForTheSameKeyShareOneLoad() throws Exception {
+        AtomicInteger coalesced = new AtomicInteger();
+        AtomicInteger loads = new AtomicInteger();
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(key -> coalesced.incrementAndGet());
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<String> leader = executor.submit(() ->
+                singleFlight.execute("AAPL", () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return "230.10";
+                })
+            );
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("AAPL", () -> "unexpected")));
+            }
+            while (coalesced.get() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("230.10");
+            for (Future<String> follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("230.10");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(coalesced.get()).isEqualTo(7);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void keyIsReleasedOnceTheCallCompletes() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(key -> {});
+
+        assertThat(singleFlight.execute("AAPL", () -> "first")).isEqualTo("first");
+        assertThat(singleFlight.execute("AAPL", () -> "second")).isEqualTo("second");
+    }
+
+    @Test
+    void failureIsPropagatedAndReleasesTheKey() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(key -> {});
+
+        assertThatThrownBy(() ->
+            singleFlight.execute("AAPL", () -> {
+                throw new IllegalStateException("upstream down");
+            })
+        )
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("upstream down");
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void asyncCallIsSharedWithSynchronousCallers() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(key -> {});
+        List<Runnable> queued = new ArrayList<>();
+
+        var call = singleFlight.executeAsync("AAPL", () -> "230.10", queued::add);
+        var joined = singleFlight.executeAsync("AAPL", () -> "unexpected", queued::add);
+
+        assertThat(joined).isSameAs(call);
+        assertThat(queued).hasSize(1);
+        queued.get(0).run();
+        assertThat(call).isCompletedWithValue("230.10");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
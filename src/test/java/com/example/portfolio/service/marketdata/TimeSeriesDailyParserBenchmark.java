@@ -0,0 +1,83 @@
+package com.example.portfolio.service.marketdata;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reading a {@code TIME_SERIES_DAILY} response as a {@code String} into a {@code JsonNode} tree, as the
+ * provider used to, with streaming it from the body into a {@link DailySeries}.
+ * <p>
+ * The payload is the compact (100 bars) or full (6,500 bars, 1.2 MB) output size. Run with {@code -prof gc} to see the
+ * allocation rate per operation next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeSeriesDailyParserBenchmark {
+
+    @Param({ "100", "6500" })
+    int bars;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        payload = AlphaVantagePayloads.timeSeriesDaily("IBM", LocalDate.of(2025, 10, 17), bars, 42).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<DailyBar> treeModel() throws IOException {
+        String response = new String(payload, StandardCharsets.UTF_8);
+        JsonNode series = objectMapper.readTree(response).path("Time Series (Daily)");
+        List<DailyBar> result = new ArrayList<>(series.size());
+        Iterator<Map.Entry<String, JsonNode>> days = series.fields();
+        while (days.hasNext()) {
+            Map.Entry<String, JsonNode> day = days.next();
+            JsonNode bar = day.getValue();
+            result.add(
+                new DailyBar(
+                    LocalDate.parse(day.getKey()),
+                    new BigDecimal(bar.path("1. open").asText()),
+                    new BigDecimal(bar.path("2. high").asText()),
+                    new BigDecimal(bar.path("3. low").asText()),
+                    new BigDecimal(bar.path("4. close").asText()),
+                    bar.path("5. volume").asLong()
+                )
+            );
+        }
+        return result;
+    }
+
+    @Benchmark
+    public DailySeries streaming() throws IOException {
+        return TimeSeriesDailyParser.parse(jsonFactory, new ByteArrayInputStream(payload)).series();
+    }
+}
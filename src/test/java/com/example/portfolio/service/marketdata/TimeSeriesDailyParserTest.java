@@ -0,0 +1,130 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.constraints.LongRange;
+
+/**
+ * Checks the streaming parser against what the tree model reads from the same response.
+ */
+class TimeSeriesDailyParserTest {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Example
+    void matchesTheTreeModelOnAFullSizeResponse() throws IOException {
+        String payload = AlphaVantagePayloads.timeSeriesDaily("IBM", LocalDate.of(2025, 10, 17), 6500, 42);
+
+        DailySeries series = parse(payload).series();
+
+        List<DailyBar> expected = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> days = new ObjectMapper().readTree(payload).path("Time Series (Daily)").fields();
+        while (days.hasNext()) {
+            Map.Entry<String, JsonNode> day = days.next();
+            JsonNode bar = day.getValue();
+            expected.add(
+                0,
+                new DailyBar(
+                    LocalDate.parse(day.getKey()),
+                    new BigDecimal(bar.path("1. open").asText()),
+                    new BigDecimal(bar.path("2. high").asText()),
+                    new BigDecimal(bar.path("3. low").asText()),
+                    new BigDecimal(bar.path("4. close").asText()),
+                    bar.path("5. volume").asLong()
+                )
+            );
+        }
+        assertThat(series.size()).isEqualTo(6500);
+        for (int i = 0; i < series.size(); i++) {
+            assertThat(series.bar(i)).isEqualTo(expected.get(i));
+        }
+    }
+
+    @Example
+    void rateLimitNoteIsReported() throws IOException {
+        TimeSeriesDailyParser.Result result = parse("{\"Note\": \"Thank you for using Alpha Vantage!\"}");
+
+        assertThat(result.limitReached()).isTrue();
+        assertThat(result.rejection()).startsWith("Thank you");
+        assertThat(result.series().isEmpty()).isTrue();
+    }
+
+    @Example
+    void unknownFieldsAreSkipped() throws IOException {
+        DailySeries series = parse(
+            "{\"Meta Data\": {\"2. Symbol\": \"IBM\"}, \"Extra\": [1, {\"a\": 2}], \"Time Series (Daily)\": {" +
+            "\"2025-09-19\": {\"1. open\": \"1\", \"2. high\": \"2\", \"3. low\": \"0.5\", \"4. close\": \"1.5\", \"5. volume\": \"7\", \"6. note\": {}}}}"
+        ).series();
+
+        assertThat(series.bar(0)).isEqualTo(
+            new DailyBar(LocalDate.of(2025, 9, 19), new BigDecimal("1.0000"), new BigDecimal("2.0000"), new BigDecimal("0.5000"), new BigDecimal("1.5000"), 7)
+        );
+    }
+
+    @Example
+    void incompleteBarIsRejected() {
+        assertThatThrownBy(() -> parse("{\"Time Series (Daily)\": {\"2025-09-19\": {\"1. open\": \"1\"}}}")).isInstanceOf(
+            JsonParseException.class
+        );
+    }
+
+    @Example
+    void invalidDateIsRejected() {
+        assertThatThrownBy(() -> parse("{\"Time Series (Daily)\": {\"2025-13-01\": {}}}")).isInstanceOf(JsonParseException.class);
+    }
+
+    @Property
+    void epochDayMatchesLocalDate(@ForAll @LongRange(min = -200_000, max = 200_000) long epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+
+        assertThat(TimeSeriesDailyParser.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth())).isEqualTo(epochDay);
+    }
+
+    @Property(tries = 2000)
+    void pricesAreRoundedHalfUpLikeBigDecimal(@ForAll("prices") BigDecimal price) throws IOException {
+        String payload =
+            "{\"Time Series (Daily)\": {\"2025-09-19\": {\"1. open\": \"" +
+            price.toPlainString() +
+            "\", \"2. high\": " +
+            price.toPlainString() +
+            ", \"3. low\": \"0\", \"4. close\": \"0\", \"5. volume\": \"0\"}}}";
+
+        DailySeries series = parse(payload).series();
+
+        BigDecimal expected = price.setScale(PriceSeries.PRICE_SCALE, RoundingMode.HALF_UP);
+        assertThat(series.bar(0).open()).isEqualTo(expected);
+        assertThat(series.bar(0).high()).isEqualTo(expected);
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> prices() {
+        return Arbitraries.bigDecimals().between(new BigDecimal("-1000000000"), new BigDecimal("1000000000")).ofScale(8).flatMap(price ->
+            Arbitraries.integers().between(0, 8).map(scale -> price.setScale(scale, RoundingMode.DOWN))
+        );
+    }
+
+    private static TimeSeriesDailyParser.Result parse(String payload) throws IOException {
+        return TimeSeriesDailyParser.parse(JSON_FACTORY, new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+}
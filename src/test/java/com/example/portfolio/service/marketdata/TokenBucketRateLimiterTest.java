@@ -0,0 +1,167 @@
+package com.example.portfolio.service.marketdata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.portfolio.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketRateLimiterTest {
+
+    private MutableClock clock;
+
+    private MeterRegistry meterRegistry;
+
+    private ApplicationProperties.MarketData.RateLimit rateLimit;
+
+    @BeforeEach
+    void setup() {
+        clock = new MutableClock(Instant.parse("2025-09-22T14:00:00Z"));
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimit = new ApplicationProperties.MarketData.RateLimit();
+        rateLimit.setRequestsPerMinute(5);
+        rateLimit.setRequestsPerDay(10);
+        rateLimit.setInteractiveReservePercent(20);
+        rateLimit.setInteractiveMaxWaitMillis(0);
+        rateLimit.setBackgroundMaxWaitMillis(0);
+    }
+
+    @Test
+    void perMinuteBudgetIsEnforcedAndRefilled() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", rateLimit, meterRegistry, clock);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(RequestPriority.INTERACTIVE);
+        }
+        assertThatThrownBy(() -> limiter.acquire(RequestPriority.INTERACTIVE)).isInstanceOf(QuotaExceededException.class);
+        assertThat(rejections("interactive", "minute")).isEqualTo(1);
+
+        clock.advance(Duration.ofSeconds(12));
+        limiter.acquire(RequestPriority.INTERACTIVE);
+        assertThat(limiter.usedToday()).isEqualTo(6);
+    }
+
+    @Test
+    void backgroundRequestsLeaveTheInteractiveReserve() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", rateLimit, meterRegistry, clock);
+
+        for (int i = 0; i < 8; i++) {
+            limiter.acquire(RequestPriority.BACKGROUND);
+            clock.advance(Duration.ofMinutes(1));
+        }
+        assertThatThrownBy(() -> limiter.acquire(RequestPriority.BACKGROUND)).isInstanceOf(QuotaExceededException.class);
+        assertThat(rejections("background", "day")).isEqualTo(1);
+
+        limiter.acquire(RequestPriority.INTERACTIVE);
+        limiter.acquire(RequestPriority.INTERACTIVE);
+        assertThatThrownBy(() -> limiter.acquire(RequestPriority.INTERACTIVE)).isInstanceOf(QuotaExceededException.class);
+        assertThat(rejections("interactive", "day")).isEqualTo(1);
+    }
+
+    @Test
+    void dailyBudgetResetsAtMidnight() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", rateLimit, meterRegistry, clock);
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(RequestPriority.INTERACTIVE);
+            clock.advance(Duration.ofMinutes(1));
+        }
+        assertThatThrownBy(() -> limiter.acquire(RequestPriority.INTERACTIVE)).isInstanceOf(QuotaExceededException.class);
+
+        clock.advance(Duration.ofDays(1));
+        limiter.acquire(RequestPriority.INTERACTIVE);
+        assertThat(meterRegistry.get(TokenBucketRateLimiter.QUOTA_USED_METER_NAME).tag("window", "day").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void refundedCallIsGivenBackToBothBudgets() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", rateLimit, meterRegistry, clock);
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(RequestPriority.INTERACTIVE);
+        }
+
+        limiter.refund();
+
+        assertThat(limiter.usedToday()).isEqualTo(4);
+        limiter.acquire(RequestPriority.INTERACTIVE);
+        assertThatThrownBy(() -> limiter.acquire(RequestPriority.INTERACTIVE)).isInstanceOf(QuotaExceededException.class);
+    }
+
+    @Test
+    void waitingInteractiveRequestsAreServedBeforeBackgroundOnes() throws Exception {
+        rateLimit.setRequestsPerMinute(60);
+        rateLimit.setRequestsPerDay(0);
+        rateLimit.setInteractiveMaxWaitMillis(5000);
+        rateLimit.setBackgroundMaxWaitMillis(5000);
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", rateLimit, meterRegistry, Clock.systemUTC());
+        limiter.drain();
+
+        List<RequestPriority> grants = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        Thread background = new Thread(() -> {
+            limiter.acquire(RequestPriority.BACKGROUND);
+            grants.add(RequestPriority.BACKGROUND);
+            done.countDown();
+        });
+        Thread interactive = new Thread(() -> {
+            limiter.acquire(RequestPriority.INTERACTIVE);
+            grants.add(RequestPriority.INTERACTIVE);
+            done.countDown();
+        });
+        background.start();
+        Thread.sleep(100);
+        interactive.start();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(grants).containsExactly(RequestPriority.INTERACTIVE, RequestPriority.BACKGROUND);
+    }
+
+    private double rejections(String priority, String window) {
+        return meterRegistry
+            .get(TokenBucketRateLimiter.QUOTA_REJECTED_METER_NAME)
+            .tag("priority", priority)
+            .tag("window", window)
+            .counter()
+            .count();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
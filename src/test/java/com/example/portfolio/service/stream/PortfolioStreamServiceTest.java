@@ -0,0 +1,233 @@
+package com.example.portfolio.service.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.domain.Asset;
+import com.example.portfolio.repository.AssetRepository;
+import com.example.portfolio.repository.HoldingRow;
+import com.example.portfolio.repository.PortfolioRepository;
+import com.example.portfolio.service.StockDataService;
+import com.example.portfolio.service.dto.HoldingMetrics;
+import com.example.portfolio.service.dto.PortfolioValuationDelta;
+import com.example.portfolio.service.marketdata.MarketCalendar;
+import com.example.portfolio.service.marketdata.PriceChangedEvent;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import com.example.portfolio.service.marketdata.QuotePrices;
+import com.example.portfolio.service.valuation.Holding;
+import com.example.portfolio.service.valuation.HoldingChangedEvent;
+import com.example.portfolio.service.valuation.HoldingsIndex;
+import com.example.portfolio.service.valuation.PortfolioValuationEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+class PortfolioStreamServiceTest {
+
+    private final Instant now = Instant.now();
+
+    private final List<HoldingRow> holdings = new ArrayList<>();
+
+    private Runnable afterHoldingsRead = () -> {};
+
+    private MeterRegistry meterRegistry;
+
+    private QuoteCache quoteCache;
+
+    private PortfolioValuationEngine valuationEngine;
+
+    private PortfolioStreamService portfolioStreamService;
+
+    @BeforeEach
+    void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getMarketData().getStream().setValuationCoalesceMillis(200);
+        MarketCalendar marketCalendar = mock(MarketCalendar.class);
+        when(marketCalendar.isOpen(any())).thenReturn(true);
+        meterRegistry = new SimpleMeterRegistry();
+
+        AssetRepository assetRepository = mock(AssetRepository.class);
+        when(assetRepository.streamAllHoldings()).thenAnswer(invocation -> List.copyOf(holdings).stream());
+        when(assetRepository.findAllByPortfolioId(any())).thenAnswer(invocation -> {
+            List<Asset> assets = holdings
+                .stream()
+                .filter(row -> row.portfolioId().equals(invocation.getArgument(0)))
+                .map(row -> new Asset().ticker(row.ticker()).quantity(row.quantity()).avgPrice(row.avgPrice()))
+                .toList();
+            afterHoldingsRead.run();
+            return assets;
+        });
+        PortfolioRepository portfolioRepository = mock(PortfolioRepository.class);
+        when(portfolioRepository.existsById(any())).thenAnswer(invocation -> (Long) invocation.getArgument(0) < 10);
+        HoldingsIndex holdingsIndex = new HoldingsIndex();
+
+        quoteCache = new QuoteCache(
+            new ConcurrentMapCacheManager(QuoteCache.QUOTES_CACHE),
+            event -> {
+                valuationEngine.onPriceChanged((PriceChangedEvent) event);
+                portfolioStreamService.onPriceChanged((PriceChangedEvent) event);
+            },
+            marketCalendar,
+            applicationProperties,
+            meterRegistry
+        );
+        valuationEngine = new PortfolioValuationEngine(assetRepository, holdingsIndex, quoteCache, meterRegistry);
+        StockDataService stockDataService = mock(StockDataService.class);
+        when(stockDataService.getValuationPrices(anyList())).thenAnswer(invocation -> {
+            List<String> tickers = invocation.getArgument(0);
+            QuotePrices prices = new QuotePrices(tickers);
+            for (int index = 0; index < tickers.size(); index++) {
+                prices.set(index, quoteCache.getIfPresent(tickers.get(index)).orElseThrow());
+            }
+            return prices;
+        });
+        portfolioStreamService = new PortfolioStreamService(
+            assetRepository,
+            portfolioRepository,
+            stockDataService,
+            quoteCache,
+            holdingsIndex,
+            applicationProperties,
+            meterRegistry
+        );
+
+        holdings.add(new HoldingRow(1L, "AAPL", 10, new BigDecimal("100.00")));
+        holdings.add(new HoldingRow(1L, "MSFT", 5, new BigDecimal("200.00")));
+        holdings.add(new HoldingRow(2L, "GOOGL", 4, new BigDecimal("150.00")));
+        valuationEngine.load();
+        quoteCache.put(quote("AAPL", "110.00"));
+        quoteCache.put(quote("MSFT", "190.00"));
+        quoteCache.put(quote("GOOGL", "160.00"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        portfolioStreamService.destroy();
+    }
+
+    @Test
+    void subscriberGetsEveryHoldingThenOneDeltaPerBurstOfTicks() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        portfolioStreamService.subscribe(1L, sink);
+
+        PortfolioValuationDelta snapshot = sink.next();
+        assertThat(snapshot.holdings()).extracting(HoldingMetrics::ticker).containsExactly("AAPL", "MSFT");
+        assertThat(snapshot.totalValue()).isEqualByComparingTo("2050.00");
+        assertThat(snapshot.totalCost()).isEqualByComparingTo("2000.00");
+
+        quoteCache.put(quote("AAPL", "111.00"));
+        quoteCache.put(quote("GOOGL", "161.00"));
+        quoteCache.put(quote("AAPL", "112.00"));
+
+        PortfolioValuationDelta delta = sink.next();
+        assertThat(delta.holdings()).hasSize(1);
+        assertThat(delta.holdings().get(0).ticker()).isEqualTo("AAPL");
+        assertThat(delta.holdings().get(0).currentValue()).isEqualByComparingTo("1120.00");
+        assertThat(delta.removedTickers()).isEmpty();
+        assertThat(delta.totalValue()).isEqualByComparingTo("2070.00");
+        assertThat(delta.totalGainLoss()).isEqualByComparingTo("70.00");
+        assertThat(delta.totalValue()).isEqualByComparingTo(valuationEngine.getValuation(1L).orElseThrow().totalValue());
+        assertThat(sink.deltas.poll(400, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(meterRegistry.get(PortfolioStreamService.COALESCED_METER_NAME).counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(PortfolioStreamService.PUSHED_METER_NAME).counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void holdingWritesArePushed() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        portfolioStreamService.subscribe(1L, sink);
+        sink.next();
+        quoteCache.put(quote("NVDA", "50.00"));
+
+        Holding msft = new Holding(1L, "MSFT", 5, new BigDecimal("200.00"));
+        Holding nvda = new Holding(1L, "NVDA", 20, new BigDecimal("40.00"));
+        portfolioStreamService.onHoldingChanged(new HoldingChangedEvent(msft, null));
+        portfolioStreamService.onHoldingChanged(new HoldingChangedEvent(null, nvda));
+
+        PortfolioValuationDelta delta = sink.next();
+        assertThat(delta.holdings()).extracting(HoldingMetrics::ticker).containsExactly("NVDA");
+        assertThat(delta.removedTickers()).containsExactly("MSFT");
+        assertThat(delta.totalValue()).isEqualByComparingTo("2100.00");
+        assertThat(delta.totalCost()).isEqualByComparingTo("1800.00");
+        assertThat(delta.unpricedTickers()).isZero();
+    }
+
+    @Test
+    void holdingWrittenDuringTheLoadIsNotLost() throws InterruptedException {
+        quoteCache.put(quote("NVDA", "50.00"));
+        Holding nvda = new Holding(1L, "NVDA", 20, new BigDecimal("40.00"));
+        afterHoldingsRead = () -> {
+            afterHoldingsRead = () -> {};
+            // Committed after the read, its event arrives before the load is over
+            holdings.add(new HoldingRow(1L, "NVDA", 20, new BigDecimal("40.00")));
+            portfolioStreamService.onHoldingChanged(new HoldingChangedEvent(null, nvda));
+        };
+        RecordingSink sink = new RecordingSink();
+        portfolioStreamService.subscribe(1L, sink);
+
+        PortfolioValuationDelta snapshot = sink.next();
+        assertThat(snapshot.holdings()).extracting(HoldingMetrics::ticker).containsExactly("AAPL", "MSFT", "NVDA");
+        assertThat(snapshot.totalValue()).isEqualByComparingTo("3050.00");
+    }
+
+    @Test
+    void lastSubscriberClosingStopsTheWatch() throws InterruptedException {
+        RecordingSink first = new RecordingSink();
+        RecordingSink second = new RecordingSink();
+        StreamSubscriber<PortfolioValuationDelta> firstSubscriber = portfolioStreamService.subscribe(1L, first);
+        StreamSubscriber<PortfolioValuationDelta> secondSubscriber = portfolioStreamService.subscribe(1L, second);
+        assertThat(second.next().holdings()).hasSize(2);
+
+        firstSubscriber.close();
+        assertThat(portfolioStreamService.watchedPortfolioIds()).containsExactly(1L);
+        secondSubscriber.close();
+
+        assertThat(portfolioStreamService.watchedPortfolioIds()).isEmpty();
+        assertThat(meterRegistry.get(PortfolioStreamService.SUBSCRIBERS_METER_NAME).gauge().value()).isZero();
+    }
+
+    @Test
+    void unknownPortfolioIsRejected() {
+        assertThatThrownBy(() -> portfolioStreamService.subscribe(42L, new RecordingSink())).hasMessage("Portfolio not found");
+        assertThat(portfolioStreamService.watchedPortfolioIds()).isEmpty();
+    }
+
+    private Quote quote(String ticker, String price) {
+        return new Quote(ticker, new BigDecimal(price), now, false);
+    }
+
+    private static class RecordingSink implements StreamSubscriber.Sink<PortfolioValuationDelta> {
+
+        final BlockingQueue<PortfolioValuationDelta> deltas = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(PortfolioValuationDelta delta) {
+            deltas.add(delta);
+        }
+
+        @Override
+        public void close() {}
+
+        PortfolioValuationDelta next() throws InterruptedException {
+            PortfolioValuationDelta delta = deltas.poll(5, TimeUnit.SECONDS);
+            assertThat(delta).isNotNull();
+            return delta;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.portfolio.service.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.portfolio.config.ApplicationProperties;
+import com.example.portfolio.service.marketdata.MarketCalendar;
+import com.example.portfolio.service.marketdata.PriceChangedEvent;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+class QuoteStreamServiceTest {
+
+    private final Instant now = Instant.now();
+
+    private MeterRegistry meterRegistry;
+
+    private QuoteCache quoteCache;
+
+    private QuoteStreamService quoteStreamService;
+
+    @BeforeEach
+    void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getMarketData().getStream().setBufferSize(4);
+        applicationProperties.getMarketData().getStream().setSenderThreads(2);
+        applicationProperties.getMarketData().getStream().setSendTimeoutMillis(200);
+        MarketCalendar marketCalendar = mock(MarketCalendar.class);
+        when(marketCalendar.isOpen(any())).thenReturn(true);
+        meterRegistry = new SimpleMeterRegistry();
+        quoteCache = new QuoteCache(
+            new ConcurrentMapCacheManager(QuoteCache.QUOTES_CACHE),
+            event -> quoteStreamService.onPriceChanged((PriceChangedEvent) event),
+            marketCalendar,
+            applicationProperties,
+            meterRegistry
+        );
+        quoteStreamService = new QuoteStreamService(quoteCache, applicationProperties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        quoteStreamService.destroy();
+    }
+
+    @Test
+    void subscriberGetsTheCachedQuotesThenThePriceChangesOfItsTickers() throws InterruptedException {
+        quoteCache.put(quote("AAPL", "180"));
+        RecordingSink sink = new RecordingSink();
+
+        quoteStreamService.subscribe(List.of("aapl", "MSFT"), sink);
+        quoteCache.put(quote("MSFT", "410"));
+        quoteCache.put(quote("GOOGL", "160"));
+        // Same price: nothing to push
+        quoteCache.put(quote("MSFT", "410"));
+        quoteCache.put(quote("AAPL", "181"));
+
+        assertThat(sink.next()).isEqualTo(quote("AAPL", "180"));
+        assertThat(sink.next()).isEqualTo(quote("MSFT", "410"));
+        assertThat(sink.next()).isEqualTo(quote("AAPL", "181"));
+        assertThat(sink.quotes.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(quoteStreamService.subscribedTickers()).containsExactlyInAnyOrder("AAPL", "MSFT");
+        assertThat(meterRegistry.get(QuoteStreamService.SUBSCRIBERS_METER_NAME).gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void slowSubscriberIsEvictedWithoutHoldingUpTheOthers() throws InterruptedException {
+        CountDownLatch stuck = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink() {
+            @Override
+            public void send(Quote quote) throws IOException {
+                try {
+                    stuck.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(quote);
+            }
+        };
+        RecordingSink fast = new RecordingSink();
+        StreamSubscriber<Quote> slowSubscriber = quoteStreamService.subscribe(List.of("AAPL"), slow);
+        quoteStreamService.subscribe(List.of("AAPL"), fast);
+
+        for (int i = 1; i <= 8; i++) {
+            quoteCache.put(quote("AAPL", Integer.toString(100 + i)));
+            assertThat(fast.next().price()).isEqualByComparingTo(Integer.toString(100 + i));
+        }
+        stuck.countDown();
+
+        assertThat(slowSubscriber.isEvicted()).isTrue();
+        assertThat(slow.closed).isTrue();
+        assertThat(meterRegistry.get(QuoteStreamService.EVICTED_METER_NAME).counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(QuoteStreamService.SUBSCRIBERS_METER_NAME).gauge().value()).isEqualTo(1);
+        assertThat(fast.closed).isFalse();
+    }
+
+    @Test
+    void subscribersStuckInASendAreEvictedWithoutHoldingTheSenders() throws InterruptedException {
+        CountDownLatch sending = new CountDownLatch(2);
+        List<RecordingSink> stuckSinks = new ArrayList<>();
+        List<StreamSubscriber<Quote>> stuckSubscribers = new ArrayList<>();
+        // As many connections that never take an event as there are sender threads
+        for (int i = 0; i < 2; i++) {
+            RecordingSink stuck = new RecordingSink() {
+                @Override
+                public void send(Quote quote) throws IOException {
+                    sending.countDown();
+                    try {
+                        new CountDownLatch(1).await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }
+            };
+            stuckSinks.add(stuck);
+            stuckSubscribers.add(quoteStreamService.subscribe(List.of("AAPL"), stuck));
+        }
+        quoteCache.put(quote("AAPL", "180"));
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        RecordingSink reading = new RecordingSink();
+        quoteStreamService.subscribe(List.of("AAPL"), reading);
+        quoteCache.put(quote("AAPL", "181"));
+
+        assertThat(reading.next()).isEqualTo(quote("AAPL", "180"));
+        assertThat(reading.next()).isEqualTo(quote("AAPL", "181"));
+        for (RecordingSink stuck : stuckSinks) {
+            assertThat(stuck.closedLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(stuckSubscribers).allMatch(StreamSubscriber::isEvicted);
+        assertThat(meterRegistry.get(QuoteStreamService.EVICTED_METER_NAME).counter().count()).isEqualTo(2);
+        assertThat(reading.closed).isFalse();
+    }
+
+    @Test
+    void onlyStreamedTickersThatHadAQuoteAreRefreshed() {
+        quoteCache.put(quote("AAPL", "180"));
+
+        quoteStreamService.subscribe(List.of("AAPL", "NOT-A-TICKER"), new RecordingSink());
+
+        assertThat(quoteStreamService.subscribedTickers()).containsExactlyInAnyOrder("AAPL", "NOT-A-TICKER");
+        assertThat(quoteStreamService.tickersToRefresh()).containsExactly("AAPL");
+    }
+
+    @Test
+    void closedSubscriberIsUnregistered() {
+        RecordingSink sink = new RecordingSink();
+        StreamSubscriber<Quote> subscriber = quoteStreamService.subscribe(List.of("AAPL"), sink);
+
+        subscriber.close();
+        quoteCache.put(quote("AAPL", "180"));
+
+        assertThat(quoteStreamService.subscribedTickers()).isEmpty();
+        assertThat(subscriber.offer(quote("AAPL", "181"))).isFalse();
+        assertThat(sink.closed).isFalse();
+        assertThat(meterRegistry.get(QuoteStreamService.SUBSCRIBERS_METER_NAME).gauge().value()).isZero();
+        assertThat(meterRegistry.get(QuoteStreamService.EVICTED_METER_NAME).counter().count()).isZero();
+    }
+
+    @Test
+    void failedSendClosesTheConnection() throws InterruptedException {
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void send(Quote quote) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        StreamSubscriber<Quote> subscriber = quoteStreamService.subscribe(List.of("AAPL"), sink);
+
+        quoteCache.put(quote("AAPL", "180"));
+
+        assertThat(sink.closedLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.isClosed()).isTrue();
+        assertThat(subscriber.isEvicted()).isFalse();
+        assertThat(quoteStreamService.subscribedTickers()).isEmpty();
+    }
+
+    private Quote quote(String ticker, String price) {
+        return new Quote(ticker, new BigDecimal(price), now, false);
+    }
+
+    private static class RecordingSink implements StreamSubscriber.Sink<Quote> {
+
+        final BlockingQueue<Quote> quotes = new LinkedBlockingQueue<>();
+        final CountDownLatch closedLatch = new CountDownLatch(1);
+        volatile boolean closed;
+
+        @Override
+        public void send(Quote quote) throws IOException {
+            quotes.add(quote);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            closedLatch.countDown();
+        }
+
+        Quote next() throws InterruptedException {
+            Quote quote = quotes.poll(5, TimeUnit.SECONDS);
+            assertThat(quote).isNotNull();
+            return quote;
+        }
+    }
+}
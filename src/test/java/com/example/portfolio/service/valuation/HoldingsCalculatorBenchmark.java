@@ -0,0 +1,64 @@
+package com.example.portfolio.service.valuation;
+
+import com.example.portfolio.domain.Asset;
+import com.example.portfolio.service.marketdata.Quote;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the fixed-point and {@code BigDecimal} paths of {@link HoldingsCalculator}.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation rate per operation next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HoldingsCalculatorBenchmark {
+
+    @Param({ "10", "200" })
+    int holdings;
+
+    private List<Asset> assets;
+    private Map<String, Quote> quotes;
+
+    @Setup
+    public void setup() {
+        assets = new ArrayList<>(holdings);
+        quotes = new HashMap<>();
+        for (int i = 0; i < holdings; i++) {
+            String ticker = "T" + i;
+            assets.add(new Asset().ticker(ticker).quantity(1 + i * 7).avgPrice(BigDecimal.valueOf(10_000 + 13L * i, 2)));
+            // Alpha Vantage prices have 4 decimal places
+            quotes.put(ticker, new Quote(ticker, BigDecimal.valueOf(1_050_000 + 317L * i, 4), Instant.EPOCH, false));
+        }
+    }
+
+    @Benchmark
+    public HoldingsCalculator.Result bigDecimal() {
+        return HoldingsCalculator.calculateBigDecimal(assets, quotes);
+    }
+
+    @Benchmark
+    public HoldingsCalculator.Result fixedPoint() {
+        return HoldingsCalculator.calculateFixedPoint(assets, quotes);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.portfolio.service.valuation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.portfolio.domain.Asset;
+import com.example.portfolio.service.dto.HoldingMetrics;
+import com.example.portfolio.service.marketdata.Quote;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Combinators;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.constraints.IntRange;
+import net.jqwik.api.constraints.LongRange;
+
+/**
+ * Checks that the fixed-point path gives exactly what the {@code BigDecimal} path gives, scale included.
+ */
+class HoldingsCalculatorTest {
+
+    record Position(String ticker, int quantity, BigDecimal avgPrice, BigDecimal price) {}
+
+    @Property(tries = 2000)
+    void fixedPointMatchesBigDecimal(@ForAll("portfolios") List<Position> positions) {
+        List<Asset> assets = assets(positions);
+        Map<String, Quote> quotes = quotes(positions);
+
+        HoldingsCalculator.Result expected = HoldingsCalculator.calculateBigDecimal(assets, quotes);
+        HoldingsCalculator.Result actual = HoldingsCalculator.calculateFixedPoint(assets, quotes);
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Property(tries = 500)
+    void calculateMatchesBigDecimalWhateverTheAmounts(@ForAll("extremePortfolios") List<Position> positions) {
+        List<Asset> assets = assets(positions);
+        Map<String, Quote> quotes = quotes(positions);
+
+        assertThat(HoldingsCalculator.calculate(assets, quotes)).isEqualTo(HoldingsCalculator.calculateBigDecimal(assets, quotes));
+    }
+
+    @Property(tries = 5000)
+    void ratioRoundsHalfUpLikeBigDecimal(
+        @ForAll @LongRange(min = -1_000_000_000_000L, max = 1_000_000_000_000L) long dividend,
+        @ForAll @LongRange(min = 1, max = 1_000_000_000_000L) long divisor
+    ) {
+        BigDecimal expected = BigDecimal.valueOf(dividend).divide(BigDecimal.valueOf(divisor), FixedPoint.SCALE, RoundingMode.HALF_UP);
+
+        assertThat(BigDecimal.valueOf(FixedPoint.ratio(dividend, divisor), FixedPoint.SCALE)).isEqualTo(expected);
+    }
+
+    @Property
+    void unitsRoundTrip(
+        @ForAll @LongRange(min = -1_000_000_000_000L, max = 1_000_000_000_000L) long units,
+        @ForAll @IntRange(max = 4) int scale
+    ) {
+        BigDecimal amount = BigDecimal.valueOf(units, scale);
+
+        assertThat(FixedPoint.toBigDecimal(FixedPoint.toUnits(amount), scale)).isEqualTo(amount);
+    }
+
+    @Example
+    void overflowFallsBackToBigDecimal() {
+        List<Asset> assets = List.of(new Asset().ticker("BRK.A").quantity(Integer.MAX_VALUE).avgPrice(new BigDecimal("999999999999.99")));
+        Map<String, Quote> quotes = Map.of("BRK.A", new Quote("BRK.A", new BigDecimal("999999999999.99"), Instant.EPOCH, false));
+
+        HoldingsCalculator.Result result = HoldingsCalculator.calculate(assets, quotes);
+
+        assertThat(result).isEqualTo(HoldingsCalculator.calculateBigDecimal(assets, quotes));
+        assertThat(result.holdings())
+            .extracting(HoldingMetrics::currentValue)
+            .containsExactly(new BigDecimal("999999999999.99").multiply(BigDecimal.valueOf(Integer.MAX_VALUE)));
+    }
+
+    @Example
+    void tooManyDecimalPlacesFallBackToBigDecimal() {
+        List<Asset> assets = List.of(new Asset().ticker("AAPL").quantity(3).avgPrice(new BigDecimal("100.00")));
+        Map<String, Quote> quotes = Map.of("AAPL", new Quote("AAPL", new BigDecimal("101.123456"), Instant.EPOCH, true));
+
+        HoldingsCalculator.Result result = HoldingsCalculator.calculate(assets, quotes);
+
+        assertThat(result.holdings().get(0).currentValue()).isEqualTo(new BigDecimal("303.370368"));
+        assertThat(result.anyStale()).isTrue();
+    }
+
+    /**
+     * Up to 100,000 shares at up to 10,000 per share.
+     */
+    @Provide
+    Arbitrary<List<Position>> portfolios() {
+        return portfolios(100_000, 10_000, 0, 4);
+    }
+
+    /**
+     * Any quantity, up to 10^12 per share, and up to 6 decimal places.
+     */
+    @Provide
+    Arbitrary<List<Position>> extremePortfolios() {
+        return portfolios(Integer.MAX_VALUE, 1_000_000_000_000L, 0, 6);
+    }
+
+    private static Arbitrary<List<Position>> portfolios(int maxQuantity, long maxPrice, int minScale, int maxScale) {
+        Arbitrary<Position> position = Combinators.combine(
+            Arbitraries.integers().between(0, 99).map(i -> "T" + i),
+            Arbitraries.integers().between(1, maxQuantity),
+            amounts(maxPrice, 2),
+            Arbitraries.integers().between(minScale, maxScale).flatMap(scale -> amounts(maxPrice, scale))
+        ).as(Position::new);
+        // One position per ticker, as quotes are keyed by ticker
+        return position.list().ofMaxSize(50).uniqueElements(Position::ticker);
+    }
+
+    private static Arbitrary<BigDecimal> amounts(long max, int scale) {
+        return Arbitraries.bigIntegers()
+            .between(BigInteger.ZERO, BigInteger.valueOf(max).multiply(BigInteger.TEN.pow(scale)))
+            .map(unscaled -> new BigDecimal(unscaled, scale));
+    }
+
+    private static List<Asset> assets(List<Position> positions) {
+        List<Asset> assets = new ArrayList<>();
+        positions.forEach(position ->
+            assets.add(new Asset().ticker(position.ticker()).quantity(position.quantity()).avgPrice(position.avgPrice()))
+        );
+        return assets;
+    }
+
+    private static Map<String, Quote> quotes(List<Position> positions) {
+        Map<String, Quote> quotes = new HashMap<>();
+        positions.forEach(position -> quotes.put(position.ticker(), new Quote(position.ticker(), position.price(), Instant.EPOCH, false)));
+        return quotes;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.portfolio.service.valuation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class HoldingsIndexTest {
+
+    private final HoldingsIndex holdingsIndex = new HoldingsIndex();
+
+    @Test
+    void holdersAreListedInPortfolioOrder() {
+        holdingsIndex.update(table -> {
+            table.add("AAPL", 7, 10);
+            table.add("AAPL", 3, 5);
+            table.add("AAPL", 5, 1);
+            table.add("MSFT", 3, 2);
+        });
+
+        List<long[]> holders = new ArrayList<>();
+        holdingsIndex.forEachHolder("AAPL", (portfolioId, quantity) -> holders.add(new long[] { portfolioId, quantity }));
+
+        assertThat(holders).containsExactly(new long[] { 3, 5 }, new long[] { 5, 1 }, new long[] { 7, 10 });
+        assertThat(holdingsIndex.getPortfolioIds("MSFT")).containsExactly(3L);
+        assertThat(holdingsIndex.getPortfolioIds("GOOGL")).isEmpty();
+    }
+
+    @Test
+    void quantitiesAccumulateAndHoldersDisappearAtZero() {
+        holdingsIndex.update(table -> {
+            assertThat(table.add("AAPL", 1, 10)).isEqualTo(10);
+            assertThat(table.add("AAPL", 1, 5)).isEqualTo(15);
+            assertThat(table.add("AAPL", 1, -15)).isZero();
+        });
+
+        assertThat(holdingsIndex.getQuantity("AAPL", 1)).isZero();
+        assertThat(holdingsIndex.getTickerCount()).isZero();
+    }
+
+    @Test
+    void matchesASortedMapUnderRandomWrites() {
+        Random random = new Random(42);
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        holdingsIndex.update(table -> {
+            for (int i = 0; i < 10_000; i++) {
+                long portfolioId = random.nextInt(500);
+                long held = expected.getOrDefault(portfolioId, 0L);
+                long quantity = held > 0 && random.nextBoolean() ? -held : 1 + random.nextInt(100);
+                expected.merge(portfolioId, quantity, Long::sum);
+                expected.remove(portfolioId, 0L);
+                table.add("AAPL", portfolioId, quantity);
+            }
+        });
+
+        TreeMap<Long, Long> actual = new TreeMap<>();
+        holdingsIndex.forEachHolder("AAPL", actual::put);
+        assertThat(actual).isEqualTo(expected);
+    }
+}
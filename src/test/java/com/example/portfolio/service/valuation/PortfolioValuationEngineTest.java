@@ -0,0 +1,197 @@
+package com.example.portfolio.service.valuation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.portfolio.repository.AssetRepository;
+import com.example.portfolio.repository.HoldingRow;
+import com.example.portfolio.service.dto.PortfolioValuation;
+import com.example.portfolio.service.marketdata.PriceChangedEvent;
+import com.example.portfolio.service.marketdata.Quote;
+import com.example.portfolio.service.marketdata.QuoteCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PortfolioValuationEngineTest {
+
+    private final List<HoldingRow> assets = new ArrayList<>();
+
+    private final Map<String, Quote> cachedQuotes = new HashMap<>();
+
+    private AssetRepository assetRepository;
+
+    private HoldingsIndex holdingsIndex;
+
+    private PortfolioValuationEngine engine;
+
+    @BeforeEach
+    void setup() {
+        assetRepository = mock(AssetRepository.class);
+        when(assetRepository.streamAllHoldings()).thenAnswer(invocation -> List.copyOf(assets).stream());
+        QuoteCache quoteCache = mock(QuoteCache.class);
+        when(quoteCache.getIfPresent(anyString())).thenAnswer(invocation -> Optional.ofNullable(cachedQuotes.get(invocation.getArgument(0))));
+        holdingsIndex = new HoldingsIndex();
+        engine = new PortfolioValuationEngine(assetRepository, holdingsIndex, quoteCache, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void loadValuesHoldingsOnceTheirPriceIsKnown() {
+        assets.add(holding(1L, "aapl", 10, "100.00"));
+        assets.add(holding(1L, "MSFT", 5, "200.00"));
+        engine.load();
+
+        assertThat(holdingsIndex.getQuantity("AAPL", 1L)).isEqualTo(10);
+        assertThat(valuation(1L).totalCost()).isEqualByComparingTo("2000.00");
+        assertThat(valuation(1L).totalValue()).isEqualByComparingTo("0");
+        assertThat(valuation(1L).unpricedTickers()).isEqualTo(2);
+
+        priceChanged("AAPL", "110.00");
+        priceChanged("MSFT", "190.00");
+
+        assertThat(valuation(1L).totalValue()).isEqualByComparingTo("2050.00");
+        assertThat(valuation(1L).isComplete()).isTrue();
+    }
+
+    @Test
+    void priceChangeAppliesTheDeltaToEveryHolder() {
+        assets.add(holding(1L, "AAPL", 10, "100.00"));
+        assets.add(holding(2L, "AAPL", 3, "100.00"));
+        assets.add(holding(2L, "MSFT", 1, "200.00"));
+        engine.load();
+        priceChanged("AAPL", "100.00");
+        priceChanged("MSFT", "200.00");
+
+        priceChanged("AAPL", "101.50");
+
+        assertThat(valuation(1L).totalValue()).isEqualByComparingTo("1015.00");
+        assertThat(valuation(2L).totalValue()).isEqualByComparingTo("504.50");
+    }
+
+    @Test
+    void holdingWritesApplyTheirDelta() {
+        engine.load();
+        priceChanged("AAPL", "120.00");
+
+        Holding created = new Holding(1L, "AAPL", 10, new BigDecimal("100.00"));
+        engine.onHoldingChanged(new HoldingChangedEvent(null, created));
+        assertThat(valuation(1L).totalValue()).isEqualByComparingTo("1200.00");
+        assertThat(valuation(1L).totalCost()).isEqualByComparingTo("1000.00");
+
+        Holding updated = new Holding(1L, "AAPL", 4, new BigDecimal("90.00"));
+        engine.onHoldingChanged(new HoldingChangedEvent(created, updated));
+        assertThat(valuation(1L).totalValue()).isEqualByComparingTo("480.00");
+        assertThat(valuation(1L).totalCost()).isEqualByComparingTo("360.00");
+
+        Holding moved = new Holding(2L, "AAPL", 4, new BigDecimal("90.00"));
+        engine.onHoldingChanged(new HoldingChangedEvent(updated, moved));
+        assertThat(engine.getValuation(1L)).isEmpty();
+        assertThat(valuation(2L).totalValue()).isEqualByComparingTo("480.00");
+        assertThat(holdingsIndex.getPortfolioIds("AAPL")).containsExactly(2L);
+
+        engine.onHoldingChanged(new HoldingChangedEvent(moved, null));
+        assertThat(engine.getValuation(2L)).isEmpty();
+        assertThat(holdingsIndex.getTickerCount()).isZero();
+    }
+
+    @Test
+    void unpricedTickersAreCountedOncePerPortfolio() {
+        engine.load();
+        Holding first = new Holding(1L, "AAPL", 10, new BigDecimal("100.00"));
+        Holding second = new Holding(1L, "AAPL", 5, new BigDecimal("110.00"));
+
+        engine.onHoldingChanged(new HoldingChangedEvent(null, first));
+        engine.onHoldingChanged(new HoldingChangedEvent(null, second));
+        assertThat(valuation(1L).unpricedTickers()).isEqualTo(1);
+
+        engine.onHoldingChanged(new HoldingChangedEvent(first, null));
+        assertThat(valuation(1L).unpricedTickers()).isEqualTo(1);
+
+        priceChanged("AAPL", "120.00");
+        assertThat(valuation(1L).totalValue()).isEqualByComparingTo("600.00");
+        assertThat(valuation(1L).isComplete()).isTrue();
+    }
+
+    @Test
+    void holdingWritesBeforeTheInitialLoadAreLeftToIt() {
+        engine.onHoldingChanged(new HoldingChangedEvent(null, new Holding(1L, "AAPL", 10, new BigDecimal("100.00"))));
+
+        assertThat(engine.getValuation(1L)).isEmpty();
+    }
+
+    @Test
+    void rebuildReportsDriftedPortfolios() {
+        assets.add(holding(1L, "AAPL", 10, "100.00"));
+        assets.add(holding(2L, "MSFT", 1, "200.00"));
+        engine.load();
+
+        // A write the engine never heard of
+        assets.add(holding(2L, "GOOGL", 2, "150.00"));
+
+        assertThat(engine.rebuild()).isEqualTo(1);
+        assertThat(valuation(2L).totalCost()).isEqualByComparingTo("500.00");
+        assertThat(engine.rebuild()).isZero();
+    }
+
+    @Test
+    void pricesOfTickersNoLongerHeldAreDropped() {
+        engine.load();
+        priceChanged("AAPL", "120.00");
+        Holding created = new Holding(1L, "AAPL", 10, new BigDecimal("100.00"));
+        engine.onHoldingChanged(new HoldingChangedEvent(null, created));
+        assertThat(valuation(1L).totalValue()).isEqualByComparingTo("1200.00");
+
+        engine.onHoldingChanged(new HoldingChangedEvent(created, null));
+        cachedQuotes.remove("AAPL");
+        engine.onHoldingChanged(new HoldingChangedEvent(null, created));
+
+        assertThat(valuation(1L).totalValue()).isEqualByComparingTo("0");
+        assertThat(valuation(1L).unpricedTickers()).isEqualTo(1);
+    }
+
+    @Test
+    void holdingWrittenWhileTheRebuildReadsIsCountedOnce() {
+        assets.add(holding(1L, "AAPL", 10, "100.00"));
+        engine.load();
+        AtomicBoolean written = new AtomicBoolean();
+        when(assetRepository.streamAllHoldings()).thenAnswer(invocation -> {
+            List<HoldingRow> read = List.copyOf(assets);
+            if (written.compareAndSet(false, true)) {
+                // Committed once the rebuild has read, its listener runs before the rebuild is done
+                assets.add(holding(1L, "MSFT", 5, "200.00"));
+                engine.onHoldingChanged(new HoldingChangedEvent(null, new Holding(1L, "MSFT", 5, new BigDecimal("200.00"))));
+            }
+            return read.stream();
+        });
+
+        assertThat(engine.rebuild()).isZero();
+
+        assertThat(valuation(1L).totalCost()).isEqualByComparingTo("2000.00");
+        assertThat(holdingsIndex.getQuantity("MSFT", 1L)).isEqualTo(5);
+        assertThat(engine.rebuild()).isZero();
+    }
+
+    private PortfolioValuation valuation(Long portfolioId) {
+        return engine.getValuation(portfolioId).orElseThrow();
+    }
+
+    private void priceChanged(String ticker, String price) {
+        Quote quote = new Quote(ticker, new BigDecimal(price), Instant.now(), false);
+        cachedQuotes.put(ticker, quote);
+        engine.onPriceChanged(new PriceChangedEvent(null, quote));
+    }
+
+    private static HoldingRow holding(Long portfolioId, String ticker, int quantity, String avgPrice) {
+        return new HoldingRow(portfolioId, ticker, quantity, new BigDecimal(avgPrice));
+    }
+}